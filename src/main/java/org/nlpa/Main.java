@@ -26,19 +26,16 @@ import org.apache.logging.log4j.Logger;
 import org.bdp4j.pipe.AbstractPipe;
 import org.bdp4j.pipe.SerialPipes;
 import org.bdp4j.types.Instance;
-import org.bdp4j.util.InstanceListUtils;
 import org.nlpa.pipe.impl.*;
+import org.nlpa.util.BurstPipeRunner;
+import org.nlpa.util.FileInstanceSource;
+import org.nlpa.util.ParallelBurstPipeRunner;
 import org.nlpa.util.textextractor.EMLTextExtractor;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 //import org.bdp4j.dataset.CSVDatasetReader;
 //import org.bdp4j.transformers.CheckVoidTransformer;
 
@@ -56,29 +53,17 @@ public class Main {
      */
     private static final Logger logger = LogManager.getLogger(Main.class);
 
-    /**
-     * List of instances that are being processed
-     */
-    private static List<Instance> instances = new ArrayList<Instance>();
-
     /*
      * The main method for the running application
      */
     public static void main(String[] args) {
         // System.out.println("Program started.");
-        if (args.length == 0) {
-            generateInstances("smsTest/");
-        } else {
-            generateInstances(args[0]);
-        }
+        String testDir = (args.length == 0) ? "smsTest/" : args[0];
+        int workers = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
 
         // Configurations
         EMLTextExtractor.setCfgPartSelectedOnAlternative("text/plain");
 
-        for (Instance i : instances) {
-            logger.info("Instance data before pipe: " + i.getData().toString());
-        }
-
         /*
          * Create an example to identify methods which have ParameterPipe annotations.
          */
@@ -139,7 +124,37 @@ public class Main {
             new TeeCSVFromStringBufferPipe("output.csv", true), 
         });
 
-        AbstractPipe p = new SerialPipes(new AbstractPipe[]{new TargetAssigningFromPathPipe(),
+        AbstractPipe p = new SerialPipes(createPipes());
+
+        if (!p.checkDependencies()) {
+            System.out.println("Pipe dependencies are not satisfied");
+//          System.out.println(AbstractPipe.getErrorMesage()); // TODO why is this an error?
+            System.exit(1);
+        } else {
+            System.out.println("Pipe dependencies are satisfied");
+        }
+
+        //Pipe all instances in bursts (instances are lazily loaded)
+        long processed;
+        if (workers > 1) {
+            try (ParallelBurstPipeRunner runner = new ParallelBurstPipeRunner(Main::createPipes, workers)) {
+                processed = runner.run(generateInstances(testDir));
+            }
+        } else {
+            processed = new BurstPipeRunner(p).run(generateInstances(testDir));
+        }
+        logger.info("Processed " + processed + " instances from " + testDir);
+    }
+
+    /**
+     * Create the chain of pipes used to process the instances. Each call
+     * creates new pipe instances (so each worker of a ParallelBurstPipeRunner
+     * uses its own pipes)
+     *
+     * @return the chain of pipes
+     */
+    private static AbstractPipe[] createPipes() {
+        return new AbstractPipe[]{new TargetAssigningFromPathPipe(),
             new StoreFileExtensionPipe(), 
             new GuessDateFromFilePipe(), 
             new File2StringBufferPipe(),
@@ -159,64 +174,23 @@ public class Main {
             //new TokenSequence2FeatureVectorPipe(SequenceGroupingStrategy.COUNT),
             //new TeeCSVFromFeatureVectorPipe("outputtoks.csv")
             //teeDatasetFSV
-        });
-
-        if (!p.checkDependencies()) {
-            System.out.println("Pipe dependencies are not satisfied");
-//          System.out.println(AbstractPipe.getErrorMesage()); // TODO why is this an error?
-            System.exit(1);
-        } else {
-            System.out.println("Pipe dependencies are satisfied");
-        }
-
-        instances = InstanceListUtils.dropInvalid(instances);
-
-        //Pipe all instances
-        p.pipeAll(instances);
-
-        for (Instance i : instances) {
-            logger.info("Instance data after pipe: " + i.getSource() + " "
-                    + (((i.getData().toString().length()) > 10)
-                    ? (i.getData().toString().substring(0, 10) + "...")
-                    : i.getData().toString()));
-        }
+        };
     }
 
     /**
-     * Generate a instance List on instances attribute by recursivelly finding
-     * all files included in testDir directory
+     * Generate a lazy stream of instances by recursivelly finding all files
+     * included in testDir directory
      *
      * @param testDir The directory where the instances should be loaded
+     * @return a lazy stream of instances
      */
-    private static void generateInstances(String testDir) {
+    private static Stream<Instance> generateInstances(String testDir) {
         try {
-            Files.walk(Paths.get(testDir))
-                    .filter(Files::isRegularFile)
-                    .forEach(FileMng::visit);
+            return FileInstanceSource.walk(testDir);
         } catch (IOException e) {
             logger.error("IOException found " + e.getMessage());
             System.exit(0);
-        }
-    }
-
-    /**
-     * Used to add a new instance on instances attribute when a new file is
-     * detected.
-     */
-    static class FileMng {
-
-        /**
-         * Include a filne in the instancelist
-         *
-         * @param path The path of the file
-         */
-        static void visit(Path path) {
-            File data = path.toFile();
-            String target = null;
-            String name = data.getPath();
-            File source = data;
-
-            instances.add(new Instance(data, target, name, source));
+            return Stream.empty();
         }
     }
 
@@ -29,16 +29,13 @@ import org.bdp4j.pipe.AbstractPipe;
 import org.bdp4j.pipe.PipeParameter;
 import org.bdp4j.pipe.TransformationPipe;
 import org.bdp4j.types.Instance;
-import org.bdp4j.util.Pair;
-
-import javax.json.Json;
-import javax.json.JsonObject;
-import javax.json.JsonReader;
-import java.io.InputStream;
-import java.util.HashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+
 import org.bdp4j.pipe.Pipe;
+import org.nlpa.util.LexiconMatcher;
+import org.nlpa.util.CompiledLexicon;
+import org.nlpa.util.LexiconRegistry;
+
+import java.util.Locale;
 
 import static org.nlpa.pipe.impl.GuessLanguageFromStringBufferPipe.DEFAULT_LANG_PROPERTY;
 
@@ -59,43 +56,31 @@ public class AbbreviationFromStringBufferPipe extends AbstractPipe {
     private static final Logger logger = LogManager.getLogger(AbbreviationFromStringBufferPipe.class);
 
     /**
-     * A hashset of abbreviations in different languages. NOTE: All JSON files
-     * (listed below) containing abbreviations
-     *
+     * The name of the lexicon of abbreviations in different languages. NOTE: All
+     * JSON files containing abbreviations are stored in /abbreviations-json. Each
+     * lexicon is loaded the first time a text in its language is processed and
+     * shared through the LexiconRegistry
      */
-    private static final HashMap<String, HashMap<String, Pair<Pattern, String>>> htAbbreviations = new HashMap<>();
-
-    static {
-        for (String i : new String[]{"/abbreviations-json/abbrev.es.json", 
-                                     "/abbreviations-json/abbrev.en.json",
-                                     "/abbreviations-json/abbrev.fr.json",
-                                     "/abbreviations-json/abbrev.gl.json",
-                                     "/abbreviations-json/abbrev.eu.json",
-                                     "/abbreviations-json/abbrev.ru.json",
-                                     "/abbreviations-json/abbrev.de.json",
-                                     "/abbreviations-json/abbrev.pt.json",
-                                     "/abbreviations-json/abbrev.it.json"
-        }) {
-
-            String lang = i.substring(27, 29).toUpperCase();
-            try {
-                InputStream is = AbbreviationFromStringBufferPipe.class.getResourceAsStream(i);
-                JsonReader rdr = Json.createReader(is);
-                JsonObject jsonObject = rdr.readObject();
-                rdr.close();
-                HashMap<String, Pair<Pattern, String>> dict = new HashMap<>();
-                for (String abbrev : jsonObject.keySet()) {
-                    dict.put(abbrev, new Pair<>(
-                            Pattern.compile("(?:[\\p{Space}]|[\"><¡?¿!;:,.'-]|^)(" + Pattern.quote(abbrev) + ")[;:?\"!,.'>-]?(?=(?:[\\p{Space}]|$|>))"),
-                            jsonObject.getString(abbrev))); 
-                }
-                htAbbreviations.put(lang, dict);
-            } catch (Exception e) {
-                logger.error("Exception processing: " + i + " message " + e.getMessage());
-            }
+    private static final String ABBREVIATIONS_LEXICON = "abbreviations";
 
+    /**
+     * Load the abbreviations of a language
+     *
+     * @param lang The language (i.e. "EN")
+     * @return a LexiconMatcher containing the abbreviations of the language and
+     * their expansions or null if they are not available
+     */
+    private static LexiconMatcher loadAbbreviations(String lang) {
+        CompiledLexicon lexicon = CompiledLexicon.load("/abbreviations-json/abbrev." + lang.toLowerCase(Locale.ROOT) + ".json");
+        if (lexicon == null) {
+            return null;
         }
-
+        LexiconMatcher dict = new LexiconMatcher();
+        for (int i = 0; i < lexicon.size(); i++) {
+            int entry = lexicon.entryAt(i);
+            dict.add(lexicon.getKey(entry), lexicon.getString(CompiledLexicon.VALUE_COLUMN, entry));
+        }
+        return dict;
     }
 
     /**
@@ -178,17 +163,10 @@ public class AbbreviationFromStringBufferPipe extends AbstractPipe {
              String lang = (String) carrier.getProperty(langProp);
              StringBuffer sb = (StringBuffer)carrier.getData();
 
-             HashMap<String,Pair<Pattern,String>> dict = htAbbreviations.get(lang);
+             LexiconMatcher dict = LexiconRegistry.getLexicon(ABBREVIATIONS_LEXICON, lang, AbbreviationFromStringBufferPipe::loadAbbreviations);
              if (dict==null) return carrier; //When there is not a dictionary for the language
 
-             for(String abbrev:dict.keySet()){
-                  Pattern p=dict.get(abbrev).getObj1();
-                  Matcher m = p.matcher(sb);
-                  int last = 0;
-                  while (m.find(last)){
-                     sb = sb.replace(last=m.start(1), m.end(1), dict.get(abbrev).getObj2());
-                  }
-             }
+             carrier.setData(dict.replaceAll(sb));
         }else{
           logger.error("Data should be an StrinBuffer when processing "+carrier.getName()+" but is a "+carrier.getData().getClass().getName());
         }
@@ -7,24 +7,20 @@ import org.bdp4j.pipe.PipeParameter;
 import org.bdp4j.pipe.PropertyComputingPipe;
 import org.bdp4j.types.Instance;
 import org.bdp4j.util.Pair;
+import org.nlpa.util.CompiledLexicon;
+import org.nlpa.util.LexiconRegistry;
+import org.nlpa.util.StringTable;
 import static org.nlpa.pipe.impl.GuessLanguageFromStringBufferPipe.DEFAULT_LANG_PROPERTY;
 
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
-import javax.json.Json;
-import javax.json.JsonArray;
-import javax.json.JsonObject;
-import javax.json.JsonReader;
-import javax.json.JsonString;
-import javax.json.JsonNumber;
-import javax.json.JsonValue;
 import static org.nlpa.pipe.impl.ComputePolarityFromStringBufferPipe_.DEFAULT_POLARITY_PROPERTY;
 
 /**
@@ -54,133 +50,94 @@ public class ComputePolarityFromStringBufferPipe extends AbstractPipe {
     private static final double TOTAL_POLARITY_SCORE = 1.0;
 
     /**
-     * A hashmap of polarities in different languages.
+     * The name of the lexicon of polarities in different languages
      */
-    private static final HashMap<String, HashMap<String, double[]>> htPolarities = new HashMap<>();
+    private static final String POLARITY_LEXICON = "polarity";
+
     /**
-     * A hashmap of n-grams for the different polarity dictionaries.
+     * The name of the lexicon of negation words in different languages
      */
-    private static final HashMap<String, HashMap<String, List<String>>> htNgrams = new HashMap<>();
+    private static final String NEGATING_WORDS_LEXICON = "negating-words";
+
     /**
-     * A hashmap of negation words in different languages.
+     * The name of the lexicon of booster words in different languages
      */
-    private static final HashMap<String, List<String>> htNegativeWords = new HashMap<>();
+    private static final String BOOSTER_WORDS_LEXICON = "booster-words";
+
     /**
-     * A hashmap of booster words in different languages.
+     * The polarities of the words of a language. Words and scores are stored
+     * in a CompiledLexicon (the positive score in column "0" and the negative
+     * one in column "1")
      */
-    private static final HashMap<String, HashMap<String, Double>> htBoosterWords = new HashMap<>();
-
-    static {
-        for (String i : new String[]{
-            "/lexicon-json/lexicon.de.json",
-            "/lexicon-json/lexicon.en.json",
-            "/lexicon-json/lexicon.es.json",
-            "/lexicon-json/lexicon.fr.json",
-            "/lexicon-json/lexicon.it.json",
-            "/lexicon-json/lexicon.ru.json"
-
-        }) {
-
-            String lang = i.substring(22, 24).toUpperCase();
-            try {
-                InputStream is = ComputePolarityFromStringBufferPipe.class.getResourceAsStream(i);
-                JsonReader jsonReader = Json.createReader(is);
-                JsonObject jsonObject = jsonReader.readObject();
-                jsonReader.close();
-
-                HashMap<String, double[]> dict = new HashMap<>();
-                HashMap<String, List<String>> ngramsDict = new HashMap<>();
-
-                for (String word : jsonObject.keySet()) {
-                    if (isNgram(word)) {
-                        addNgramsDict(word, ngramsDict);
-                    }
-
-                    double[] doubleArray = new double[2];
-                    JsonArray jsonArray = (JsonArray) jsonObject.get(word);
-                    JsonValue posValue = jsonArray.get(0);
-                    JsonValue negValue = jsonArray.get(1);
-                    doubleArray[0] = new Double(posValue.toString());
-                    doubleArray[1] = new Double(negValue.toString());
-                    dict.put(word, doubleArray);
-                }
-
-                htPolarities.put(lang, dict);
-                htNgrams.put(lang, ngramsDict);
-                sortNgramDictionary(ngramsDict);
-
-            } catch (Exception e) {
-                logger.error("Exception processing: " + i + " message " + e.getMessage());
-            }
-
+    private static final class PolarityLexicon {
+
+        /**
+         * The words (and n-grams) of the lexicon and their scores
+         */
+        private final CompiledLexicon words;
+
+        /**
+         * The n-grams of the lexicon indexed by their first word
+         */
+        private final HashMap<String, List<String>> ngrams;
+
+        /**
+         * Build a PolarityLexicon
+         *
+         * @param words The words of the lexicon and their scores
+         * @param ngrams The n-grams of the lexicon indexed by their first word
+         */
+        private PolarityLexicon(CompiledLexicon words, HashMap<String, List<String>> ngrams) {
+            this.words = words;
+            this.ngrams = ngrams;
         }
+    }
 
-        //Negative dictionaries
-        for (String i : new String[]{
-            "/lexicon-json/negative-words/NegatingWordList.de.json",
-            "/lexicon-json/negative-words/NegatingWordList.en.json",
-            "/lexicon-json/negative-words/NegatingWordList.es.json",
-            "/lexicon-json/negative-words/NegatingWordList.fr.json",
-            "/lexicon-json/negative-words/NegatingWordList.it.json",
-            "/lexicon-json/negative-words/NegatingWordList.ru.json"
-        }) {
-
-            String lang = i.substring(46, 48).toUpperCase();
-            try {
-                InputStream is = ComputePolarityFromStringBufferPipe.class.getResourceAsStream(i);
-                JsonReader jsonReader = Json.createReader(is);
-                JsonArray array = jsonReader.readArray();
-                jsonReader.close();
-
-                List<String> negativeWordsList = new ArrayList<String>();
-
-                for (JsonValue v : array) {
-                    String a = ((JsonString) v).getString();
-                    negativeWordsList.add(a);
-                }
-
-                htNegativeWords.put(lang, negativeWordsList);
+    /**
+     * Load the polarity lexicon of a language
+     *
+     * @param lang The language (i.e. "EN")
+     * @return the polarity lexicon or null if it is not available
+     */
+    private static PolarityLexicon loadPolarities(String lang) {
+        CompiledLexicon lexicon = CompiledLexicon.load("/lexicon-json/lexicon." + lang.toLowerCase(Locale.ROOT) + ".json");
+        if (lexicon == null) {
+            return null;
+        }
 
-            } catch (Exception e) {
-                logger.error("Exception processing: " + i + " message " + e.getMessage());
+        HashMap<String, List<String>> ngramsDict = new HashMap<>();
+        for (int i = 0; i < lexicon.size(); i++) {
+            String word = lexicon.getKey(i);
+            if (isNgram(word)) {
+                addNgramsDict(word, ngramsDict);
             }
-
         }
+        sortNgramDictionary(ngramsDict);
 
-        //Booster dictionaries
-        for (String i : new String[]{
-            "/lexicon-json/booster-words/BoosterWordList.de.json",
-            "/lexicon-json/booster-words/BoosterWordList.en.json",
-            "/lexicon-json/booster-words/BoosterWordList.es.json",
-            "/lexicon-json/booster-words/BoosterWordList.fr.json",
-            "/lexicon-json/booster-words/BoosterWordList.it.json",
-            "/lexicon-json/booster-words/BoosterWordList.ru.json"
-
-        }) {
-
-            String lang = i.substring(44, 46).toUpperCase();
-            try {
-                InputStream is = ComputePolarityFromStringBufferPipe.class.getResourceAsStream(i);
-                JsonReader jsonReader = Json.createReader(is);
-                JsonObject jsonObject = jsonReader.readObject();
-                jsonReader.close();
-
-                HashMap<String, Double> boosterDict = new HashMap<>();
-
-                for (String word : jsonObject.keySet()) {
-                    JsonValue jsonValue = jsonObject.get(word);
-                    Double a = ((JsonNumber) jsonValue).bigDecimalValue().doubleValue();
-                    boosterDict.put(word, a);
-                }
-
-                htBoosterWords.put(lang, boosterDict);
-
-            } catch (Exception e) {
-                logger.error("Exception processing: " + i + " message " + e.getMessage());
-            }
+        return new PolarityLexicon(lexicon, ngramsDict);
+    }
 
-        }
+    /**
+     * Load the negation words of a language
+     *
+     * @param lang The language (i.e. "EN")
+     * @return a table containing the negation words or null if they are not
+     * available
+     */
+    private static StringTable loadNegatingWords(String lang) {
+        CompiledLexicon lexicon = CompiledLexicon.load("/lexicon-json/negative-words/NegatingWordList." + lang.toLowerCase(Locale.ROOT) + ".json");
+        return (lexicon == null) ? null : lexicon.getKeys();
+    }
 
+    /**
+     * Load the booster words of a language
+     *
+     * @param lang The language (i.e. "EN")
+     * @return the booster words and their values or null if they are not
+     * available
+     */
+    private static CompiledLexicon loadBoosterWords(String lang) {
+        return CompiledLexicon.load("/lexicon-json/booster-words/BoosterWordList." + lang.toLowerCase(Locale.ROOT) + ".json");
     }
 
     /**
@@ -329,10 +286,7 @@ public class ComputePolarityFromStringBufferPipe extends AbstractPipe {
             String lang = (String) carrier.getProperty(langProp);
             StringBuffer data = (StringBuffer) carrier.getData();
 
-            HashMap<String, double[]> dict = htPolarities.get(lang);
-            HashMap<String, List<String>> ngramDict = htNgrams.get(lang);
-            List<String> negativeWordsDict = htNegativeWords.get(lang);
-            HashMap<String, Double> boosterWordsDict = htBoosterWords.get(lang);
+            PolarityLexicon dict = LexiconRegistry.getLexicon(POLARITY_LEXICON, lang, ComputePolarityFromStringBufferPipe::loadPolarities);
 
             // When there is not a lexicon for the language
             if (dict == null) {
@@ -340,7 +294,10 @@ public class ComputePolarityFromStringBufferPipe extends AbstractPipe {
                 return carrier;
             }
 
-            double polarity = computePolarity(data.toString(), dict, ngramDict, negativeWordsDict, boosterWordsDict);
+            StringTable negativeWordsDict = LexiconRegistry.getLexicon(NEGATING_WORDS_LEXICON, lang, ComputePolarityFromStringBufferPipe::loadNegatingWords);
+            CompiledLexicon boosterWordsDict = LexiconRegistry.getLexicon(BOOSTER_WORDS_LEXICON, lang, ComputePolarityFromStringBufferPipe::loadBoosterWords);
+
+            double polarity = computePolarity(data.toString(), dict, negativeWordsDict, boosterWordsDict);
             double polarityDecimalFormat = (double) Math.round(polarity * 100) / 100;
             carrier.setProperty(polarityProp, polarityDecimalFormat);
 
@@ -357,8 +314,8 @@ public class ComputePolarityFromStringBufferPipe extends AbstractPipe {
      * the words.
      *
      * @param data the text to calculate the polarity
-     * @param dict the lexicon based on the language of the text
-     * @param ngramDict the n-gram lexicon based on the language of the text
+     * @param dict the lexicon based on the language of the text (including
+     * n-grams)
      * @param negativeWordsDict the negative lexicon based on the language of
      * the text
      * @param boosterWordsDict the booster lexicon based on the language of the
@@ -366,7 +323,7 @@ public class ComputePolarityFromStringBufferPipe extends AbstractPipe {
      *
      * @return polarity of the text
      */
-    private double computePolarity(String data, HashMap<String, double[]> dict, HashMap<String, List<String>> ngramDict, List<String> negativeWordsDict, HashMap<String, Double> boosterWordsDict) {
+    private double computePolarity(String data, PolarityLexicon dict, StringTable negativeWordsDict, CompiledLexicon boosterWordsDict) {
         double totalPolarity = 0.0d;
         double weightSentence;
         double totalWeightSentence = 0.0d;
@@ -402,10 +359,12 @@ public class ComputePolarityFromStringBufferPipe extends AbstractPipe {
                         isNegation = true;
                         negationWordNum = 0;
                     } else {
-                        word = hasNgram(words, sentenceIndex, ngramDict);
+                        word = hasNgram(words, sentenceIndex, dict.ngrams);
                         sentenceIndex += (word.split(" ").length - 1);
 
-                        double[] polarity = dict.get(word);
+                        int entry = dict.words.indexOf(word);
+                        double posScore = (entry >= 0) ? dict.words.getDouble("0", entry) : 0;
+                        double negScore = (entry >= 0) ? dict.words.getDouble("1", entry) : 0;
                         double boosterValue = getBoosterWordValue(words[sentenceIndex], boosterWordsDict);
                         if (boosterValue != 0) {
                             if (isBoosterWordBefore) {
@@ -417,14 +376,12 @@ public class ComputePolarityFromStringBufferPipe extends AbstractPipe {
                             isBoosterWord = true;
 
                             //Doesn't count the polarity of the booster word
-                            if (polarity != null && polarity.length > 1) {
-                                polarity[0] = 0;
-                                polarity[1] = 0;
-                            }
+                            posScore = 0;
+                            negScore = 0;
                         }
 
-                        if (polarity != null) {
-                            double res = getScorePolarity(polarity[0], polarity[1]);
+                        if (entry >= 0) {
+                            double res = getScorePolarity(posScore, negScore);
                             if (res != 0) {
                                 wordNum++;
                             }
@@ -513,7 +470,7 @@ public class ComputePolarityFromStringBufferPipe extends AbstractPipe {
      *
      * @return true or false if the word is use for negation.
      */
-    private boolean checkNegationWord(String word, List<String> negativeWordsDict) {
+    private boolean checkNegationWord(String word, StringTable negativeWordsDict) {
         if (negativeWordsDict != null && negativeWordsDict.contains(word)) {
             return true;
         }
@@ -530,10 +487,13 @@ public class ComputePolarityFromStringBufferPipe extends AbstractPipe {
      * @return the value of the booster word. If the word isn´t a booster word
      * then return 0.
      */
-    private double getBoosterWordValue(String word, HashMap<String, Double> boosterWordsDict) {
+    private double getBoosterWordValue(String word, CompiledLexicon boosterWordsDict) {
         double boosterValue = 0;
-        if (boosterWordsDict != null && boosterWordsDict.containsKey(word)) {
-            boosterValue = boosterWordsDict.get(word);
+        if (boosterWordsDict != null) {
+            int index = boosterWordsDict.indexOf(word);
+            if (index >= 0) {
+                boosterValue = boosterWordsDict.getDouble(CompiledLexicon.VALUE_COLUMN, index);
+            }
         }
         return boosterValue;
     }
@@ -27,17 +27,14 @@ import org.apache.logging.log4j.Logger;
 import org.bdp4j.pipe.AbstractPipe;
 import org.bdp4j.pipe.PipeParameter;
 import org.bdp4j.types.Instance;
-import org.bdp4j.util.Pair;
-
-import javax.json.Json;
-import javax.json.JsonObject;
-import javax.json.JsonReader;
-import java.io.InputStream;
-import java.util.HashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+
 import org.bdp4j.pipe.Pipe;
 import org.bdp4j.pipe.TransformationPipe;
+import org.nlpa.util.LexiconMatcher;
+import org.nlpa.util.CompiledLexicon;
+import org.nlpa.util.LexiconRegistry;
+
+import java.util.Locale;
 
 import static org.nlpa.pipe.impl.GuessLanguageFromStringBufferPipe.DEFAULT_LANG_PROPERTY;
 
@@ -62,38 +59,31 @@ public class ContractionsFromStringBufferPipe extends AbstractPipe {
     private String langProp = DEFAULT_LANG_PROPERTY;
 
     /**
-     * A hashset of contractions in different languages. NOTE: All JSON files
-     * (listed below) containing contractions
-     *
+     * The name of the lexicon of contractions in different languages. NOTE: All
+     * JSON files containing contractions are stored in /contractions-json. Each
+     * lexicon is loaded the first time a text in its language is processed and
+     * shared through the LexiconRegistry
      */
-    private static final HashMap<String, HashMap<String, Pair<Pattern, String>>> htContractions = new HashMap<>();
-
-    static {
-        for (String i : new String[]{"/contractions-json/contr.en.json", "/contractions-json/contr.es.json",
-                                     "/contractions-json/contr.pt.json","/contractions-json/contr.fr.json",
-                                     "/contractions-json/contr.gl.json","/contractions-json/contr.de.json",
-                                     "/contractions-json/contr.it.json","/contractions-json/contr.ru.json"
-                                    }) {
-            String lang = i.substring(25, 27).toUpperCase();
-
-            try {
-                InputStream is = ContractionsFromStringBufferPipe.class.getResourceAsStream(i);
-                JsonReader rdr = Json.createReader(is);
-                JsonObject jsonObject = rdr.readObject();
-                rdr.close();
-                HashMap<String, Pair<Pattern, String>> dict = new HashMap<>();
-                for (String abbrev : jsonObject.keySet()) {
-                    dict.put(abbrev, new Pair<>(
-                            Pattern.compile("(?:[\\p{Space}]|[\"><¡?¿!;:,.'-]|^)(" + Pattern.quote(abbrev) + ")[;:?\"!,.'>-]?(?=(?:[\\p{Space}]|$|>))"),
-                            jsonObject.getString(abbrev)));
-                }
-                htContractions.put(lang, dict);
-            } catch (Exception e) {
-                logger.error("Exception processing: " + i + " message " + e.getMessage());
-            }
+    private static final String CONTRACTIONS_LEXICON = "contractions";
 
+    /**
+     * Load the contractions of a language
+     *
+     * @param lang The language (i.e. "EN")
+     * @return a LexiconMatcher containing the contractions of the language and
+     * their expansions or null if they are not available
+     */
+    private static LexiconMatcher loadContractions(String lang) {
+        CompiledLexicon lexicon = CompiledLexicon.load("/contractions-json/contr." + lang.toLowerCase(Locale.ROOT) + ".json");
+        if (lexicon == null) {
+            return null;
         }
-
+        LexiconMatcher dict = new LexiconMatcher();
+        for (int i = 0; i < lexicon.size(); i++) {
+            int entry = lexicon.entryAt(i);
+            dict.add(lexicon.getKey(entry), lexicon.getString(CompiledLexicon.VALUE_COLUMN, entry));
+        }
+        return dict;
     }
 
     /**
@@ -171,19 +161,11 @@ public class ContractionsFromStringBufferPipe extends AbstractPipe {
             String lang = (String) carrier.getProperty(langProp);
             StringBuffer sb = (StringBuffer) carrier.getData();
 
-            HashMap<String, Pair<Pattern, String>> dict = htContractions.get(lang);
+            LexiconMatcher dict = LexiconRegistry.getLexicon(CONTRACTIONS_LEXICON, lang, ContractionsFromStringBufferPipe::loadContractions);
             if (dict == null) {
                 return carrier; //When there is not a dictionary for the language
             }
-            for (String abbrev : dict.keySet()) {
-                Pattern p = dict.get(abbrev).getObj1();
-                Matcher m = p.matcher(sb);
-                int last = 0;
-                while (m.find(last)) {
-                    last = m.start(1);
-                    sb = sb.replace(m.start(1), m.end(1), dict.get(abbrev).getObj2());
-                }
-            }
+            carrier.setData(dict.replaceAll(sb));
         } else {
             logger.error("Data should be an StrinBuffer when processing " + carrier.getName() + " but is a " + carrier.getData().getClass().getName());
         }
@@ -22,7 +22,6 @@
 package org.nlpa.pipe.impl;
 
 import com.google.auto.service.AutoService;
-import javax.json.JsonObject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bdp4j.pipe.AbstractPipe;
@@ -31,17 +30,14 @@ import org.bdp4j.pipe.PipeParameter;
 import org.bdp4j.pipe.PropertyComputingPipe;
 import org.bdp4j.types.Instance;
 import org.bdp4j.util.EBoolean;
-import org.nlpa.util.Trio;
+import org.nlpa.util.CompiledLexicon;
+import org.nlpa.util.LexiconRegistry;
+import org.nlpa.util.SymbolScanner;
 
-import static org.nlpa.pipe.impl.GuessLanguageFromStringBufferPipe.DEFAULT_LANG_PROPERTY;
+import java.util.Locale;
 
-import java.io.InputStream;
-import java.util.HashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import static org.nlpa.pipe.impl.GuessLanguageFromStringBufferPipe.DEFAULT_LANG_PROPERTY;
 
-import javax.json.Json;
-import javax.json.JsonReader;
 
 /**
  * This pipe finds and eventually drops emojis The data of the instance should
@@ -60,38 +56,29 @@ public class FindEmojiInStringBufferPipe extends AbstractPipe {
     private static final Logger logger = LogManager.getLogger(FindEmojiInStringBufferPipe.class);
 
     /**
-     * A hashset of emojis in different languages
+     * The name of the lexicon of emojis in different languages.
+     * Each lexicon is loaded the first time a text in its language is
+     * processed and shared through the LexiconRegistry
      */
-    private static final HashMap<String, HashMap<String, Trio<Pattern, String, Double>>> emojiDictionary = new HashMap<>();
-
-    static {
-        for (String i : new String[]{"/emoji-data/emojisID.de.json",
-            "/emoji-data/emojisID.en.json",
-            "/emoji-data/emojisID.es.json",
-            "/emoji-data/emojisID.fr.json",
-            "/emoji-data/emojisID.it.json",
-            "/emoji-data/emojisID.pt.json",
-            "/emoji-data/emojisID.ru.json"
-        }) {
-            String lang = i.substring(21, 23).toUpperCase();
-
-            try {
-                System.setProperty("file.encoding", "UTF-16LE");
-                InputStream is = FindEmojiInStringBufferPipe.class.getResourceAsStream(i);
-                JsonReader rdr = Json.createReader(is);
-                JsonObject jsonObject = rdr.readObject();
-                rdr.close();
-                HashMap<String, Trio<Pattern, String, Double>> dict = new HashMap<>();
-                for (String emoji : jsonObject.keySet()) {
-                    dict.put(emoji, new Trio<>(Pattern.compile(Pattern.quote(emoji)), jsonObject.getJsonObject(emoji).getString("synsetID"),
-                            jsonObject.getJsonObject(emoji).getJsonNumber("polarity").doubleValue()));
-                }
-                emojiDictionary.put(lang, dict);
-
-            } catch (Exception e) {
-                logger.error("Exception processing: " + i + " message " + e.getMessage());
-            }
+    private static final String EMOJIS_LEXICON = "emojis";
+
+    /**
+     * Load the emojis of a language
+     *
+     * @param lang The language (i.e. "EN")
+     * @return a SymbolScanner containing the emojis of the language or null
+     * if they are not available
+     */
+    private static SymbolScanner loadEmojis(String lang) {
+        CompiledLexicon lexicon = CompiledLexicon.load("/emoji-data/emojisID." + lang.toLowerCase(Locale.ROOT) + ".json");
+        if (lexicon == null) {
+            return null;
         }
+        SymbolScanner dict = new SymbolScanner();
+        for (int i = 0; i < lexicon.size(); i++) {
+            dict.add(lexicon.getKey(i), lexicon.getString("synsetID", i), lexicon.getDouble("polarity", i));
+        }
+        return dict;
     }
 
     /**
@@ -324,13 +311,9 @@ public class FindEmojiInStringBufferPipe extends AbstractPipe {
     @Override
     public Instance pipe(Instance carrier) {
         if (carrier.getData() instanceof StringBuffer) {
-            String data = carrier.getData().toString();
-            String value = "";
             String lang = (String) carrier.getProperty(langProp);
 
-            System.setProperty("file.encoding", "UTF-16LE");
-
-            HashMap<String, Trio<Pattern, String, Double>> dict = emojiDictionary.get(lang);
+            SymbolScanner dict = LexiconRegistry.getLexicon(EMOJIS_LEXICON, lang, FindEmojiInStringBufferPipe::loadEmojis);
 
             if (dict == null) {
                 logger.info("Language " + carrier.getProperty(langProp) + " not supported when processing " + carrier.getName() + " in FindEmojiInStringBufferPipe");
@@ -339,57 +322,25 @@ public class FindEmojiInStringBufferPipe extends AbstractPipe {
                 return carrier; // When there is not a dictionary for the language
             }
 
-            StringBuffer sb = (StringBuffer) carrier.getData();
-            if (replaceEmoji) {
-                for (String emoji : dict.keySet()) {
-
-                    Pattern pat = dict.get(emoji).getObj1();
-                    Matcher match = pat.matcher(sb);
-                    int last = 0;
-                    while (match.find(last)) {
-                        last = match.start(0) + 1;
-                        // Now replaces emoji pattern by its meaning
-                        value += emoji;
-                        sb = sb.replace(match.start(0), match.end(0), dict.get(emoji).getObj2());
-                    }
-                }
-            } else if (removeEmoji) {
-                for (String emoji : dict.keySet()) {
-                    Pattern pat = dict.get(emoji).getObj1();
-                    Matcher match = pat.matcher(sb);
-                    int last = 0;
-                    while (match.find(last)) {
-                        value += emoji;
-                        last = match.start(0) + 1;
-                        // Now deletes emojis
-                        sb = sb.replace(match.start(0), match.end(0), "");
-                    }
-                }
+            SymbolScanner.Action action = replaceEmoji ? SymbolScanner.Action.REPLACE
+                    : (removeEmoji ? SymbolScanner.Action.REMOVE : SymbolScanner.Action.KEEP);
+            if (action == SymbolScanner.Action.KEEP && !calculatePolarity) {
+                carrier.setProperty(emojiProp, "");
+                return carrier; // Nothing to compute
+            }
+
+            // Emojis are found, replaced (or removed) and scored in a single pass
+            SymbolScanner.Result result = dict.scan((StringBuffer) carrier.getData(), action);
+
+            if (action != SymbolScanner.Action.KEEP) {
+                carrier.setData(result.getText());
+                carrier.setProperty(emojiProp, result.getSymbols());
+            } else {
+                carrier.setProperty(emojiProp, "");
             }
-            carrier.setProperty(emojiProp, value);
 
             if (calculatePolarity) {
-                double score = 0;
-                int numEmojis = 0;
-                for (String emoji : dict.keySet()) {
-                    Pattern emojiInPattern = dict.get(emoji).getObj1();
-                    Matcher match = emojiInPattern.matcher(data);
-                    int last = 0;
-                    while (match.find(last)) {
-                        last = match.start(0) + 1;
-                        score += dict.get(emoji).getObj3();
-                        numEmojis++;
-
-                    }
-
-                }
-                //Calculate arithmetic mean and store in a property
-                Double mean = score / (new Double(numEmojis));
-                if (Double.isNaN(mean)) {
-                    carrier.setProperty("emojiPolarity", 0.0);
-                } else {
-                    carrier.setProperty("emojiPolarity", mean);
-                }
+                carrier.setProperty("emojiPolarity", result.getPolarity());
             }
 
         } else {
@@ -30,20 +30,15 @@ import org.bdp4j.pipe.AbstractPipe;
 import org.bdp4j.pipe.PipeParameter;
 import org.bdp4j.pipe.PropertyComputingPipe;
 import org.bdp4j.types.Instance;
-import org.nlpa.util.Trio;
+import org.nlpa.util.CompiledLexicon;
+import org.nlpa.util.LexiconRegistry;
+import org.nlpa.util.SymbolScanner;
 import org.bdp4j.util.EBoolean;
 
-import java.io.InputStream;
-import java.util.HashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import javax.json.Json;
-import javax.json.JsonObject;
-import javax.json.JsonReader;
-
 import org.bdp4j.pipe.Pipe;
 
+import java.util.Locale;
+
 /**
  * This pipe finds and eventually drops emoticons The data of the instance
  * should contain a StringBuffer
@@ -61,43 +56,30 @@ public class FindEmoticonInStringBufferPipe extends AbstractPipe {
     private static final Logger logger = LogManager.getLogger(FindEmoticonInStringBufferPipe.class);
 
     /**
-     * A hashset of emoticons in different languages. The data structure
-     * includes polarity and sysnsetID for each emoticon
+     * The name of the lexicon of emoticons in different languages. The data
+     * structure includes polarity and sysnsetID for each emoticon. Each
+     * lexicon is loaded the first time a text in its language is processed
+     * and shared through the LexiconRegistry
      */
-    private static final HashMap<String, HashMap<String, Trio<Pattern, String, Double>>> emoticonDictionary = new HashMap<>();
-
-    static {
-        for (String i : new String[]{"/emoticon-data/emoticonsID.de.json",
-            "/emoticon-data/emoticonsID.en.json",
-            "/emoticon-data/emoticonsID.es.json",
-            "/emoticon-data/emoticonsID.fr.json",
-            "/emoticon-data/emoticonsID.it.json",
-            "/emoticon-data/emoticonsID.pt.json",
-            "/emoticon-data/emoticonsID.ru.json"
-        }) {
-            String lang = i.substring(27, 29).toUpperCase();
-
-            try {
-
-                System.setProperty("file.encoding", "UTF-16LE");
-                InputStream is = FindEmoticonInStringBufferPipe.class.getResourceAsStream(i);
-                JsonReader rdr = Json.createReader(is);
-                JsonObject jsonObject = rdr.readObject();
-                rdr.close();
-
-                HashMap<String, Trio<Pattern, String, Double>> dict = new HashMap<>();
-                for (String emoticon : jsonObject.keySet()) {
-                    dict.put(emoticon,
-                            new Trio<>(Pattern.compile(Pattern.quote(emoticon)),
-                                    jsonObject.getJsonObject(emoticon).getString("synsetID"),
-                                    jsonObject.getJsonObject(emoticon).getJsonNumber("polarity").doubleValue()));
-                }
-                emoticonDictionary.put(lang, dict);
-
-            } catch (Exception e) {
-                logger.error("Exception processing: " + i + " message " + e.getMessage());
-            }
+    private static final String EMOTICONS_LEXICON = "emoticons";
+
+    /**
+     * Load the emoticons of a language
+     *
+     * @param lang The language (i.e. "EN")
+     * @return a SymbolScanner containing the emoticons of the language or null
+     * if they are not available
+     */
+    private static SymbolScanner loadEmoticons(String lang) {
+        CompiledLexicon lexicon = CompiledLexicon.load("/emoticon-data/emoticonsID." + lang.toLowerCase(Locale.ROOT) + ".json");
+        if (lexicon == null) {
+            return null;
         }
+        SymbolScanner dict = new SymbolScanner();
+        for (int i = 0; i < lexicon.size(); i++) {
+            dict.add(lexicon.getKey(i), lexicon.getString("synsetID", i), lexicon.getDouble("polarity", i));
+        }
+        return dict;
     }
 
     /**
@@ -320,13 +302,9 @@ public class FindEmoticonInStringBufferPipe extends AbstractPipe {
     public Instance pipe(Instance carrier) {
         if (carrier.getData() instanceof StringBuffer) {
 
-            String data = carrier.getData().toString();
-            String value = "";
             String lang = (String) carrier.getProperty(langProp);
 
-            System.setProperty("file.encoding", "UTF-16LE");
-
-            HashMap<String, Trio<Pattern, String, Double>> dict = emoticonDictionary.get(lang);
+            SymbolScanner dict = LexiconRegistry.getLexicon(EMOTICONS_LEXICON, lang, FindEmoticonInStringBufferPipe::loadEmoticons);
 
             if (dict == null) {
                 logger.info("Language " + carrier.getProperty(langProp) + " not supported when processing " + carrier.getName() + " in FindEmoticonInStringBufferPipe");
@@ -335,61 +313,25 @@ public class FindEmoticonInStringBufferPipe extends AbstractPipe {
                 return carrier; // When there is not a dictionary for the language
             }
 
-            StringBuffer sb = (StringBuffer) carrier.getData();
-            if (replaceEmoticon) {
-                for (String emoticon : dict.keySet()) {
-                    Pattern pat = dict.get(emoticon).getObj1();
-                    Matcher match = pat.matcher(sb);
-                    int last = 0;
-
-                    while (match.find(last)) {
-                        last = match.start(0) + 1;
-                        // Now replaces emoticon pattern by its meaning
-                        value += emoticon;
-                        sb = sb.replace(match.start(0), match.end(0), dict.get(emoticon).getObj2());
-                    }
-                }
-            } else if (removeEmoticon) {
-                for (String emoticon : dict.keySet()) {
-                    Pattern pat = dict.get(emoticon).getObj1();
-                    Matcher match = pat.matcher(sb);
-                    int last = 0;
-
-                    while (match.find(last)) {
-                        last = match.start(0) + 1;
-                        // Now deletes emoticon pattern from text
-                        value += emoticon;
-                        sb = sb.replace(match.start(0), match.end(0), "");
-                    }
-
-                }
+            SymbolScanner.Action action = replaceEmoticon ? SymbolScanner.Action.REPLACE
+                    : (removeEmoticon ? SymbolScanner.Action.REMOVE : SymbolScanner.Action.KEEP);
+            if (action == SymbolScanner.Action.KEEP && !calculatePolarity) {
+                carrier.setProperty(emoticonProp, "");
+                return carrier; // Nothing to compute
             }
 
-            carrier.setProperty(emoticonProp, value);
+            // Emoticons are found, replaced (or removed) and scored in a single pass
+            SymbolScanner.Result result = dict.scan((StringBuffer) carrier.getData(), action);
 
-            if (calculatePolarity) {
-                double score = 0;
-                int numEmoticons = 0;
-
-                for (String emoticon : dict.keySet()) {
-                    Pattern emoticonInPattern = dict.get(emoticon).getObj1();
-                    Matcher match = emoticonInPattern.matcher(data);
-                    int last = 0;
-                    while (match.find(last)) {
-                        last = match.start(0) + 1;
-                        score += dict.get(emoticon).getObj3();
-                        numEmoticons++;
-                    }
-
-                }
-                //Calculate arithmetic mean and store in a property
-                Double mean = score / (new Double(numEmoticons));
-                if (Double.isNaN(mean)) {
-                    carrier.setProperty("emoticonPolarity", 0.0);
-                } else {
-                    carrier.setProperty("emoticonPolarity", mean);
-                }
+            if (action != SymbolScanner.Action.KEEP) {
+                carrier.setData(result.getText());
+                carrier.setProperty(emoticonProp, result.getSymbols());
+            } else {
+                carrier.setProperty(emoticonProp, "");
+            }
 
+            if (calculatePolarity) {
+                carrier.setProperty("emoticonPolarity", result.getPolarity());
             }
 
         } else {
@@ -31,13 +31,13 @@ import org.bdp4j.pipe.PropertyComputingPipe;
 import org.bdp4j.types.Instance;
 import org.bdp4j.util.EBoolean;
 
-import javax.json.*;
-import java.io.InputStream;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.bdp4j.pipe.Pipe;
+import org.nlpa.util.LexiconMatcher;
+import org.nlpa.util.CompiledLexicon;
+import org.nlpa.util.LexiconRegistry;
+import org.nlpa.util.LexiconMatcher.CaseFolding;
+
+import java.util.Locale;
 
 import static org.nlpa.pipe.impl.GuessLanguageFromStringBufferPipe.DEFAULT_LANG_PROPERTY;
 
@@ -58,40 +58,35 @@ public class InterjectionFromStringBufferPipe extends AbstractPipe {
     private static final Logger logger = LogManager.getLogger(InterjectionFromStringBufferPipe.class);
 
     /**
-     * Hashmap containing interjections
+     * The name of the lexicon of interjections. Interjections of each language
+     * are compiled into a LexiconMatcher that also matches the exclamation
+     * marks surrounding them (i.e. "¡¡hey!!"). Each lexicon is loaded the first
+     * time a text in its language is processed and shared through the
+     * LexiconRegistry
      */
-    private static final HashMap<String, LinkedList<Pattern>> hmInterjections = new HashMap<>();
-
-    static {
-        for (String i : new String[]{"/interjections-json/interj.es.json",
-            "/interjections-json/interj.en.json",
-            "/interjections-json/interj.ru.json",
-            "/interjections-json/interj.de.json",
-            "/interjections-json/interj.pt.json",
-            "/interjections-json/interj.fr.json",
-            "/interjections-json/interj.gl.json",
-            "/interjections-json/interj.eu.json",
-            "/interjections-json/interj.it.json"
-        }) {
-
-            String lang = i.substring(27, 29).toUpperCase();
-            try {
-                InputStream is = InterjectionFromStringBufferPipe.class.getResourceAsStream(i);
-                JsonReader rdr = Json.createReader(is);
-                JsonArray array = rdr.readArray();
-                LinkedList<Pattern> setWords = new LinkedList<>();
-
-                for (JsonValue v : array) {
-                    setWords.add(Pattern.compile("(?:[\\p{Space}]|[\"><¡?¿!;:,.'-]|^)([¡]*(" + Pattern.quote(((JsonString) v).getString()) + ")[!]*)[;:?\"!,.'>-]?(?=(?:[\\p{Space}]|$|>))"));
-                }
-
-                hmInterjections.put(lang, setWords);
+    private static final String INTERJECTIONS_LEXICON = "interjections";
 
-            } catch (Exception e) {
-                logger.warn("Exception processing: " + i + " message " + e.getMessage());
-            }
+    /**
+     * Load the interjections of a language
+     *
+     * @param lang The language (i.e. "EN")
+     * @return a LexiconMatcher containing the interjections of the language or
+     * null if they are not available
+     */
+    private static LexiconMatcher loadInterjections(String lang) {
+        CompiledLexicon lexicon = CompiledLexicon.load("/interjections-json/interj." + lang.toLowerCase(Locale.ROOT) + ".json");
+        if (lexicon == null) {
+            return null;
         }
+        LexiconMatcher setWords = new LexiconMatcher(LexiconMatcher.DEFAULT_LEADING_DELIMITERS,
+                LexiconMatcher.DEFAULT_TRAILING_PUNCTUATION, "¡", "!", CaseFolding.NONE);
 
+        // Interjections are added in the order of the file (it is the order
+        // used to report them)
+        for (int i = 0; i < lexicon.size(); i++) {
+            setWords.add(lexicon.getKey(lexicon.entryAt(i)));
+        }
+        return setWords;
     }
 
     /**
@@ -236,26 +231,29 @@ public class InterjectionFromStringBufferPipe extends AbstractPipe {
         if (carrier.getData() instanceof StringBuffer) {
             String lang = (String) carrier.getProperty(langProp);
             StringBuffer sb = (StringBuffer) carrier.getData();
-            String value = "";
+            StringBuilder value = new StringBuilder();
 
-            LinkedList<Pattern> setWords = hmInterjections.get(lang);
+            LexiconMatcher setWords = LexiconRegistry.getLexicon(INTERJECTIONS_LEXICON, lang, InterjectionFromStringBufferPipe::loadInterjections);
             if (setWords != null) {
-               for (Pattern interej :setWords){
-                    Matcher m = interej.matcher(sb);
-                    int last=0;
-                    
-                    if (m.find(last)){
-                       value += m.group(1) + " -- "; 
-                       if (removeInterjection){
-                           while (m.find(last)){
-                                last=m.start(1);
-                                sb.replace(m.start(1),m.end(1),"");
-                           }
-                       }                       
+                //First occurrence of each interjection (reported following the order of the dictionary)
+                String[] firstMatches = new String[setWords.size()];
+                setWords.findAll(sb, (entry, start, end) -> {
+                    if (firstMatches[entry] == null) {
+                        firstMatches[entry] = sb.substring(start, end);
                     }
+                });
+
+                for (String match : firstMatches) {
+                    if (match != null) {
+                        value.append(match).append(" -- ");
+                    }
+                }
+
+                if (removeInterjection) {
+                    carrier.setData(setWords.removeAll(sb));
                 }
             }
-            carrier.setProperty(interjectionProp, value);
+            carrier.setProperty(interjectionProp, value.toString());
         }else{
           logger.error("Data should be an StrinBuffer when processing "+carrier.getName()+" but is a "+carrier.getData().getClass().getName());
         }
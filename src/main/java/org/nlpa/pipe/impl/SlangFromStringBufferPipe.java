@@ -30,15 +30,13 @@ import org.bdp4j.pipe.PipeParameter;
 import org.bdp4j.pipe.TransformationPipe;
 import org.bdp4j.types.Instance;
 
-import javax.json.Json;
-import javax.json.JsonObject;
-import javax.json.JsonReader;
-import java.io.InputStream;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.bdp4j.pipe.Pipe;
+import org.nlpa.util.LexiconMatcher;
+import org.nlpa.util.CompiledLexicon;
+import org.nlpa.util.LexiconRegistry;
+import org.nlpa.util.LexiconMatcher.CaseFolding;
+
+import java.util.Locale;
 
 import static org.nlpa.pipe.impl.GuessLanguageFromStringBufferPipe.DEFAULT_LANG_PROPERTY;
 
@@ -59,34 +57,57 @@ public class SlangFromStringBufferPipe extends AbstractPipe {
     private static final Logger logger = LogManager.getLogger(SlangFromStringBufferPipe.class);
 
     /**
-     * A hashmap of slangs in different languages. NOTE: All JSON files (listed
-     * below) containing slangs
-     *
+     * The name of the lexicon of slangs in different languages. NOTE: All JSON
+     * files containing slangs are stored in /slangs-json. Each lexicon is
+     * loaded the first time a text in its language is processed and shared
+     * through the LexiconRegistry
      */
-    private static final HashMap<String, HashMap<String, SlangEntry>> hmSlangs = new HashMap<>();
+    private static final String SLANGS_LEXICON = "slangs";
 
-    static {
-        for (String i : new String[]{"/slangs-json/slang.en.json", "/slangs-json/slang.es.json",
-            "/slangs-json/slang.gl.json", "/slangs-json/slang.fr.json",
-            "/slangs-json/slang.pt.json","/slangs-json/slang.it.json",
-            "/slangs-json/slang.ru.json", "/slangs-json/slang.de.json"}) {
+    /**
+     * The name of the lexicon containing the slang terms (as they are written
+     * in the JSON files) and their replacements
+     */
+    private static final String SLANG_TERMS_LEXICON = "slang-terms";
 
-            String lang = i.substring(19, 21).toUpperCase();
-            try {
-                InputStream is = SlangFromStringBufferPipe.class.getResourceAsStream(i);
-                JsonReader rdr = Json.createReader(is);
-                JsonObject jsonObject = rdr.readObject();
-                rdr.close();
-                HashMap<String, SlangEntry> dict = new HashMap<>();
-                jsonObject.keySet().forEach((slang) -> {
-                    dict.put(slang, new SlangEntry(Pattern.compile("(?:[\\p{Space}]|[\"><¡?¿!;:,.']|^)(" + Pattern.quote(slang) + ")[;:?\"!,.'>]?(?=(?:[\\p{Space}]|$|>))", Pattern.CASE_INSENSITIVE),
-                            jsonObject.getString(slang)));
-                });
-                hmSlangs.put(lang, dict);
-            } catch (Exception e) {
-                logger.error("Exception processing: " + i + " message " + e.getMessage());
+    /**
+     * Load the slang terms of a language and their replacements
+     *
+     * @param lang The language (i.e. "EN")
+     * @return the slang terms of the language or null if they are not
+     * available
+     */
+    private static CompiledLexicon loadSlangTerms(String lang) {
+        return CompiledLexicon.load("/slangs-json/slang." + lang.toLowerCase(Locale.ROOT) + ".json");
+    }
+
+    /**
+     * Load the slangs of a language into a case insensitive LexiconMatcher
+     * (slangs do not use '-' as a boundary). When several slangs only differ
+     * in case, the last one found in the lexicon is used to replace them
+     *
+     * @param lang The language (i.e. "EN")
+     * @return a LexiconMatcher containing the slangs of the language and their
+     * replacements or null if they are not available
+     */
+    private static LexiconMatcher loadSlangs(String lang) {
+        CompiledLexicon lexicon = LexiconRegistry.getLexicon(SLANG_TERMS_LEXICON, lang, SlangFromStringBufferPipe::loadSlangTerms);
+        if (lexicon == null) {
+            return null;
+        }
+        LexiconMatcher matcher = new LexiconMatcher("\"><¡?¿!;:,.'", ";:?\"!,.'>", CaseFolding.ASCII);
+        for (int i = 0; i < lexicon.size(); i++) {
+            int entry = lexicon.entryAt(i);
+            String slang = lexicon.getKey(entry);
+            int previous = matcher.indexOf(slang);
+            if (previous >= 0) {
+                logger.warn("The slangs \"" + matcher.getWord(previous) + "\" and \"" + slang + "\" (" + lang
+                        + ") only differ in case. Texts containing any of them will be replaced by \""
+                        + lexicon.getString(CompiledLexicon.VALUE_COLUMN, entry) + "\"");
             }
+            matcher.add(slang, lexicon.getString(CompiledLexicon.VALUE_COLUMN, entry));
         }
+        return matcher;
     }
 
     /**
@@ -166,102 +187,31 @@ public class SlangFromStringBufferPipe extends AbstractPipe {
         if (carrier.getData() instanceof StringBuffer) {
             String lang = (String) carrier.getProperty(langProp);
             StringBuffer data = (StringBuffer) carrier.getData();
-            HashMap<String, SlangEntry> dict = hmSlangs.get(lang);
-            if (dict == null) {
+            LexiconMatcher matcher = LexiconRegistry.getLexicon(SLANGS_LEXICON, lang, SlangFromStringBufferPipe::loadSlangs);
+            if (matcher == null) {
                 return carrier; //If dict is not available for the language of the texts
             }
-            Collection<SlangEntry> dictEntries = dict.values();
-            for (SlangEntry slang : dictEntries) {
-                Matcher m = slang.getWordPattern().matcher(data);
-                int last = 0;
-                while (m.find(last)) {
-                    last = m.start(1);
-                    data = data.replace(m.start(1), m.end(1), slang.getReplacement());
-                }
-            }
+            carrier.setData(matcher.replaceAll(data));
         }
      
         return carrier;
     }
 
     /**
-     * Find the replacement for a SlangTerm
+     * Find the replacement for a SlangTerm. The term should be written
+     * exactly as in the lexicon (slangs that only differ in case, i.e. "UT"
+     * and "ut", have different replacements)
      *
      * @param slangTerm The term written in SlangTerm
      * @param lang The language used for slang
      * @return The traduction of the slang
      */
     public static String getReplacement4SlangTerm(String slangTerm, String lang) {
-        HashMap<String, SlangEntry> dict = hmSlangs.get(lang);
-        if (dict == null) {
-            return null;
-        }
-        SlangEntry entry = dict.get(slangTerm);
-        if (entry == null) {
+        CompiledLexicon lexicon = LexiconRegistry.getLexicon(SLANG_TERMS_LEXICON, lang, SlangFromStringBufferPipe::loadSlangTerms);
+        if (lexicon == null) {
             return null;
         }
-        return entry.getReplacement();
-    }
-}
-
-/**
- * Entry for slang
- */
-class SlangEntry {
-
-    /**
-     * The replacement string for the slang
-     */
-    private String replacement;
-
-    /**
-     * A pattern that is automatically computed from the word to quickly find the
-     * slang entry
-     */
-    private Pattern wordPattern;
-
-    /**
-     * Default SlangEntry constructor
-     */
-    public SlangEntry(Pattern wordPattern, String replacement) {
-        super();
-        this.replacement = replacement;
-        this.wordPattern = wordPattern;
-    }
-
-    /**
-     * Returns value of replacement
-     *
-     * @return the replacement value
-     */
-    public String getReplacement() {
-        return replacement;
-    }
-
-    /**
-     * Sets new value of replacement
-     *
-     * @param replacement the replacement value
-     */
-    public void setReplacement(String replacement) {
-        this.replacement = replacement;
-    }
-
-    /**
-     * Returns value of wordPattern
-     *
-     * @return the pattern to detect the slang
-     */
-    public Pattern getWordPattern() {
-        return wordPattern;
-    }
-
-    /**
-     * Sets new value of wordPattern
-     *
-     * @param wordPattern the pattern to detect the slang
-     */
-    public void setWordPattern(Pattern wordPattern) {
-        this.wordPattern = wordPattern;
+        int entry = lexicon.indexOf(slangTerm);
+        return (entry < 0) ? null : lexicon.getString(CompiledLexicon.VALUE_COLUMN, entry);
     }
 }
@@ -29,13 +29,12 @@ import org.bdp4j.pipe.PipeParameter;
 import org.bdp4j.pipe.TransformationPipe;
 import org.bdp4j.types.Instance;
 
-import javax.json.*;
-import java.io.InputStream;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.bdp4j.pipe.Pipe;
+import org.nlpa.util.LexiconMatcher;
+import org.nlpa.util.CompiledLexicon;
+import org.nlpa.util.LexiconRegistry;
+
+import java.util.Locale;
 
 import static org.nlpa.pipe.impl.GuessLanguageFromStringBufferPipe.DEFAULT_LANG_PROPERTY;
 
@@ -55,58 +54,37 @@ public class StopWordFromStringBufferPipe extends AbstractPipe {
     private static final Logger logger = LogManager.getLogger(StopWordFromStringBufferPipe.class);
 
     /**
-     * A HashMap of stopwords in different languages. Thanks to StopWords-Json
+     * The name of the lexicon of stopwords in different languages. Thanks to StopWords-Json
      * Project available at
      * <a href="https://www.npmjs.com/package/stopwords-json">
      * https://www.npmjs.com/package/stopwords-json</a>
-     * NOTE: All JSON files (listed below) containing these stopwords have been
+     * NOTE: All JSON files (stored in /stopwords-json) containing these stopwords have been
      * compiled from stopwords-json project (see previous link)
+     *
+     * Stopwords of each language are compiled into a LexiconMatcher so that all
+     * of them are found in a single pass over the text. Lexicons are loaded
+     * on demand (only for the languages found in the texts) and shared through
+     * the LexiconRegistry
      */
-    private static final HashMap<String, LinkedList<Pattern>> hmStopWords = new HashMap<>();
-
-    static {
-        for (String i : new String[]{"/stopwords-json/af.json", "/stopwords-json/ar.json",
-            "/stopwords-json/bg.json", "/stopwords-json/bn.json",
-            "/stopwords-json/br.json", "/stopwords-json/ca.json",
-            "/stopwords-json/cs.json", "/stopwords-json/da.json",
-            "/stopwords-json/de.json", "/stopwords-json/el.json",
-            "/stopwords-json/en.json", "/stopwords-json/eo.json",
-            "/stopwords-json/es.json", "/stopwords-json/et.json",
-            "/stopwords-json/eu.json", "/stopwords-json/fa.json",
-            "/stopwords-json/fi.json", "/stopwords-json/fr.json",
-            "/stopwords-json/ga.json", "/stopwords-json/gl.json",
-            "/stopwords-json/ha.json", "/stopwords-json/he.json",
-            "/stopwords-json/hi.json", "/stopwords-json/hr.json",
-            "/stopwords-json/hu.json", "/stopwords-json/hy.json",
-            "/stopwords-json/id.json", "/stopwords-json/it.json",
-            "/stopwords-json/ja.json", "/stopwords-json/ko.json",
-            "/stopwords-json/la.json", "/stopwords-json/lv.json",
-            "/stopwords-json/mr.json", "/stopwords-json/nl.json",
-            "/stopwords-json/no.json", "/stopwords-json/pl.json",
-            "/stopwords-json/pt.json", "/stopwords-json/ro.json",
-            "/stopwords-json/ru.json", "/stopwords-json/sk.json",
-            "/stopwords-json/sl.json", "/stopwords-json/so.json",
-            "/stopwords-json/st.json", "/stopwords-json/sv.json",
-            "/stopwords-json/sw.json", "/stopwords-json/th.json",
-            "/stopwords-json/tr.json", "/stopwords-json/yo.json",
-            "/stopwords-json/zh.json", "/stopwords-json/zu.json"}) {
-
-            String lang = i.substring(16, 18).toUpperCase();
-            try {
-                InputStream is = StopWordFromStringBufferPipe.class.getResourceAsStream(i);
-                JsonReader rdr = Json.createReader(is);
-                JsonArray array = rdr.readArray();
-                LinkedList<Pattern> currentStopwords = new LinkedList<>();
-                array.forEach((v) -> {
-                    currentStopwords.add(
-                            Pattern.compile("(?:\\p{Space}|[\"><¡?¿!;:,.'-]|^)(" + Pattern.quote(((JsonString) v).getString()) + ")[;:?\"!,.'>-]?(?=(?:\\p{Space}|$|>))")
-                    );
-                });
-                hmStopWords.put(lang, currentStopwords);
-            } catch (Exception e) {
-                System.out.println("Exception processing: " + i + " message " + e.getMessage());
-            }
+    private static final String STOPWORDS_LEXICON = "stopwords";
+
+    /**
+     * Load the stopwords of a language
+     *
+     * @param lang The language (i.e. "EN")
+     * @return a LexiconMatcher containing the stopwords of the language or
+     * null if they are not available
+     */
+    private static LexiconMatcher loadStopWords(String lang) {
+        CompiledLexicon lexicon = CompiledLexicon.load("/stopwords-json/" + lang.toLowerCase(Locale.ROOT) + ".json");
+        if (lexicon == null) {
+            return null;
         }
+        LexiconMatcher stopwords = new LexiconMatcher();
+        for (int i = 0; i < lexicon.size(); i++) {
+            stopwords.add(lexicon.getKey(lexicon.entryAt(i)));
+        }
+        return stopwords;
     }
 
     /**
@@ -179,17 +157,10 @@ public class StopWordFromStringBufferPipe extends AbstractPipe {
             String lang = (String) carrier.getProperty(langProp);
             StringBuffer sb = (StringBuffer) carrier.getData();
 
-            LinkedList<Pattern> setStopwords = hmStopWords.get(lang);
-
-            if (setStopwords != null) {
-                for (Pattern currentStopword : setStopwords) {
-                    Matcher m = currentStopword.matcher(sb);
-                    int last = 0;
-                    while (m.find(last)) {
-                        last = m.start(1);
-                        sb.replace(m.start(1), m.end(1), "");
-                    }
-                }
+            LexiconMatcher stopwords = LexiconRegistry.getLexicon(STOPWORDS_LEXICON, lang, StopWordFromStringBufferPipe::loadStopWords);
+
+            if (stopwords != null) {
+                carrier.setData(stopwords.removeAll(sb));
             }
         } else {
             logger.error("Data should be an StrinBuffer when processing " + carrier.getName() + " but is a " + carrier.getData().getClass().getName());
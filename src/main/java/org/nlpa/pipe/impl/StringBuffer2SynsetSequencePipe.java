@@ -32,6 +32,7 @@ import org.bdp4j.util.Pair;
 import org.nlpa.types.Dictionary;
 import org.nlpa.types.SynsetSequence;
 import org.nlpa.util.BabelUtils;
+import org.nlpa.util.unmatchedtexthandler.CachingUnmatchedTextHandler;
 import org.nlpa.util.unmatchedtexthandler.ObfuscationHandler;
 import org.nlpa.util.unmatchedtexthandler.TyposHandler;
 import org.nlpa.util.unmatchedtexthandler.UnmatchedTextHandler;
@@ -39,7 +40,9 @@ import org.nlpa.util.unmatchedtexthandler.UrbanDictionaryHandler;
 
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
@@ -76,10 +79,29 @@ public class StringBuffer2SynsetSequencePipe extends AbstractPipe implements Sha
      */
     private static final Logger logger = LogManager.getLogger(StringBuffer2SynsetSequencePipe.class);
 
+    /**
+     * A cache of the corrections computed by the UnmatchedTextHandlers (the
+     * same fragments are repeated in many texts)
+     */
+    private final CachingUnmatchedTextHandler correctionCache = new CachingUnmatchedTextHandler(
+            new UrbanDictionaryHandler(), new TyposHandler(), new ObfuscationHandler());
+
+    /**
+     * The SynsetSequences computed by the pipeAll invocation in progress in
+     * each thread, indexed by instance
+     */
+    private final ThreadLocal<Map<Instance, SynsetSequence>> prefetchedSequences = new ThreadLocal<>();
+
     /**
      * An array of UnmatchedTextHandlers to fix incorrect text fragments
      */
-    UnmatchedTextHandler[] vUTH = {new UrbanDictionaryHandler(), new TyposHandler(), new ObfuscationHandler()};
+    UnmatchedTextHandler[] vUTH = {correctionCache};
+
+    /**
+     * The default file to persist the corrections of incorrect text fragments
+     * (empty for keeping them only in memory)
+     */
+    private final static String DEFAULT_CORRECTION_CACHE_FILE = "";
 
     /**
      * The name of the property where the language is stored
@@ -256,6 +278,29 @@ public class StringBuffer2SynsetSequencePipe extends AbstractPipe implements Sha
         this.replaceEmoji = replaceEmoji;
     }
 
+    /**
+     * Establish the file used to persist the corrections of incorrect text
+     * fragments. Corrections stored in the file are loaded and the file is
+     * updated when shared data is written to disk
+     *
+     * @param correctionCacheFile The file name (empty for keeping corrections
+     * only in memory)
+     */
+    @PipeParameter(name = "correctioncachefile", description = "The file used to persist the corrections of incorrect text fragments (empty for keeping them only in memory)", defaultValue = DEFAULT_CORRECTION_CACHE_FILE)
+    public void setCorrectionCacheFile(String correctionCacheFile) {
+        correctionCache.setCacheFile(correctionCacheFile == null || correctionCacheFile.isEmpty() ? null : correctionCacheFile);
+    }
+
+    /**
+     * Returns the cache of corrections of incorrect text fragments (i.e. to
+     * check its hit and miss counters)
+     *
+     * @return the cache of corrections
+     */
+    public CachingUnmatchedTextHandler getCorrectionCache() {
+        return correctionCache;
+    }
+
     /**
      * This method find fragments in text (str) thar are incorrect.
      *
@@ -404,6 +449,52 @@ public class StringBuffer2SynsetSequencePipe extends AbstractPipe implements Sha
         return returnValue;
     }
 
+    /**
+     * Find the unmatched texts of a SynsetSequence and compute its fixed text
+     *
+     * @param sv The SynsetSequence
+     * @param lang The language of the text
+     */
+    private void fixText(SynsetSequence sv, String lang) {
+        sv.setUnmatchedTexts(computeUnmatched(sv.getOriginalText(), lang));
+
+        if (sv.getUnmatchedTexts().size() > 0) {
+            sv.setFixedText(handleUnmatched(sv.getOriginalText(), sv.getUnmatchedTexts(), lang));
+        } else {
+            sv.setFixedText(sv.getOriginalText());
+        }
+    }
+
+    /**
+     * Process a collection of instances. The Babelfy queries of all instances
+     * are sent in advance, so they are resolved concurrently while the
+     * instances are processed. The SynsetSequences (with their fixed texts)
+     * computed to send the queries are reused when each instance is piped
+     *
+     * @param carriers The instances to process
+     * @return the processed instances
+     */
+    @Override
+    public Collection<Instance> pipeAll(Collection<Instance> carriers) {
+        Map<Instance, SynsetSequence> sequences = new IdentityHashMap<>();
+        for (Instance carrier : carriers) {
+            String lang = (String) carrier.getProperty(langProp);
+            if (carrier.isValid() && lang != null && !lang.equalsIgnoreCase("UND")) {
+                SynsetSequence sv = new SynsetSequence((StringBuffer) carrier.getData());
+                fixText(sv, lang.toUpperCase());
+                BabelUtils.getDefault().prefetchSynsetSequence(sv.getFixedText(), lang.toUpperCase());
+                sequences.put(carrier, sv);
+            }
+        }
+
+        prefetchedSequences.set(sequences);
+        try {
+            return super.pipeAll(carriers);
+        } finally {
+            prefetchedSequences.remove();
+        }
+    }
+
     @Override
     /**
      * Compute synsets from text. This method get data from StringBuffer and
@@ -414,7 +505,9 @@ public class StringBuffer2SynsetSequencePipe extends AbstractPipe implements Sha
      * <li>Build a synset vector</li>
      */
     public Instance pipe(Instance carrier) {
-        SynsetSequence sv = new SynsetSequence((StringBuffer) carrier.getData());
+        // Reuse the SynsetSequence computed by pipeAll (if any)
+        Map<Instance, SynsetSequence> sequences = prefetchedSequences.get();
+        SynsetSequence sv = (sequences != null) ? sequences.remove(carrier) : null;
 
         // Invalidate the instance if the language is not present
         // We cannot correctly represent the instance if the language is not present
@@ -425,14 +518,9 @@ public class StringBuffer2SynsetSequencePipe extends AbstractPipe implements Sha
             return carrier;
         }
 
-        sv.setUnmatchedTexts(
-                computeUnmatched(sv.getOriginalText(), ((String) carrier.getProperty(langProp)).toUpperCase()));
-
-        if (sv.getUnmatchedTexts().size() > 0) {
-            sv.setFixedText(handleUnmatched(sv.getOriginalText(), sv.getUnmatchedTexts(),
-                    ((String) carrier.getProperty(langProp)).toUpperCase()));
-        } else {
-            sv.setFixedText(sv.getOriginalText());
+        if (sv == null) {
+            sv = new SynsetSequence((StringBuffer) carrier.getData());
+            fixText(sv, ((String) carrier.getProperty(langProp)).toUpperCase());
         }
         ArrayList<Pair<String, String>> syns = buildSynsetSequence(sv.getFixedText(),
                 ((String) carrier.getProperty(langProp)).toUpperCase());
@@ -489,5 +577,6 @@ public class StringBuffer2SynsetSequencePipe extends AbstractPipe implements Sha
     @Override
     public void writeToDisk(String dir) {
         Dictionary.getDictionary().writeToDisk(dir + System.getProperty("file.separator") + "Dictionary.ser");
+        correctionCache.writeToDisk();
     }
 }
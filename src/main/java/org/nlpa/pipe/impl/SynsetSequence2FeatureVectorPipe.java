@@ -27,11 +27,10 @@ import org.bdp4j.pipe.AbstractPipe;
 import org.bdp4j.pipe.PipeParameter;
 import org.bdp4j.types.Instance;
 import org.bdp4j.util.Pair;
+import org.nlpa.types.Dictionary;
 import org.nlpa.types.FeatureVector;
 import org.nlpa.types.SynsetSequence;
 
-import java.util.HashMap;
-import java.util.Map;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bdp4j.pipe.Pipe;
@@ -138,27 +137,28 @@ public class SynsetSequence2FeatureVectorPipe extends AbstractPipe {
      * number of times that a synsetId appears in SynsetSequence
      *
      * @param synsetVector
+     * @param binary if true, only the presence (1) of each synsetId is stored
+     * instead of the number of times that it appears
      * @return A FeatureVector with the synsetId and the number of times that a
      * synsetId appears in SynsetSequence
      */
-    private FeatureVector countMatches(SynsetSequence synsetVector) {
-
-        Map<String, Double> synsetFeatureVector = new HashMap<>();
+    private FeatureVector countMatches(SynsetSequence synsetVector, boolean binary) {
+        Dictionary dictionary = Dictionary.getDictionary();
+        int[] ids = new int[synsetVector.getSynsets().size()];
+        int length = 0;
 
         try {
-            synsetVector.getSynsets().stream().map((pairSV) -> pairSV.getObj1()).forEachOrdered((synsetId) -> {
-                if (synsetFeatureVector.get(synsetId) == null) {
-                    synsetFeatureVector.put(synsetId, 1d);
-                } else {
-                    Double appearanceNumber = synsetFeatureVector.get(synsetId);
-                    synsetFeatureVector.put(synsetId, appearanceNumber + 1d);
+            for (Pair<String, String> pairSV : synsetVector.getSynsets()) {
+                String synsetId = pairSV.getObj1();
+                if (synsetId != null) {
+                    ids[length++] = dictionary.intern(synsetId);
                 }
-            });
+            }
         } catch (Exception e) {
             logger.warn("[COUNT MATCHES]" + e.getMessage());
         }
 
-        return new FeatureVector(synsetFeatureVector);
+        return FeatureVector.fromOccurrences(ids, length, binary);
     }
 
     /**
@@ -171,7 +171,6 @@ public class SynsetSequence2FeatureVectorPipe extends AbstractPipe {
      */
     @Override
     public Instance pipe(Instance carrier) {
-        Map<String, Double> synsetFeatureVector;
         FeatureVector synsetFeatureVectorCountMatches = null;
 
         try {
@@ -180,35 +179,21 @@ public class SynsetSequence2FeatureVectorPipe extends AbstractPipe {
             switch (groupStrategy) {
                 case COUNT:
                     /* Generate a synsetFeatureVector with synsetId and synsetId appearance number in synsetVector*/
-                    synsetFeatureVectorCountMatches = countMatches(synsetVector);
+                    synsetFeatureVectorCountMatches = countMatches(synsetVector, false);
                     carrier.setData(synsetFeatureVectorCountMatches);
 
                     break;
                 case BOOLEAN:
                     /* Generate a synsetFeatureVector with synsetId and 0/1 if this synsetId is or not in synsetVector*/
-                    synsetFeatureVector = new HashMap<>();
-                    for (Pair<String, String> pairSV : synsetVector.getSynsets()) {
-                        String synsetId = pairSV.getObj1();
-                        if (synsetId != null) {
-                            if (synsetFeatureVector.get(synsetId) == null) {
-                                synsetFeatureVector.put(synsetId, 1d);
-                            }
-                        }
-                    }
-                    carrier.setData(new FeatureVector(synsetFeatureVector));
+                    carrier.setData(countMatches(synsetVector, true));
 
                     break;
                 case FREQUENCY:
                     /* Generate a synsetFeatureVector with synsetId and synsetId appearance frequency in synsetVector*/
-                    synsetFeatureVectorCountMatches = countMatches(synsetVector);
-                    Map<String, Double> synsets = synsetFeatureVectorCountMatches.getFeatures();
-                    int countSynsets = synsets.size();
-                    for (Map.Entry<String, Double> entry : synsets.entrySet()) {
-                        String entryKey = entry.getKey();
-                        if (entryKey != null) {
-                            Double frequency = entry.getValue() / countSynsets;
-                            synsets.put(entryKey, frequency);
-                        }
+                    synsetFeatureVectorCountMatches = countMatches(synsetVector, false);
+                    int countSynsets = synsetFeatureVectorCountMatches.getSize();
+                    if (countSynsets > 0) {
+                        synsetFeatureVectorCountMatches.divide(countSynsets);
                     }
                     carrier.setData(synsetFeatureVectorCountMatches);
 
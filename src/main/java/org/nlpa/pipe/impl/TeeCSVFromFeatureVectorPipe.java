@@ -27,15 +27,24 @@ import org.bdp4j.pipe.PipeParameter;
 import org.bdp4j.types.Instance;
 import org.nlpa.types.Dictionary;
 import org.nlpa.types.FeatureVector;
+import org.nlpa.types.TokenSequence;
 import org.bdp4j.util.EBoolean;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.bdp4j.pipe.Pipe;
 import org.bdp4j.pipe.SharedDataConsumer;
 import org.bdp4j.pipe.TeePipe;
 import org.bdp4j.util.CSVDatasetWriter;
 import org.bdp4j.util.Configurator;
+import org.nlpa.util.SourceListener;
+import org.nlpa.util.SparseDatasetWriter;
 
 /**
  * Create a CSV file from a FeatureVector object located in the data field of an
@@ -46,7 +55,7 @@ import org.bdp4j.util.Configurator;
  */
 @AutoService(Pipe.class)
 @TeePipe()
-public class TeeCSVFromFeatureVectorPipe extends AbstractPipe implements SharedDataConsumer {
+public class TeeCSVFromFeatureVectorPipe extends AbstractPipe implements SharedDataConsumer, SourceListener {
     /**
      * The default value for the output file
      */
@@ -57,11 +66,40 @@ public class TeeCSVFromFeatureVectorPipe extends AbstractPipe implements SharedD
      */
     public static final String DEFAULT_SAVEPROPS = "yes";
 
+    /**
+     * The default value for the output format
+     */
+    public static final String DEFAULT_FORMAT = "csv";
+
+    /**
+     * For logging purposes
+     */
+    private static final Logger logger = LogManager.getLogger(TeeCSVFromFeatureVectorPipe.class);
+
     /**
      * The output filename to store the CSV information
      */
     private String output;
 
+    /**
+     * The output format: "csv" (a dense CSV file), "arff" (a sparse ARFF
+     * file) or "triplets" (see SparseDatasetWriter)
+     */
+    private String format = DEFAULT_FORMAT;
+
+    /**
+     * Writer used to store data in sparse formats (created when the first
+     * instance is received)
+     */
+    private SparseDatasetWriter sparseWriter = null;
+
+    /**
+     * Indicates whether instances are being received in bursts (see
+     * SourceListener). In this case, the sparse writer is closed when the
+     * source finishes instead of at the end of each call to pipeAll
+     */
+    private boolean sourceInBursts = false;
+
     /**
      * Csv Dataset to store data
      */
@@ -134,6 +172,7 @@ public class TeeCSVFromFeatureVectorPipe extends AbstractPipe implements SharedD
         }
         this.dataset.flushAndClose();
         this.dataset = new CSVDatasetWriter(this.output);
+        closeSparseWriter();
     }
 
     /**
@@ -145,6 +184,31 @@ public class TeeCSVFromFeatureVectorPipe extends AbstractPipe implements SharedD
         return this.output;
     }
 
+    /**
+     * Set the output format. In sparse formats ("arff" and "triplets") each
+     * instance is written as soon as it is received and only its non-zero
+     * features are stored, so the size of the output and the time required
+     * to write it are proportional to the number of non-zero values
+     *
+     * @param format The output format: "csv", "arff" or "triplets"
+     */
+    @PipeParameter(name = "format", description = "Indicates the output format (csv, arff or triplets)", defaultValue = DEFAULT_FORMAT)
+    public void setFormat(String format) {
+        if (!format.equalsIgnoreCase("csv") && !format.equalsIgnoreCase("arff") && !format.equalsIgnoreCase("triplets")) {
+            throw new IllegalArgumentException("Unsupported output format: " + format);
+        }
+        this.format = format.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the output format
+     *
+     * @return the output format ("csv", "arff" or "triplets")
+     */
+    public String getFormat() {
+        return this.format;
+    }
+
     /**
      * Indicates if the properties of the instance should be also saved in the
      * CSV file
@@ -216,7 +280,12 @@ public class TeeCSVFromFeatureVectorPipe extends AbstractPipe implements SharedD
     @Override
     public Instance pipe(Instance carrier) {
         FeatureVector fsv = (FeatureVector) carrier.getData();
-        
+
+        if (!format.equals("csv")) {
+            writeSparseRow(carrier, fsv);
+            return carrier;
+        }
+
         Dictionary dictionary = Dictionary.getDictionary();
         //Ensure the columns of the dataset fits with the instance
         if (dataset.getColumnCount() == 0) {
@@ -237,7 +306,7 @@ public class TeeCSVFromFeatureVectorPipe extends AbstractPipe implements SharedD
 
             Iterator<String> it = dictionary.iterator();
             while (it.hasNext()) {
-                columnsToAdd[j] = it.next();
+                columnsToAdd[j] = TokenSequence.toAttributeName(it.next());
                 defaultValues[j] = "0";
                 j++;
             }
@@ -272,7 +341,7 @@ public class TeeCSVFromFeatureVectorPipe extends AbstractPipe implements SharedD
                 String dictEntry = it.next();
 
                 if (currentEntryIdx >= dictLength) {
-                    newProps[j] = dictEntry;
+                    newProps[j] = TokenSequence.toAttributeName(dictEntry);
                     newDefaultValues[j] = "0";
                     j++;
                 }
@@ -310,6 +379,68 @@ public class TeeCSVFromFeatureVectorPipe extends AbstractPipe implements SharedD
         return carrier;
     }
 
+    /**
+     * Write an instance using the sparse writer. The same writer is used for
+     * all the bursts and the output file is created when the source finishes
+     * (see SourceListener)
+     *
+     * @param carrier The instance
+     * @param fsv The FeatureVector of the instance
+     */
+    private void writeSparseRow(Instance carrier, FeatureVector fsv) {
+        try {
+            if (sparseWriter == null) {
+                sparseWriter = new SparseDatasetWriter(this.output,
+                        format.equals("arff") ? SparseDatasetWriter.Format.ARFF : SparseDatasetWriter.Format.TRIPLETS);
+            }
+
+            Map<String, Object> properties = new LinkedHashMap<>();
+            for (String property : carrier.getPropertyList()) {
+                properties.put(property, carrier.getProperty(property));
+            }
+            sparseWriter.addRow(carrier.getName().toString(), properties, fsv, carrier.getTarget());
+        } catch (IOException e) {
+            logger.error("[PIPE] " + this.getClass() + ": unable to write " + this.output + ": " + e.getMessage());
+        }
+
+        //If islast and instances are not received in bursts close the dataset
+        if (isLast() && !sourceInBursts) {
+            closeSparseWriter();
+        }
+    }
+
+    /**
+     * Close the sparse writer (if it has been created), creating the output
+     * file
+     */
+    private void closeSparseWriter() {
+        if (sparseWriter != null) {
+            try {
+                sparseWriter.close();
+            } catch (IOException e) {
+                logger.error("[PIPE] " + this.getClass() + ": unable to write " + this.output + ": " + e.getMessage());
+            }
+            sparseWriter = null;
+        }
+    }
+
+    /**
+     * Indicates that instances will be received in bursts
+     */
+    @Override
+    public void sourceStarted() {
+        sourceInBursts = true;
+    }
+
+    /**
+     * Create the output file after the last burst (sparse formats)
+     */
+    @Override
+    public void sourceFinished() {
+        sourceInBursts = false;
+        closeSparseWriter();
+    }
+
     @Override
     /**
      * Retrieve data from directory
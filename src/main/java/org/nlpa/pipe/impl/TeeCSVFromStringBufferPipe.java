@@ -24,6 +24,11 @@ package org.nlpa.pipe.impl;
 
 import com.google.auto.service.AutoService;
 import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.bdp4j.pipe.AbstractPipe;
 import org.bdp4j.pipe.PipeParameter;
 import org.bdp4j.pipe.TeePipe;
@@ -33,6 +38,8 @@ import org.bdp4j.util.EBoolean;
 import org.bdp4j.pipe.Pipe;
 import org.bdp4j.util.CSVDatasetWriter;
 import org.bdp4j.util.Configurator;
+import org.nlpa.util.AppendOnlyCSVWriter;
+import org.nlpa.util.SourceListener;
 
 /**
  * This pipe parses Instances to csv format. It can be for showing it on
@@ -45,7 +52,12 @@ import org.bdp4j.util.Configurator;
  */
 @AutoService(Pipe.class)
 @TeePipe()
-public class TeeCSVFromStringBufferPipe extends AbstractPipe {
+public class TeeCSVFromStringBufferPipe extends AbstractPipe implements SourceListener {
+
+    /**
+     * For logging purposes
+     */
+    private static final Logger logger = LogManager.getLogger(TeeCSVFromStringBufferPipe.class);
 
     /**
      * Indicates the output filename/path for CSV storing
@@ -67,6 +79,30 @@ public class TeeCSVFromStringBufferPipe extends AbstractPipe {
      */
     public static final String DEFAULT_OUTPUT_FILE = "output.csv";
 
+    /**
+     * The default value for streaming
+     */
+    public static final String DEFAULT_STREAMING = "no";
+
+    /**
+     * Indicates if the rows should be written as they are received (see
+     * AppendOnlyCSVWriter)
+     */
+    private boolean streaming = false;
+
+    /**
+     * Writer used in streaming mode (created when the first instance is
+     * received)
+     */
+    private AppendOnlyCSVWriter streamingWriter = null;
+
+    /**
+     * Indicates whether instances are being received in bursts (see
+     * SourceListener). In this case, the streaming writer is closed when the
+     * source finishes instead of at the end of each call to pipeAll
+     */
+    private boolean sourceInBursts = false;
+
     /**
      * Default constructor. Build a TeeCSVFromStringBufferPipe pipe with the default configuration
      * values
@@ -172,6 +208,7 @@ public class TeeCSVFromStringBufferPipe extends AbstractPipe {
 //        }
         this.dataset.flushAndClose();
         this.dataset = new CSVDatasetWriter(this.output);
+        closeStreamingWriter();
     }
 
     /**
@@ -213,6 +250,40 @@ public class TeeCSVFromStringBufferPipe extends AbstractPipe {
         return this.saveData;
     }
 
+    /**
+     * Indicates if the rows should be written as soon as instances are
+     * received. In streaming mode, neither the rows nor the data of the
+     * instances are kept in memory and new properties do not require
+     * rewriting the rows received before
+     *
+     * @param streaming True if the rows should be written as they are
+     * received
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Indicates if the rows should be written as soon as instances are
+     * received (but from string)
+     *
+     * @param streaming "true" if the rows should be written as they are
+     * received
+     */
+    @PipeParameter(name = "streaming", description = "Indicates if the rows should be written as they are received", defaultValue = DEFAULT_STREAMING)
+    public void setStreaming(String streaming) {
+        this.streaming = EBoolean.parseBoolean(streaming);
+    }
+
+    /**
+     * Checks whether the rows are written as they are received
+     *
+     * @return true if the rows are written as they are received
+     */
+    public boolean getStreaming() {
+        return this.streaming;
+    }
+
     /**
      * Process an Instance. This method takes an input Instance, destructively
      * modifies it in some way, and returns it. This is the method by which all
@@ -223,6 +294,11 @@ public class TeeCSVFromStringBufferPipe extends AbstractPipe {
      */
     @Override
     public Instance pipe(Instance carrier) {
+        if (streaming) {
+            writeStreamingRow(carrier);
+            return carrier;
+        }
+
         //Ensure the columns of the dataset fits with the instance
         if (dataset.getColumnCount() == 0) {
             String columnsToAdd[] = new String[3 + carrier.getPropertyList().size()];
@@ -269,4 +345,64 @@ public class TeeCSVFromStringBufferPipe extends AbstractPipe {
         return carrier;
 
     }
+
+    /**
+     * Write an instance using the streaming writer. The same writer is used
+     * for all the bursts and the CSV file is completed when the source
+     * finishes (see SourceListener)
+     *
+     * @param carrier The instance
+     */
+    private void writeStreamingRow(Instance carrier) {
+        try {
+            if (streamingWriter == null) {
+                streamingWriter = new AppendOnlyCSVWriter(new File(this.output), this.dataset);
+            }
+
+            Map<String, Object> properties = new LinkedHashMap<>();
+            for (String property : carrier.getPropertyList()) {
+                properties.put(property, carrier.getProperty(property));
+            }
+            streamingWriter.addRow(carrier.getName(), carrier.getData(), properties, carrier.getTarget());
+        } catch (IOException e) {
+            logger.error("[PIPE] " + this.getClass() + ": unable to write " + this.output + ": " + e.getMessage());
+        }
+
+        //If isLast and instances are not received in bursts close the dataset
+        if (isLast() && !sourceInBursts) {
+            closeStreamingWriter();
+        }
+    }
+
+    /**
+     * Close the streaming writer (if it has been created), creating the CSV
+     * file
+     */
+    private void closeStreamingWriter() {
+        if (streamingWriter != null) {
+            try {
+                streamingWriter.close();
+            } catch (IOException e) {
+                logger.error("[PIPE] " + this.getClass() + ": unable to write " + this.output + ": " + e.getMessage());
+            }
+            streamingWriter = null;
+        }
+    }
+
+    /**
+     * Indicates that instances will be received in bursts
+     */
+    @Override
+    public void sourceStarted() {
+        sourceInBursts = true;
+    }
+
+    /**
+     * Complete the CSV file after the last burst (streaming mode)
+     */
+    @Override
+    public void sourceFinished() {
+        sourceInBursts = false;
+        closeStreamingWriter();
+    }
 }
@@ -28,31 +28,54 @@ import org.bdp4j.pipe.AbstractPipe;
 import org.bdp4j.pipe.PipeParameter;
 import org.bdp4j.types.Instance;
 import org.bdp4j.types.Transformer;
-import org.bdp4j.util.Pair;
 import org.nlpa.types.Dictionary;
 import org.nlpa.types.FeatureVector;
+import org.nlpa.types.TokenSequence;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.function.Predicate;
 import org.bdp4j.pipe.Pipe;
 import org.bdp4j.pipe.SharedDataConsumer;
 import org.bdp4j.pipe.TeePipe;
 import org.bdp4j.types.DatasetStore;
+import org.nlpa.util.SourceListener;
 
 /**
- * Create a Dataset from Instance containing a FeatureVector as data
+ * Create a Dataset from Instance containing a FeatureVector as data.
+ *
+ * The dataset is built in two phases to keep memory bounded. While instances
+ * are received, the types of their properties are inferred and the values of
+ * each instance (name, properties, non-zero features and target) are appended
+ * to a compact temporary file, so instances are not retained. When the last
+ * instance is received, the columns are created and the dataset is assembled
+ * in one sequential pass over the temporary file, using arrays that map
+ * properties and dictionary entries to their columns.
  *
  * @author María Novo
  */
 @AutoService(Pipe.class)
 @TeePipe()
-public class TeeDatasetFromFeatureVectorPipe extends AbstractPipe implements SharedDataConsumer {
+public class TeeDatasetFromFeatureVectorPipe extends AbstractPipe implements SharedDataConsumer, SourceListener {
 
     /**
      * For logging purposes
      */
     private static final Logger logger = LogManager.getLogger(TeeDatasetFromFeatureVectorPipe.class);
 
+    /**
+     * The size of the rows kept in memory before writing them to the
+     * temporary file
+     */
+    private static final int PENDING_ROWS_SIZE = 1 << 16;
+
     /**
      * The list of transformers. A transformer is a class used to transform a
      * non double value in double value.
@@ -60,34 +83,88 @@ public class TeeDatasetFromFeatureVectorPipe extends AbstractPipe implements Sha
     Map<String, Transformer> transformersList;
 
     /**
-     * A list of instances
+     * The attributes
      */
-    List<Instance> instanceList = null;
+    DatasetStore dataset = null;
 
     /**
-     * The types that are currently detected
+     * The index of each property found in the instances (used to store the
+     * properties in the temporary file)
      */
-    private Set<String> detectedTypes = null;
+    private Map<String, Integer> propertyIndexes = null;
 
     /**
-     * The types por columns
+     * The names of the properties found in the instances (by index)
      */
-    List<Pair<String, String>> columnTypes = null;
+    private List<String> propertyNames = null;
+
     /**
-     * The attributes
+     * The properties with a non-empty value in the order they were detected
      */
+    private List<Integer> detectedProperties = null;
+
+    /**
+     * The properties that have been detected
+     */
+    private BitSet detectedSet = null;
+
+    /**
+     * The properties that have non-numeric values
+     */
+    private BitSet stringProperties = null;
+
+    /**
+     * Temporary file where instances are stored until the dataset is built
+     */
+    private File rowsFile = null;
+
+    /**
+     * The stream used to write the temporary file
+     */
+    private FileOutputStream rows = null;
 
-    DatasetStore dataset = null;
     /**
-     * A Map with integer fields mapped to its types
+     * The length of the temporary file (only complete rows are kept)
      */
-    Map<String, Integer> indexColumnTypes = null;
+    private long rowsLength = 0;
+
+    /**
+     * The number of instances stored in the temporary file
+     */
+    private int rowCount = 0;
+
+    /**
+     * Buffer where each row is rendered before being accepted
+     */
+    private final ByteArrayOutputStream rowBuffer = new ByteArrayOutputStream();
+
+    /**
+     * The stream used to render each row
+     */
+    private final DataOutputStream rowOutput = new DataOutputStream(rowBuffer);
+
+    /**
+     * The rows accepted that have not been written to the temporary file yet
+     */
+    private final ByteArrayOutputStream pendingRows = new ByteArrayOutputStream();
+
+    /**
+     * The number of rows in pendingRows
+     */
+    private int pendingRowCount = 0;
 
     /**
      * Indicates if this the current element is the first one to be processed
      */
     private boolean isFirst = true;
 
+    /**
+     * Indicates whether instances are being received in bursts (see
+     * SourceListener). In this case, the dataset is created when the source
+     * finishes instead of at the end of each call to pipeAll
+     */
+    private boolean sourceInBursts = false;
+
     /**
      * Default constructor. Creates an TeeDatasetFromFeatureVectorPipe object
      * with an empty transformer list
@@ -140,202 +217,401 @@ public class TeeDatasetFromFeatureVectorPipe extends AbstractPipe implements Sha
     }
 
     /**
-     * Identify if the type of param is Double or String.
+     * Identify if a value is a number. Values whose first character cannot
+     * start a number are discarded without trying to parse them
      *
-     * @param value
-     * @return The type of the value
+     * @param value The value
+     * @return true if the value can be parsed as a Double
      */
-    private String identifyType(String value) {
-        // Check if the field is Double                            
+    private static boolean isNumber(String value) {
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            return false;
+        }
+        char first = trimmed.charAt(0);
+        if (!Character.isDigit(first) && first != '-' && first != '+' && first != '.' && first != 'N' && first != 'I') {
+            return false;
+        }
+
         try {
-            Double.parseDouble(value);
-            return "Double";
+            Double.parseDouble(trimmed);
+            return true;
         } catch (NumberFormatException nfex) {
-            return "String";
+            return false;
         }
-
     }
 
     /**
-     * Process an Instance. This method takes an input Instance and creates a
-     * Dataset. This is the method by which all pipes are eventually run.
+     * Process an Instance. This method takes an input Instance and stores it
+     * in a temporary file. The Dataset is created when the last instance is
+     * received. This is the method by which all pipes are eventually run.
      *
      * @param carrier Instance to be processed.
      * @return Processed Instance
      */
     @Override
     public Instance pipe(Instance carrier) {
-        Set<String> carrierPropertyList = carrier.getPropertyList();
-        String field;
-        String type;
-        Pair<String, String> pair;
-        Pair<String, String> newPair;
         try {
-
             if (isFirst) {
                 dataset = DatasetStore.getDatasetStore();
-                detectedTypes = new HashSet<>();
-                columnTypes = new ArrayList<>();
-                instanceList = new ArrayList<>();
-                indexColumnTypes = new HashMap<>();
+                propertyIndexes = new HashMap<>();
+                propertyNames = new ArrayList<>();
+                detectedProperties = new ArrayList<>();
+                detectedSet = new BitSet();
+                stringProperties = new BitSet();
+                rowsFile = File.createTempFile("nlpa-dataset", ".rows");
+                rowsFile.deleteOnExit();
+                rows = new FileOutputStream(rowsFile);
+                rowsLength = 0;
+                rowCount = 0;
+                pendingRows.reset();
+                pendingRowCount = 0;
                 isFirst = false;
             }
 
-            // Create an Instance list to save data
-            instanceList.add(carrier);
-            Predicate<String> isDetectedColumnType = name -> columnTypes.stream().anyMatch(header -> header.getObj1().equals(name));
-
-            // Identified property data type
-            for (String propertyName : carrierPropertyList) {
-                Object carrierPropertyName = carrier.getProperty(propertyName);
-                field = (carrierPropertyName != null) ? carrierPropertyName.toString() : "";
-                if (field != null && !field.isEmpty() && !field.equals("") && !field.equals(" ")) {
-                    type = identifyType(field);
-                    if (detectedTypes.contains(propertyName)) {
-                        int columnTypeIndex = indexColumnTypes.get(propertyName);
-                        pair = columnTypes.get(columnTypeIndex);
-                        if (!pair.getObj2().equals(type)) {
-                            columnTypes.remove(columnTypeIndex);
-                            newPair = new Pair<>(propertyName, "String");
-                            columnTypes.add(columnTypeIndex, newPair);
-                        }
-                    } else {
-                        if (isDetectedColumnType.test("target")) {
-                            // Target field always has to be the last one
-                            int lastColumnTypesPosition = columnTypes.size() - 1;
-                            Pair<String, String> targetPair = columnTypes.get(lastColumnTypesPosition);
-                            columnTypes.remove(lastColumnTypesPosition);
-                            pair = new Pair<>(propertyName, type);
-                            columnTypes.add(pair);
-                            indexColumnTypes.put(propertyName, columnTypes.indexOf(pair));
-                            columnTypes.add(targetPair);
-                            indexColumnTypes.put("target", columnTypes.indexOf(pair));
-                        } else {
-                            detectedTypes.add(propertyName);
-                            pair = new Pair<>(propertyName, type);
-                            columnTypes.add(pair);
-                            indexColumnTypes.put(propertyName, columnTypes.indexOf(pair));
-                        }
-                    }
+            if (carrier.getData() instanceof FeatureVector) {
+                writeRow(carrier, (FeatureVector) carrier.getData());
+            } else {
+                detectPropertyTypes(carrier);
+                logger.error("[PIPE] " + this.getClass() + ": the data of instance " + carrier.getName() + " is not a FeatureVector");
+            }
+
+            // Create the dataset, when we reach last instance (unless
+            // instances are received in bursts)
+            if (isLast() && !sourceInBursts) {
+                createDataset();
+            }
+        } catch (Exception ex) {
+            logger.error("[PIPE] " + this.getClass() + ": " + ex.getMessage());
+        }
+        return carrier;
+    }
+
+    /**
+     * Indicates that instances will be received in bursts
+     */
+    @Override
+    public void sourceStarted() {
+        sourceInBursts = true;
+    }
+
+    /**
+     * Create the dataset after the last burst
+     */
+    @Override
+    public void sourceFinished() {
+        sourceInBursts = false;
+        if (!isFirst) {
+            try {
+                createDataset();
+            } catch (Exception ex) {
+                logger.error("[PIPE] " + this.getClass() + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Create the dataset from the rows stored in the temporary file, which is
+     * deleted afterwards
+     *
+     * @throws IOException If the temporary file cannot be read
+     */
+    private void createDataset() throws IOException {
+        try {
+            writePendingRows();
+            buildDataset();
+        } finally {
+            closeRowsFile();
+        }
+    }
+
+    /**
+     * Identify the data type of the properties of an instance. A property is
+     * numeric while all its non-empty values are numbers
+     *
+     * @param carrier The instance
+     */
+    private void detectPropertyTypes(Instance carrier) {
+        for (String propertyName : carrier.getPropertyList()) {
+            int property = getPropertyIndex(propertyName);
+            Object carrierPropertyValue = carrier.getProperty(propertyName);
+            String field = (carrierPropertyValue != null) ? carrierPropertyValue.toString() : "";
+            if (!field.isEmpty() && !field.equals(" ")) {
+                if (!detectedSet.get(property)) {
+                    detectedSet.set(property);
+                    detectedProperties.add(property);
+                }
+                if (!stringProperties.get(property) && !isNumber(field)) {
+                    stringProperties.set(property);
                 }
             }
+        }
+    }
 
-            // Create the dataset, when we reach last instance.
-            if (isLast()) {
-                // Get transformes which parameter type is not Double
-                Set<String> noDoubleTransformers = new HashSet<>();
-                if (transformersList.size() > 0) {
-                    for (Map.Entry<String, Transformer> entry : transformersList.entrySet()) {
-                        String key = entry.getKey();
-                        noDoubleTransformers.add(key);
-                    }
+    /**
+     * Get the index of a property, adding it if it has not been found before
+     *
+     * @param propertyName The name of the property
+     * @return The index of the property
+     */
+    private int getPropertyIndex(String propertyName) {
+        return propertyIndexes.computeIfAbsent(propertyName, name -> {
+            propertyNames.add(name);
+            return propertyNames.size() - 1;
+        });
+    }
+
+    /**
+     * Append an instance to the temporary file. Only the positive features of
+     * the instance are stored. The row is rendered in memory first, so a row
+     * that cannot be rendered is discarded without writing any part of it
+     *
+     * @param carrier The instance
+     * @param featureVector The FeatureVector of the instance
+     * @throws IOException If the instance cannot be written
+     */
+    private void writeRow(Instance carrier, FeatureVector featureVector) throws IOException {
+        detectPropertyTypes(carrier);
+
+        rowBuffer.reset();
+        writeString(rowOutput, carrier.getName().toString());
+
+        Set<String> carrierPropertyList = carrier.getPropertyList();
+        rowOutput.writeInt(carrierPropertyList.size());
+        for (String propertyName : carrierPropertyList) {
+            Object value = carrier.getProperty(propertyName);
+            rowOutput.writeInt(propertyIndexes.get(propertyName));
+            writeString(rowOutput, (value != null && !value.equals("")) ? value.toString() : null);
+        }
+
+        int size = 0;
+        for (int i = 0; i < featureVector.getSize(); i++) {
+            if (featureVector.getValueAt(i) > 0) {
+                size++;
+            }
+        }
+        rowOutput.writeInt(size);
+        for (int i = 0; i < featureVector.getSize(); i++) {
+            if (featureVector.getValueAt(i) > 0) {
+                rowOutput.writeInt(featureVector.getIndexAt(i));
+                rowOutput.writeDouble(featureVector.getValueAt(i));
+            }
+        }
+
+        writeString(rowOutput, (carrier.getTarget() != null) ? carrier.getTarget().toString() : null);
+        rowOutput.flush();
+        rowBuffer.writeTo(pendingRows);
+        pendingRowCount++;
+        if (pendingRows.size() >= PENDING_ROWS_SIZE) {
+            writePendingRows();
+        }
+    }
+
+    /**
+     * Write the pending rows to the temporary file. If they cannot be
+     * written, the part already written is removed from the file and the rows
+     * are discarded
+     */
+    private void writePendingRows() {
+        try {
+            pendingRows.writeTo(rows);
+            rowsLength += pendingRows.size();
+            rowCount += pendingRowCount;
+        } catch (IOException ex) {
+            logger.error("[PIPE] " + this.getClass() + ": " + pendingRowCount + " instances discarded: " + ex.getMessage());
+            try {
+                rows.getChannel().truncate(rowsLength);
+            } catch (IOException truncateEx) {
+                logger.error("[PIPE] " + this.getClass() + ": " + truncateEx.getMessage());
+            }
+        } finally {
+            pendingRows.reset();
+            pendingRowCount = 0;
+        }
+    }
+
+    /**
+     * Close and delete the temporary file. The next instance received will
+     * start a new dataset
+     */
+    private void closeRowsFile() {
+        try {
+            rows.close();
+        } catch (IOException ex) {
+            logger.error("[PIPE] " + this.getClass() + ": " + ex.getMessage());
+        }
+        if (!rowsFile.delete()) {
+            logger.warn("Unable to delete the temporary file " + rowsFile);
+        }
+        rows = null;
+        rowsFile = null;
+        isFirst = true;
+    }
+
+    /**
+     * Create the columns of the dataset and add the instances stored in the
+     * temporary file
+     *
+     * @throws IOException If the temporary file cannot be read
+     */
+    private void buildDataset() throws IOException {
+        // Get attribute list to generate Dataset. The id is the first column
+        int numColumns = 0;
+        dataset.addColumn("id", String.class, "");
+        numColumns++;
+
+        // Properties are added in the order they were detected, although a
+        // "target" property is always the last one
+        List<Integer> propertyOrder = new ArrayList<>(detectedProperties);
+        Integer targetProperty = propertyIndexes.get("target");
+        if (targetProperty != null && propertyOrder.remove(targetProperty)) {
+            propertyOrder.add(targetProperty);
+        }
+
+        List<Integer> propertyColumnList = new ArrayList<>();
+        for (int property : propertyOrder) {
+            String header = propertyNames.get(property);
+            if (!stringProperties.get(property) || transformersList.containsKey(header)) {
+                dataset.addColumn(header, Double.class, 0);
+                propertyColumnList.add(property);
+                numColumns++;
+            }
+        }
+        int firstPropertyColumn = 1;
+
+        // Add text to attribute list. Attribute names are the CSV-safe form
+        // of dictionary entries
+        Dictionary dictionary = Dictionary.getDictionary();
+        int[] dictionaryColumns = new int[dictionary.getIdBound()];
+        Arrays.fill(dictionaryColumns, -1);
+        for (int id = 0; id < dictionaryColumns.length; id++) {
+            String text = dictionary.isIncluded(id) ? dictionary.getText(id) : null;
+            if (text != null && !text.equals("target")) {
+                dataset.addColumn(TokenSequence.toAttributeName(text), Double.class, 0);
+                dictionaryColumns[id] = numColumns++;
+            }
+        }
+
+        List<String> target_values = new ArrayList<>();
+        Transformer targetTransformer = transformersList.get("target");
+        int targetColumn = -1;
+        if (targetTransformer != null) {
+            for (Object value : targetTransformer.getListValues()) {
+                target_values.add(value.toString());
+            }
+            // Target column only adds if exists a transformer. Otherwise, it doesn't add to Dataset.
+            if (target_values.size() > 0) {
+                dataset.addColumn("target", Enum.class, target_values);
+                targetColumn = numColumns++;
+            }
+        }
+
+        // Add the rows in one sequential pass
+        Object[] values = new Object[numColumns];
+        Arrays.fill(values, 0d);
+        String[] rowProperties = new String[propertyNames.size()];
+        int[] usedColumns = new int[dictionaryColumns.length];
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(rowsFile)))) {
+            for (int row = 0; row < rowCount; row++) {
+                values[0] = readString(input);
+
+                int propertyCount = input.readInt();
+                for (int i = 0; i < propertyCount; i++) {
+                    int property = input.readInt();
+                    rowProperties[property] = readString(input);
                 }
-                // Get attribute list to generate Dataset. This list will contain the columns to add to the dataset.
-                dataset.addColumn("id", String.class, "");
-
-                if (!columnTypes.isEmpty()) {
-                    for (Pair<String, String> next : columnTypes) {
-                        final String header = next.getObj1();
-                        final String typeHeader = next.getObj2();
-                        if ((typeHeader.equals("Double") || noDoubleTransformers.contains(header))) {
-                            dataset.addColumn(header, Double.class, 0);
-                        }
-                    }
+                for (int i = 0; i < propertyColumnList.size(); i++) {
+                    String header = propertyNames.get(propertyColumnList.get(i));
+                    values[firstPropertyColumn + i] = transformValue(header, rowProperties[propertyColumnList.get(i)]);
                 }
-                // Add text to attribute list
-                Dictionary dictionary = Dictionary.getDictionary();
+                Arrays.fill(rowProperties, null);
 
-                for (String text : dictionary) {
-                    if (text != null && !text.equals("target")) {
-                        dataset.addColumn(text, Double.class, 0);
+                int featureCount = input.readInt();
+                int usedCount = 0;
+                for (int i = 0; i < featureCount; i++) {
+                    int id = input.readInt();
+                    double value = input.readDouble();
+                    if (id < dictionaryColumns.length && dictionaryColumns[id] >= 0) {
+                        values[dictionaryColumns[id]] = value;
+                        usedColumns[usedCount++] = dictionaryColumns[id];
                     }
                 }
-                List<String> target_values = new ArrayList<>();
-                Transformer transformer = transformersList.get("target");
-                if (transformer != null) {
-                    for (Object value : transformer.getListValues()) {
-                        target_values.add(value.toString());
-                    }
-                    // Target column only adds if exists a transformer. Otherwise, it doesn't add to Dataset.
-                    if (target_values.size() > 0) {
-                        dataset.addColumn("target", Enum.class, target_values);
+
+                String target = readString(input);
+                if (targetColumn >= 0) {
+                    values[targetColumn] = transformValue("target", target);
+                    Double doubleValue = Double.parseDouble(values[targetColumn].toString());
+                    String target_value = Integer.toString(doubleValue.intValue());
+                    if (target_values.contains(target_value)) {
+                        values[targetColumn] = target_value + "";
                     }
                 }
 
-                int indInstance = 0;
-                FeatureVector featureVector;
-                Transformer t;
-
-                List<String> attributes = dataset.getDataset().getAttributes();
-                // System.out.println("attributes: " + attributes);
-                Object[] values = new Object[attributes.size()];
-
-                for (Instance entry : instanceList) {
-                    try {
-                        featureVector = (FeatureVector) entry.getData();
-                        String attName;
-                        for (int index = 0; index < attributes.size(); index++) {
-                            attName = attributes.get(index);
-                            
-                            if (attName != null) {
-                                if (attName.equals("id")) {
-                                    values[indInstance] = entry.getName().toString();
-                                    indInstance++;
-                                } else {
-                                    if (dictionary.isIncluded(attName, true) && !attName.equals("target")) {
-
-                                        Double frequency = featureVector.getFrequencyValue(attName);
-                                        if (frequency > 0) {
-                                            values[indInstance] = frequency;
-                                        } else {
-                                            values[indInstance] = 0d;
-                                        }
-                                        index = indInstance;
-                                        indInstance++;
-                                    } else {
-
-                                        if (attName.equals("target")) {
-                                            field = entry.getTarget().toString();
-                                        } else {
-                                            field = (entry.getProperty(attName) != null && !entry.getProperty(attName).equals("")) ? entry.getProperty(attName).toString() : null;//toString();
-                                        }
-                                        if ((t = transformersList.get(attName)) != null) {
-                                            values[indInstance] = t.transform(field);
-                                        } else {
-                                            if (field != null && !field.isEmpty() && !field.equals("") && !field.equals(" ")) {
-                                                try {
-                                                    values[indInstance] = Double.parseDouble(field);
-                                                } catch (NumberFormatException nfex) {
-                                                    values[indInstance] = 0;
-                                                    logger.warn("The value for field " + field + " is 0, because parse double is not possible. To change this, use a transformer." + nfex.getMessage());
-                                                }
-                                            } else {
-                                                values[indInstance] = 0d;
-                                            }
-                                        }
-                                        if (attName.equals("target")) {
-                                            Double doubleValue = Double.parseDouble(values[indInstance].toString());
-                                            String target_value = Integer.toString(doubleValue.intValue());
-                                            if (target_values.contains(target_value)) {
-                                                values[indInstance] = target_value + "";
-                                            }
-                                        }
-                                        indInstance++;
-                                    }
-                                }
-                            }
-                        }
-                        indInstance = 0;
-                        dataset.addRow(values);
-                    } catch (ClassCastException cce) {
-                        logger.error("[PIPE] " + this.getClass() + ": " + cce.getMessage());
-                    }
+                dataset.addRow(values);
+
+                for (int i = 0; i < usedCount; i++) {
+                    values[usedColumns[i]] = 0d;
                 }
             }
-        } catch (Exception ex) {
-            logger.error("[PIPE] " + this.getClass() + ": " + ex.getMessage());
         }
-        return carrier;
+    }
+
+    /**
+     * Compute the value of a property (or the target) for the dataset
+     *
+     * @param attName The name of the property
+     * @param field The value of the property (null for empty values)
+     * @return The value for the dataset
+     */
+    private Object transformValue(String attName, String field) {
+        Transformer t;
+        if ((t = transformersList.get(attName)) != null) {
+            return t.transform(field);
+        } else if (field != null && !field.isEmpty() && !field.equals(" ")) {
+            try {
+                return Double.parseDouble(field);
+            } catch (NumberFormatException nfex) {
+                logger.warn("The value for field " + field + " is 0, because parse double is not possible. To change this, use a transformer." + nfex.getMessage());
+                return 0;
+            }
+        } else {
+            return 0d;
+        }
+    }
+
+    /**
+     * Write a string (that could be null) to the temporary file
+     *
+     * @param out The output stream
+     * @param value The string
+     * @throws IOException If the string cannot be written
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Read a string (that could be null) from the temporary file
+     *
+     * @param in The input stream
+     * @return The string
+     * @throws IOException If the string cannot be read
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 
     @Override
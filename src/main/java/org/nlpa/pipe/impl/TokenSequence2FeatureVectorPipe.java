@@ -28,8 +28,6 @@ import org.bdp4j.types.Instance;
 import org.nlpa.types.FeatureVector;
 import org.nlpa.types.TokenSequence;
 
-import java.util.HashMap;
-import java.util.Map;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bdp4j.pipe.Pipe;
@@ -136,25 +134,22 @@ public class TokenSequence2FeatureVectorPipe extends AbstractPipe {
      * number of times that token appears in tokenSequence
      *
      * @param tokenSequence
+     * @param binary if true, only the presence (1) of each token is stored
+     * instead of the number of times that it appears
      * @return A featureVector with the token and the number of times that a
      * token appears in tokenSequence
      */
-    private FeatureVector countMatches(TokenSequence tokenSequence) {
-        Map<String, Double> featureVector = new HashMap<>();
+    private FeatureVector countMatches(TokenSequence tokenSequence, boolean binary) {
+        int[] ids = new int[tokenSequence.size()];
+        int length = 0;
         try {
             for (int i = 0; i < tokenSequence.size(); i++) {
-                String token = tokenSequence.getToken(i);
-                if (featureVector.get(token) == null) {
-                    featureVector.put(token, 1d);
-                } else {
-                    Double appearanceNumber = featureVector.get(token);
-                    featureVector.put(token, appearanceNumber + 1d);
-                }
+                ids[length++] = tokenSequence.getTokenId(i);
             }
         } catch (Exception e) {
             logger.warn("[COUNT MATCHES] " + e.getMessage());
         }
-        return new FeatureVector(featureVector);
+        return FeatureVector.fromOccurrences(ids, length, binary);
     }
 
     /**
@@ -167,7 +162,6 @@ public class TokenSequence2FeatureVectorPipe extends AbstractPipe {
      */
     @Override
     public Instance pipe(Instance carrier) {
-        Map<String, Double> featureVector;
         FeatureVector featureVectorCountMatches;
 
         try {
@@ -176,30 +170,21 @@ public class TokenSequence2FeatureVectorPipe extends AbstractPipe {
             switch (groupStrategy) {
                 case COUNT:
                     // Generate a featureVector with text and text appearance number in tokenSequence
-                    featureVectorCountMatches = countMatches(tokenSequence);
+                    featureVectorCountMatches = countMatches(tokenSequence, false);
                     carrier.setData(featureVectorCountMatches);
 
                     break;
                 case BOOLEAN:
                     // Generate a featureVector with text and 0/1 if this text is or not in tokenSequence
-                    featureVector = new HashMap<>();
-                    for (int i = 0; i < tokenSequence.size(); i++) {
-                        String token = tokenSequence.getToken(i);
-                        if (featureVector.get(token) == null) {
-                            featureVector.put(token, 1d);
-                        }
-                    }
-                    carrier.setData(new FeatureVector(featureVector));
+                    carrier.setData(countMatches(tokenSequence, true));
                     break;
                 case FREQUENCY:
                     // Generate a featureVector with text and text appearance frequency in tokenSequence
-                    featureVectorCountMatches = countMatches(tokenSequence);
-                    Map<String, Double> tokens = featureVectorCountMatches.getFeatures();
-                    int countTokens = tokens.size();
-                    tokens.entrySet().forEach((entry) -> {
-                        Double frequency = entry.getValue() / countTokens;
-                        tokens.put(entry.getKey(), frequency);
-                    });
+                    featureVectorCountMatches = countMatches(tokenSequence, false);
+                    int countTokens = featureVectorCountMatches.getSize();
+                    if (countTokens > 0) {
+                        featureVectorCountMatches.divide(countTokens);
+                    }
                     carrier.setData(featureVectorCountMatches);
 
                     break;
@@ -27,7 +27,6 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.Reader;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -212,22 +211,17 @@ public class TokenSequencePorterStemmerPipe extends AbstractPipe {
         String lang = (String) carrier.getProperty(this.langProp);
 
         Dictionary dictionary = Dictionary.getDictionary();
-        dictionary.setEncode(true);
 
         if (lang != null) {
             //Apply stemmer to each word
             for (int i = 0; i < ts.size(); i++) {
-                String token = new String(Base64.getDecoder().decode(ts.getToken(i).substring(3)));
-                String tokenRoot = extractRoot(token, lang.toLowerCase());
+                String entry = ts.getToken(i);
+                String tokenRoot = extractRoot(TokenSequence.toToken(entry), lang.toLowerCase());
                 if (!tokenRoot.equals("")) {
-                    ret.add("tk:" + new String(Base64.getEncoder().encode(tokenRoot.getBytes())));
-                    if (dictionary.getEncode()) {
-                        dictionary.replace("tk:" + dictionary.encodeBase64(token), "tk:" + dictionary.encodeBase64(tokenRoot));
-                    } else {
-                        dictionary.replace(token, tokenRoot);
-                    }
+                    int rootId = ret.addToken(tokenRoot);
+                    dictionary.replace(entry, dictionary.getText(rootId));
                 } else {
-                    ret.add("tk:" + new String(Base64.getEncoder().encode(token.getBytes())));
+                    ret.add(ts.getTokenId(i));
                 }
             }
         }
@@ -133,27 +133,19 @@ public class TokenSequenceStemIrregularPipe extends AbstractPipe {
         TokenSequence ret = new TokenSequence();
         String lang = (String) carrier.getProperty(this.langProp);
         Dictionary dictionary = Dictionary.getDictionary();
-        dictionary.setEncode(true);
         
         if (lang != null) {
             irregularWords = LANG_WORD_FILES.get(lang.toUpperCase());
             if (irregularWords != null) {
                 for (int i = 0; i < ts.size(); i++) {
-                    String encodeToken = ts.getToken(i);
-                    String decodeToken = dictionary.decodeBase64(ts.getToken(i).substring(3));
-                    String token = decodeToken;
+                    String entry = ts.getToken(i);
                     //If the token is irregular, it changes text
                     String changeTxt;
-                    if ((changeTxt = irregularWords.get(decodeToken)) != null) {
-                        token = changeTxt;
-                    }
-                    String encodedReplaceToken = "tk:" + dictionary.encodeBase64(token);
-                    ret.add(encodedReplaceToken);
-
-                    if (dictionary.getEncode()) {
-                        dictionary.replace(encodeToken, encodedReplaceToken);
+                    if ((changeTxt = irregularWords.get(TokenSequence.toToken(entry))) != null) {
+                        int replaceId = ret.addToken(changeTxt);
+                        dictionary.replace(entry, dictionary.getText(replaceId));
                     } else {
-                        dictionary.replace(decodeToken, token);
+                        ret.add(ts.getTokenId(i));
                     }
                 }
                 carrier.setData(ret);
@@ -6,18 +6,14 @@
 package org.nlpa.transformers.dataset;
 
 import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bdp4j.transformers.attribute.Date2MillisTransformer;
@@ -25,10 +21,11 @@ import org.bdp4j.transformers.attribute.Enum2IntTransformer;
 import org.bdp4j.types.Dataset;
 import org.bdp4j.types.DatasetTransformer;
 import org.bdp4j.types.Transformer;
-import org.nlpa.util.BabelUtils;
-import org.nlpa.util.CachedBabelUtils;
+import org.nlpa.util.HypernymStore;
 import weka.core.Attribute;
+import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.Utils;
 import weka.core.converters.ArffLoader;
 
 /**
@@ -44,7 +41,6 @@ public class DatasetFeatureRepresentation extends DatasetTransformer {
      */
     private Dataset featuresDataset;
     private static final Dataset.CombineOperator DEFAULT_OPERATOR = Dataset.COMBINE_SUM;
-    private static final File FILE = new File("outputsyns_file.map");
 
     /**
      * Combine operator to use when joining attributes
@@ -52,22 +48,20 @@ public class DatasetFeatureRepresentation extends DatasetTransformer {
     private Dataset.CombineOperator combineOperator = DEFAULT_OPERATOR;
 
     /**
-     * Map containing synsets as keys and their list of hypernyms as values
+     * Store containing the hypernyms of synsets (shared by all transformers)
      */
-    private final static Map<String, List<String>> CACHED_HYPERNYMS = new HashMap<>();
+    private final static HypernymStore CACHED_HYPERNYMS = HypernymStore.getDefault();
 
     /**
      * For logging purposes
      */
     private static final Logger logger = LogManager.getLogger(eSDRS.class);
 
-    static {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(FILE))) {
-            CACHED_HYPERNYMS.putAll((HashMap<String, List<String>>) ois.readObject());
-        } catch (IOException | ClassNotFoundException e) {
-            logger.error("[READ]" + e.getMessage());
-        }
-    }
+    /**
+     * Indicates whether the transformed dataset is built with sparse
+     * instances
+     */
+    private boolean sparse = false;
 
     /**
      * Get featuresDataset attribute value
@@ -105,6 +99,28 @@ public class DatasetFeatureRepresentation extends DatasetTransformer {
         this.combineOperator = combineOperator;
     }
 
+    /**
+     * Determines whether the transformed dataset is built with sparse
+     * instances
+     *
+     * @return true if the transformed dataset is built with sparse instances
+     */
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * Establish whether the transformed dataset is built with sparse
+     * instances (SparseInstance), which only store the non-zero values of
+     * each row
+     *
+     * @param sparse true to build the transformed dataset with sparse
+     * instances
+     */
+    public void setSparse(boolean sparse) {
+        this.sparse = sparse;
+    }
+
     /**
      * Constructor
      *
@@ -127,160 +143,168 @@ public class DatasetFeatureRepresentation extends DatasetTransformer {
 
     /**
      * Transform a Dataset into another with the same colums as featuresDataset
-     * and update values
+     * and update values. The column of featuresDataset where each column of
+     * the dataset is represented (the column with the same name or, for
+     * synsets, the column of its first hypernym included in featuresDataset)
+     * is computed once, so each instance is projected in a single pass over
+     * its values. When the values are combined with COMBINE_SUM, the zero
+     * values are skipped (only the values stored in sparse instances are
+     * visited)
      *
      * @param dataset (testing dataset)
      * @return the transformed Dataset
      */
     @Override
     protected Dataset transformTemplate(Dataset dataset) { //(testing dataset)
-        List<String> featuresDatasetAttributes = featuresDataset.getAttributes();
-        List<String> datasetAttributes = dataset.getAttributes();
-
         createCache(dataset.filterColumnNames("^bn"));
-        Object[][] rowsToAdd = new Object[dataset.getInstances().size()][featuresDatasetAttributes.size()];
-
-        for (int i = 0; i < dataset.getInstances().size(); i++) {
-            for (int a = 0; a < datasetAttributes.size(); a++) {
-                // If featureDataset contains current attribute, set value to transformedDataset
-                String attributeName = datasetAttributes.get(a);
-
-                Object datasetAttributeValue = 0;
-                if (attributeName.equals("target")) {
-                    for (int v = 0; v < dataset.getInstances().get(i).attribute(a).numValues(); v++) {
-                        if (Double.parseDouble(dataset.getInstances().get(i).attribute(a).value(v)) == dataset.getInstances().get(i).value(a)) {
-                            datasetAttributeValue = dataset.getInstances().get(i).attribute(a).value(v);
-                        }
-                    }
-                } else if (attributeName.equals("id")) {
-                    datasetAttributeValue = dataset.getInstances().get(i).stringValue(a);
-                } else {
-                    datasetAttributeValue = dataset.getInstances().get(i).value(a);
-                }
-                if (featuresDatasetAttributes.contains(attributeName)) {
-                    rowsToAdd = addValue(rowsToAdd, i, attributeName, datasetAttributeValue);
-                } else {
-                    // If synset does not exists in cache, get hypernyms
-                    List<String> hypernyms = CACHED_HYPERNYMS.get(attributeName);
-                    for (String hypernym : hypernyms) {
-                        if (featuresDatasetAttributes.contains(hypernym)) {
-                            rowsToAdd = addValue(rowsToAdd, i, hypernym, datasetAttributeValue);
-                            break;
-                        }
-                    }
-                }
-            }
-        }
 
-        for (Object[] rows : rowsToAdd) {
-            for (int i = 0; i < rows.length; i++) {
-                if (rows[i] == null) {
-                    rows[i] = 0;
-                }
+        Instances datasetInstances = dataset.getWekaDataset();
+        Instances featureInstances = featuresDataset.getWekaDataset();
+        int[] columnMapping = buildColumnMapping(datasetInstances, featureInstances);
+
+        // The labels of the target column indexed by the value they represent
+        int targetIndex = -1;
+        Map<Double, String> targetLabels = null;
+        Attribute target = datasetInstances.attribute("target");
+        if (target != null && !datasetInstances.isEmpty()) {
+            targetIndex = target.index();
+            targetLabels = new HashMap<>();
+            for (int v = 0; v < target.numValues(); v++) {
+                targetLabels.put(Double.parseDouble(target.value(v)), target.value(v));
             }
         }
+        Attribute id = datasetInstances.attribute("id");
+        int idIndex = (id != null) ? id.index() : -1;
 
         ArrayList<Attribute> attributes = new ArrayList<>();
-        Instances featureInstances = featuresDataset.getWekaDataset();
-
-        for (int i = 0; i < featuresDataset.numAttributes(); i++) {
+        int numFeatures = featuresDataset.numAttributes();
+        final boolean[] numericFeatures = new boolean[numFeatures];
+        for (int i = 0; i < numFeatures; i++) {
             attributes.add(featureInstances.attribute(i));
+            numericFeatures[i] = !featureInstances.attribute(i).isNominal() && !featureInstances.attribute(i).isString();
         }
 
         Dataset transformedDataset = new Dataset("Transformed dataset", attributes, 0);
-        transformedDataset.addRows(rowsToAdd);
-
-        return transformedDataset;
-    }
+        Instances transformedInstances = transformedDataset.getWekaDataset();
+
+        // The nominal and string columns and their values in the current row
+        int[] labelColumns = IntStream.range(0, numFeatures).filter(i -> !numericFeatures[i]).toArray();
+        String[] labels = new String[numFeatures];
+        SparseRowBuilder row = new SparseRowBuilder(numFeatures);
+
+        // Zero cells can only be skipped if they do not change the combined value
+        boolean skipZeros = (combineOperator == Dataset.COMBINE_SUM);
+        for (Instance instance : datasetInstances) {
+            int numValues = skipZeros ? instance.numValues() : instance.numAttributes();
+            for (int p = 0; p < numValues; p++) {
+                int a = skipZeros ? instance.index(p) : p;
+                if (a == targetIndex || a == idIndex || columnMapping[a] < 0) {
+                    continue;
+                }
+                addValue(row, labels, numericFeatures, columnMapping[a], null, skipZeros ? instance.valueSparse(p) : instance.value(a));
+            }
 
-    private Object[][] addValue(Object[][] instanceList, int index, String attributeName, Object attributeValue) {
+            // The id and the target are always resolved (their internal value can be 0)
+            if (targetIndex >= 0 && columnMapping[targetIndex] >= 0) {
+                String label = targetLabels.getOrDefault(instance.value(targetIndex), "0");
+                addValue(row, labels, numericFeatures, columnMapping[targetIndex], label, numericFeatures[columnMapping[targetIndex]] ? Double.parseDouble(label) : 0);
+            }
+            if (idIndex >= 0 && columnMapping[idIndex] >= 0) {
+                String label = instance.stringValue(idIndex);
+                addValue(row, labels, numericFeatures, columnMapping[idIndex], label, numericFeatures[columnMapping[idIndex]] ? Double.parseDouble(label) : 0);
+            }
 
-        int currenAttributePosition = featuresDataset.getWekaDataset().attribute(attributeName).index();
+            for (int column : labelColumns) {
+                row.set(column, getLabelValue(attributes.get(column), (labels[column] != null) ? labels[column] : "0"));
+                labels[column] = null;
+            }
+            transformedInstances.add(sparse ? row.buildSparse(1.0) : row.buildDense(1.0));
+        }
 
-        Double currentPositionValue = (Double) instanceList[index][currenAttributePosition];
+        return transformedDataset;
+    }
 
-        if (featuresDataset.getWekaDataset().attribute(attributeName).isNominal()) {
-            instanceList[index][currenAttributePosition] = attributeValue.toString();
-        } else if (featuresDataset.getWekaDataset().attribute(attributeName).isString()) {
-            instanceList[index][currenAttributePosition] = attributeValue.toString();        
+    /**
+     * Adds a value of the dataset to a column of the row being built. Values
+     * of numeric columns are combined with the value already stored (if it is
+     * greater than 0) using combineOperator, while the last label is kept for
+     * nominal and string columns
+     *
+     * @param row The row being built
+     * @param labels The labels of the nominal and string columns of the row
+     * @param numericFeatures Indicates whether each column is numeric
+     * @param column The column of featuresDataset
+     * @param label The label of the value (or null to use the value as label)
+     * @param value The value
+     */
+    private void addValue(SparseRowBuilder row, String[] labels, boolean[] numericFeatures, int column, String label, double value) {
+        if (numericFeatures[column]) {
+            double currentValue = row.get(column);
+            row.set(column, (currentValue > 0) ? combineOperator.combine(value, currentValue) : value);
         } else {
-            instanceList[index][currenAttributePosition] = (currentPositionValue != null && currentPositionValue > 0) ? combineOperator.combine(Double.parseDouble(attributeValue.toString()), currentPositionValue) : Double.parseDouble(attributeValue.toString());
+            labels[column] = (label != null) ? label : Double.toString(value);
         }
-
-        return instanceList;
     }
 
     /**
+     * Computes the column of featuresDataset where each column of a dataset
+     * is represented: the column with the same name or, if it does not exist,
+     * the column of the first hypernym of the synset (following the chain of
+     * hypernyms stored in CACHED_HYPERNYMS) included in featuresDataset
      *
-     * Receives a synset list and checks if they are already stored, if not,
-     * they get added to the map along with a list of its hypernyms
-     *
-     * @param cachedHypernyms contains a map with <synsets, hypernyms> already
-     * saved in disk
-     * @param synsetList list of all the synsets that we want to check if they
-     * are already in disk or not
+     * @param datasetInstances The instances of the dataset
+     * @param featureInstances The instances of featuresDataset
+     * @return The index of the column of featuresDataset for each column of
+     * the dataset or -1 if the column is not represented
      */
-    private void createCache(List<String> synsetList) {
-        CachedBabelUtils cachedBabelUtils = new CachedBabelUtils(new HashMap<>(CACHED_HYPERNYMS));
-
-        BabelUtils bUtils = BabelUtils.getDefault();
-        for (String synset : synsetList) {
-            if (!cachedBabelUtils.existsSynsetInMap(synset)) {
-                cachedBabelUtils.addSynsetToCache(synset, bUtils.getAllHypernyms(synset));
-
-                for (String hypernym : cachedBabelUtils.getCachedSynsetHypernymsList(synset)) {
-                    if (!cachedBabelUtils.existsSynsetInMap(hypernym)) {
-                        cachedBabelUtils.addSynsetToCache(hypernym, bUtils.getAllHypernyms(hypernym));
+    private static int[] buildColumnMapping(Instances datasetInstances, Instances featureInstances) {
+        int[] columnMapping = new int[datasetInstances.numAttributes()];
+        for (int a = 0; a < columnMapping.length; a++) {
+            String attributeName = datasetInstances.attribute(a).name();
+            Attribute feature = featureInstances.attribute(attributeName);
+            if (feature == null) {
+                List<String> hypernyms = CACHED_HYPERNYMS.getHypernyms(attributeName);
+                if (hypernyms != null) {
+                    for (String hypernym : hypernyms) {
+                        feature = featureInstances.attribute(hypernym);
+                        if (feature != null) {
+                            break;
+                        }
                     }
                 }
             }
+            columnMapping[a] = (feature != null) ? feature.index() : -1;
         }
-
-        CACHED_HYPERNYMS.clear();
-        CACHED_HYPERNYMS.putAll(cachedBabelUtils.getMapOfHypernyms());
-        saveCachedHypernyms();
+        return columnMapping;
     }
 
     /**
+     * Gets the internal value that represents a label in a nominal or string
+     * attribute
      *
-     * Adds a new synset to the map saved in disk
-     *
-     * @param cachedHypernyms contains a map with <synsets, hypernyms> already
-     * saved in disk
-     * @param synset synset that we want to add to disk
+     * @param attribute The attribute
+     * @param label The label
+     * @return The value that represents the label (missing if the label is not
+     * a value of a nominal attribute)
      */
-    private List<String> addSynsetToCache(String synset) {
-        CachedBabelUtils cachedBabelUtils = new CachedBabelUtils(new HashMap<>(CACHED_HYPERNYMS));
-        BabelUtils bUtils = BabelUtils.getDefault();
-        List<String> hypernyms = null;
-        if (!cachedBabelUtils.existsSynsetInMap(synset)) {
-            hypernyms = bUtils.getAllHypernyms(synset);
-            cachedBabelUtils.addSynsetToCache(synset, hypernyms);
-            for (String hypernym : cachedBabelUtils.getCachedSynsetHypernymsList(synset)) {
-                if (!cachedBabelUtils.existsSynsetInMap(hypernym)) {
-                    cachedBabelUtils.addSynsetToCache(hypernym, bUtils.getAllHypernyms(hypernym));
-                }
-            }
+    private static double getLabelValue(Attribute attribute, String label) {
+        if (attribute.isString()) {
+            return attribute.addStringValue(label);
         }
-
-        CACHED_HYPERNYMS.clear();
-        CACHED_HYPERNYMS.putAll(cachedBabelUtils.getMapOfHypernyms());
-        return hypernyms;
+        int index = attribute.indexOfValue(label);
+        return (index >= 0) ? index : Utils.missingValue();
     }
 
     /**
      *
-     * Saves a map containing synsets and their hypernyms in a FILE
+     * Receives a synset list and checks if they are already stored, if not,
+     * they get added to the store along with their hypernyms
      *
-     * @param mapOfHypernyms Map containing every synset (key) and a list of its
-     * hypernyms (values)
+     * @param synsetList list of all the synsets that we want to check if they
+     * are already in disk or not
      */
-    private static void saveCachedHypernyms() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILE))) {
-            oos.writeObject(CACHED_HYPERNYMS);
-        } catch (Exception e) {
-            logger.error("[SAVE MAP]" + e.getMessage());
-        }
+    private void createCache(List<String> synsetList) {
+        CACHED_HYPERNYMS.resolve(synsetList);
     }
 
     public static void main(String[] args) throws FileNotFoundException, IOException {
@@ -0,0 +1,142 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.transformers.dataset;
+
+import java.util.Arrays;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.SparseInstance;
+
+/**
+ * Builds the rows of a dataset one after another. The values of a row are
+ * stored in an array that is reused for all the rows and only the columns
+ * that have been set are visited to build the instance and to clear the
+ * array, so building a sparse row takes time linear in its number of values
+ *
+ * @author José Ramón Méndez
+ */
+class SparseRowBuilder {
+
+    /**
+     * The values of the current row indexed by column
+     */
+    private final double[] values;
+
+    /**
+     * Indicates the columns that have been set in the current row
+     */
+    private final boolean[] present;
+
+    /**
+     * The columns that have been set in the current row
+     */
+    private final int[] columns;
+
+    /**
+     * The number of columns that have been set in the current row
+     */
+    private int count = 0;
+
+    /**
+     * Constructor
+     *
+     * @param numAttributes The number of columns of the rows
+     */
+    SparseRowBuilder(int numAttributes) {
+        this.values = new double[numAttributes];
+        this.present = new boolean[numAttributes];
+        this.columns = new int[numAttributes];
+    }
+
+    /**
+     * Determines whether a column has been set in the current row
+     *
+     * @param column The column
+     * @return true if the column has been set
+     */
+    boolean contains(int column) {
+        return present[column];
+    }
+
+    /**
+     * Gets the value of a column in the current row
+     *
+     * @param column The column
+     * @return The value of the column (0 if it has not been set)
+     */
+    double get(int column) {
+        return values[column];
+    }
+
+    /**
+     * Establish the value of a column in the current row
+     *
+     * @param column The column
+     * @param value The value
+     */
+    void set(int column, double value) {
+        if (!present[column]) {
+            present[column] = true;
+            columns[count++] = column;
+        }
+        values[column] = value;
+    }
+
+    /**
+     * Builds a SparseInstance with the non-zero values of the current row and
+     * starts a new row
+     *
+     * @param weight The weight of the instance
+     * @return The instance
+     */
+    Instance buildSparse(double weight) {
+        Arrays.sort(columns, 0, count);
+
+        int numValues = 0;
+        for (int i = 0; i < count; i++) {
+            if (values[columns[i]] != 0) {
+                numValues++;
+            }
+        }
+        double[] sparseValues = new double[numValues];
+        int[] indices = new int[numValues];
+        int p = 0;
+        for (int i = 0; i < count; i++) {
+            if (values[columns[i]] != 0) {
+                sparseValues[p] = values[columns[i]];
+                indices[p++] = columns[i];
+            }
+        }
+        clear();
+
+        return new SparseInstance(weight, sparseValues, indices, values.length);
+    }
+
+    /**
+     * Builds a DenseInstance with the values of the current row and starts a
+     * new row
+     *
+     * @param weight The weight of the instance
+     * @return The instance
+     */
+    Instance buildDense(double weight) {
+        double[] denseValues = values.clone();
+        clear();
+
+        return new DenseInstance(weight, denseValues);
+    }
+
+    /**
+     * Clears the columns that have been set in the current row
+     */
+    private void clear() {
+        for (int i = 0; i < count; i++) {
+            values[columns[i]] = 0;
+            present[columns[i]] = false;
+        }
+        count = 0;
+    }
+}
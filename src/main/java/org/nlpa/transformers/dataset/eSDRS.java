@@ -8,20 +8,15 @@ package org.nlpa.transformers.dataset;
 import java.io.BufferedReader;
 import org.bdp4j.types.Dataset;
 import org.bdp4j.types.DatasetTransformer;
-import org.nlpa.util.CachedBabelUtils;
+import org.nlpa.util.HypernymStore;
 
-import org.nlpa.util.BabelUtils;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.DoublePredicate;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
@@ -29,9 +24,10 @@ import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import org.nlpa.transformers.dataset.tree.CompactSynsetTree;
 import org.nlpa.transformers.dataset.tree.WekaSynsetInstance;
 import org.nlpa.transformers.dataset.tree.SynsetNode;
-import org.nlpa.transformers.dataset.tree.SynsetNodePath;
+import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.converters.ArffLoader;
@@ -48,7 +44,6 @@ import weka.core.converters.ConverterUtils.DataSink;
  */
 public class eSDRS extends DatasetTransformer {
 
-    private static final File FILE = new File("outputsyns_file.map");
     private static final Dataset.CombineOperator DEFAULT_OPERATOR = Dataset.COMBINE_SUM;
     private static final int DEFAULT_DEGREE = 2;
     private static final double DEFAULT_REQUIRED_SIMILARITY = 0.90;
@@ -87,22 +82,86 @@ public class eSDRS extends DatasetTransformer {
     private Dataset.CombineOperator combineOperator = DEFAULT_OPERATOR;
 
     /**
-     * Map containing synsets as keys and their list of hypernyms as values
+     * Store containing the hypernyms of synsets (shared by all transformers)
      */
-    private final static Map<String, List<String>> CACHED_HYPERNYMS = new HashMap<>();
+    private final static HypernymStore CACHED_HYPERNYMS = HypernymStore.getDefault();
 
     /**
      * For logging purposes
      */
     private static final Logger logger = LogManager.getLogger(eSDRS.class);
 
-    private boolean stop = false;
+    /**
+     * Whether the root trees are generalized in parallel (on the common
+     * fork-join pool) or not
+     */
+    private boolean parallel = false;
+
+    /**
+     * Whether the generalization runs on a CompactSynsetTree instead of on
+     * the SynsetNode trees
+     */
+    private boolean compactTrees = false;
+
+    /**
+     * Whether the generalized dataset is built with sparse instances, joining
+     * all the generalized attributes in a single pass
+     */
+    private boolean sparse = false;
+
+    /**
+     * The generalization state of a root tree. Trees are independent, so each
+     * one keeps its own convergence flag
+     */
+    private static class TreeGeneralization {
+
+        /**
+         * The root tree
+         */
+        private final SynsetNode tree;
+
+        /**
+         * The root of the tree in the compact forest (or CompactSynsetTree.NONE)
+         */
+        private final int root;
+
+        /**
+         * False if the last iteration generalized a node that should be
+         * generalized again
+         */
+        private boolean stop = true;
+
+        /**
+         * True if the last iteration modified the tree
+         */
+        private boolean changed = false;
+
+        /**
+         * Build a TreeGeneralization for a root tree
+         *
+         * @param tree The root tree
+         */
+        private TreeGeneralization(SynsetNode tree) {
+            this.tree = tree;
+            this.root = CompactSynsetTree.NONE;
+        }
 
-    static {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(FILE))) {
-            CACHED_HYPERNYMS.putAll((HashMap<String, List<String>>) ois.readObject());
-        } catch (IOException | ClassNotFoundException e) {
-            logger.error("[READ]" + e.getMessage());
+        /**
+         * Build a TreeGeneralization for a root of a compact forest
+         *
+         * @param root The root of the tree in the compact forest
+         */
+        private TreeGeneralization(int root) {
+            this.tree = null;
+            this.root = root;
+        }
+
+        /**
+         * Reset the flags before starting a new iteration
+         */
+        private void reset() {
+            stop = true;
+            changed = false;
         }
     }
 
@@ -231,6 +290,69 @@ public class eSDRS extends DatasetTransformer {
         this.datatype = datatype;
     }
 
+    /**
+     * Determines whether the root trees are generalized in parallel
+     *
+     * @return true if the root trees are generalized in parallel
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Establish whether the root trees are generalized in parallel. As trees
+     * are independent, the result is the same in both modes
+     *
+     * @param parallel true to generalize the root trees in parallel
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Determines whether the generalization runs on a CompactSynsetTree
+     *
+     * @return true if the generalization runs on a CompactSynsetTree
+     */
+    public boolean isCompactTrees() {
+        return compactTrees;
+    }
+
+    /**
+     * Establish whether the generalization runs on a CompactSynsetTree (which
+     * requires less memory for big datasets) instead of on the SynsetNode
+     * trees. The result is the same in both modes
+     *
+     * @param compactTrees true to run the generalization on a
+     * CompactSynsetTree
+     */
+    public void setCompactTrees(boolean compactTrees) {
+        this.compactTrees = compactTrees;
+    }
+
+    /**
+     * Determines whether the generalized dataset is built with sparse
+     * instances
+     *
+     * @return true if the generalized dataset is built with sparse instances
+     */
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * Establish whether the generalized dataset is built with sparse instances
+     * (SparseInstance). In this mode the attributes of all the generalized
+     * nodes are joined in a single pass over the instances, instead of
+     * joining the attributes of each node in the dataset
+     *
+     * @param sparse true to build the generalized dataset with sparse
+     * instances
+     */
+    public void setSparse(boolean sparse) {
+        this.sparse = sparse;
+    }
+
     @Override
     public Dataset transformTemplate(Dataset dataset) {
         long start = System.currentTimeMillis();
@@ -242,22 +364,29 @@ public class eSDRS extends DatasetTransformer {
 
         logger.info("Start Building map");
         Map<String, SynsetNode> synsetNodeMap = new HashMap<>();
+        // Each node wraps the instance in its own SynsetInstance (with its own identifier)
+        int nextInstanceId = 0;
         for (int i = 0; i < dataset.getInstances().size(); i++) {
             Instance instance = dataset.getInstances().get(i);
 
-            for (int j = 1; j < dataset.numAttributes() - 1; j++) {
-                double synsetValue = instance.value(j);
+            // Only the values stored in the instance are visited (the non-zero ones in sparse instances)
+            for (int p = 0; p < instance.numValues(); p++) {
+                int j = instance.index(p);
+                if (j < 1 || j >= dataset.numAttributes() - 1) {
+                    continue;
+                }
+                double synsetValue = instance.valueSparse(p);
 
                 if (datatype.equals(Datatype.APPEARENCES_NUMBER)) {
                     if (synsetValue >= 1) {
                         String synsetId = instance.attribute(j).name();
                         if (synsetNodeMap.containsKey(synsetId)) {
-                            synsetNodeMap.get(synsetId).addInstance(new WekaSynsetInstance(instance));
+                            synsetNodeMap.get(synsetId).addInstance(new WekaSynsetInstance(instance, nextInstanceId++));
                         } else {
                             SynsetNode node = new SynsetNode(synsetId);
-                            node.addInstance(new WekaSynsetInstance(instance));
+                            node.addInstance(new WekaSynsetInstance(instance, nextInstanceId++));
                             synsetNodeMap.put(synsetId, node);
-                            List<String> allSynsetHypernyms = CACHED_HYPERNYMS.get(synsetId);
+                            List<String> allSynsetHypernyms = CACHED_HYPERNYMS.getHypernyms(synsetId);
                             List<String> synsetHypernyms = allSynsetHypernyms.subList(1, allSynsetHypernyms.size());
 
                             for (String hypernym : synsetHypernyms) {
@@ -276,13 +405,13 @@ public class eSDRS extends DatasetTransformer {
                     if (synsetValue > 0) {
                         String synsetId = instance.attribute(j).name();
                         if (synsetNodeMap.containsKey(synsetId)) {
-                            synsetNodeMap.get(synsetId).addInstance(new WekaSynsetInstance(instance));
+                            synsetNodeMap.get(synsetId).addInstance(new WekaSynsetInstance(instance, nextInstanceId++));
                         } else {
                             SynsetNode node = new SynsetNode(synsetId);
-                            node.addInstance(new WekaSynsetInstance(instance));
+                            node.addInstance(new WekaSynsetInstance(instance, nextInstanceId++));
                             synsetNodeMap.put(synsetId, node);
 
-                            List<String> allSynsetHypernyms = CACHED_HYPERNYMS.get(synsetId);
+                            List<String> allSynsetHypernyms = CACHED_HYPERNYMS.getHypernyms(synsetId);
                             List<String> synsetHypernyms = allSynsetHypernyms.subList(1, allSynsetHypernyms.size());
 
                             for (String hypernym : synsetHypernyms) {
@@ -310,16 +439,61 @@ public class eSDRS extends DatasetTransformer {
 
         Set<SynsetNode> treeSet = synsetNodeMap.values().stream()
                 .filter(node -> node.getParent() == null)
-                .collect(Collectors.toSet());
+                .collect(Collectors.toCollection(HashSet::new));
 
+        // The map is not used anymore (the trees are reached from their roots)
+        synsetNodeMap.clear();
+        generalize(treeSet, target);
+
+        // ----- GENERAR DATASET ----
+        logger.info("Number of features before generalization: " + (dataset.numAttributes() - 2));
+        Dataset generalizedDataset = generateDataset(dataset, treeSet);
+        logger.info("Number of features after generalization: " + (generalizedDataset.numAttributes() - 2));
+        logger.info("Execution time (eSDRS algorithm): " + (System.currentTimeMillis() - start) + " ms");
+
+        return generalizedDataset;
+    }
+
+    /**
+     * Generalize (vertically and horizontally) a set of root trees until they
+     * do not change. When compactTrees is true, the trees are replaced by the
+     * ones converted back from the generalized CompactSynsetTree
+     *
+     * @param treeSet The root trees to generalize
+     * @param target Target used to generalize synsets
+     */
+    void generalize(Set<SynsetNode> treeSet, Serializable target) {
+        CompactSynsetTree forest = null;
+        List<TreeGeneralization> pendingTrees;
+        if (compactTrees) {
+            forest = CompactSynsetTree.fromSynsetNodes(treeSet);
+            // The SynsetNode trees are not used until the forest is converted back
+            treeSet.clear();
+            pendingTrees = Arrays.stream(forest.getRoots())
+                    .mapToObj(TreeGeneralization::new)
+                    .collect(Collectors.toList());
+        } else {
+            pendingTrees = treeSet.stream()
+                    .map(TreeGeneralization::new)
+                    .collect(Collectors.toList());
+        }
+        final CompactSynsetTree compactForest = forest;
+
+        boolean stop = false;
         while (!stop) {
-            stop = true;
+            pendingTrees.forEach(TreeGeneralization::reset);
 
             // ----- GENERARALIZACIÓN VERTICAL ----
             logger.info("Start Vertically generalization");
             long startV = System.currentTimeMillis();
 
-            treeSet.forEach(tree -> generalizeVertically(tree, target));
+            forEachTree(pendingTrees, state -> {
+                if (compactForest != null) {
+                    generalizeVertically(compactForest, state.root, target, state);
+                } else {
+                    generalizeVertically(state.tree, target, state);
+                }
+            });
 //            for (SynsetNode tree : treeSet) {
 //                System.out.println(generalizeVertically(tree, target).toStringDeep());
             logger.info("End Vertically generalization. Execution time: " + (System.currentTimeMillis() - startV) + " ms");
@@ -327,20 +501,28 @@ public class eSDRS extends DatasetTransformer {
             // ----- GENERARALIZACIÓN HORIZONTAL ----
             logger.info("Start Horizontally generalization");
             long startH = System.currentTimeMillis();
-            treeSet.forEach(tree -> generalizeHorizontally(tree, target));
+            forEachTree(pendingTrees, state -> {
+                if (compactForest != null) {
+                    generalizeHorizontally(compactForest, state.root, target, state);
+                } else {
+                    generalizeHorizontally(state.tree, target, state);
+                }
+            });
 //            for (SynsetNode tree : treeSet) {
 //                System.out.print(generalizeHorizontally(tree, target).toStringDeep());
 //            }
             logger.info("End Horizontally generalization. Execution time: " + (System.currentTimeMillis() - startH) + " ms");
-        }
 
-        // ----- GENERAR DATASET ----
-        logger.info("Number of features before generalization: " + (dataset.numAttributes() - 2));
-        Dataset generalizedDataset = generateDataset(dataset, treeSet);
-        logger.info("Number of features after generalization: " + (dataset.numAttributes() - 2));
-        logger.info("Execution time (eSDRS algorithm): " + (System.currentTimeMillis() - start) + " ms");
+            stop = pendingTrees.stream().allMatch(state -> state.stop);
 
-        return generalizedDataset;
+            // A tree that has not been modified in this iteration will not be
+            // modified in the next ones, so it is not processed again
+            pendingTrees.removeIf(state -> !state.changed);
+        }
+
+        if (compactForest != null) {
+            treeSet.addAll(compactForest.toSynsetNodes());
+        }
     }
 
     /**
@@ -373,6 +555,20 @@ public class eSDRS extends DatasetTransformer {
         return !isHam(spamRate) && !isSpam(spamRate);
     }
 
+    /**
+     * Apply an action to each root tree (in parallel if parallel is true)
+     *
+     * @param trees The generalization state of the root trees
+     * @param action The action to apply
+     */
+    private void forEachTree(List<TreeGeneralization> trees, Consumer<TreeGeneralization> action) {
+        if (parallel) {
+            trees.parallelStream().forEach(action);
+        } else {
+            trees.forEach(action);
+        }
+    }
+
     /**
      * Grouping synsets that are connected by hypernym relations
      *
@@ -381,6 +577,18 @@ public class eSDRS extends DatasetTransformer {
      * @return The generalized tree
      */
     public SynsetNode generalizeVertically(SynsetNode tree, Serializable target) {
+        return generalizeVertically(tree, target, new TreeGeneralization(tree));
+    }
+
+    /**
+     * Grouping synsets that are connected by hypernym relations
+     *
+     * @param tree Tree that contains synsets and its hypernyms connected
+     * @param target Target used to generalize synsets
+     * @param state The generalization state of the tree
+     * @return The generalized tree
+     */
+    private SynsetNode generalizeVertically(SynsetNode tree, Serializable target, TreeGeneralization state) {
         TreeSet<SynsetNode> treeNodes = new TreeSet<>(SYNSET_NODE_COMPARATOR_BY_DEGREE);
         treeNodes.addAll(tree.getDescendantAndSelf());
 
@@ -407,8 +615,9 @@ public class eSDRS extends DatasetTransformer {
                 if (hasSameClass.test(parent.getTargetFrequency(target))
                         && hasSameClass.test(parent.getCombinedTargetFrequency(target, currentNode))) {
                     parent.generalize(currentNode);
+                    state.changed = true;
                     if (parent.hasSynsets() && currentNode.hasSynsets()) {
-                        stop = false;
+                        state.stop = false;
                     }
                 }
             } else {
@@ -416,8 +625,9 @@ public class eSDRS extends DatasetTransformer {
                     SynsetNode ancestorWithInstances = currentNode.getFirstAncestorWithInstances();
                     if (ancestorWithInstances != null && hasSameClass.test(ancestorWithInstances.getTargetFrequency(target))) {
                         parent.generalize(currentNode);
+                        state.changed = true;
                         if (parent.hasSynsets() && currentNode.hasSynsets()) {
-                            stop = false;
+                            state.stop = false;
                         }
                     }
                 }
@@ -433,12 +643,17 @@ public class eSDRS extends DatasetTransformer {
      *
      * @param tree Tree that contains synsets and its hypernyms connected
      * @param target Target used to generalize synsets
+     * @param state The generalization state of the tree
      * @return The generalized tree
      */
-    private SynsetNode generalizeHorizontally(SynsetNode tree, Serializable target) {
+    private SynsetNode generalizeHorizontally(SynsetNode tree, Serializable target, TreeGeneralization state) {
         TreeSet<SynsetNode> treeNodes = new TreeSet<>(SYNSET_NODE_COMPARATOR_BY_DEGREE);
         treeNodes.addAll(tree.getDescendantAndSelf());
 
+        // The buffers are reused for all the paths
+        int maxDistance = Math.max(maxDegree - 1, 0);
+        SynsetNode[] pathBuffer = new SynsetNode[maxDistance + 1];
+        List<SynsetNode> pathWithoutRoot = new ArrayList<>(maxDistance + 1);
         SynsetNode currentNode;
 
         while ((currentNode = treeNodes.pollLast()) != null) {
@@ -456,34 +671,199 @@ public class eSDRS extends DatasetTransformer {
             DoublePredicate hasSameClass = frequency
                     -> (currentIsHam && isHam(frequency)) || (currentIsSpam && isSpam(frequency));
 
+            SynsetNode node = currentNode;
             SynsetNode parent = currentNode.getParent();
-            List<SynsetNodePath> paths = parent.getPathToDescendants(maxDegree - 1, Collections.singleton(currentNode));
-
-            Collections.sort(paths, (pathA, pathB) -> -Integer.compare(pathA.getLength(), pathB.getLength()));
-
-            for (SynsetNodePath path : paths) {
-                SynsetNode last = path.getLast();
-                if (last.hasInstances() && hasSameClass.test(last.getTargetFrequency(target))) {
-                    if (path.allMatch(node -> !node.hasInstances() || hasSameClass.test(node.getTargetFrequency(target)))) {
-                        SynsetNodePath candidate = path.prepend(currentNode);
-                        SynsetNode root = path.getRoot();
-                        List<SynsetNode> pathWithoutRoot = candidate.getPathWithoutRoot();
+            Collection<SynsetNode> exclusions = Collections.singleton(currentNode);
+
+            // Paths are visited from the longest to the shortest. Every path starts with the parent, which is the root of the path
+            for (int distance = maxDistance; distance >= 0; distance--) {
+                parent.visitPathsToDescendants(distance, distance, exclusions, pathBuffer, (path, length) -> {
+                    SynsetNode last = path[length - 1];
+                    if (last.hasInstances() && hasSameClass.test(last.getTargetFrequency(target))) {
+                        for (int i = 0; i < length; i++) {
+                            if (path[i].hasInstances() && !hasSameClass.test(path[i].getTargetFrequency(target))) {
+                                return;
+                            }
+                        }
+                        // The current node followed by the path without its root
+                        pathWithoutRoot.clear();
+                        pathWithoutRoot.add(node);
+                        for (int i = 1; i < length; i++) {
+                            pathWithoutRoot.add(path[i]);
+                        }
 
-                        double combinedFrequency = root.getCombinedTargetFrequency(target, pathWithoutRoot);
+                        double combinedFrequency = parent.getCombinedTargetFrequency(target, pathWithoutRoot);
                         if (hasSameClass.test(combinedFrequency)) {
-                            root.generalize(pathWithoutRoot);
-                            if (root.hasSynsets()) {
-                                stop = false;
+                            parent.generalize(pathWithoutRoot);
+                            state.changed = true;
+                            if (parent.hasSynsets()) {
+                                state.stop = false;
                             }
                         }
                     }
-                }
+                });
             }
         }
         tree.prune();
         return tree;
     }
 
+    /**
+     * Sorts the nodes of a compact tree in the same order that they are sorted
+     * by SYNSET_NODE_COMPARATOR_BY_DEGREE in a TreeSet (so nodes with the same
+     * degree and reference synset are only included once)
+     *
+     * @param forest The compact forest
+     * @param nodes The nodes to sort
+     * @return The sorted nodes
+     */
+    private static int[] sortByDegree(CompactSynsetTree forest, int[] nodes) {
+        Integer[] sortedNodes = new Integer[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            sortedNodes[i] = nodes[i];
+        }
+        Comparator<Integer> comparator = (nodeA, nodeB) -> {
+            int cmp = Integer.compare(forest.getDegree(nodeA), forest.getDegree(nodeB));
+            if (cmp == 0) {
+                return -forest.getReferenceSynset(nodeA).compareTo(forest.getReferenceSynset(nodeB));
+            } else {
+                return cmp;
+            }
+        };
+        // The sort is stable, so the first node of each group of equal nodes is the one kept by the TreeSet
+        Arrays.sort(sortedNodes, comparator);
+
+        int count = 0;
+        for (int i = 0; i < sortedNodes.length; i++) {
+            if (count == 0 || comparator.compare(sortedNodes[i], nodes[count - 1]) != 0) {
+                nodes[count++] = sortedNodes[i];
+            }
+        }
+        return Arrays.copyOf(nodes, count);
+    }
+
+    /**
+     * Grouping synsets that are connected by hypernym relations in a tree of a
+     * compact forest (see generalizeVertically(SynsetNode, Serializable))
+     *
+     * @param forest The compact forest
+     * @param tree The root of the tree
+     * @param target Target used to generalize synsets
+     * @param state The generalization state of the tree
+     */
+    private void generalizeVertically(CompactSynsetTree forest, int tree, Serializable target, TreeGeneralization state) {
+        int[] treeNodes = sortByDegree(forest, forest.getDescendantAndSelf(tree));
+        int[] generalizedNodes = new int[1];
+
+        for (int i = treeNodes.length - 1; i >= 0; i--) {
+            int currentNode = treeNodes[i];
+            if (!forest.hasInstances(currentNode) || !forest.hasParent(currentNode)) {
+                continue;
+            }
+            double currentFrequency = forest.getTargetFrequency(currentNode, target);
+
+            if (isNone(currentFrequency)) {
+                continue;
+            }
+
+            boolean currentIsHam = isHam(currentFrequency);
+            boolean currentIsSpam = isSpam(currentFrequency);
+
+            DoublePredicate hasSameClass = frequency
+                    -> (currentIsHam && isHam(frequency)) || (currentIsSpam && isSpam(frequency));
+
+            int parent = forest.getParent(currentNode);
+            generalizedNodes[0] = currentNode;
+            if (forest.hasInstances(parent)) {
+                if (hasSameClass.test(forest.getTargetFrequency(parent, target))
+                        && hasSameClass.test(forest.getCombinedTargetFrequency(parent, target, generalizedNodes, 1))) {
+                    forest.generalize(parent, generalizedNodes, 1);
+                    state.changed = true;
+                    if (forest.hasSynsets(parent) && forest.hasSynsets(currentNode)) {
+                        state.stop = false;
+                    }
+                }
+            } else {
+                if (forest.getFirstAncestorWithInstancesDegree(currentNode) <= maxDegree) {
+                    int ancestorWithInstances = forest.getFirstAncestorWithInstances(currentNode);
+                    if (ancestorWithInstances != CompactSynsetTree.NONE && hasSameClass.test(forest.getTargetFrequency(ancestorWithInstances, target))) {
+                        forest.generalize(parent, generalizedNodes, 1);
+                        state.changed = true;
+                        if (forest.hasSynsets(parent) && forest.hasSynsets(currentNode)) {
+                            state.stop = false;
+                        }
+                    }
+                }
+            }
+        }
+        forest.prune(tree);
+    }
+
+    /**
+     * Grouping synsets with a common hypernym in a tree of a compact forest
+     * (see generalizeHorizontally(SynsetNode, Serializable,
+     * TreeGeneralization))
+     *
+     * @param forest The compact forest
+     * @param tree The root of the tree
+     * @param target Target used to generalize synsets
+     * @param state The generalization state of the tree
+     */
+    private void generalizeHorizontally(CompactSynsetTree forest, int tree, Serializable target, TreeGeneralization state) {
+        int[] treeNodes = sortByDegree(forest, forest.getDescendantAndSelf(tree));
+
+        // The buffers are reused for all the paths
+        int maxDistance = Math.max(maxDegree - 1, 0);
+        int[] pathBuffer = new int[maxDistance + 1];
+        int[] pathWithoutRoot = new int[maxDistance + 1];
+
+        for (int i = treeNodes.length - 1; i >= 0; i--) {
+            int currentNode = treeNodes[i];
+            if (!forest.hasInstances(currentNode) || !forest.hasSynsets(currentNode) || !forest.hasParent(currentNode)) {
+                continue;
+            }
+
+            double currentFrequency = forest.getTargetFrequency(currentNode, target);
+
+            if (isNone(currentFrequency)) {
+                continue;
+            }
+            boolean currentIsHam = isHam(currentFrequency);
+            boolean currentIsSpam = isSpam(currentFrequency);
+            DoublePredicate hasSameClass = frequency
+                    -> (currentIsHam && isHam(frequency)) || (currentIsSpam && isSpam(frequency));
+
+            int parent = forest.getParent(currentNode);
+
+            // Paths are visited from the longest to the shortest. Every path starts with the parent, which is the root of the path
+            for (int distance = maxDistance; distance >= 0; distance--) {
+                forest.visitPathsToDescendants(parent, distance, distance, currentNode, pathBuffer, (path, length) -> {
+                    int last = path[length - 1];
+                    if (forest.hasInstances(last) && hasSameClass.test(forest.getTargetFrequency(last, target))) {
+                        for (int j = 0; j < length; j++) {
+                            if (forest.hasInstances(path[j]) && !hasSameClass.test(forest.getTargetFrequency(path[j], target))) {
+                                return;
+                            }
+                        }
+                        // The current node followed by the path without its root
+                        System.arraycopy(path, 1, pathWithoutRoot, 1, length - 1);
+                        pathWithoutRoot[0] = currentNode;
+
+                        double combinedFrequency = forest.getCombinedTargetFrequency(parent, target, pathWithoutRoot, length);
+                        if (hasSameClass.test(combinedFrequency)) {
+                            forest.generalize(parent, pathWithoutRoot, length);
+                            state.changed = true;
+                            if (forest.hasSynsets(parent)) {
+                                state.stop = false;
+                            }
+                        }
+                    }
+                });
+            }
+        }
+        forest.prune(tree);
+    }
+
     private Dataset generateDataset(Dataset dataset, Set<SynsetNode> treeSet) {
 
         try {
@@ -492,6 +872,8 @@ public class eSDRS extends DatasetTransformer {
             TreeSet<SynsetNode> treeSetGeneralizedNodes = new TreeSet<>(SYNSET_NODE_COMPARATOR_BY_DEGREE.reversed());
             treeSetGeneralizedNodes.addAll(setGeneralizedNodes);
 
+            // The synsets that are joined into each hypernym
+            Map<String, List<String>> attributesToJoin = new LinkedHashMap<>();
             SynsetNode currentNode;
             logger.info("Generate dataset");
             while ((currentNode = treeSetGeneralizedNodes.pollLast()) != null) {
@@ -507,7 +889,15 @@ public class eSDRS extends DatasetTransformer {
                 while (synsetListIterator.hasNext()) {
                     listAttributeToJoin.add(synsetListIterator.next());
                 }
-                dataset.joinAttributes(listAttributeToJoin, hypernyn, Dataset.COMBINE_SUM, true);
+                attributesToJoin.put(hypernyn, listAttributeToJoin);
+            }
+
+            if (sparse) {
+                dataset = joinAttributes(dataset, attributesToJoin);
+            } else {
+                for (Map.Entry<String, List<String>> entry : attributesToJoin.entrySet()) {
+                    dataset.joinAttributes(entry.getValue(), entry.getKey(), Dataset.COMBINE_SUM, true);
+                }
             }
             logger.info("END genetateDataset");
         } catch (Exception ex) {
@@ -517,49 +907,63 @@ public class eSDRS extends DatasetTransformer {
     }
 
     /**
+     * Joins the attributes of a dataset in a single pass over its instances,
+     * building a new dataset with sparse instances. Each group of attributes
+     * is replaced by its hypernym attribute (which is created if it does not
+     * exist) placed in the position of the first attribute of the group. Its
+     * values are the sum of the values of the group and the hypernym
      *
-     * Receives a synset list and checks if they are already stored, if not,
-     * they get added to the map along with a list of its hypernyms
-     *
-     * @param cachedHypernyms contains a map with <synsets, hypernyms> already
-     * saved in disk
-     * @param synsetList list of all the synsets that we want to check if they
-     * are already in disk or not
+     * @param dataset The dataset
+     * @param attributesToJoin The attributes joined into each hypernym
+     * @return The new dataset
      */
-    private void createCache(List<String> synsetList) {
-        CachedBabelUtils cachedBabelUtils = new CachedBabelUtils(new HashMap<>(CACHED_HYPERNYMS));
-
-        BabelUtils bUtils = BabelUtils.getDefault();
-        for (String synset : synsetList) {
-            if (!cachedBabelUtils.existsSynsetInMap(synset)) {
-                cachedBabelUtils.addSynsetToCache(synset, bUtils.getAllHypernyms(synset));
+    private static Dataset joinAttributes(Dataset dataset, Map<String, List<String>> attributesToJoin) {
+        Instances instances = dataset.getWekaDataset();
+
+        Map<String, String> hypernyms = new HashMap<>();
+        attributesToJoin.forEach((hypernym, synsets) -> synsets.forEach(synset -> hypernyms.put(synset, hypernym)));
+
+        // The column of the new dataset where each column is joined
+        int[] columnMapping = new int[instances.numAttributes()];
+        Map<String, Integer> columns = new HashMap<>();
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (int a = 0; a < columnMapping.length; a++) {
+            String name = hypernyms.getOrDefault(instances.attribute(a).name(), instances.attribute(a).name());
+            Integer column = columns.get(name);
+            if (column == null) {
+                column = attributes.size();
+                columns.put(name, column);
+                Attribute attribute = instances.attribute(name);
+                attributes.add(attribute != null ? (Attribute) attribute.copy() : new Attribute(name));
+            }
+            columnMapping[a] = column;
+        }
 
-                for (String hypernym : cachedBabelUtils.getCachedSynsetHypernymsList(synset)) {
-                    if (!cachedBabelUtils.existsSynsetInMap(hypernym)) {
-                        cachedBabelUtils.addSynsetToCache(hypernym, bUtils.getAllHypernyms(hypernym));
-                    }
-                }
+        Instances joinedInstances = new Instances(instances.relationName(), attributes, instances.size());
+        SparseRowBuilder row = new SparseRowBuilder(attributes.size());
+        for (Instance instance : instances) {
+            for (int p = 0; p < instance.numValues(); p++) {
+                int column = columnMapping[instance.index(p)];
+                double value = instance.valueSparse(p);
+                row.set(column, row.contains(column) ? Dataset.COMBINE_SUM.combine(row.get(column), value) : value);
             }
+            joinedInstances.add(row.buildSparse(instance.weight()));
         }
+        logger.info("Joined " + (instances.numAttributes() - attributes.size()) + " attributes in a sparse dataset");
 
-        CACHED_HYPERNYMS.clear();
-        CACHED_HYPERNYMS.putAll(cachedBabelUtils.getMapOfHypernyms());
-        saveCachedHypernyms();
+        return new Dataset(joinedInstances);
     }
 
     /**
      *
-     * Saves a map containing synsets and their hypernyms in a FILE
+     * Receives a synset list and checks if they are already stored, if not,
+     * they get added to the store along with their hypernyms
      *
-     * @param mapOfHypernyms Map containing every synset (key) and a list of its
-     * hypernyms (values)
+     * @param synsetList list of all the synsets that we want to check if they
+     * are already in disk or not
      */
-    private static void saveCachedHypernyms() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILE))) {
-            oos.writeObject(CACHED_HYPERNYMS);
-        } catch (Exception e) {
-            logger.error("[SAVE MAP]" + e.getMessage());
-        }
+    private void createCache(List<String> synsetList) {
+        CACHED_HYPERNYMS.resolve(synsetList);
     }
 
     public static void main(String[] args) {
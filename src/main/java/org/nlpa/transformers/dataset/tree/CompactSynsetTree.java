@@ -0,0 +1,825 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.transformers.dataset.tree;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact representation of a forest of SynsetNode trees. Nodes are
+ * identified by consecutive integers and the structure of the trees is kept in
+ * parallel int arrays (parent, first child, next sibling and cached degree),
+ * so the trees can be traversed without chasing object references. The
+ * synsets of each node are kept as a linked list of synset identifiers (so
+ * generalizing a node is a constant time operation) and its instances as a
+ * list of instance identifiers. Instances are numbered consecutively when the
+ * forest is built, so their SynsetInstance.getId is not used.
+ *
+ * The forest is built from SynsetNode trees and can be converted back to
+ * SynsetNode trees. The methods behave exactly as the SynsetNode methods with
+ * the same name.
+ *
+ * @author José Ramón Méndez
+ */
+public class CompactSynsetTree {
+
+    /**
+     * The value used for missing nodes or synsets (i.e. the parent of a root)
+     */
+    public static final int NONE = -1;
+
+    /**
+     * The roots of the trees
+     */
+    private final int[] roots;
+
+    /**
+     * The parent of each node
+     */
+    private final int[] parent;
+
+    /**
+     * The first child of each node
+     */
+    private final int[] firstChild;
+
+    /**
+     * The last child of each node
+     */
+    private final int[] lastChild;
+
+    /**
+     * The next sibling of each node
+     */
+    private final int[] nextSibling;
+
+    /**
+     * The previous sibling of each node
+     */
+    private final int[] previousSibling;
+
+    /**
+     * The degree (distance to the root) of each node
+     */
+    private final int[] degree;
+
+    /**
+     * The names of the synsets indexed by their identifier
+     */
+    private final String[] synsetNames;
+
+    /**
+     * The next synset of the list containing each synset
+     */
+    private final int[] nextSynset;
+
+    /**
+     * The first synset of each node
+     */
+    private final int[] firstSynset;
+
+    /**
+     * The last synset of each node
+     */
+    private final int[] lastSynset;
+
+    /**
+     * The number of synsets of each node
+     */
+    private final int[] synsetCount;
+
+    /**
+     * The identifiers of the instances of each node, so the memory used by a
+     * node only depends on its number of instances
+     */
+    private final IntList[] instanceIds;
+
+    /**
+     * The number of instances of each node
+     */
+    private final int[] instanceCount;
+
+    /**
+     * The number of instances of each node for each target (the counts of
+     * node n are stored from position n * targets.size())
+     */
+    private final int[] targetCounts;
+
+    /**
+     * The different targets of the instances
+     */
+    private final List<Serializable> targets;
+
+    /**
+     * The position of each target in targets
+     */
+    private final Map<Serializable, Integer> targetIndexes;
+
+    /**
+     * The position in targets of the target of each instance
+     */
+    private final int[] instanceTargets;
+
+    /**
+     * The instances indexed by their identifier
+     */
+    private final SynsetInstance[] instances;
+
+    /**
+     * Build an empty forest able to hold a number of nodes, synsets and
+     * instances
+     *
+     * @param nodeCount The number of nodes
+     * @param rootCount The number of trees
+     * @param synsetTotal The number of synsets
+     * @param instanceTotal The number of instances
+     * @param targets The different targets of the instances
+     * @param targetIndexes The position of each target in targets
+     */
+    private CompactSynsetTree(int nodeCount, int rootCount, int synsetTotal, int instanceTotal,
+            List<Serializable> targets, Map<Serializable, Integer> targetIndexes) {
+        this.roots = new int[rootCount];
+        this.parent = new int[nodeCount];
+        this.firstChild = new int[nodeCount];
+        this.lastChild = new int[nodeCount];
+        this.nextSibling = new int[nodeCount];
+        this.previousSibling = new int[nodeCount];
+        this.degree = new int[nodeCount];
+        this.firstSynset = new int[nodeCount];
+        this.lastSynset = new int[nodeCount];
+        this.synsetCount = new int[nodeCount];
+        this.instanceIds = new IntList[nodeCount];
+        this.instanceCount = new int[nodeCount];
+        this.targetCounts = new int[nodeCount * targets.size()];
+        this.synsetNames = new String[synsetTotal];
+        this.nextSynset = new int[synsetTotal];
+        this.instances = new SynsetInstance[instanceTotal];
+        this.instanceTargets = new int[instanceTotal];
+        this.targets = targets;
+        this.targetIndexes = targetIndexes;
+
+        Arrays.fill(this.parent, NONE);
+        Arrays.fill(this.firstChild, NONE);
+        Arrays.fill(this.lastChild, NONE);
+        Arrays.fill(this.nextSibling, NONE);
+        Arrays.fill(this.previousSibling, NONE);
+        Arrays.fill(this.firstSynset, NONE);
+        Arrays.fill(this.lastSynset, NONE);
+        Arrays.fill(this.nextSynset, NONE);
+    }
+
+    /**
+     * Build a compact forest from SynsetNode trees
+     *
+     * @param trees The roots of the trees
+     * @return The compact forest
+     */
+    public static CompactSynsetTree fromSynsetNodes(Collection<SynsetNode> trees) {
+        // Nodes are numbered in preorder and instances in order of appearance
+        List<SynsetNode> nodes = new ArrayList<>();
+        List<Serializable> targets = new ArrayList<>();
+        Map<Serializable, Integer> targetIndexes = new HashMap<>();
+        Map<SynsetInstance, Integer> instanceIndexes = new HashMap<>();
+        int synsetTotal = 0;
+        Deque<SynsetNode> pending = new ArrayDeque<>();
+        for (SynsetNode tree : trees) {
+            pending.push(tree);
+            while (!pending.isEmpty()) {
+                SynsetNode node = pending.pop();
+                nodes.add(node);
+                synsetTotal += node.countSynsets();
+                for (SynsetInstance instance : node.getInstances()) {
+                    instanceIndexes.putIfAbsent(instance, instanceIndexes.size());
+                    targetIndexes.computeIfAbsent(instance.getTarget(), target -> {
+                        targets.add(target);
+                        return targets.size() - 1;
+                    });
+                }
+                List<SynsetNode> children = node.getChildren();
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    pending.push(children.get(i));
+                }
+            }
+        }
+
+        CompactSynsetTree forest = new CompactSynsetTree(nodes.size(), trees.size(), synsetTotal, instanceIndexes.size(), targets, targetIndexes);
+        Map<SynsetNode, Integer> indexes = new HashMap<>();
+        int rootCount = 0;
+        int synsetId = 0;
+        for (int node = 0; node < nodes.size(); node++) {
+            SynsetNode synsetNode = nodes.get(node);
+            indexes.put(synsetNode, node);
+
+            Integer parentNode = synsetNode.hasParent() ? indexes.get(synsetNode.getParent()) : null;
+            if (parentNode == null) {
+                forest.roots[rootCount++] = node;
+            } else {
+                forest.link(parentNode, node);
+            }
+
+            for (String synset : synsetNode.getSynsets()) {
+                forest.synsetNames[synsetId] = synset;
+                forest.appendSynsets(node, synsetId, synsetId, 1);
+                synsetId++;
+            }
+
+            forest.instanceIds[node] = new IntList(Math.max(synsetNode.getInstances().size(), 1));
+            for (SynsetInstance instance : synsetNode.getInstances()) {
+                int id = instanceIndexes.get(instance);
+                forest.instances[id] = instance;
+                forest.instanceTargets[id] = targetIndexes.get(instance.getTarget());
+                forest.addInstance(node, id);
+            }
+        }
+        return forest;
+    }
+
+    /**
+     * Converts the forest to SynsetNode trees. Nodes removed by prune are not
+     * included
+     *
+     * @return The roots of the trees
+     */
+    public List<SynsetNode> toSynsetNodes() {
+        List<SynsetNode> trees = new ArrayList<>(this.roots.length);
+        for (int root : this.roots) {
+            trees.add(this.toSynsetNode(root, null));
+        }
+        return trees;
+    }
+
+    /**
+     * Converts a node and its descendants to SynsetNode
+     *
+     * @param node The node
+     * @param parentNode The SynsetNode of its parent
+     * @return The SynsetNode
+     */
+    private SynsetNode toSynsetNode(int node, SynsetNode parentNode) {
+        SynsetNode synsetNode = new SynsetNode(this.getSynsets(node));
+        if (parentNode != null) {
+            parentNode.addChild(synsetNode);
+        }
+        IntList ids = this.instanceIds[node];
+        for (int i = 0; i < ids.size(); i++) {
+            synsetNode.addInstance(this.instances[ids.get(i)]);
+        }
+        for (int child = this.firstChild[node]; child != NONE; child = this.nextSibling[child]) {
+            this.toSynsetNode(child, synsetNode);
+        }
+        return synsetNode;
+    }
+
+    /**
+     * Add a node as the last child of another one
+     *
+     * @param parentNode The parent
+     * @param child The child
+     */
+    private void link(int parentNode, int child) {
+        this.parent[child] = parentNode;
+        this.degree[child] = this.degree[parentNode] + 1;
+        this.previousSibling[child] = this.lastChild[parentNode];
+        if (this.lastChild[parentNode] == NONE) {
+            this.firstChild[parentNode] = child;
+        } else {
+            this.nextSibling[this.lastChild[parentNode]] = child;
+        }
+        this.lastChild[parentNode] = child;
+    }
+
+    /**
+     * Remove a node from the children of its parent. As in SynsetNode.prune,
+     * the node keeps its parent
+     *
+     * @param child The node
+     */
+    private void unlink(int child) {
+        int parentNode = this.parent[child];
+        int previous = this.previousSibling[child];
+        int next = this.nextSibling[child];
+        if (previous == NONE) {
+            this.firstChild[parentNode] = next;
+        } else {
+            this.nextSibling[previous] = next;
+        }
+        if (next == NONE) {
+            this.lastChild[parentNode] = previous;
+        } else {
+            this.previousSibling[next] = previous;
+        }
+        this.previousSibling[child] = NONE;
+        this.nextSibling[child] = NONE;
+    }
+
+    /**
+     * Append a list of synsets to the synsets of a node
+     *
+     * @param node The node
+     * @param first The first synset of the list
+     * @param last The last synset of the list
+     * @param count The number of synsets of the list
+     */
+    private void appendSynsets(int node, int first, int last, int count) {
+        if (this.firstSynset[node] == NONE) {
+            this.firstSynset[node] = first;
+        } else {
+            this.nextSynset[this.lastSynset[node]] = first;
+        }
+        this.lastSynset[node] = last;
+        this.synsetCount[node] += count;
+    }
+
+    /**
+     * Add an instance that the node does not contain yet to a node
+     *
+     * @param node The node
+     * @param id The identifier of the instance
+     */
+    private void addInstance(int node, int id) {
+        this.instanceIds[node].add(id);
+        this.instanceCount[node]++;
+        this.targetCounts[node * this.targets.size() + this.instanceTargets[id]]++;
+    }
+
+    /**
+     * Gets the number of nodes of the forest (including the pruned ones)
+     *
+     * @return The number of nodes
+     */
+    public int size() {
+        return this.parent.length;
+    }
+
+    /**
+     * Gets the roots of the trees
+     *
+     * @return The roots of the trees
+     */
+    public int[] getRoots() {
+        return this.roots.clone();
+    }
+
+    /**
+     * Gets the parent of a node
+     *
+     * @param node The node
+     * @return The parent of the node or NONE if it is a root
+     */
+    public int getParent(int node) {
+        return this.parent[node];
+    }
+
+    /**
+     * Query if the node has parent
+     *
+     * @param node The node
+     * @return True if the node has parent, false otherwise
+     */
+    public boolean hasParent(int node) {
+        return this.parent[node] != NONE;
+    }
+
+    /**
+     * Gets the first child of a node
+     *
+     * @param node The node
+     * @return The first child of the node or NONE if it has no children
+     */
+    public int getFirstChild(int node) {
+        return this.firstChild[node];
+    }
+
+    /**
+     * Gets the next sibling of a node
+     *
+     * @param node The node
+     * @return The next sibling of the node or NONE if it is the last child
+     */
+    public int getNextSibling(int node) {
+        return this.nextSibling[node];
+    }
+
+    /**
+     * Gets the degree (distance to the root) of a node
+     *
+     * @param node The node
+     * @return The degree of the node
+     */
+    public int getDegree(int node) {
+        return this.degree[node];
+    }
+
+    /**
+     * Gets the descendants of a node followed by the node itself, in the same
+     * order as SynsetNode.getDescendantAndSelf
+     *
+     * @param node The node
+     * @return The descendants of the node and the node
+     */
+    public int[] getDescendantAndSelf(int node) {
+        IntList nodes = new IntList();
+        this.collectDescendants(node, nodes);
+        nodes.add(node);
+        return nodes.toArray();
+    }
+
+    /**
+     * Add the descendants of a node to a list (its children followed by the
+     * descendants of each child)
+     *
+     * @param node The node
+     * @param nodes The list
+     */
+    private void collectDescendants(int node, IntList nodes) {
+        for (int child = this.firstChild[node]; child != NONE; child = this.nextSibling[child]) {
+            nodes.add(child);
+        }
+        for (int child = this.firstChild[node]; child != NONE; child = this.nextSibling[child]) {
+            this.collectDescendants(child, nodes);
+        }
+    }
+
+    /**
+     * Gets the paths from a node to its descendants until a max distance and
+     * excluding a node, in the same order as SynsetNode.getPathToDescendants.
+     * The first path only contains the node
+     *
+     * @param node The node
+     * @param maxDistance Max distance to get descendants
+     * @param exclusion The node to exclude (or NONE)
+     * @return The paths (each one starting with the node)
+     */
+    public List<int[]> getPathToDescendants(int node, int maxDistance, int exclusion) {
+        List<int[]> paths = new ArrayList<>();
+        this.visitPathsToDescendants(node, 0, maxDistance, exclusion, new int[Math.max(maxDistance, 0) + 1],
+                (path, length) -> paths.add(Arrays.copyOf(path, length)));
+        return paths;
+    }
+
+    /**
+     * Visits the paths from a node to its descendants whose distance is
+     * between a min and a max distance, excluding a node, in the same order as
+     * getPathToDescendants (see SynsetNode.visitPathsToDescendants). The nodes
+     * of the path are stored in a buffer that is reused for all of them
+     *
+     * @param node The node
+     * @param minDistance Min distance of the paths to visit
+     * @param maxDistance Max distance to get descendants
+     * @param exclusion The node to exclude (or NONE)
+     * @param buffer The buffer used to store the paths (its length should be
+     * at least maxDistance + 1)
+     * @param visitor The visitor of the paths
+     */
+    public void visitPathsToDescendants(int node, int minDistance, int maxDistance, int exclusion, int[] buffer, PathVisitor visitor) {
+        this.visitPaths(node, 0, minDistance, maxDistance, exclusion, buffer, visitor);
+    }
+
+    /**
+     * Visits the paths that continue through a node
+     *
+     * @param node The node
+     * @param distance The distance from the first node of the path to the node
+     * @param minDistance Min distance of the paths to visit
+     * @param maxDistance Max distance to get descendants
+     * @param exclusion The node to exclude (or NONE)
+     * @param buffer The buffer containing the path until the node
+     * @param visitor The visitor of the paths
+     */
+    private void visitPaths(int node, int distance, int minDistance, int maxDistance, int exclusion, int[] buffer, PathVisitor visitor) {
+        buffer[distance] = node;
+        if (distance >= minDistance) {
+            visitor.visit(buffer, distance + 1);
+        }
+        if (distance < maxDistance) {
+            for (int child = this.firstChild[node]; child != NONE; child = this.nextSibling[child]) {
+                if (child != exclusion) {
+                    this.visitPaths(child, distance + 1, minDistance, maxDistance, exclusion, buffer, visitor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the first synset of a node
+     *
+     * @param node The node
+     * @return The first synset of the node or an empty string if it has no
+     * synsets
+     */
+    public String getReferenceSynset(int node) {
+        return this.firstSynset[node] == NONE ? "" : this.synsetNames[this.firstSynset[node]];
+    }
+
+    /**
+     * Gets the synsets of a node
+     *
+     * @param node The node
+     * @return The synsets of the node
+     */
+    public List<String> getSynsets(int node) {
+        List<String> synsets = new ArrayList<>(this.synsetCount[node]);
+        for (int synset = this.firstSynset[node]; synset != NONE; synset = this.nextSynset[synset]) {
+            synsets.add(this.synsetNames[synset]);
+        }
+        return synsets;
+    }
+
+    /**
+     * Indicates if a node has synsets or not
+     *
+     * @param node The node
+     * @return True if the node has synsets, false otherwise
+     */
+    public boolean hasSynsets(int node) {
+        return this.firstSynset[node] != NONE;
+    }
+
+    /**
+     * Gets the number of synsets of a node
+     *
+     * @param node The node
+     * @return The number of synsets of the node
+     */
+    public int countSynsets(int node) {
+        return this.synsetCount[node];
+    }
+
+    /**
+     * Checks if a node has instances
+     *
+     * @param node The node
+     * @return True if the node has instances, false otherwise
+     */
+    public boolean hasInstances(int node) {
+        return this.instanceCount[node] > 0;
+    }
+
+    /**
+     * Gets the frequency to the given target
+     *
+     * @param node The node
+     * @param target The target that represents the class of instance(ham/spam,
+     * 0/1, etc)
+     * @return The frequency to the given target
+     */
+    public double getTargetFrequency(int node, Serializable target) {
+        Integer index = this.targetIndexes.get(target);
+        int count = (index == null) ? 0 : this.targetCounts[node * this.targets.size() + index];
+        return (double) count / this.instanceCount[node];
+    }
+
+    /**
+     * Combines instances of a node and other nodes and then gets the
+     * frequency to the given target
+     *
+     * @param node The node
+     * @param target The target that represents the class of instance(ham/spam,
+     * 0/1, etc)
+     * @param nodes The nodes to combine frequencies
+     * @param count The number of elements of nodes to combine
+     * @return The combined frequency
+     */
+    public double getCombinedTargetFrequency(int node, Serializable target, int[] nodes, int count) {
+        Integer index = this.targetIndexes.get(target);
+        int targetIndex = (index == null) ? NONE : index;
+        InstanceMarks marks = InstanceMarks.get();
+
+        int unionCount = 0;
+        int targetCount = 0;
+        for (int i = -1; i < count; i++) {
+            IntList ids = this.instanceIds[i < 0 ? node : nodes[i]];
+            for (int j = 0; j < ids.size(); j++) {
+                int id = ids.get(j);
+                if (marks.mark(id)) {
+                    unionCount++;
+                    if (this.instanceTargets[id] == targetIndex) {
+                        targetCount++;
+                    }
+                }
+            }
+        }
+        for (int i = -1; i < count; i++) {
+            marks.clear(this.instanceIds[i < 0 ? node : nodes[i]]);
+        }
+        return (double) targetCount / unionCount;
+    }
+
+    /**
+     * Moves the synsets and copies the instances of some nodes to a node
+     *
+     * @param node The node
+     * @param nodes The nodes to generalize
+     * @param count The number of elements of nodes to generalize
+     */
+    public void generalize(int node, int[] nodes, int count) {
+        // The instances of the node are marked, so each instance is only added once
+        InstanceMarks marks = InstanceMarks.get();
+        marks.mark(this.instanceIds[node]);
+        for (int i = 0; i < count; i++) {
+            int other = nodes[i];
+            if (other != node && this.firstSynset[other] != NONE) {
+                this.appendSynsets(node, this.firstSynset[other], this.lastSynset[other], this.synsetCount[other]);
+            }
+            // As in SynsetNode.generalize, the synsets of the node are removed even if it is generalized into itself
+            this.firstSynset[other] = NONE;
+            this.lastSynset[other] = NONE;
+            this.synsetCount[other] = 0;
+
+            IntList ids = this.instanceIds[other];
+            for (int j = 0; j < ids.size(); j++) {
+                int id = ids.get(j);
+                if (marks.mark(id)) {
+                    this.addInstance(node, id);
+                }
+            }
+        }
+        marks.clear(this.instanceIds[node]);
+    }
+
+    /**
+     * Gets the degree if first ancestor with instances
+     *
+     * @param node The node
+     * @return The degree if first ancestor with instances
+     */
+    public int getFirstAncestorWithInstancesDegree(int node) {
+        int result = 1;
+
+        int ancestor = this.parent[node];
+        if (!this.hasInstances(ancestor)) {
+            result++;
+            while (this.hasParent(ancestor) && !this.hasInstances(this.parent[ancestor])) {
+                result++;
+                ancestor = this.parent[ancestor];
+            }
+            if (!this.hasParent(ancestor)) {
+                return Integer.MAX_VALUE;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the first ancestor with instances
+     *
+     * @param node The node
+     * @return the first ancestor with instances or NONE
+     */
+    public int getFirstAncestorWithInstances(int node) {
+        int ancestor = this.parent[node];
+        if (!this.hasInstances(ancestor)) {
+            while (this.hasParent(ancestor) && !this.hasInstances(this.parent[ancestor])) {
+                ancestor = this.parent[ancestor];
+            }
+        }
+        return this.parent[ancestor];
+    }
+
+    /**
+     * Remove the descendants of a node that (together with their descendants)
+     * have no synsets or have synsets but no instances
+     *
+     * @param node The node
+     * @return True if the node itself could be removed
+     */
+    public boolean prune(int node) {
+        if (this.canBePrunedDeep(node)) {
+            return true;
+        } else {
+            int child = this.firstChild[node];
+            while (child != NONE) {
+                int next = this.nextSibling[child];
+                if (this.canBePrunedDeep(child)) {
+                    this.unlink(child);
+                } else {
+                    this.prune(child);
+                }
+                child = next;
+            }
+            return false;
+        }
+    }
+
+    private boolean canBePruned(int node) {
+        return this.hasSynsets(node) ? !this.hasInstances(node) : true;
+    }
+
+    private boolean canBePrunedDeep(int node) {
+        if (!this.canBePruned(node)) {
+            return false;
+        }
+        for (int child = this.firstChild[node]; child != NONE; child = this.nextSibling[child]) {
+            if (!this.canBePrunedDeep(child)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Visits the paths from a node to its descendants (see
+     * visitPathsToDescendants). The same buffer is reused for all the paths,
+     * so visitors should not keep a reference to it
+     */
+    @FunctionalInterface
+    public interface PathVisitor {
+
+        /**
+         * Visits a path
+         *
+         * @param path The buffer containing the nodes of the path
+         * @param length The number of nodes of the path
+         */
+        void visit(int[] path, int length);
+    }
+
+    /**
+     * A growable list of ints
+     */
+    public static class IntList {
+
+        private int[] values;
+        private int size = 0;
+
+        /**
+         * Build an empty list
+         */
+        public IntList() {
+            this(16);
+        }
+
+        /**
+         * Build an empty list with an initial capacity
+         *
+         * @param capacity The initial capacity (at least 1)
+         */
+        public IntList(int capacity) {
+            this.values = new int[capacity];
+        }
+
+        /**
+         * Add a value at the end of the list
+         *
+         * @param value The value
+         */
+        public void add(int value) {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.size * 2);
+            }
+            this.values[this.size++] = value;
+        }
+
+        /**
+         * Gets the value at a position
+         *
+         * @param index The position
+         * @return The value
+         */
+        public int get(int index) {
+            return this.values[index];
+        }
+
+        /**
+         * Gets the number of values
+         *
+         * @return The number of values
+         */
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * Remove the last value
+         */
+        public void removeLast() {
+            this.size--;
+        }
+
+        /**
+         * Remove all the values
+         */
+        public void clear() {
+            this.size = 0;
+        }
+
+        /**
+         * Gets the values of the list
+         *
+         * @return The values
+         */
+        public int[] toArray() {
+            return Arrays.copyOf(this.values, this.size);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.transformers.dataset.tree;
+
+import java.util.Arrays;
+
+/**
+ * Marks the identifiers of the instances already counted when combining the
+ * instances of several nodes. Unlike a BitSet, clearing a mark does not scan
+ * the whole set, so the cost of combining nodes only depends on their number
+ * of instances. Each thread uses its own marks (see get)
+ *
+ * @author José Ramón Méndez
+ */
+class InstanceMarks {
+
+    /**
+     * The marks of each thread
+     */
+    private static final ThreadLocal<InstanceMarks> MARKS = ThreadLocal.withInitial(InstanceMarks::new);
+
+    /**
+     * The marks (one bit for each identifier)
+     */
+    private long[] words = new long[16];
+
+    /**
+     * Gets the marks of the current thread. All the identifiers marked should
+     * be cleared before the marks are used again
+     *
+     * @return The marks of the current thread
+     */
+    static InstanceMarks get() {
+        return MARKS.get();
+    }
+
+    /**
+     * Marks an identifier
+     *
+     * @param id The identifier
+     * @return True if the identifier was not marked, false otherwise
+     */
+    boolean mark(int id) {
+        int word = id >>> 6;
+        if (word >= this.words.length) {
+            this.words = Arrays.copyOf(this.words, Math.max(word + 1, this.words.length * 2));
+        }
+        long bit = 1L << id;
+        if ((this.words[word] & bit) != 0) {
+            return false;
+        }
+        this.words[word] |= bit;
+        return true;
+    }
+
+    /**
+     * Clears the mark of an identifier
+     *
+     * @param id The identifier
+     */
+    void clear(int id) {
+        this.words[id >>> 6] &= ~(1L << id);
+    }
+
+    /**
+     * Marks a list of identifiers
+     *
+     * @param ids The identifiers (may be null)
+     * @return The number of identifiers that were not marked
+     */
+    int mark(CompactSynsetTree.IntList ids) {
+        int count = 0;
+        if (ids != null) {
+            for (int i = 0; i < ids.size(); i++) {
+                if (this.mark(ids.get(i))) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Clears the marks of a list of identifiers
+     *
+     * @param ids The identifiers (may be null)
+     */
+    void clear(CompactSynsetTree.IntList ids) {
+        if (ids != null) {
+            for (int i = 0; i < ids.size(); i++) {
+                this.clear(ids.get(i));
+            }
+        }
+    }
+}
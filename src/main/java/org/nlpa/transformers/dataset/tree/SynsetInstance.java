@@ -15,4 +15,21 @@ public interface SynsetInstance {
     public Object getName();
     
     public Serializable getTarget();
+
+    /**
+     * The identifier of the instances that do not have one
+     */
+    public static final int NO_ID = -1;
+
+    /**
+     * Gets the identifier of the instance. SynsetNode keeps the identifiers of
+     * the instances of each node and combines nodes by them, so identifiers
+     * must be unique among the instances added to the same trees. Instances
+     * without identifier (NO_ID) are combined as objects instead
+     *
+     * @return The identifier of the instance or NO_ID
+     */
+    public default int getId() {
+        return NO_ID;
+    }
 }
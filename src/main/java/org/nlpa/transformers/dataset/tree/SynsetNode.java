@@ -26,6 +26,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.nlpa.transformers.dataset.tree.CompactSynsetTree.IntList;
 
 /**
  *
@@ -38,7 +39,28 @@ public class SynsetNode {
     private SynsetNode parent;
     private Set<SynsetNode> children;
 
-    private Map<Serializable, Double> frequenciesCache;
+    /**
+     * The identifiers of the instances of the node (see SynsetInstance.getId).
+     * They are kept in a list, so the memory used by a node only depends on
+     * its number of instances
+     */
+    private IntList instanceIds;
+
+    /**
+     * The identifiers of the instances of the node grouped by their target
+     */
+    private Map<Serializable, IntList> instanceIdsByTarget;
+
+    /**
+     * The number of instances of the node for each target
+     */
+    private Map<Serializable, Integer> targetCounts;
+
+    /**
+     * The number of instances of the node without identifier
+     * (SynsetInstance.NO_ID)
+     */
+    private int unidentifiedCount;
 
     /**
      * Constructor only with synset id
@@ -104,7 +126,10 @@ public class SynsetNode {
         this.children = new LinkedHashSet<>(children);
 
         this.instances = new HashSet<>();
-        this.frequenciesCache = new HashMap<>();
+        this.instanceIds = new IntList(1);
+        this.instanceIdsByTarget = new HashMap<>();
+        this.targetCounts = new HashMap<>();
+        this.unidentifiedCount = 0;
     }
 
     /**
@@ -274,17 +299,69 @@ public class SynsetNode {
      */
     public List<SynsetNodePath> getPathToDescendants(int maxDistance, Collection<SynsetNode> exclusions) {
         List<SynsetNodePath> paths = new ArrayList<>();
-        paths.add(new SynsetNodePath(this));
+        this.visitPathsToDescendants(maxDistance, exclusions,
+                (path, length) -> paths.add(new SynsetNodePath(path, length)));
+        return paths;
+    }
 
-        if (maxDistance > 0 && !this.children.isEmpty()) {
-            this.children.stream()
-                    .filter(node -> !exclusions.contains(node))
-                    .map(child -> child.getPathToDescendants(maxDistance - 1, exclusions))
-                    .flatMap(List::stream)
-                    .map(path -> path.prepend(this))
-                    .forEach(paths::add);
+    /**
+     * Visits the paths from this node to its descendants until a max distance
+     * and excluding a collection of synset nodes, in the same order as
+     * getPathToDescendants (a depth-first traversal). The first path only
+     * contains this node
+     *
+     * @param maxDistance Max distance to get descendants
+     * @param exclusions Collection of synsets nodes to exclude
+     * @param visitor The visitor of the paths
+     */
+    public void visitPathsToDescendants(int maxDistance, Collection<SynsetNode> exclusions, SynsetNodePathVisitor visitor) {
+        SynsetNode[] buffer = new SynsetNode[Math.max(maxDistance, 0) + 1];
+        this.visitPathsToDescendants(0, maxDistance, exclusions, buffer, visitor);
+    }
+
+    /**
+     * Visits the paths from this node to its descendants whose distance is
+     * between a min and a max distance, excluding a collection of synset
+     * nodes. Paths are visited in the same order as getPathToDescendants and
+     * the nodes of the path are stored in a buffer that is reused for all of
+     * them, so no memory is allocated for each path
+     *
+     * @param minDistance Min distance of the paths to visit
+     * @param maxDistance Max distance to get descendants
+     * @param exclusions Collection of synsets nodes to exclude
+     * @param buffer The buffer used to store the paths (its length should be
+     * at least maxDistance + 1)
+     * @param visitor The visitor of the paths
+     */
+    public void visitPathsToDescendants(int minDistance, int maxDistance, Collection<SynsetNode> exclusions,
+            SynsetNode[] buffer, SynsetNodePathVisitor visitor) {
+        this.visitPaths(0, minDistance, maxDistance, exclusions, buffer, visitor);
+    }
+
+    /**
+     * Visits the paths that continue through this node
+     *
+     * @param distance The distance from the first node of the path to this
+     * node
+     * @param minDistance Min distance of the paths to visit
+     * @param maxDistance Max distance to get descendants
+     * @param exclusions Collection of synsets nodes to exclude
+     * @param buffer The buffer containing the path until this node
+     * @param visitor The visitor of the paths
+     */
+    private void visitPaths(int distance, int minDistance, int maxDistance, Collection<SynsetNode> exclusions,
+            SynsetNode[] buffer, SynsetNodePathVisitor visitor) {
+        buffer[distance] = this;
+        if (distance >= minDistance) {
+            visitor.visit(buffer, distance + 1);
+        }
+        if (distance < maxDistance) {
+            for (SynsetNode child : this.children) {
+                if (!exclusions.contains(child)) {
+                    child.visitPaths(distance + 1, minDistance, maxDistance, exclusions, buffer, visitor);
+                }
+            }
         }
-        return paths;
     }
 
     /**
@@ -504,7 +581,15 @@ public class SynsetNode {
      */
     public boolean addInstance(SynsetInstance instance) {
         if (this.instances.add(instance)) {
-            this.clearFrequencyCache();
+            Serializable target = instance.getTarget();
+            int id = instance.getId();
+            if (id == SynsetInstance.NO_ID) {
+                this.unidentifiedCount++;
+            } else {
+                this.instanceIds.add(id);
+                this.instanceIdsByTarget.computeIfAbsent(target, t -> new IntList(1)).add(id);
+            }
+            this.targetCounts.merge(target, 1, Integer::sum);
             return true;
         } else {
             return false;
@@ -519,11 +604,7 @@ public class SynsetNode {
      * @return The frequency to the given target
      */
     public double getTargetFrequency(Serializable target) {
-        if (!this.frequenciesCache.containsKey(target)) {
-            this.frequenciesCache.put(target, calculateTargetFrequency(target, this.instances));
-        }
-
-        return frequenciesCache.get(target);
+        return (double) this.targetCounts.getOrDefault(target, 0) / this.instances.size();
     }
 
     /**
@@ -536,15 +617,15 @@ public class SynsetNode {
      * @return The combined frequency
      */
     public double getCombinedTargetFrequency(Serializable target, SynsetNode node) {
-        Set<SynsetInstance> combinedInstances = new HashSet<>(this.instances);
-        combinedInstances.addAll(node.instances);
-
-        return calculateTargetFrequency(target, combinedInstances);
+        return this.getCombinedTargetFrequency(target, singletonList(node));
     }
 
     /**
      * Combines instances of all nodes and then gets the frequency to the given
-     * target
+     * target. The frequency is computed from the identifiers of the instances
+     * of the nodes, marking the ones already counted (see InstanceMarks). If any
+     * node contains instances without identifier, the instances themselves
+     * are combined
      *
      * @param target The target that represents the class of instance(ham/spam,
      * 0/1, etc)
@@ -552,35 +633,33 @@ public class SynsetNode {
      * @return The combined frequency
      */
     public double getCombinedTargetFrequency(Serializable target, Collection<SynsetNode> node) {
-        Set<SynsetInstance> combinedInstances = new HashSet<>(this.instances);
-        node.stream()
-                .map(SynsetNode::getInstances)
-                .forEach(combinedInstances::addAll);
+        if (this.unidentifiedCount > 0 || node.stream().anyMatch(current -> current.unidentifiedCount > 0)) {
+            Set<SynsetInstance> combinedInstances = new HashSet<>(this.instances);
+            node.forEach(current -> combinedInstances.addAll(current.instances));
+            long targetCount = combinedInstances.stream()
+                    .filter(instance -> instance.getTarget().equals(target))
+                    .count();
+            return (double) targetCount / combinedInstances.size();
+        }
 
-        return calculateTargetFrequency(target, combinedInstances);
-    }
+        InstanceMarks marks = InstanceMarks.get();
 
-    /**
-     * Clear frequency caché
-     */
-    private void clearFrequencyCache() {
-        this.frequenciesCache.clear();
-    }
+        int instanceCount = marks.mark(this.instanceIds);
+        for (SynsetNode current : node) {
+            instanceCount += marks.mark(current.instanceIds);
+        }
+        marks.clear(this.instanceIds);
+        node.forEach(current -> marks.clear(current.instanceIds));
 
-    /**
-     * Calculate the frequency to the given target from instances
-     *
-     * @param target The target that represents the class of instance(ham/spam,
-     * 0/1, etc)
-     * @param instances Instances to calculate frequency
-     * @return The frequency to the given target from instances
-     */
-    private static double calculateTargetFrequency(Serializable target, Set<SynsetInstance> instances) {
-        double targetCount = instances.stream()
-                .filter(sample -> sample.getTarget().equals(target))
-                .count();
+        IntList targetIds = this.instanceIdsByTarget.get(target);
+        int targetCount = marks.mark(targetIds);
+        for (SynsetNode current : node) {
+            targetCount += marks.mark(current.instanceIdsByTarget.get(target));
+        }
+        marks.clear(targetIds);
+        node.forEach(current -> marks.clear(current.instanceIdsByTarget.get(target)));
 
-        return targetCount / instances.size();
+        return (double) targetCount / instanceCount;
     }
 
     /**
@@ -606,10 +685,8 @@ public class SynsetNode {
             this.synsets.addAll(node.synsets);
             node.synsets.clear();
 
-            this.instances.addAll(node.instances);
+            node.instances.forEach(this::addInstance);
         }
-
-        this.clearFrequencyCache();
     }
 
     public SynsetNodePath getPathTo(SynsetNode targetNode) {
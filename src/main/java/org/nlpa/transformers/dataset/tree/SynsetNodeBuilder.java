@@ -108,7 +108,7 @@ public class SynsetNodeBuilder {
             final String[] nameAndTarget = instanceData.split(":");
 
             SynsetInstance instance = instanceFlyweight.computeIfAbsent(nameAndTarget[0],
-                    name -> new BasicSynsetInstance(name, nameAndTarget[1]));
+                    name -> new BasicSynsetInstance(instanceFlyweight.size(), name, nameAndTarget[1]));
 
             if (!instance.getTarget().equals(nameAndTarget[1])) {
                 throw new IllegalStateException("Instance found with different targets: " + nameAndTarget[0]);
@@ -122,11 +122,17 @@ public class SynsetNodeBuilder {
 
     public static class BasicSynsetInstance implements SynsetInstance {
 
+        private final int id;
         private final String name;
         private final String target;
 
         public BasicSynsetInstance(String name, String target) {
+            this(NO_ID, name, target);
+        }
+
+        public BasicSynsetInstance(int id, String name, String target) {
             super();
+            this.id = id;
             this.name = name;
             this.target = target;
         }
@@ -140,6 +146,11 @@ public class SynsetNodeBuilder {
         public String getName() {
             return this.name;
         }
+
+        @Override
+        public int getId() {
+            return this.id;
+        }
     }
 
 }
@@ -5,12 +5,13 @@
  */
 package org.nlpa.transformers.dataset.tree;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 /**
  *
@@ -38,10 +39,40 @@ public class SynsetNodePath {
 
     public SynsetNodePath(Collection<SynsetNode> path) {
         this.path = new LinkedList<>(path);
-        this.root = path.stream()
-                .sorted((s1, s2) -> Integer.compare(s1.getDegree(), s2.getDegree()))
-                .findFirst()
-                .orElseThrow(IllegalArgumentException::new);
+        this.root = findRoot(this.path);
+    }
+
+    /**
+     * Builds a path from the first nodes of a buffer (see
+     * SynsetNodePathVisitor)
+     *
+     * @param path The buffer containing the nodes of the path
+     * @param length The number of nodes of the path
+     */
+    public SynsetNodePath(SynsetNode[] path, int length) {
+        this(Arrays.asList(path).subList(0, length));
+    }
+
+    /**
+     * Finds the root of a path (its first node with the lowest degree)
+     *
+     * @param path The nodes of the path
+     * @return The root of the path
+     */
+    private static SynsetNode findRoot(Collection<SynsetNode> path) {
+        SynsetNode root = null;
+        int rootDegree = Integer.MAX_VALUE;
+        for (SynsetNode node : path) {
+            int degree = node.getDegree();
+            if (degree < rootDegree) {
+                root = node;
+                rootDegree = degree;
+            }
+        }
+        if (root == null) {
+            throw new IllegalArgumentException();
+        }
+        return root;
     }
 
     private SynsetNodePath(Collection<SynsetNode> path, SynsetNode prepend, SynsetNode append) {
@@ -54,10 +85,7 @@ public class SynsetNodePath {
             this.path.addLast(append);
         }
 
-        this.root = this.path.stream()
-                .sorted((s1, s2) -> Integer.compare(s1.getDegree(), s2.getDegree()))
-                .findFirst()
-                .orElseThrow(IllegalArgumentException::new);
+        this.root = findRoot(this.path);
     }
 
     public SynsetNode getRoot() {
@@ -69,9 +97,13 @@ public class SynsetNodePath {
     }
 
     public List<SynsetNode> getPathWithoutRoot() {
-        return this.path.stream()
-                .filter(node -> node != this.root)
-                .collect(Collectors.toList());
+        List<SynsetNode> pathWithoutRoot = new ArrayList<>(this.path.size() - 1);
+        for (SynsetNode node : this.path) {
+            if (node != this.root) {
+                pathWithoutRoot.add(node);
+            }
+        }
+        return pathWithoutRoot;
     }
 
     public SynsetNode getFirst() {
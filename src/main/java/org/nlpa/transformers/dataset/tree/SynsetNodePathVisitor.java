@@ -0,0 +1,26 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.transformers.dataset.tree;
+
+/**
+ * Visits the paths from a synset node to its descendants (see
+ * SynsetNode.visitPathsToDescendants). The same buffer is reused for all the
+ * paths, so visitors should not keep a reference to it
+ *
+ * @author José Ramón Méndez
+ */
+@FunctionalInterface
+public interface SynsetNodePathVisitor {
+
+    /**
+     * Visits a path
+     *
+     * @param path The buffer containing the nodes of the path (the first one
+     * is the node where all paths start)
+     * @param length The number of nodes of the path
+     */
+    void visit(SynsetNode[] path, int length);
+}
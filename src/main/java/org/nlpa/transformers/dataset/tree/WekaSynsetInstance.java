@@ -15,9 +15,23 @@ import weka.core.Instance;
  */
 public class WekaSynsetInstance implements SynsetInstance {
     private Instance instance;
+
+    private int id;
     
     public WekaSynsetInstance(Instance instance) {
+        this(instance, NO_ID);
+    }
+
+    /**
+     * Constructor with the weka instance and its identifier
+     *
+     * @param instance The weka instance
+     * @param id The identifier of the instance (unique among the instances
+     * added to the same trees)
+     */
+    public WekaSynsetInstance(Instance instance, int id) {
         this.instance = instance;
+        this.id = id;
     }
 
     @Override
@@ -29,5 +43,10 @@ public class WekaSynsetInstance implements SynsetInstance {
     public Serializable getTarget() {
         return this.instance.value(instance.numAttributes()-1);
     }
+
+    @Override
+    public int getId() {
+        return this.id;
+    }
     
 }
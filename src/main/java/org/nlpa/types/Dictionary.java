@@ -32,12 +32,26 @@ import java.io.UnsupportedEncodingException;
 import java.util.Base64;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * A dictionary of Strings.
+ * A dictionary of Strings. Each entry receives a stable integer identifier
+ * when it is first added. Identifiers are dense (they are assigned
+ * consecutively starting from 0) and the dictionary is iterated following
+ * the order of the identifiers (that is, the insertion order).
+ *
+ * The dictionary can be safely updated from several threads at the same
+ * time. Texts already included are looked up without locking, while new
+ * identifiers are assigned under a lock and published only after their text
+ * has been stored. Identifiers of removed entries (see
+ * replace) are never reused and their texts remain available through getText
+ * (so sequences built before removing an entry can still be read).
  *
  * @author María Novo
  * @author José Ramón Méndez Reboredo
@@ -50,21 +64,62 @@ public class Dictionary implements Iterable<String> {
     private static final Logger logger = LogManager.getLogger(Dictionary.class);
 
     /**
-     * The information storage for the dictionary. Only a Hashset of strings is
-     * required
+     * The number of bits used to address an entry inside a page
+     */
+    private static final int PAGE_BITS = 12;
+
+    /**
+     * The number of entries stored in each page
+     */
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    /**
+     * The value returned when a text is not included in the dictionary
+     */
+    public static final int NOT_INCLUDED = -1;
+
+    /**
+     * The identifiers assigned to each text included in the dictionary
+     */
+    private final ConcurrentHashMap<String, Integer> textIds = new ConcurrentHashMap<>();
+
+    /**
+     * The texts of the dictionary indexed by identifier and stored in pages of
+     * PAGE_SIZE entries (including the ones removed from the dictionary)
+     */
+    private volatile AtomicReferenceArray<String>[] pages = newPageDirectory(16);
+
+    /**
+     * The next identifier to assign. It is only advanced (while holding
+     * allocationLock) after the text of the previous identifier has been
+     * stored, so any identifier below it can be safely read
+     */
+    private final AtomicInteger nextId = new AtomicInteger(0);
+
+    /**
+     * The identifiers of the entries removed from the dictionary
      */
-    private Set<String> textHashSet = new LinkedHashSet<>();
-    
+    private final Set<Integer> removedIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Lock used to assign identifiers and to grow the directory of pages
+     */
+    private final Object allocationLock = new Object();
+
+    /**
+     * The number of entries currently included in the dictionary
+     */
+    private final AtomicInteger size = new AtomicInteger(0);
 
     /**
      * Indicates if the entries should be encoded
      */
-    private boolean encode = false;
+    private volatile boolean encode = false;
 
     /**
      * A instance of the Dictionary to implement a singleton pattern
      */
-    private static Dictionary dictionary = null;
+    private static final Dictionary dictionary = new Dictionary();
 
     /**
      * The default constructor
@@ -78,9 +133,6 @@ public class Dictionary implements Iterable<String> {
      * @return The default dictionary for the system
      */
     public static Dictionary getDictionary() {
-        if (dictionary == null) {
-            dictionary = new Dictionary();
-        }
         return dictionary;
     }
 
@@ -106,11 +158,14 @@ public class Dictionary implements Iterable<String> {
      * Add a string to dictionary
      *
      * @param text The new text to add to the dictionary
+     * @return the identifier of the text or NOT_INCLUDED if the text is null
+     * or empty
      */
-    public void add(String text) {
+    public int add(String text) {
         if (text != null && !text.equals("")) {
-            textHashSet.add(this.encode ? encodeBase64(text) : text);
+            return intern(this.encode ? encodeBase64(text) : text);
         }
+        return NOT_INCLUDED;
     }
 
     /**
@@ -125,7 +180,43 @@ public class Dictionary implements Iterable<String> {
         /*if (checkEncode) {
             text = (this.encode) ? encodeBase64(text) : text;
         }*/
-        return textHashSet.contains(text);
+        return textIds.containsKey(text);
+    }
+
+    /**
+     * Returns the identifier assigned to a text
+     *
+     * @param text the text (already encoded, if required)
+     * @return the identifier of the text or NOT_INCLUDED if the text is not
+     * included in the dictionary
+     */
+    public int getId(String text) {
+        Integer id = textIds.get(text);
+        return (id != null) ? id : NOT_INCLUDED;
+    }
+
+    /**
+     * Returns the text that has been assigned to an identifier. The text is
+     * returned even if the entry has been removed from the dictionary
+     *
+     * @param id the identifier
+     * @return the text or null if there is no text for the identifier
+     */
+    public String getText(int id) {
+        if (id < 0 || id >= nextId.get()) {
+            return null;
+        }
+        AtomicReferenceArray<String> page = pages[id >>> PAGE_BITS];
+        return (page != null) ? page.get(id & (PAGE_SIZE - 1)) : null;
+    }
+
+    /**
+     * Returns the upper bound (exclusive) of the identifiers assigned so far
+     *
+     * @return the upper bound of the identifiers assigned so far
+     */
+    public int getIdBound() {
+        return nextId.get();
     }
 
     /**
@@ -136,19 +227,32 @@ public class Dictionary implements Iterable<String> {
      */
     public void replace(String originalText, String replaceText) {
         if (!originalText.equals(replaceText)) {
-            if (this.isIncluded(originalText, false)) {
-                textHashSet.remove(originalText);
-                textHashSet.add(replaceText);
+            Integer id = textIds.remove(originalText);
+            if (id != null) {
+                removedIds.add(id);
+                size.decrementAndGet();
+                intern(replaceText);
             }
         }
     }
 
     public void print() {
-        for (String text : textHashSet) {
-            System.out.print(new String(Base64.getDecoder().decode(text.substring(3))) + "|");
+        for (String text : this) {
+            System.out.print(text + "|");
         }
     }
 
+    /**
+     * Determines if an identifier belongs to an entry currently included in
+     * the dictionary
+     *
+     * @param id the identifier
+     * @return true if the entry has not been removed from the dictionary
+     */
+    public boolean isIncluded(int id) {
+        return getText(id) != null && !removedIds.contains(id);
+    }
+
     /**
      * Achieves an iterator to iterate through the stored text
      *
@@ -156,7 +260,42 @@ public class Dictionary implements Iterable<String> {
      */
     @Override
     public Iterator<String> iterator() {
-        return this.textHashSet.iterator();
+        return new Iterator<String>() {
+            /**
+             * The identifier of the next text to return
+             */
+            private int nextIndex = advance(0);
+
+            /**
+             * Find the first identifier (starting from id) included in the
+             * dictionary
+             *
+             * @param id the identifier to start from
+             * @return the identifier found or the current identifier bound
+             */
+            private int advance(int id) {
+                int bound = nextId.get();
+                while (id < bound && !isIncluded(id)) {
+                    id++;
+                }
+                return id;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextIndex < nextId.get();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String text = getText(nextIndex);
+                nextIndex = advance(nextIndex + 1);
+                return text;
+            }
+        };
     }
 
     /**
@@ -165,14 +304,21 @@ public class Dictionary implements Iterable<String> {
      * @return the size of the dictionary
      */
     public int size() {
-        return this.textHashSet.size();
+        return this.size.get();
     }
 
     /**
-     * Removes all the elements from the dictionary
+     * Removes all the elements from the dictionary. This method should not be
+     * invoked while other threads are adding entries
      */
     public void clear() {
-        this.textHashSet.clear();
+        this.textIds.clear();
+        this.removedIds.clear();
+        synchronized (allocationLock) {
+            this.pages = newPageDirectory(16);
+            this.nextId.set(0);
+            this.size.set(0);
+        }
     }
 
     /**
@@ -185,7 +331,11 @@ public class Dictionary implements Iterable<String> {
                 BufferedOutputStream buffer = new BufferedOutputStream(outputFile);
                 ObjectOutputStream output = new ObjectOutputStream(buffer);) {
 
-            output.writeObject(this.textHashSet);
+            LinkedHashSet<String> textHashSet = new LinkedHashSet<>();
+            for (String text : this) {
+                textHashSet.add(text);
+            }
+            output.writeObject(textHashSet);
             output.flush();
         } catch (Exception ex) {
             logger.error("[WRITE TO DISK] " + ex.getMessage());
@@ -202,12 +352,75 @@ public class Dictionary implements Iterable<String> {
         try (BufferedInputStream buffer = new BufferedInputStream(new FileInputStream(file))) {
             ObjectInputStream input = new ObjectInputStream(buffer);
 
-            this.textHashSet = (LinkedHashSet<String>) input.readObject();
+            Set<String> textHashSet = (LinkedHashSet<String>) input.readObject();
+            clear();
+            for (String text : textHashSet) {
+                intern(text);
+            }
         } catch (Exception ex) {
             logger.error("[READ FROM DISK] " + ex.getMessage());
         }
     }
 
+    /**
+     * Retrieves the identifier of a text, assigning a new one if the text is
+     * not included in the dictionary. Unlike add, the text is stored as is
+     * (the encode property is not applied)
+     *
+     * @param text The text to intern
+     * @return the identifier of the text
+     */
+    public int intern(String text) {
+        Integer id = textIds.get(text);
+        if (id != null) {
+            return id;
+        }
+        return textIds.computeIfAbsent(text, (key) -> {
+            synchronized (allocationLock) {
+                int newId = nextId.get();
+                ensurePage(newId >>> PAGE_BITS);
+                pages[newId >>> PAGE_BITS].set(newId & (PAGE_SIZE - 1), key);
+                size.incrementAndGet();
+                // Publish the identifier once its text can be read
+                nextId.set(newId + 1);
+                return newId;
+            }
+        });
+    }
+
+    /**
+     * Ensures that a page has been allocated. This method should be invoked
+     * while holding allocationLock
+     *
+     * @param page The index of the page
+     */
+    private void ensurePage(int page) {
+        AtomicReferenceArray<String>[] current = pages;
+        if (page < current.length && current[page] != null) {
+            return;
+        }
+        if (page >= current.length) {
+            AtomicReferenceArray<String>[] grown = newPageDirectory(Math.max(page + 1, current.length * 2));
+            System.arraycopy(current, 0, grown, 0, current.length);
+            current = grown;
+        }
+        if (current[page] == null) {
+            current[page] = new AtomicReferenceArray<>(PAGE_SIZE);
+        }
+        pages = current;
+    }
+
+    /**
+     * Creates an empty directory of pages
+     *
+     * @param length The number of pages of the directory
+     * @return the directory of pages
+     */
+    @SuppressWarnings("unchecked")
+    private static AtomicReferenceArray<String>[] newPageDirectory(int length) {
+        return (AtomicReferenceArray<String>[]) new AtomicReferenceArray<?>[length];
+    }
+
     /**
      * Encode a text to BASE 64
      *
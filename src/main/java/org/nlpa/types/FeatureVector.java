@@ -21,13 +21,21 @@
  */
 package org.nlpa.types;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Objects;
 
 /**
- * Implements a FeatureVector
+ * Implements a FeatureVector. Features are represented by the identifiers
+ * assigned to them by the system Dictionary and stored in a sparse way: a
+ * sorted array of identifiers together with an array of values. Feature
+ * lookups are made through binary search and iterating the features (see
+ * getIndexAt and getValueAt) does not require allocating objects.
  *
  * @author Maria Novo
  */
@@ -39,29 +47,111 @@ public class FeatureVector implements Serializable {
     private static final long serialVersionUID = 1L;
 
     /**
-     * A map of tokens together with its values
+     * The sorted identifiers (in the system Dictionary) of the features
      */
-    private Map<String, Double> features = new HashMap<>();
+    private transient int[] indices;
+
+    /**
+     * The values of the features (values[i] is the value of indices[i])
+     */
+    private transient double[] values;
 
     /**
      * Builds a FeatureVector from a Map (String,Double) where the string
      * represents the feature and the double contains the value for such
-     * feature
+     * feature. The features are only looked up in the system Dictionary (it
+     * is never modified), so features not included in it are ignored. Pipes
+     * that own a vocabulary should add its features to the Dictionary and use
+     * FeatureVector(int[], double[]) instead
      *
      * @param features The features Map used to build the FeatureVector
      */
     public FeatureVector(Map<String, Double> features) {
-        this.features = features;
+        Dictionary dictionary = Dictionary.getDictionary();
+        int[] ids = new int[features.size()];
+        double[] featureValues = new double[features.size()];
+        int size = 0;
+        for (Map.Entry<String, Double> entry : features.entrySet()) {
+            int id = dictionary.getId(entry.getKey());
+            if (id != Dictionary.NOT_INCLUDED) {
+                ids[size] = id;
+                featureValues[size] = entry.getValue();
+                size++;
+            }
+        }
+        if (size < ids.length) {
+            ids = Arrays.copyOf(ids, size);
+            featureValues = Arrays.copyOf(featureValues, size);
+        }
+        sortByIndex(ids, featureValues);
+        this.indices = ids;
+        this.values = featureValues;
+    }
+
+    /**
+     * Builds a FeatureVector from the identifiers of the features and their
+     * values. The arrays are used directly (they are not copied).
+     *
+     * @param indices The identifiers of the features in the system
+     * Dictionary. They should be sorted and should not contain duplicates
+     * @param values The values of the features
+     */
+    public FeatureVector(int[] indices, double[] values) {
+        if (indices.length != values.length) {
+            throw new IllegalArgumentException("The number of indices (" + indices.length + ") and values (" + values.length + ") should be the same");
+        }
+        this.indices = indices;
+        this.values = values;
+    }
+
+    /**
+     * Builds a FeatureVector by counting the occurrences of each feature
+     *
+     * @param ids The identifiers of the features found (it may contain
+     * duplicates and it is not modified)
+     * @param length The number of identifiers to take from ids
+     * @param binary If true, the value of each feature is 1 (presence)
+     * instead of the number of occurrences
+     * @return The FeatureVector built
+     */
+    public static FeatureVector fromOccurrences(int[] ids, int length, boolean binary) {
+        int[] sorted = Arrays.copyOf(ids, length);
+        Arrays.sort(sorted);
+
+        int distinct = 0;
+        double[] counts = new double[length];
+        for (int i = 0; i < length; i++) {
+            if (distinct > 0 && sorted[distinct - 1] == sorted[i]) {
+                if (!binary) {
+                    counts[distinct - 1]++;
+                }
+            } else {
+                sorted[distinct] = sorted[i];
+                counts[distinct] = 1d;
+                distinct++;
+            }
+        }
+
+        return new FeatureVector(Arrays.copyOf(sorted, distinct), Arrays.copyOf(counts, distinct));
     }
 
     /**
      * Retrieves the map that connects each feature found with its
-     * value
+     * value. The map is an unmodifiable copy of the contents of this vector,
+     * so it should be used only for compatibility purposes
      *
      * @return a Map that connects each feature with the value for it
      */
     public Map<String, Double> getFeatures() {
-        return features;
+        Dictionary dictionary = Dictionary.getDictionary();
+        Map<String, Double> features = new LinkedHashMap<>();
+        for (int i = 0; i < indices.length; i++) {
+            String feature = dictionary.getText(indices[i]);
+            if (feature != null) {
+                features.put(feature, values[i]);
+            }
+        }
+        return Collections.unmodifiableMap(features);
     }
 
     /**
@@ -70,7 +160,50 @@ public class FeatureVector implements Serializable {
      * @return the size of the current FeatureVector
      */
     public int getSize() {
-        return features.size();
+        return indices.length;
+    }
+
+    /**
+     * Gets the identifier of the feature stored in a position of the vector.
+     * Positions are sorted by identifier
+     *
+     * @param position The position (from 0 to getSize()-1)
+     * @return the identifier of the feature in the system Dictionary
+     */
+    public int getIndexAt(int position) {
+        return indices[position];
+    }
+
+    /**
+     * Gets the value of the feature stored in a position of the vector
+     *
+     * @param position The position (from 0 to getSize()-1)
+     * @return the value of the feature
+     */
+    public double getValueAt(int position) {
+        return values[position];
+    }
+
+    /**
+     * Find the position of a feature in the vector
+     *
+     * @param id the identifier of the feature in the system Dictionary
+     * @return the position of the feature or a negative number if the feature
+     * is not included in the vector
+     */
+    public int positionOf(int id) {
+        return (id < 0) ? -1 : Arrays.binarySearch(indices, id);
+    }
+
+    /**
+     * Get the value for a feature
+     *
+     * @param id the identifier of the feature in the system Dictionary
+     * @return the value for a feature (0 if it is not included in the vector)
+     */
+    public double getValue(int id) {
+        int position = positionOf(id);
+        return (position >= 0) ? values[position] : 0d;
     }
 
     /**
@@ -80,12 +213,7 @@ public class FeatureVector implements Serializable {
      * @return the value for a feature
      */
     public double getValue(String feature) {
-        Double retVal = features.get(feature);
-        if (retVal == null) {
-            retVal = 0d;
-        }
-
-        return retVal;
+        return getValue(Dictionary.getDictionary().getId(feature));
     }
 
     /**
@@ -96,20 +224,88 @@ public class FeatureVector implements Serializable {
      * of appearance of the feature
      */
     public double getFrequencyValue(String feature) {
-        if (features.containsKey(feature)) {
-            for (Map.Entry<String, Double> entry : features.entrySet()) {
-                if (feature.equals(entry.getKey())) {
-                    return entry.getValue();
+        int position = positionOf(Dictionary.getDictionary().getId(feature));
+        return (position >= 0) ? values[position] : -1;
+    }
+
+    /**
+     * Divides all the values of the vector by a number
+     *
+     * @param divisor The divisor
+     */
+    public void divide(double divisor) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] /= divisor;
+        }
+    }
+
+    /**
+     * Sorts the indices (and the values accordingly) of a vector
+     *
+     * @param ids The identifiers of the features
+     * @param featureValues The values of the features
+     */
+    private static void sortByIndex(int[] ids, double[] featureValues) {
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i - 1] > ids[i]) {
+                long[] packed = new long[ids.length];
+                for (int j = 0; j < ids.length; j++) {
+                    packed[j] = ((long) ids[j] << 32) | j;
                 }
+                Arrays.sort(packed);
+                double[] original = featureValues.clone();
+                for (int j = 0; j < ids.length; j++) {
+                    ids[j] = (int) (packed[j] >>> 32);
+                    featureValues[j] = original[(int) packed[j]];
+                }
+                return;
             }
         }
-        return -1;
+    }
+
+    /**
+     * Serializes the vector. Features are stored as texts because identifiers
+     * are only valid for the current system Dictionary
+     *
+     * @param out The stream to write
+     * @throws IOException If an I/O error occurs
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        Dictionary dictionary = Dictionary.getDictionary();
+        out.writeInt(indices.length);
+        for (int i = 0; i < indices.length; i++) {
+            out.writeObject(dictionary.getText(indices[i]));
+            out.writeDouble(values[i]);
+        }
+    }
+
+    /**
+     * Deserializes the vector, adding its features to the system Dictionary
+     *
+     * @param in The stream to read
+     * @throws IOException If an I/O error occurs
+     * @throws ClassNotFoundException If the class of a serialized object
+     * cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        Dictionary dictionary = Dictionary.getDictionary();
+        int size = in.readInt();
+        indices = new int[size];
+        values = new double[size];
+        for (int i = 0; i < size; i++) {
+            indices[i] = dictionary.intern((String) in.readObject());
+            values[i] = in.readDouble();
+        }
+        sortByIndex(indices, values);
     }
 
     @Override
     public int hashCode() {
         int hash = 7;
-        hash = 59 * hash + Objects.hashCode(this.features);
+        hash = 59 * hash + Arrays.hashCode(this.indices);
+        hash = 59 * hash + Arrays.hashCode(this.values);
         return hash;
     }
 
@@ -125,7 +321,10 @@ public class FeatureVector implements Serializable {
             return false;
         }
         final FeatureVector other = (FeatureVector) obj;
-        if (!Objects.equals(this.features, other.features)) {
+        if (!Arrays.equals(this.indices, other.indices)) {
+            return false;
+        }
+        if (!Arrays.equals(this.values, other.values)) {
             return false;
         }
         return true;
@@ -21,17 +21,20 @@
  */
 package org.nlpa.types;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Base64;
-import java.util.Collections;
-import java.util.List;
-import java.util.Objects;
 import java.util.StringTokenizer;
-import java.util.stream.Collectors;
 
 /**
- * A class to represent a sequence of tokens.
+ * A class to represent a sequence of tokens. Tokens are interned in the
+ * system Dictionary (preceded by TOKEN_PREFIX) and the sequence only stores
+ * their identifiers. The lossless and CSV-safe representation of tokens
+ * (Base64) is only computed when writing the output (see toAttributeName).
  *
  * @author José Ramón Méndez Reboredo
  */
@@ -43,9 +46,21 @@ public class TokenSequence implements Serializable {
     private static final long serialVersionUID = 1L;
 
     /**
-     * Strings included in the TokenSequence
+     * The prefix used to distinguish tokens from other entries of the
+     * dictionary (i.e. synsets) and from the properties of the instances
      */
-    private List<String> tokens = new ArrayList<>();
+    public static final String TOKEN_PREFIX = "tk:";
+
+    /**
+     * The identifiers (in the system Dictionary) of the tokens included in
+     * the TokenSequence
+     */
+    private transient int[] tokens = new int[16];
+
+    /**
+     * The number of tokens included in the TokenSequence
+     */
+    private transient int size = 0;
 
     /**
      * The separators for tokenize
@@ -65,22 +80,55 @@ public class TokenSequence implements Serializable {
      * @param separators the separator to be used
      */
     public TokenSequence(String toTokenize, String separators) {
-        tokens = Collections.list(new StringTokenizer(toTokenize, separators)).stream()
-                //.map(token -> (String) token) //Now tokens are represented 
-                                                //in base64 and preceded by "tk:"
-                .map( token -> {
-                    return "tk:"+Base64.getEncoder().encodeToString(((String)token).getBytes());
-                } )
-                .collect(Collectors.toList());
+        StringTokenizer tokenizer = new StringTokenizer(toTokenize, separators);
+        while (tokenizer.hasMoreTokens()) {
+            addToken(tokenizer.nextToken());
+        }
     }
 
     /**
      * Add a term to the tokenSequence
      *
-     * @param t the term (token) to add
+     * @param t the term (token) to add as it is stored in the dictionary
+     * (preceded by TOKEN_PREFIX)
      */
     public void add(String t) {
-        tokens.add(t);
+        add(Dictionary.getDictionary().intern(t));
+    }
+
+    /**
+     * Add a token to the tokenSequence
+     *
+     * @param token the token (without TOKEN_PREFIX)
+     * @return the identifier of the token in the system Dictionary
+     */
+    public int addToken(String token) {
+        int id = Dictionary.getDictionary().intern(TOKEN_PREFIX + token);
+        add(id);
+        return id;
+    }
+
+    /**
+     * Add a token to the tokenSequence given its identifier
+     *
+     * @param id the identifier of the token in the system Dictionary
+     */
+    public void add(int id) {
+        if (size == tokens.length) {
+            tokens = Arrays.copyOf(tokens, size * 2);
+        }
+        tokens[size++] = id;
+    }
+
+    /**
+     * Add all the tokens of other TokenSequence
+     *
+     * @param ts the TokenSequence whose tokens will be added
+     */
+    public void add(TokenSequence ts) {
+        for (int i = 0; i < ts.size; i++) {
+            add(ts.tokens[i]);
+        }
     }
 
     /**
@@ -89,17 +137,58 @@ public class TokenSequence implements Serializable {
      * @return The size of TokenSequence
      */
     public int size() {
-        return this.tokens.size();
+        return this.size;
     }
 
     /**
      * Get the token in the indicated position
      *
      * @param i Token position to get
-     * @return The token at the indicated position
+     * @return The token at the indicated position as it is stored in the
+     * dictionary (preceded by TOKEN_PREFIX)
      */
     public String getToken(int i) {
-        return tokens.get(i);
+        return Dictionary.getDictionary().getText(getTokenId(i));
+    }
+
+    /**
+     * Get the identifier of the token in the indicated position
+     *
+     * @param i Token position to get
+     * @return The identifier of the token in the system Dictionary
+     */
+    public int getTokenId(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        return tokens[i];
+    }
+
+    /**
+     * Removes the TOKEN_PREFIX from a dictionary entry
+     *
+     * @param entry The entry of the dictionary
+     * @return the token (without prefix)
+     */
+    public static String toToken(String entry) {
+        return entry.startsWith(TOKEN_PREFIX) ? entry.substring(TOKEN_PREFIX.length()) : entry;
+    }
+
+    /**
+     * Computes the name of the attribute used to store a dictionary entry in
+     * the output (i.e. CSV files or datasets). Tokens are encoded in Base64 to
+     * avoid problems with special characters. Other entries (i.e. synsets)
+     * are not modified
+     *
+     * @param entry The entry of the dictionary
+     * @return the name of the attribute
+     */
+    public static String toAttributeName(String entry) {
+        if (!entry.startsWith(TOKEN_PREFIX)) {
+            return entry;
+        }
+        return TOKEN_PREFIX + Base64.getEncoder().encodeToString(
+                entry.substring(TOKEN_PREFIX.length()).getBytes(StandardCharsets.UTF_8));
     }
 
     /**
@@ -126,10 +215,45 @@ public class TokenSequence implements Serializable {
         Dictionary.getDictionary().writeToDisk(dir + System.getProperty("file.separator") + "Dictionary.ser");
     }
 
+    /**
+     * Serializes the sequence. Tokens are stored as texts because identifiers
+     * are only valid for the current system Dictionary
+     *
+     * @param out The stream to write
+     * @throws IOException If an I/O error occurs
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeObject(getToken(i));
+        }
+    }
+
+    /**
+     * Deserializes the sequence, adding its tokens to the system Dictionary
+     *
+     * @param in The stream to read
+     * @throws IOException If an I/O error occurs
+     * @throws ClassNotFoundException If the class of a serialized object
+     * cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int length = in.readInt();
+        tokens = new int[Math.max(length, 16)];
+        size = 0;
+        for (int i = 0; i < length; i++) {
+            add((String) in.readObject());
+        }
+    }
+
     @Override
     public int hashCode() {
         int hash = 7;
-        hash = 47 * hash + Objects.hashCode(this.tokens);
+        for (int i = 0; i < size; i++) {
+            hash = 47 * hash + tokens[i];
+        }
         return hash;
     }
 
@@ -145,10 +269,15 @@ public class TokenSequence implements Serializable {
             return false;
         }
         final TokenSequence other = (TokenSequence) obj;
-        if (!Objects.equals(this.tokens, other.tokens)) {
+        if (this.size != other.size) {
             return false;
         }
+        for (int i = 0; i < size; i++) {
+            if (this.tokens[i] != other.tokens[i]) {
+                return false;
+            }
+        }
         return true;
     }
 
-}
\ No newline at end of file
+}
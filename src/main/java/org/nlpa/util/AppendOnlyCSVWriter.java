@@ -0,0 +1,416 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bdp4j.util.CSVDatasetWriter;
+
+/**
+ * Writes a CSV file (id, data, properties and target) as rows are received.
+ * The header (with the properties of the first row) and the rows are
+ * appended to the output file through a direct buffer as soon as they are
+ * added, so neither the rows nor their data are retained in memory (only the
+ * position of each row in the file). New properties can appear at any time:
+ * they are added as new columns (before the target). In this case, when the
+ * file is closed, the header is rewritten and the rows written before are
+ * completed with a "0" by shifting the contents of the file in place (from
+ * the end to the beginning), so no temporary copy of the rows is made. When
+ * all the properties are found in the first row, closing the file only
+ * flushes the buffer.
+ *
+ * The separator, quotes and escape characters are taken from a
+ * CSVDatasetWriter so the file is formatted as the ones created by it.
+ *
+ * @author José Ramón Méndez
+ */
+public class AppendOnlyCSVWriter implements AutoCloseable {
+
+    /**
+     * For logging purposes
+     */
+    private static final Logger logger = LogManager.getLogger(AppendOnlyCSVWriter.class);
+
+    /**
+     * The size of the buffer used to write the files
+     */
+    public static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * The value used for the properties that are not included in a row
+     */
+    private static final String MISSING_VALUE = "0";
+
+    /**
+     * The output file
+     */
+    private final File output;
+
+    /**
+     * The CSV separator
+     */
+    private final String separator;
+
+    /**
+     * The string quote
+     */
+    private final String quote;
+
+    /**
+     * The escape sequence for quotes included in strings
+     */
+    private final String escapedQuote;
+
+    /**
+     * The representation of void fields
+     */
+    private final String voidField;
+
+    /**
+     * The characters that require a field to be quoted
+     */
+    private final String charsToEscape;
+
+    /**
+     * Indicates whether carriage returns should be escaped
+     */
+    private final boolean escapeCR;
+
+    /**
+     * The columns of the properties found in the rows (in order)
+     */
+    private final Map<String, Integer> propertyColumns = new LinkedHashMap<>();
+
+    /**
+     * Buffer used to write the output file
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * The channel used to write the output file
+     */
+    private FileChannel out = null;
+
+    /**
+     * The number of bytes written to the output file (including the ones
+     * still in the buffer)
+     */
+    private long position = 0;
+
+    /**
+     * The length (in bytes) of the header written when the file was opened
+     */
+    private long headerLength = 0;
+
+    /**
+     * The position of the target field of each row (where the missing
+     * properties should be inserted)
+     */
+    private long[] targetPositions = new long[1024];
+
+    /**
+     * The rows where the number of properties increases. Each element
+     * contains the first row and the number of properties from it on
+     */
+    private final List<int[]> propertyCounts = new ArrayList<>();
+
+    /**
+     * The number of rows added
+     */
+    private int rowCount = 0;
+
+    /**
+     * Build an AppendOnlyCSVWriter
+     *
+     * @param output The output file
+     * @param format A CSVDatasetWriter used to get the format (separator,
+     * quotes, etc.) of the CSV file
+     */
+    public AppendOnlyCSVWriter(File output, CSVDatasetWriter format) {
+        this.output = output;
+        this.separator = format.getCSVSep();
+        this.quote = format.getStrQuote();
+        this.escapedQuote = format.getStrQuoteEscapeChar() + format.getStrQuote();
+        this.voidField = format.getStrVoidField();
+        this.charsToEscape = format.getCharsToScape();
+        this.escapeCR = format.shouldEscapeCRChars();
+    }
+
+    /**
+     * Returns the output file
+     *
+     * @return the output file
+     */
+    public File getOutput() {
+        return output;
+    }
+
+    /**
+     * Returns the number of rows added
+     *
+     * @return the number of rows added
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Add a row. The output file is created (including the header) when the
+     * first row is added
+     *
+     * @param id The identifier of the instance
+     * @param data The data of the instance
+     * @param properties The properties of the instance
+     * @param target The target of the instance
+     * @throws IOException If the row cannot be written
+     */
+    public void addRow(Object id, Object data, Map<String, Object> properties, Object target) throws IOException {
+        for (String property : properties.keySet()) {
+            propertyColumns.putIfAbsent(property, propertyColumns.size());
+        }
+
+        if (out == null) {
+            out = FileChannel.open(output.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            putBytes(getHeader());
+            headerLength = position;
+        }
+
+        String[] values = new String[propertyColumns.size()];
+        for (Map.Entry<String, Object> entry : properties.entrySet()) {
+            values[propertyColumns.get(entry.getKey())] = escape(entry.getValue());
+        }
+
+        StringBuilder line = new StringBuilder();
+        line.append(escape(id)).append(separator).append(escape(data));
+        for (String value : values) {
+            line.append(separator).append((value != null) ? value : MISSING_VALUE);
+        }
+        putBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+
+        if (propertyCounts.isEmpty() || propertyCounts.get(propertyCounts.size() - 1)[1] < values.length) {
+            propertyCounts.add(new int[]{rowCount, values.length});
+        }
+        if (rowCount == targetPositions.length) {
+            targetPositions = Arrays.copyOf(targetPositions, rowCount * 2);
+        }
+        targetPositions[rowCount] = position;
+
+        putBytes((separator + escape(target) + "\n").getBytes(StandardCharsets.UTF_8));
+        rowCount++;
+    }
+
+    /**
+     * Complete the output file. If new properties were found after the
+     * first row, the header is rewritten and the previous rows are completed
+     *
+     * @throws IOException If the output file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        int numProperties = propertyColumns.size();
+        if (out == null) {
+            // No rows were added, so only the header is written
+            out = FileChannel.open(output.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            putBytes(getHeader());
+        }
+
+        try {
+            flush();
+            if (rowCount > 0 && propertyCounts.get(0)[1] < numProperties) {
+                completeRows(numProperties);
+            }
+        } finally {
+            out.close();
+            out = null;
+        }
+
+        logger.info("CSV file " + output + " created with " + rowCount + " rows and " + (numProperties + 3) + " columns");
+    }
+
+    /**
+     * Rewrite the header and insert the properties missing in the rows
+     * written before they were found. The contents of the file are shifted
+     * towards the end in place, beginning from the last row that should be
+     * completed, so the bytes not moved yet are never overwritten
+     *
+     * @param numProperties The number of properties found
+     * @throws IOException If the output file cannot be written
+     */
+    private void completeRows(int numProperties) throws IOException {
+        byte[] header = getHeader();
+        byte[] missing = (separator + MISSING_VALUE).getBytes(StandardCharsets.UTF_8);
+
+        // The shift of the bytes after the target position of each row
+        long shift = header.length - headerLength;
+        int[] rowProperties = new int[rowCount];
+        for (int i = 0; i < propertyCounts.size(); i++) {
+            int end = (i + 1 < propertyCounts.size()) ? propertyCounts.get(i + 1)[0] : rowCount;
+            Arrays.fill(rowProperties, propertyCounts.get(i)[0], end, propertyCounts.get(i)[1]);
+        }
+        for (int row = 0; row < rowCount; row++) {
+            shift += (long) (numProperties - rowProperties[row]) * missing.length;
+        }
+
+        ByteBuffer chunk = ByteBuffer.allocate(BUFFER_SIZE);
+        long end = position;
+        for (int row = rowCount - 1; row >= 0; row--) {
+            moveBytes(targetPositions[row], end, shift, chunk);
+            end = targetPositions[row];
+            for (int i = rowProperties[row]; i < numProperties; i++) {
+                shift -= missing.length;
+                writeBytes(end + shift, missing, chunk);
+            }
+        }
+        moveBytes(headerLength, end, shift, chunk);
+        writeBytes(0, header, chunk);
+    }
+
+    /**
+     * Move a block of bytes of the output file towards the end, copying it
+     * from its last byte to its first one
+     *
+     * @param start The position of the first byte of the block
+     * @param end The position after the last byte of the block
+     * @param shift The number of bytes the block is moved
+     * @param chunk A buffer used to copy the bytes
+     * @throws IOException If the bytes cannot be moved
+     */
+    private void moveBytes(long start, long end, long shift, ByteBuffer chunk) throws IOException {
+        if (shift == 0) {
+            return;
+        }
+        while (end > start) {
+            int count = (int) Math.min(end - start, chunk.capacity());
+            end -= count;
+            chunk.clear().limit(count);
+            while (chunk.hasRemaining()) {
+                if (out.read(chunk, end + chunk.position()) < 0) {
+                    throw new IOException("Unexpected end of file " + output);
+                }
+            }
+            chunk.flip();
+            while (chunk.hasRemaining()) {
+                out.write(chunk, end + shift + chunk.position());
+            }
+        }
+    }
+
+    /**
+     * Write an array of bytes at a position of the output file
+     *
+     * @param at The position
+     * @param bytes The bytes
+     * @param chunk A buffer used to write the bytes
+     * @throws IOException If the bytes cannot be written
+     */
+    private void writeBytes(long at, byte[] bytes, ByteBuffer chunk) throws IOException {
+        for (int offset = 0; offset < bytes.length; offset += chunk.capacity()) {
+            chunk.clear();
+            chunk.put(bytes, offset, Math.min(bytes.length - offset, chunk.capacity())).flip();
+            while (chunk.hasRemaining()) {
+                out.write(chunk, at + offset + chunk.position());
+            }
+        }
+    }
+
+    /**
+     * Build the header including the properties found so far
+     *
+     * @return The bytes of the header
+     */
+    private byte[] getHeader() {
+        StringBuilder header = new StringBuilder();
+        header.append(escape("id")).append(separator).append(escape("data"));
+        for (String property : propertyColumns.keySet()) {
+            header.append(separator).append(escape(property));
+        }
+        header.append(separator).append(escape("target")).append('\n');
+        return header.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Represent a value as a CSV field, quoting it when required
+     *
+     * @param value The value
+     * @return The text of the field
+     */
+    private String escape(Object value) {
+        if (value == null) {
+            return voidField;
+        }
+
+        String text = value.toString();
+        if (escapeCR) {
+            text = text.replace("\r", "\\r").replace("\n", "\\n");
+        }
+
+        boolean quoteRequired = text.contains(separator) || text.contains(quote) || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+        for (int i = 0; !quoteRequired && i < charsToEscape.length(); i++) {
+            quoteRequired = text.indexOf(charsToEscape.charAt(i)) >= 0;
+        }
+
+        return quoteRequired ? quote + text.replace(quote, escapedQuote) + quote : text;
+    }
+
+    /**
+     * Append an array of bytes to the output file using the buffer
+     *
+     * @param bytes The bytes
+     * @throws IOException If the buffer cannot be written
+     */
+    private void putBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int count = Math.min(bytes.length - offset, buffer.remaining());
+            buffer.put(bytes, offset, count);
+            offset += count;
+        }
+        position += bytes.length;
+    }
+
+    /**
+     * Write the contents of the buffer to the output file
+     *
+     * @throws IOException If the buffer cannot be written
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -21,6 +21,7 @@
  */
 package org.nlpa.util;
 
+import org.bdp4j.util.EBoolean;
 import org.bdp4j.util.Pair;
 
 import org.apache.logging.log4j.LogManager;
@@ -39,9 +40,14 @@ import it.uniroma1.lcl.babelnet.data.BabelPointer;
 
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class encapsulates all required information to support Babelfy and
@@ -51,8 +57,6 @@ import java.util.Map;
  */
 public class BabelUtils {
 
-    public static int babelfyQueries = 0;
-
     /**
      * For logging purpopses
      */
@@ -68,16 +72,48 @@ public class BabelUtils {
      */
     private Babelfy bfy;
 
+    /**
+     * The client used to query Babelfy
+     */
+    private BabelfyClient babelfyClient;
+
+    /**
+     * The default file containing the cache of Babelfy responses (see
+     * BabelfyResponseCache)
+     */
+    public static final String DEFAULT_BABELFY_CACHE_FILE = System.getProperty("java.io.tmpdir") + System.getProperty("file.separator") + "babelfy-cache.bin";
+
     /**
      * An instance of BabelNet object required to query BabelNet
      */
     private BabelNet bn;
 
+    /**
+     * A local index to check whether terms are included in BabelNet
+     */
+    private TermIndex termIndex;
+
+    /**
+     * The default folder containing the term index (see TermIndex)
+     */
+    public static final String DEFAULT_TERM_INDEX_FOLDER = System.getProperty("java.io.tmpdir") + System.getProperty("file.separator") + "babelnet-terms";
+
     /**
      * A stop synset to navigate in Babelnet hierarchy. The synset means entity
      */
     private static String stopSynset = "bn:00031027n";
 
+    /**
+     * The value stored in hypernymCache for synsets without hypernyms
+     */
+    private static final String NO_HYPERNYM = new String();
+
+    /**
+     * The direct hypernym of each synset retrieved from Babelnet (or
+     * NO_HYPERNYM). It avoids querying Babelnet again for the same synset
+     */
+    private final ConcurrentHashMap<String, String> hypernymCache = new ConcurrentHashMap<>();
+
     /**
      * String limit for babelfy queries
      */
@@ -89,6 +125,21 @@ public class BabelUtils {
     private BabelUtils() {
         bfy = new Babelfy();
         bn = BabelNet.getInstance();
+
+        // The Babelfy client is configured in the babelfy section of the configuration
+        String babelfyCacheFile = Configuration.getSystemConfig().getConfigOption("babelfy", "CacheFile");
+        String maxConcurrentQueries = Configuration.getSystemConfig().getConfigOption("babelfy", "MaxConcurrentQueries");
+        babelfyClient = new BabelfyClient(this::babelfy,
+                new BabelfyResponseCache((babelfyCacheFile != null) ? babelfyCacheFile : DEFAULT_BABELFY_CACHE_FILE),
+                (maxConcurrentQueries != null) ? Integer.parseInt(maxConcurrentQueries.trim()) : BabelfyClient.DEFAULT_MAX_CONCURRENT_QUERIES);
+
+        // The term index is configured in the babelnet section of the configuration.
+        // In offline mode BabelNet is not queried and only the local snapshot is used
+        String termIndexFolder = Configuration.getSystemConfig().getConfigOption("babelnet", "TermIndexFolder");
+        String offline = Configuration.getSystemConfig().getConfigOption("babelnet", "TermIndexOffline");
+        termIndex = new TermIndex((termIndexFolder != null) ? termIndexFolder : DEFAULT_TERM_INDEX_FOLDER,
+                (offline != null && EBoolean.parseBoolean(offline)) ? null : this::queryTermInBabelNet);
+        Runtime.getRuntime().addShutdownHook(new Thread(termIndex::close));
     }
 
     /**
@@ -103,6 +154,24 @@ public class BabelUtils {
         return bu;
     }
 
+    /**
+     * Returns the client used to query Babelfy
+     *
+     * @return the client used to query Babelfy
+     */
+    public BabelfyClient getBabelfyClient() {
+        return babelfyClient;
+    }
+
+    /**
+     * Establish the client used to query Babelfy (i.e. to use a stub)
+     *
+     * @param babelfyClient The client used to query Babelfy
+     */
+    public void setBabelfyClient(BabelfyClient babelfyClient) {
+        this.babelfyClient = babelfyClient;
+    }
+
     /**
      * Determines whether a term is included in Babelnet or not
      *
@@ -115,15 +184,26 @@ public class BabelUtils {
             logger.error("Unable to query Babelnet because language is not found.");
             return false;
         }
-        int resultNo = 0;
+        return termIndex.contains(term, lang);
+    }
+
+    /**
+     * Query Babelnet to determine whether a term is included in it or not
+     *
+     * @param term The term to check
+     * @param lang The language in which the term is written
+     * @return true if the term is included in Babelnet ontological dictionary
+     * or null if Babelnet cannot be queried
+     */
+    private Boolean queryTermInBabelNet(String term, String lang) {
         try {
             BabelNetQuery query = new BabelNetQuery.Builder(term).from(Language.valueOf(lang)).build();
             List<BabelSynset> byl = bn.getSynsets(query);
-            resultNo = byl.size();
+            return (byl.size() > 0);
         } catch (Exception e) {
             logger.error("Unable to query Babelnet: " + e.getMessage());
+            return null;
         }
-        return (resultNo > 0);
     }
 
     /**
@@ -147,6 +227,79 @@ public class BabelUtils {
         }
     }
 
+    /**
+     * Retrieve the direct hypernym of a synset (the first HYPERNYM or, if there
+     * is none, the first ANY_HYPERNYM). Babelnet is queried until it answers
+     * for a synset, next requests are answered from hypernymCache
+     *
+     * @param synset The Synset to search its hypernym.
+     * @return the hypernym synset ID (which could be the stop synset or the
+     * synset itself) or null if the synset has no hypernyms, it does not exist
+     * in Babelnet or Babelnet cannot be queried
+     */
+    private String getParent(String synset) {
+        String hypernym = hypernymCache.computeIfAbsent(synset, this::queryParent);
+        return (hypernym == NO_HYPERNYM) ? null : hypernym;
+    }
+
+    /**
+     * Query Babelnet to find the direct hypernym of a synset
+     *
+     * @param synset The Synset to search its hypernym.
+     * @return the hypernym synset ID, NO_HYPERNYM if the synset has no
+     * hypernyms or it does not exist in Babelnet, or null if Babelnet cannot
+     * be queried (so the answer is not cached)
+     */
+    private String queryParent(String synset) {
+        try {
+            BabelSynset by = bn.getSynset(new BabelSynsetID(synset));
+            if (by == null) {
+                logger.error("Hypernym search problem. The synset " + synset + " does not exists in Babelnet.");
+                return NO_HYPERNYM;
+            }
+            List<BabelSynsetRelation> elementsInHypernymPointer = by.getOutgoingEdges(BabelPointer.HYPERNYM);
+            // If HYPERNYM returns values, it takes first synset
+            if (elementsInHypernymPointer.size() >= 1) {
+                return elementsInHypernymPointer.get(0).getBabelSynsetIDTarget().toString();
+            }
+            // else if ANY_HYPERNYM returns values, it takes first synset
+            List<BabelSynsetRelation> elementsInAnyHypernymPointer = by.getOutgoingEdges(BabelPointer.ANY_HYPERNYM);
+            if (elementsInAnyHypernymPointer.size() >= 1) {
+                return elementsInAnyHypernymPointer.get(0).getBabelSynsetIDTarget().toString();
+            }
+        } catch (Exception e) {
+            logger.error("Hypernym search problem. Unable to query Babelnet for the synset " + synset + ". " + e.getMessage());
+            return null;
+        }
+        return NO_HYPERNYM;
+    }
+
+    /**
+     * Determines whether Babelnet has answered the query for the direct
+     * hypernym of a synset (so a null hypernym means that the synset has no
+     * hypernyms instead of a failed query)
+     *
+     * @param synset The synset
+     * @return true if the direct hypernym of the synset is known
+     */
+    public boolean isHypernymKnown(String synset) {
+        return hypernymCache.containsKey(synset);
+    }
+
+    /**
+     * Gets the direct hypernym of a synset (the first HYPERNYM or, if there
+     * is none, the first ANY_HYPERNYM)
+     *
+     * @param synset The Synset to search its hypernym.
+     * @return the hypernym synset ID or null if the synset has no hypernyms,
+     * its hypernym is the stop synset (entity) or the synset does not exist in
+     * Babelnet
+     */
+    public String getHypernym(String synset) {
+        String hypernym = getParent(synset);
+        return (hypernym == null || hypernym.equals(synset) || hypernym.equals(stopSynset)) ? null : hypernym;
+    }
+
     /**
      * Gets an hypernym of a synset that is n levels above
      *
@@ -156,24 +309,12 @@ public class BabelUtils {
      */
     public String getSynsetHypernymFromLevel(String synsetToScale, int levels) {
         String tmpHypernym = synsetToScale;
-        try {
-            List<BabelSynsetRelation> elementsInAnyHypernymPointer, elementsInHypernymPointer;
-            BabelSynset by;
-
-            for (int l = 0; l < levels; l++) {
-                by = bn.getSynset(new BabelSynsetID(tmpHypernym));
-                elementsInAnyHypernymPointer = by.getOutgoingEdges(BabelPointer.ANY_HYPERNYM);
-                elementsInHypernymPointer = by.getOutgoingEdges(BabelPointer.HYPERNYM);
-                // If HYPERNYM returns values, it takes first synset and add to tmpHypernym
-                if (elementsInHypernymPointer.size() >= 1) {
-                    tmpHypernym = elementsInHypernymPointer.get(0).getBabelSynsetIDTarget().toString();
-                } // else if ANY_HYPERNYM returns values, it takes first synset and add to tmpHypernym
-                else if (elementsInAnyHypernymPointer.size() >= 1) {
-                    tmpHypernym = elementsInAnyHypernymPointer.get(0).getBabelSynsetIDTarget().toString();
-                }
+        for (int l = 0; l < levels; l++) {
+            String hypernym = getParent(tmpHypernym);
+            if (hypernym == null || hypernym.equals(tmpHypernym)) {
+                break;
             }
-        } catch (Exception e) {
-            logger.error("Hypernym search problem. The synset " + synsetToScale + " does not exists in Babelnet." + e.getMessage());
+            tmpHypernym = hypernym;
         }
         return tmpHypernym;
     }
@@ -186,29 +327,37 @@ public class BabelUtils {
      * @return the list with the synset and all of hypernyms
      */
     public List<String> getAllHypernyms(String synsetToScale) {
-        List<String> allHypernymsList = new ArrayList<>();
-        try {
-            List<BabelSynsetRelation> elementsInAnyHypernymPointer, elementsInHypernymPointer;
-            BabelSynset by;
-            do {
-                //Meto o no meto su hiperonimo si solo tiene uno?
-                allHypernymsList.add(synsetToScale);
-                by = bn.getSynset(new BabelSynsetID(synsetToScale));
-                elementsInAnyHypernymPointer = by.getOutgoingEdges(BabelPointer.ANY_HYPERNYM);
-                elementsInHypernymPointer = by.getOutgoingEdges(BabelPointer.HYPERNYM);
-                // If HYPERNYM returns values, it takes first synset and add to tmpHypernym
-                if (elementsInHypernymPointer.size() >= 1) {
-                    synsetToScale = elementsInHypernymPointer.get(0).getBabelSynsetIDTarget().toString();
-                } // else if ANY_HYPERNYM returns values, it takes first synset and add to tmpHypernym
-                else if (elementsInAnyHypernymPointer.size() >= 1) {
-                    synsetToScale = elementsInAnyHypernymPointer.get(0).getBabelSynsetIDTarget().toString();
-                }
+        // The set keeps the insertion order and detects cycles in constant time
+        Set<String> allHypernyms = new LinkedHashSet<>();
+        String current = synsetToScale;
+        do {
+            allHypernyms.add(current);
+            String hypernym = getParent(current);
+            if (hypernym == null) {
+                break;
+            }
+            current = hypernym;
+        } while (!current.equals(stopSynset) && !allHypernyms.contains(current));
+        return new ArrayList<>(allHypernyms);
+    }
 
-            } while (!synsetToScale.equals(stopSynset) && !allHypernymsList.contains(synsetToScale));
-        } catch (Exception e) {
-            logger.error("Hypernym search problem. The synset " + synsetToScale + " does not exists in Babelnet." + e.getMessage());
+    /**
+     * Returns the list of hypernyms (see getAllHypernyms(String)) of each
+     * synset of a collection. Babelnet is queried only once for each distinct
+     * synset (including the shared ancestors)
+     *
+     * @param synsetList The synsets to search their hypernyms
+     * @return A Map with the synsets as keys and their lists of hypernyms as
+     * values
+     */
+    public Map<String, List<String>> getAllHypernyms(Collection<String> synsetList) {
+        Map<String, List<String>> allHypernymsMap = new HashMap<>();
+        for (String synset : synsetList) {
+            if (!allHypernymsMap.containsKey(synset)) {
+                allHypernymsMap.put(synset, getAllHypernyms(synset));
+            }
         }
-        return allHypernymsList;
+        return allHypernymsMap;
     }
 
     /**
@@ -219,26 +368,11 @@ public class BabelUtils {
      * @return A Map with pairs of synset as key and hypernym as value
      */
     public Map<String, String> getHypernymsFromBabelnet(List<String> originalSynsetList) {
-        List<BabelSynsetRelation> elementsInAnyHypernymPointer, elementsInHypernymPointer;
-        String hypernym;
         Map<String, String> synsetHypernymMap = new HashMap<>();
-
         for (String synsetListElement : originalSynsetList) {
-            try {
-                BabelSynset by = bn.getSynset(new BabelSynsetID(synsetListElement));
-                elementsInAnyHypernymPointer = by.getOutgoingEdges(BabelPointer.ANY_HYPERNYM);
-                elementsInHypernymPointer = by.getOutgoingEdges(BabelPointer.HYPERNYM);
-                // If HYPERNYM returns values, it takes first and add to synsetHypernymMap
-                if (elementsInHypernymPointer.size() >= 1) {
-                    hypernym = elementsInHypernymPointer.get(0).getBabelSynsetIDTarget().toString();
-                    synsetHypernymMap.put(synsetListElement, hypernym);
-                } // else if ANY_HYPERNYM returns values, it takes first and add to synsetHypernymMap
-                else if (elementsInAnyHypernymPointer.size() >= 1) {
-                    hypernym = elementsInAnyHypernymPointer.get(0).getBabelSynsetIDTarget().toString();
-                    synsetHypernymMap.put(synsetListElement, hypernym);
-                }
-            } catch (Exception e) {
-                logger.error("Hypernym search problem. The synset " + synsetListElement + " does not exists in Babelnet." + e.getMessage());
+            String hypernym = getParent(synsetListElement);
+            if (hypernym != null) {
+                synsetHypernymMap.put(synsetListElement, hypernym);
             }
         }
         return synsetHypernymMap;
@@ -253,46 +387,52 @@ public class BabelUtils {
      * @return True if synsetOnTop if hypernym of synsetToCheck.
      */
     public boolean isSynsetHypernymOf(String synsetToCheck, String synsetOnTop) {
-        String scaledSynsetToCheck;
-
         if (synsetToCheck.equals(synsetOnTop)) {
             return false;
-        } else {
-            boolean isHypernym = false;
-            do {
-                scaledSynsetToCheck = bu.getSynsetHypernymFromLevel(synsetToCheck, 1);
-                if (scaledSynsetToCheck.equals(synsetToCheck)) {
-                    return false;
-                } else {
-                    if (scaledSynsetToCheck.equals(synsetOnTop)) {
-                        return true;
-                    } else {
-                        synsetToCheck = scaledSynsetToCheck;
-                    }
-                }
-            } while (!isHypernym && !synsetToCheck.equals(stopSynset));
-            return isHypernym;
         }
+
+        Set<String> visited = new HashSet<>();
+        String current = synsetToCheck;
+        do {
+            visited.add(current);
+            String hypernym = getParent(current);
+            if (hypernym == null || hypernym.equals(current)) {
+                return false;
+            }
+            if (hypernym.equals(synsetOnTop)) {
+                return true;
+            }
+            current = hypernym;
+        } while (!current.equals(stopSynset) && !visited.contains(current));
+        return false;
     }
 
     /**
-     * Build a list of sysntets from a text
+     * Query Babelfy to find the semantic annotations of a text
      *
-     * @param fixedText The text to be transformed into synsets
-     * @param lang The language to identify the synsets
-     * @return A vector of synsets. Each synset is represented in a pair (S,T)
-     * where S stands for the synset ID and T for the text that matches this
-     * synset ID
+     * @param text The text to annotate
+     * @param lang The language of the text
+     * @return the annotations found in the text
      */
-    public ArrayList<Pair<String, String>> buildSynsetSequence(String fixedText, String lang) {
-        // This is an arraylist of entries to check for duplicate results and nGrams
-        ArrayList<BabelfyEntry> nGrams = new ArrayList<>();
-        List<SemanticAnnotation> bfyAnnotations = new ArrayList<>();
-        // boolean solved = false;
-        String subtexts[] = new String[0];
+    private List<BabelfyEntry> babelfy(String text, String lang) {
+        List<BabelfyEntry> entries = new ArrayList<>();
+        for (SemanticAnnotation annotation : bfy.babelfy(text, Language.valueOf(lang))) {
+            int start = annotation.getCharOffsetFragment().getStart();
+            int end = annotation.getCharOffsetFragment().getEnd();
+            entries.add(new BabelfyEntry(start, end, annotation.getGlobalScore(), annotation.getBabelSynsetID(), text.substring(start, end + 1)));
+        }
+        return entries;
+    }
 
-        // Split text in 3500 (MAX_BABELFY_QUERY) characters string for querying
-        String remain = new String(fixedText);
+    /**
+     * Split a text in parts of MAX_BABELFY_QUERY characters for querying
+     * Babelfy
+     *
+     * @param fixedText The text
+     * @return the parts of the text
+     */
+    private List<String> splitText(String fixedText) {
+        String remain = fixedText;
         List<String> parts = new ArrayList<>();
         while (remain.length() > MAX_BABELFY_QUERY) {
             int splitPos = remain.lastIndexOf('.', MAX_BABELFY_QUERY - 1); // Try to keep phrases in the same part
@@ -306,64 +446,65 @@ public class BabelUtils {
             remain = remain.substring(splitPos + 1);
         }
         parts.add(remain);
-        subtexts = parts.toArray(subtexts);
-
-        // Text is not splitted
-        int currentSubtext = 0;
-        while (currentSubtext < subtexts.length) {
-            try {
-                logger.info("We are going to query LANG: " + lang + " Number of previous queries: " + babelfyQueries);
-
-                //Cambio para que todas las consultas se hagan en Inglés restaurar antes del commit
-                bfyAnnotations.addAll(bfy.babelfy(subtexts[currentSubtext], Language.valueOf(lang))); 
-                // bfyAnnotations.addAll(bfy.babelfy(subtexts[currentSubtext], Language.valueOf("EN")));
-                //Fin del cambio
-                babelfyQueries++;
-                currentSubtext++;
-            } catch (RuntimeException e) {
-                //Comentar antes de hacer commit
-//                System.out.println(e.getMessage());
-//                e.printStackTrace();
-                //Fin de comentar
-                if (e.getMessage().equals("Your key is not valid or the daily requests limit has been reached. Please visit http://babelfy.org.")) {
-                    // Wait until 01:01:01 of the next day (just after midnigth)
-                    Calendar c = Calendar.getInstance();
-                    c.add(Calendar.DAY_OF_MONTH, 1);
-                    c.set(Calendar.HOUR_OF_DAY, 1); // Wait for an hour and a minute for the actualization of babelcoins
-                    c.set(Calendar.MINUTE, 1);
-                    c.set(Calendar.SECOND, 1);
-                    long midnight = c.getTimeInMillis();
-
-                    long now = System.currentTimeMillis();
-
-                    long millis = midnight - now;
-                    long hours = millis / (1000 * 60 * 60);
-                    long minutes = (millis % (1000 * 60 * 60)) / (1000 * 60);
-                    logger.info(
-                            "Your key is not valid or the daily requests limit has been reached. The application will pause for "
-                            + hours + "h " + minutes + "m.");
-                    try {
-                        Thread.sleep(millis);
-                    } catch (InterruptedException ie) {
-                        logger.error("Unable to sleep " + millis + ". " + ie.getMessage());
-                    }
-                    babelfyQueries = 0;
-                } else if (e.getMessage().equals("Your are not allowed on the requested languages. Please visit http://babelfy.org.")) {
-                    logger.info("Mark instance for invalidating because caugth Babelfy error: Your are not allowed on the requested languages. Please visit http://babelfy.org.");
-                    
-                    return null;
-                } else {
-                    currentSubtext++;
-                }
+        return parts;
+    }
+
+    /**
+     * Send the Babelfy queries required to build the synset sequence of a
+     * text without waiting for the responses. The responses are cached so a
+     * later call to buildSynsetSequence for the same text does not wait for
+     * Babelfy
+     *
+     * @param fixedText The text to be transformed into synsets
+     * @param lang The language to identify the synsets
+     */
+    public void prefetchSynsetSequence(String fixedText, String lang) {
+        for (String part : splitText(fixedText)) {
+            babelfyClient.annotate(part, lang);
+        }
+    }
+
+    /**
+     * Build a list of sysntets from a text
+     *
+     * @param fixedText The text to be transformed into synsets
+     * @param lang The language to identify the synsets
+     * @return A vector of synsets. Each synset is represented in a pair (S,T)
+     * where S stands for the synset ID and T for the text that matches this
+     * synset ID
+     */
+    public ArrayList<Pair<String, String>> buildSynsetSequence(String fixedText, String lang) {
+        // This is an arraylist of entries to check for duplicate results and nGrams
+        ArrayList<BabelfyEntry> nGrams = new ArrayList<>();
+
+        // Split text in 3000 (MAX_BABELFY_QUERY) characters string and query all of them concurrently
+        List<String> parts = splitText(fixedText);
+        List<CompletableFuture<List<BabelfyEntry>>> responses = new ArrayList<>(parts.size());
+        for (String part : parts) {
+            responses.add(babelfyClient.annotate(part, lang));
+        }
+
+        // Positions of annotations are relative to the part, so they are moved to fixedText
+        List<BabelfyEntry> bfyAnnotations = new ArrayList<>();
+        int offset = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            List<BabelfyEntry> response = responses.get(i).join();
+            if (response == null) {
+                return null;
+            }
+            for (BabelfyEntry annotation : response) {
+                bfyAnnotations.add(new BabelfyEntry(annotation.getStartIdx() + offset, annotation.getEndIdx() + offset,
+                        annotation.getScore(), annotation.getSynsetId(), annotation.getText()));
             }
+            offset += parts.get(i).length();
         }
 
-        for (SemanticAnnotation annotation : bfyAnnotations) {
-            int start = annotation.getCharOffsetFragment().getStart();
-            int end = annotation.getCharOffsetFragment().getEnd();
-            double score = annotation.getGlobalScore();
-            String synsetId = annotation.getBabelSynsetID();
-            String text = fixedText.substring(start, end + 1);
+        for (BabelfyEntry annotation : bfyAnnotations) {
+            int start = annotation.getStartIdx();
+            int end = annotation.getEndIdx();
+            double score = annotation.getScore();
+            String synsetId = annotation.getSynsetId();
+            String text = annotation.getText();
 
             if (nGrams.size() == 0) { // If this anotation is the first i have ever received
                 nGrams.add(new BabelfyEntry(start, end, score, synsetId, text));
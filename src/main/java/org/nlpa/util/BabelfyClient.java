@@ -0,0 +1,275 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An asynchronous client to query Babelfy. Queries are executed by a bounded
+ * number of threads, identical queries that are in progress at the same time
+ * are executed only once and responses are stored in a persistent cache
+ * (BabelfyResponseCache) so identical texts are never queried again.
+ *
+ * The queries are delegated to an Annotator, so the client can be used with
+ * the Babelfy online service, with a local stub server (configuring its URL in
+ * babelfy.properties) or with an in-process stub.
+ *
+ * When the daily requests limit is reached, all queries are paused until the
+ * next day and then retried.
+ *
+ * @author José Ramón Méndez
+ */
+public class BabelfyClient {
+
+    /**
+     * For logging purposes
+     */
+    private static final Logger logger = LogManager.getLogger(BabelfyClient.class);
+
+    /**
+     * The default maximum number of concurrent queries
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_QUERIES = 4;
+
+    /**
+     * The error reported by Babelfy when the daily requests limit is reached
+     */
+    public static final String LIMIT_REACHED_MESSAGE = "Your key is not valid or the daily requests limit has been reached. Please visit http://babelfy.org.";
+
+    /**
+     * The error reported by Babelfy when the language is not allowed
+     */
+    public static final String LANGUAGE_NOT_ALLOWED_MESSAGE = "Your are not allowed on the requested languages. Please visit http://babelfy.org.";
+
+    /**
+     * Finds the semantic annotations of a text
+     */
+    @FunctionalInterface
+    public interface Annotator {
+
+        /**
+         * Finds the semantic annotations of a text
+         *
+         * @param text The text to annotate
+         * @param lang The language of the text
+         * @return the annotations (positions are relative to text)
+         * @throws RuntimeException If the text cannot be annotated. The
+         * message should be one of the errors reported by Babelfy
+         */
+        List<BabelfyEntry> annotate(String text, String lang);
+    }
+
+    /**
+     * The annotator used to execute queries
+     */
+    private final Annotator annotator;
+
+    /**
+     * The cache of responses
+     */
+    private final BabelfyResponseCache cache;
+
+    /**
+     * The threads used to execute queries
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The queries in progress indexed by their key
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<List<BabelfyEntry>>> inProgress = new ConcurrentHashMap<>();
+
+    /**
+     * The number of queries executed
+     */
+    private final AtomicInteger queries = new AtomicInteger();
+
+    /**
+     * The time until which queries are paused because the daily requests
+     * limit has been reached
+     */
+    private volatile long pausedUntil = 0;
+
+    /**
+     * Build a BabelfyClient
+     *
+     * @param annotator The annotator used to execute queries
+     * @param cache The cache of responses
+     * @param maxConcurrentQueries The maximum number of concurrent queries
+     */
+    public BabelfyClient(Annotator annotator, BabelfyResponseCache cache, int maxConcurrentQueries) {
+        this.annotator = annotator;
+        this.cache = cache;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrentQueries, r -> {
+            Thread t = new Thread(r, "babelfy-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Find the semantic annotations of a text asynchronously
+     *
+     * @param text The text to annotate
+     * @param lang The language of the text
+     * @return a future with the annotations or null if the language is not
+     * allowed. If the query fails, the future contains an empty list
+     */
+    public CompletableFuture<List<BabelfyEntry>> annotate(String text, String lang) {
+        List<BabelfyEntry> cached = cache.get(text, lang);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        String key = BabelfyResponseCache.getKey(text, lang);
+        CompletableFuture<List<BabelfyEntry>> future = inProgress.computeIfAbsent(key,
+                k -> CompletableFuture.supplyAsync(() -> query(text, lang), executor));
+        future.whenComplete((entries, e) -> inProgress.remove(key, future));
+        return future;
+    }
+
+    /**
+     * Find the semantic annotations of a text querying the annotator
+     *
+     * @param text The text to annotate
+     * @param lang The language of the text
+     * @return the annotations, null if the language is not allowed or an empty
+     * list if the query fails
+     */
+    private List<BabelfyEntry> query(String text, String lang) {
+        while (true) {
+            if (!waitWhilePaused()) {
+                return new ArrayList<>();
+            }
+            try {
+                logger.info("We are going to query LANG: " + lang + " Number of previous queries: " + queries.get());
+                List<BabelfyEntry> entries = annotator.annotate(text, lang);
+                queries.incrementAndGet();
+                cache.put(text, lang, entries);
+                return entries;
+            } catch (RuntimeException e) {
+                if (LIMIT_REACHED_MESSAGE.equals(e.getMessage())) {
+                    pause();
+                } else if (LANGUAGE_NOT_ALLOWED_MESSAGE.equals(e.getMessage())) {
+                    logger.info("Mark instance for invalidating because caugth Babelfy error: " + LANGUAGE_NOT_ALLOWED_MESSAGE);
+                    return null;
+                } else {
+                    logger.error("Unable to query Babelfy: " + e.getMessage());
+                    return new ArrayList<>();
+                }
+            }
+        }
+    }
+
+    /**
+     * Pause all queries until 01:01:01 of the next day (just after midnight)
+     */
+    private synchronized void pause() {
+        if (pausedUntil > System.currentTimeMillis()) {
+            return;
+        }
+
+        // Wait for an hour and a minute for the actualization of babelcoins
+        Calendar c = Calendar.getInstance();
+        c.add(Calendar.DAY_OF_MONTH, 1);
+        c.set(Calendar.HOUR_OF_DAY, 1);
+        c.set(Calendar.MINUTE, 1);
+        c.set(Calendar.SECOND, 1);
+        pausedUntil = c.getTimeInMillis();
+
+        long millis = pausedUntil - System.currentTimeMillis();
+        long hours = millis / (1000 * 60 * 60);
+        long minutes = (millis % (1000 * 60 * 60)) / (1000 * 60);
+        logger.info("Your key is not valid or the daily requests limit has been reached. The queries will pause for "
+                + hours + "h " + minutes + "m.");
+        queries.set(0);
+    }
+
+    /**
+     * Resume the queries paused because the daily requests limit was reached
+     * (i.e. after changing the key)
+     */
+    public synchronized void resume() {
+        pausedUntil = 0;
+        notifyAll();
+    }
+
+    /**
+     * Checks whether the queries are paused because the daily requests limit
+     * has been reached
+     *
+     * @return true if the queries are paused
+     */
+    public boolean isPaused() {
+        return pausedUntil > System.currentTimeMillis();
+    }
+
+    /**
+     * Wait until the queries are not paused (the pause expires or resume is
+     * invoked)
+     *
+     * @return false if the thread was interrupted while waiting
+     */
+    private synchronized boolean waitWhilePaused() {
+        long millis;
+        while ((millis = pausedUntil - System.currentTimeMillis()) > 0) {
+            try {
+                wait(millis);
+            } catch (InterruptedException ie) {
+                logger.error("Unable to sleep " + millis + ". " + ie.getMessage());
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of queries executed (since the daily requests limit
+     * was reached for the last time)
+     *
+     * @return the number of queries executed
+     */
+    public int getQueries() {
+        return queries.get();
+    }
+
+    /**
+     * Returns the cache of responses
+     *
+     * @return the cache of responses
+     */
+    public BabelfyResponseCache getCache() {
+        return cache;
+    }
+}
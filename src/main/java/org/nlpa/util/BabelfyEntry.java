@@ -28,7 +28,7 @@ package org.nlpa.util;
  *
  * @author María Novo
  */
-class BabelfyEntry {
+public class BabelfyEntry {
 
     private int startIdx;
     private int endIdx;
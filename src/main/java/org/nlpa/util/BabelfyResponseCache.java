@@ -0,0 +1,268 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A persistent cache of Babelfy responses. Responses are indexed by a hash
+ * (SHA-256) of the language and the queried text, so identical texts are
+ * queried only once, even across executions.
+ *
+ * Responses are appended to a file. Only the position of each response in the
+ * file is kept in memory and responses are read from the file when they are
+ * requested, so the size of the cache is not limited by the available memory.
+ *
+ * @author José Ramón Méndez
+ */
+public class BabelfyResponseCache {
+
+    /**
+     * For logging purposes
+     */
+    private static final Logger logger = LogManager.getLogger(BabelfyResponseCache.class);
+
+    /**
+     * The file containing the responses
+     */
+    private final Path file;
+
+    /**
+     * The channel used to read and append responses (null if the file cannot
+     * be opened)
+     */
+    private FileChannel channel = null;
+
+    /**
+     * The position of each response in the file indexed by its key
+     */
+    private final ConcurrentHashMap<String, Long> positions = new ConcurrentHashMap<>();
+
+    /**
+     * The position where the next response will be written
+     */
+    private long end = 0;
+
+    /**
+     * Build a BabelfyResponseCache. The responses stored in the file (if it
+     * exists) are indexed
+     *
+     * @param fileName The file containing the responses
+     */
+    public BabelfyResponseCache(String fileName) {
+        this.file = Paths.get(fileName);
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index();
+        } catch (IOException e) {
+            logger.error("Unable to open the Babelfy cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Index the responses stored in the file. A truncated last response (i.e.
+     * the application was killed while writing it) is discarded
+     *
+     * @throws IOException If an I/O error occurs
+     */
+    private void index() throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+        long size = channel.size();
+        long position = 0;
+        try {
+            while (position + Integer.BYTES < size) {
+                int length = input.readInt();
+                if (position + Integer.BYTES + length > size) {
+                    break;
+                }
+                String key = input.readUTF();
+                int keyLength = 2 + key.getBytes(StandardCharsets.UTF_8).length;
+                input.skipBytes(length - keyLength);
+                positions.put(key, position);
+                position += Integer.BYTES + length;
+            }
+        } catch (EOFException e) {
+            // Truncated response
+        }
+        end = position;
+        if (end < size) {
+            logger.warn("Discarding " + (size - end) + " bytes at the end of the Babelfy cache " + file);
+            channel.truncate(end);
+        }
+        logger.info("Babelfy cache " + file + " contains " + positions.size() + " responses");
+    }
+
+    /**
+     * Compute the key of a query
+     *
+     * @param text The queried text
+     * @param lang The language of the text
+     * @return the key of the query (a SHA-256 hash)
+     */
+    public static String getKey(String text, String lang) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(lang.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            byte[] hash = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Retrieve the response for a text
+     *
+     * @param text The queried text
+     * @param lang The language of the text
+     * @return the annotations found in the text or null if the response is
+     * not in the cache
+     */
+    public List<BabelfyEntry> get(String text, String lang) {
+        Long position = positions.get(getKey(text, lang));
+        if (position == null) {
+            return null;
+        }
+
+        try {
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            readFully(length, position);
+            ByteBuffer record = ByteBuffer.allocate(length.getInt(0));
+            readFully(record, position + Integer.BYTES);
+
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(record.array()));
+            input.readUTF();
+            int size = input.readInt();
+            List<BabelfyEntry> entries = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                int start = input.readInt();
+                int endIdx = input.readInt();
+                double score = input.readDouble();
+                String synsetId = input.readUTF();
+                entries.add(new BabelfyEntry(start, endIdx, score, synsetId, text.substring(start, endIdx + 1)));
+            }
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Unable to read the Babelfy cache " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Read a buffer from a position of the file
+     *
+     * @param buffer The buffer
+     * @param position The position
+     * @throws IOException If an I/O error occurs
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    /**
+     * Store the response for a text
+     *
+     * @param text The queried text
+     * @param lang The language of the text
+     * @param entries The annotations found in the text
+     */
+    public void put(String text, String lang, List<BabelfyEntry> entries) {
+        String key = getKey(text, lang);
+        if (channel == null || positions.containsKey(key)) {
+            return;
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeInt(0);
+            output.writeUTF(key);
+            output.writeInt(entries.size());
+            for (BabelfyEntry entry : entries) {
+                output.writeInt(entry.getStartIdx());
+                output.writeInt(entry.getEndIdx());
+                output.writeDouble(entry.getScore());
+                output.writeUTF(entry.getSynsetId());
+            }
+            output.flush();
+            ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+            record.putInt(0, record.capacity() - Integer.BYTES);
+
+            synchronized (this) {
+                if (positions.containsKey(key)) {
+                    return;
+                }
+                long position = end;
+                while (record.hasRemaining()) {
+                    channel.write(record, position + record.position());
+                }
+                end += record.capacity();
+                positions.put(key, position);
+            }
+        } catch (IOException e) {
+            logger.error("Unable to write the Babelfy cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the number of responses stored in the cache
+     *
+     * @return the number of responses
+     */
+    public int size() {
+        return positions.size();
+    }
+}
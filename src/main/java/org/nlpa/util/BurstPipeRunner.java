@@ -0,0 +1,182 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bdp4j.pipe.AbstractPipe;
+import org.bdp4j.pipe.SerialPipes;
+import org.bdp4j.types.Instance;
+import org.bdp4j.util.InstanceListUtils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Feeds a pipe with instances taken from a lazy source in bursts of a fixed
+ * size. Only one burst is kept in memory at any time and each instance is
+ * released as soon as it has been processed by the whole pipe.
+ *
+ * Each burst is processed through pipeAll, so pipes that override it (i.e.
+ * to prefetch data for a whole burst) work as usual and Tee pipes receive an
+ * isLast() signal at the end of each burst. Pipes of the chain (including
+ * those of nested SerialPipes) that should only be finalized once implement
+ * SourceListener and are notified before the first burst and after the last
+ * one. Bursts without valid instances are not piped.
+ *
+ * @author José Ramón Méndez
+ */
+public class BurstPipeRunner {
+
+    /**
+     * For logging purposes
+     */
+    private static final Logger logger = LogManager.getLogger(BurstPipeRunner.class);
+
+    /**
+     * The default number of instances included in each burst
+     */
+    public static final int DEFAULT_BURST_SIZE = 1000;
+
+    /**
+     * The pipe used to process instances
+     */
+    protected AbstractPipe pipe;
+
+    /**
+     * The number of instances included in each burst
+     */
+    private int burstSize;
+
+    /**
+     * Build a BurstPipeRunner using the default burst size
+     *
+     * @param pipe The pipe used to process instances
+     */
+    public BurstPipeRunner(AbstractPipe pipe) {
+        this(pipe, DEFAULT_BURST_SIZE);
+    }
+
+    /**
+     * Build a BurstPipeRunner
+     *
+     * @param pipe The pipe used to process instances
+     * @param burstSize The number of instances included in each burst
+     */
+    public BurstPipeRunner(AbstractPipe pipe, int burstSize) {
+        if (burstSize < 1) {
+            throw new IllegalArgumentException("The burst size should be greater than 0 (found " + burstSize + ")");
+        }
+        this.pipe = pipe;
+        this.burstSize = burstSize;
+    }
+
+    /**
+     * Returns the number of instances included in each burst
+     *
+     * @return the number of instances included in each burst
+     */
+    public int getBurstSize() {
+        return burstSize;
+    }
+
+    /**
+     * Find the pipes of a chain (including those of nested SerialPipes) that
+     * implement SourceListener
+     *
+     * @param pipe The chain of pipes (or a single pipe)
+     * @param listeners The list where the pipes found are added
+     */
+    private static void findSourceListeners(Object pipe, List<SourceListener> listeners) {
+        if (pipe instanceof SourceListener) {
+            listeners.add((SourceListener) pipe);
+        }
+        if (pipe instanceof SerialPipes) {
+            SerialPipes chain = (SerialPipes) pipe;
+            for (int i = 0; i < chain.size(); i++) {
+                findSourceListeners(chain.getPipe(i), listeners);
+            }
+        }
+    }
+
+    /**
+     * Process all instances from a stream. The stream is closed after
+     * processing it
+     *
+     * @param source The stream of instances to process
+     * @return the number of instances processed
+     */
+    public long run(Stream<Instance> source) {
+        try (Stream<Instance> s = source) {
+            return run(s.iterator());
+        }
+    }
+
+    /**
+     * Process all instances from an iterator
+     *
+     * @param source The iterator that provides the instances to process
+     * @return the number of instances processed
+     */
+    public long run(Iterator<Instance> source) {
+        long processed = 0;
+        List<Instance> burst = new ArrayList<>(burstSize);
+        List<SourceListener> listeners = new ArrayList<>();
+        findSourceListeners(pipe, listeners);
+
+        for (SourceListener listener : listeners) {
+            listener.sourceStarted();
+        }
+        try {
+            while (source.hasNext()) {
+                burst.add(source.next());
+                if (burst.size() == burstSize || !source.hasNext()) {
+                    List<Instance> validInstances = InstanceListUtils.dropInvalid(burst);
+                    processed += validInstances.size();
+                    if (!validInstances.isEmpty()) {
+                        pipeBurst(validInstances);
+                    }
+                    logger.info("Processed " + processed + " instances");
+                    burst = new ArrayList<>(burstSize);
+                }
+            }
+        } finally {
+            for (SourceListener listener : listeners) {
+                listener.sourceFinished();
+            }
+        }
+
+        return processed;
+    }
+
+    /**
+     * Process a burst of instances
+     *
+     * @param burst The instances to process (it contains at least one valid
+     * instance)
+     */
+    protected void pipeBurst(List<Instance> burst) {
+        pipe.pipeAll(burst);
+    }
+}
@@ -0,0 +1,96 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+import java.util.Arrays;
+
+/**
+ * A node of a trie keyed by codepoints (or characters). Children are stored
+ * in arrays sorted by key, so they are found by binary search and use little
+ * memory. Subclasses add the data stored for the words ending at each node.
+ *
+ * @param <N> The class of the nodes of the trie
+ * @author José Ramón Méndez
+ */
+abstract class CodepointTrieNode<N extends CodepointTrieNode<N>> {
+
+    /**
+     * Empty arrays shared by leaf nodes
+     */
+    private static final int[] NO_KEYS = new int[0];
+    private static final Object[] NO_CHILDREN = new Object[0];
+
+    /**
+     * The codepoints leading to the children of the node (sorted)
+     */
+    private int[] keys = NO_KEYS;
+
+    /**
+     * The children of the node
+     */
+    private Object[] children = NO_CHILDREN;
+
+    /**
+     * Create a new node of the trie
+     *
+     * @return the new node
+     */
+    protected abstract N newNode();
+
+    /**
+     * Find a child of the node
+     *
+     * @param cp The codepoint leading to the child
+     * @return the child or null if it does not exist
+     */
+    @SuppressWarnings("unchecked")
+    final N getChild(int cp) {
+        int pos = Arrays.binarySearch(keys, cp);
+        return pos >= 0 ? (N) children[pos] : null;
+    }
+
+    /**
+     * Find a child of the node and create it if it does not exist
+     *
+     * @param cp The codepoint leading to the child
+     * @return the child
+     */
+    @SuppressWarnings("unchecked")
+    final N getOrAddChild(int cp) {
+        int pos = Arrays.binarySearch(keys, cp);
+        if (pos >= 0) {
+            return (N) children[pos];
+        }
+        pos = -pos - 1;
+        int[] newKeys = new int[keys.length + 1];
+        Object[] newChildren = new Object[children.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, pos);
+        System.arraycopy(children, 0, newChildren, 0, pos);
+        System.arraycopy(keys, pos, newKeys, pos + 1, keys.length - pos);
+        System.arraycopy(children, pos, newChildren, pos + 1, children.length - pos);
+        newKeys[pos] = cp;
+        newChildren[pos] = newNode();
+        keys = newKeys;
+        children = newChildren;
+        return (N) children[pos];
+    }
+}
@@ -0,0 +1,503 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.json.Json;
+import javax.json.JsonReader;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A lexicon (stopwords, slangs, emojis...) stored in a compact binary format.
+ * Entries are kept in a sorted StringTable and their values in columns
+ * (parallel arrays of doubles or strings) indexed by the position of the entry
+ * in the table. The order of the entries in the source JSON file is also kept.
+ *
+ * Lexicons are compiled from the JSON resources at build time (see
+ * LexiconCompiler) and stored in COMPILED_LEXICON_FOLDER. When the compiled
+ * file is available in the file system it is memory-mapped, so loading a
+ * lexicon does not require parsing nor copying it. When the lexicon has not
+ * been compiled (i.e. running from an IDE) it is compiled on the fly from the
+ * JSON resource.
+ *
+ * @author José Ramón Méndez
+ */
+public class CompiledLexicon {
+
+    /**
+     * For logging purposes
+     */
+    private static final Logger logger = LogManager.getLogger(CompiledLexicon.class);
+
+    /**
+     * The folder (in the classpath) containing the compiled lexicons
+     */
+    public static final String COMPILED_LEXICON_FOLDER = "/lexicon-bin";
+
+    /**
+     * The extension of the compiled lexicons
+     */
+    public static final String COMPILED_LEXICON_EXTENSION = ".lex";
+
+    /**
+     * The name of the column used for lexicons containing a single value for
+     * each entry
+     */
+    public static final String VALUE_COLUMN = "value";
+
+    /**
+     * The first bytes of a compiled lexicon ("NLEX")
+     */
+    private static final int MAGIC = 0x4E4C4558;
+
+    /**
+     * The version of the format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The types of columns
+     */
+    private static final byte DOUBLE_COLUMN = 0;
+    private static final byte STRING_COLUMN = 1;
+
+    /**
+     * The entries of the lexicon
+     */
+    private final StringTable keys;
+
+    /**
+     * The entries of the lexicon (positions of keys) following the order of
+     * the source file
+     */
+    private final IntBuffer sourceOrder;
+
+    /**
+     * The columns containing numbers
+     */
+    private final Map<String, DoubleBuffer> doubleColumns;
+
+    /**
+     * The columns containing strings
+     */
+    private final Map<String, StringColumn> stringColumns;
+
+    /**
+     * Build a CompiledLexicon
+     *
+     * @param keys The entries of the lexicon
+     * @param sourceOrder The entries following the order of the source file
+     * @param doubleColumns The columns containing numbers
+     * @param stringColumns The columns containing strings
+     */
+    private CompiledLexicon(StringTable keys, IntBuffer sourceOrder, Map<String, DoubleBuffer> doubleColumns, Map<String, StringColumn> stringColumns) {
+        this.keys = keys;
+        this.sourceOrder = sourceOrder;
+        this.doubleColumns = doubleColumns;
+        this.stringColumns = stringColumns;
+    }
+
+    /**
+     * Build a CompiledLexicon from the entries of a source file and their
+     * values. Columns whose values are all numbers are stored as doubles,
+     * other columns are stored as strings
+     *
+     * @param entries The entries in the order of the source file
+     * @param columns The values of each column indexed by the position of the
+     * entry in the source file (missing values may be null)
+     * @return the lexicon
+     */
+    static CompiledLexicon build(List<String> entries, Map<String, List<Object>> columns) {
+        StringTable keys = new StringTable(entries);
+        int[] order = new int[keys.size()];
+        int[] positions = new int[keys.size()];
+        int next = 0;
+        for (String entry : new LinkedHashSet<>(entries)) {
+            order[next++] = keys.indexOf(entry);
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            positions[keys.indexOf(entries.get(i))] = i;
+        }
+
+        Map<String, DoubleBuffer> doubleColumns = new LinkedHashMap<>();
+        Map<String, StringColumn> stringColumns = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Object>> column : columns.entrySet()) {
+            List<Object> values = column.getValue();
+            boolean numeric = true;
+            List<String> texts = new ArrayList<>();
+            for (Object value : values) {
+                if (value != null && !(value instanceof Number)) {
+                    numeric = false;
+                }
+                if (value != null) {
+                    texts.add(value.toString());
+                }
+            }
+
+            if (numeric) {
+                double[] doubles = new double[keys.size()];
+                for (int i = 0; i < keys.size(); i++) {
+                    Object value = (positions[i] < values.size()) ? values.get(positions[i]) : null;
+                    doubles[i] = (value == null) ? Double.NaN : ((Number) value).doubleValue();
+                }
+                doubleColumns.put(column.getKey(), DoubleBuffer.wrap(doubles));
+            } else {
+                StringTable table = new StringTable(texts);
+                int[] ids = new int[keys.size()];
+                for (int i = 0; i < keys.size(); i++) {
+                    Object value = (positions[i] < values.size()) ? values.get(positions[i]) : null;
+                    ids[i] = (value == null) ? -1 : table.indexOf(value.toString());
+                }
+                stringColumns.put(column.getKey(), new StringColumn(table, IntBuffer.wrap(ids)));
+            }
+        }
+
+        return new CompiledLexicon(keys, IntBuffer.wrap(order), doubleColumns, stringColumns);
+    }
+
+    /**
+     * Returns the name of the compiled lexicon for a JSON resource (i.e.
+     * "/lexicon-bin/stopwords-json/en.lex" for "/stopwords-json/en.json")
+     *
+     * @param jsonResource The name of the JSON resource
+     * @return the name of the compiled lexicon
+     */
+    public static String getCompiledResourceName(String jsonResource) {
+        String name = jsonResource.endsWith(".json") ? jsonResource.substring(0, jsonResource.length() - 5) : jsonResource;
+        return COMPILED_LEXICON_FOLDER + (name.startsWith("/") ? "" : "/") + name + COMPILED_LEXICON_EXTENSION;
+    }
+
+    /**
+     * Load the lexicon compiled from a JSON resource. If the lexicon has not
+     * been compiled, the JSON resource is compiled on the fly
+     *
+     * @param jsonResource The name of the JSON resource (i.e.
+     * "/stopwords-json/en.json")
+     * @return the lexicon or null if the resource does not exist or cannot be
+     * loaded
+     */
+    public static CompiledLexicon load(String jsonResource) {
+        URL url = CompiledLexicon.class.getResource(getCompiledResourceName(jsonResource));
+        if (url != null) {
+            try {
+                return read(map(url));
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Unable to read compiled lexicon " + url + " (" + e.getMessage() + "). Using " + jsonResource);
+            }
+        }
+
+        InputStream is = CompiledLexicon.class.getResourceAsStream(jsonResource);
+        if (is == null) {
+            return null;
+        }
+        try (JsonReader rdr = Json.createReader(is)) {
+            return LexiconCompiler.compile(rdr.read());
+        } catch (Exception e) {
+            logger.error("Exception processing: " + jsonResource + " message " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Map the contents of a resource into memory. Resources stored in the
+     * file system are memory-mapped while resources stored in other places
+     * (i.e. a jar file) are read into a buffer
+     *
+     * @param url The location of the resource
+     * @return a buffer with the contents of the resource
+     * @throws IOException If an I/O error occurs
+     */
+    private static ByteBuffer map(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+
+        try (InputStream is = url.openStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        }
+    }
+
+    /**
+     * Read a lexicon stored in a file. The file is memory-mapped
+     *
+     * @param file The file containing the lexicon
+     * @return the lexicon
+     * @throws IOException If an I/O error occurs or the file does not contain
+     * a compiled lexicon
+     */
+    public static CompiledLexicon read(Path file) throws IOException {
+        return read(map(file.toUri().toURL()));
+    }
+
+    /**
+     * Read a lexicon stored using the write method. The lexicon is backed by
+     * the buffer (its contents are not copied)
+     *
+     * @param buffer The buffer containing the lexicon
+     * @return the lexicon
+     * @throws IOException If the buffer does not contain a compiled lexicon
+     */
+    public static CompiledLexicon read(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Unsupported lexicon format");
+        }
+
+        StringTable keys = StringTable.read(buffer);
+        IntBuffer sourceOrder = StringTable.slice(buffer, keys.size() * Integer.BYTES).asIntBuffer();
+
+        Map<String, DoubleBuffer> doubleColumns = new HashMap<>();
+        Map<String, StringColumn> stringColumns = new HashMap<>();
+        int columns = buffer.getInt();
+        for (int i = 0; i < columns; i++) {
+            char[] name = new char[buffer.getShort()];
+            for (int j = 0; j < name.length; j++) {
+                name[j] = buffer.getChar();
+            }
+            byte type = buffer.get();
+            if (type == DOUBLE_COLUMN) {
+                doubleColumns.put(new String(name), StringTable.slice(buffer, keys.size() * Double.BYTES).asDoubleBuffer());
+            } else if (type == STRING_COLUMN) {
+                StringTable values = StringTable.read(buffer);
+                IntBuffer ids = StringTable.slice(buffer, keys.size() * Integer.BYTES).asIntBuffer();
+                stringColumns.put(new String(name), new StringColumn(values, ids));
+            } else {
+                throw new IOException("Unsupported column type " + type);
+            }
+        }
+
+        return new CompiledLexicon(keys, sourceOrder, doubleColumns, stringColumns);
+    }
+
+    /**
+     * Write the lexicon to a stream
+     *
+     * @param os The stream
+     * @throws IOException If an I/O error occurs
+     */
+    public void write(OutputStream os) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        keys.write(out);
+        for (int i = 0; i < size(); i++) {
+            out.writeInt(sourceOrder.get(i));
+        }
+
+        out.writeInt(doubleColumns.size() + stringColumns.size());
+        for (Map.Entry<String, DoubleBuffer> column : doubleColumns.entrySet()) {
+            writeColumnHeader(out, column.getKey(), DOUBLE_COLUMN);
+            for (int i = 0; i < size(); i++) {
+                out.writeDouble(column.getValue().get(i));
+            }
+        }
+        for (Map.Entry<String, StringColumn> column : stringColumns.entrySet()) {
+            writeColumnHeader(out, column.getKey(), STRING_COLUMN);
+            column.getValue().values.write(out);
+            for (int i = 0; i < size(); i++) {
+                out.writeInt(column.getValue().ids.get(i));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Write the name and the type of a column
+     *
+     * @param out The stream
+     * @param name The name of the column
+     * @param type The type of the column
+     * @throws IOException If an I/O error occurs
+     */
+    private static void writeColumnHeader(DataOutputStream out, String name, byte type) throws IOException {
+        out.writeShort(name.length());
+        out.writeChars(name);
+        out.writeByte(type);
+    }
+
+    /**
+     * Returns the number of entries of the lexicon
+     *
+     * @return the number of entries of the lexicon
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Returns the entries of the lexicon
+     *
+     * @return a sorted table containing the entries of the lexicon
+     */
+    public StringTable getKeys() {
+        return keys;
+    }
+
+    /**
+     * Returns an entry of the lexicon
+     *
+     * @param index The position of the entry
+     * @return the entry
+     */
+    public String getKey(int index) {
+        return keys.get(index);
+    }
+
+    /**
+     * Find the position of an entry
+     *
+     * @param key The entry
+     * @return the position of the entry or -1 if it is not included
+     */
+    public int indexOf(CharSequence key) {
+        return keys.indexOf(key);
+    }
+
+    /**
+     * Find the position of an entry following the order of the source file
+     *
+     * @param sourcePosition The position of the entry in the source file
+     * (duplicated entries are only counted once)
+     * @return the position of the entry in the lexicon
+     */
+    public int entryAt(int sourcePosition) {
+        return sourceOrder.get(sourcePosition);
+    }
+
+    /**
+     * Checks whether the lexicon includes a column
+     *
+     * @param column The name of the column
+     * @return true if the lexicon includes the column
+     */
+    public boolean hasColumn(String column) {
+        return doubleColumns.containsKey(column) || stringColumns.containsKey(column);
+    }
+
+    /**
+     * Returns a number stored in a column
+     *
+     * @param column The name of the column
+     * @param index The position of the entry
+     * @return the number or NaN if the column does not exist or does not
+     * contain numbers
+     */
+    public double getDouble(String column, int index) {
+        DoubleBuffer values = doubleColumns.get(column);
+        if (values == null) {
+            StringColumn strings = stringColumns.get(column);
+            String value = (strings == null) ? null : strings.get(index);
+            try {
+                return (value == null) ? Double.NaN : Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+        return values.get(index);
+    }
+
+    /**
+     * Returns a string stored in a column
+     *
+     * @param column The name of the column
+     * @param index The position of the entry
+     * @return the string or null if it is not available
+     */
+    public String getString(String column, int index) {
+        StringColumn strings = stringColumns.get(column);
+        if (strings == null) {
+            DoubleBuffer values = doubleColumns.get(column);
+            return (values == null || Double.isNaN(values.get(index))) ? null : String.valueOf(values.get(index));
+        }
+        return strings.get(index);
+    }
+
+    /**
+     * A column containing strings. Distinct strings are stored once in a
+     * StringTable and each entry refers to its value by position
+     */
+    private static final class StringColumn {
+
+        /**
+         * The distinct values of the column
+         */
+        private final StringTable values;
+
+        /**
+         * The position of the value of each entry (-1 for missing values)
+         */
+        private final IntBuffer ids;
+
+        /**
+         * Build a StringColumn
+         *
+         * @param values The distinct values of the column
+         * @param ids The position of the value of each entry
+         */
+        private StringColumn(StringTable values, IntBuffer ids) {
+            this.values = values;
+            this.ids = ids;
+        }
+
+        /**
+         * Returns the value of an entry
+         *
+         * @param index The position of the entry
+         * @return the value or null if it is missing
+         */
+        private String get(int index) {
+            int id = ids.get(index);
+            return (id < 0) ? null : values.get(id);
+        }
+    }
+}
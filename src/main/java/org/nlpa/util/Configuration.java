@@ -108,11 +108,14 @@ public class Configuration {
      *
      * @param group Group of configuration to get
      * @param option Option of configuration to get
-     * @return The value of configuration
+     * @return The value of configuration or null if it is not defined
      */
     public String getConfigOption(String group, String option) {
         String retValue;
 
+        if (ini == null) {
+            return null;
+        }
         retValue = ini.get(group, option);
         if (retValue != null) {
             retValue = retValue.replaceAll("<space>", " ");
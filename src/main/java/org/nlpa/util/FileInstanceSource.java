@@ -0,0 +1,78 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+import org.bdp4j.types.Instance;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+/**
+ * Lazy source of instances built from the regular files found (recursively)
+ * in a directory. Instances are created only when the stream is consumed, so
+ * the memory used does not depend on the number of files in the corpus.
+ *
+ * @author José Ramón Méndez
+ */
+public class FileInstanceSource {
+
+    /**
+     * Private constructor to avoid creating instances of this utility class
+     */
+    private FileInstanceSource() {
+    }
+
+    /**
+     * Creates a lazy stream of instances by recursivelly walking all files
+     * included in a directory. The stream should be closed after being used
+     * (i.e. using a try-with-resources block) to release the directory
+     * handles.
+     *
+     * @param dir The directory where the instances should be loaded
+     * @return a lazy stream containing one instance for each regular file
+     * @throws IOException if the directory cannot be walked
+     */
+    public static Stream<Instance> walk(String dir) throws IOException {
+        return Files.walk(Paths.get(dir))
+                .filter(Files::isRegularFile)
+                .map(FileInstanceSource::toInstance);
+    }
+
+    /**
+     * Builds an instance for a file
+     *
+     * @param path The path of the file
+     * @return An instance whose data and source are the file
+     */
+    public static Instance toInstance(Path path) {
+        File data = path.toFile();
+        String target = null;
+        String name = data.getPath();
+        File source = data;
+
+        return new Instance(data, target, name, source);
+    }
+}
@@ -0,0 +1,831 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A persistent store of the hypernym hierarchy of Babelnet synsets. Synsets
+ * are interned to consecutive integers and the hierarchy is kept as an array
+ * containing the (direct) hypernym of each synset, so the list of hypernyms
+ * of a synset (see BabelUtils.getAllHypernyms) is computed by following the
+ * array without querying Babelnet.
+ *
+ * The store is saved in an append-only file containing the interned synsets
+ * and their hypernyms in the order they were discovered. New synsets are
+ * appended to the file (there is no need to rewrite it) and the file is
+ * memory-mapped to load it.
+ *
+ * New records are kept in memory (they are applied to the store at once)
+ * and appended to the file in a single write when the store is flushed,
+ * closed or a number of records are pending.
+ *
+ * Several processes can share the same file. Records refer to synsets by
+ * their position in the file, which may differ from the identifiers given to
+ * them by each store. Pending records are appended while holding a lock on
+ * the file, after reading the records appended by other processes, so a
+ * synset added by several processes is only saved once.
+ *
+ * @author José Ramón Méndez
+ */
+public class HypernymStore implements AutoCloseable {
+
+    /**
+     * For logging purposes
+     */
+    private static final Logger logger = LogManager.getLogger(HypernymStore.class);
+
+    /**
+     * The default file used to save the store
+     */
+    public static final String DEFAULT_STORE_FILE = "outputsyns_file.hyp";
+
+    /**
+     * The file used by previous versions to save the hypernyms (a serialized
+     * map). It is imported when the store does not exist
+     */
+    public static final String LEGACY_STORE_FILE = "outputsyns_file.map";
+
+    /**
+     * The hypernym of synsets that have no hypernyms
+     */
+    public static final int NO_HYPERNYM = -1;
+
+    /**
+     * The hypernym of synsets whose hypernym has not been retrieved yet
+     */
+    public static final int UNKNOWN = -2;
+
+    /**
+     * The first bytes of the file ("NHYP")
+     */
+    private static final int MAGIC = 0x4E485950;
+
+    /**
+     * The version of the format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The types of records of the file
+     */
+    private static final byte SYNSET_RECORD = 'S';
+    private static final byte HYPERNYM_RECORD = 'H';
+
+    /**
+     * The length of the header (MAGIC and VERSION)
+     */
+    private static final int HEADER_LENGTH = 8;
+
+    /**
+     * The monitor held while a store locks its file. A FileLock is held on
+     * behalf of the whole JVM, so two stores of the same JVM cannot lock the
+     * same file at the same time
+     */
+    private static final Object FILE_MONITOR = new Object();
+
+    /**
+     * The number of pending records that forces them to be written
+     */
+    private static final int MAX_PENDING_RECORDS = 4096;
+
+    /**
+     * The default store
+     */
+    private static HypernymStore defaultStore = null;
+
+    /**
+     * The file used to save the store
+     */
+    private final File file;
+
+    /**
+     * The identifiers of the synsets
+     */
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * The synsets indexed by their identifier
+     */
+    private String[] synsets = new String[1024];
+
+    /**
+     * The hypernym of each synset indexed by the identifier of the synset
+     */
+    private int[] hypernyms = new int[1024];
+
+    /**
+     * The number of synsets
+     */
+    private int size = 0;
+
+    /**
+     * The position in the file of each synset indexed by the identifier of
+     * the synset (-1 if it has not been written yet)
+     */
+    private int[] fileIds = new int[1024];
+
+    /**
+     * The identifiers of the synsets indexed by their position in the file
+     */
+    private int[] fileSynsets = new int[1024];
+
+    /**
+     * The number of synsets saved in the file
+     */
+    private int fileSize = 0;
+
+    /**
+     * The synsets with a lower identifier have been written to the file
+     */
+    private int written = 0;
+
+    /**
+     * The pending hypernym records (pairs of synset and hypernym identifiers)
+     */
+    private int[] pendingHypernyms = new int[64];
+
+    /**
+     * The number of elements of pendingHypernyms used
+     */
+    private int pendingLength = 0;
+
+    /**
+     * The lists of hypernyms returned by getHypernyms indexed by the
+     * identifier of the synset (null until getHypernyms is called)
+     */
+    private List<String>[] chains = null;
+
+    /**
+     * The value of changes when each list of chains was built
+     */
+    private int[] chainVersions = null;
+
+    /**
+     * The number of changes of the hierarchy. The lists of chains built
+     * before the last change are built again
+     */
+    private int changes = 0;
+
+    /**
+     * The channel used to read and append records (null until the file is
+     * accessed)
+     */
+    private FileChannel channel = null;
+
+    /**
+     * The lock of the file (null when it is not held)
+     */
+    private FileLock lock = null;
+
+    /**
+     * The number of bytes of the file that have been read
+     */
+    private long loaded = 0;
+
+    /**
+     * False when the file cannot be read or written. The store is then only
+     * kept in memory
+     */
+    private boolean persistent = true;
+
+    /**
+     * The buffer used to build the pending records
+     */
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+
+    /**
+     * Build a HypernymStore loading the contents of a file
+     *
+     * @param fileName The file used to save the store
+     */
+    public HypernymStore(String fileName) {
+        this.file = new File(fileName);
+        Arrays.fill(hypernyms, UNKNOWN);
+        Arrays.fill(fileIds, -1);
+        if (file.exists()) {
+            load();
+        }
+    }
+
+    /**
+     * Achieves the default store (saved in DEFAULT_STORE_FILE). If the store
+     * does not exist and LEGACY_STORE_FILE exists, the hypernyms are imported
+     * from it
+     *
+     * @return the default store
+     */
+    public static synchronized HypernymStore getDefault() {
+        if (defaultStore == null) {
+            boolean exists = new File(DEFAULT_STORE_FILE).exists();
+            defaultStore = new HypernymStore(DEFAULT_STORE_FILE);
+            Runtime.getRuntime().addShutdownHook(new Thread(defaultStore::close));
+            if (!exists && new File(LEGACY_STORE_FILE).exists()) {
+                defaultStore.importLegacyStore(LEGACY_STORE_FILE);
+            }
+        }
+        return defaultStore;
+    }
+
+    /**
+     * Load the contents of the file
+     */
+    private void load() {
+        try {
+            lock();
+            try {
+                readTail();
+            } finally {
+                unlock();
+            }
+            logger.info("Hypernym store " + file + " contains " + size + " synsets");
+        } catch (IOException | RuntimeException e) {
+            disable("Unable to read the hypernym store " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Read the records appended to the file since it was read for the last
+     * time (i.e. by other processes). A truncated or invalid last record (i.e.
+     * the application was killed while writing it) is discarded. The lock of
+     * the file should be held
+     *
+     * @throws IOException If the file cannot be read or has an unsupported
+     * format
+     */
+    private void readTail() throws IOException {
+        long end = channel.size();
+        if (end <= loaded) {
+            return;
+        }
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, loaded, end - loaded);
+        if (loaded == 0) {
+            if (end < HEADER_LENGTH || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Unsupported format");
+            }
+        }
+
+        int valid = buffer.position();
+        try {
+            while (buffer.hasRemaining()) {
+                byte type = buffer.get();
+                if (type == SYNSET_RECORD) {
+                    byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                    buffer.get(name);
+                    // The synset may be pending to be written by this store
+                    String synset = new String(name, StandardCharsets.UTF_8);
+                    Integer id = ids.get(synset);
+                    if (id == null) {
+                        id = add(synset);
+                        if (written == id) {
+                            written++;
+                        }
+                    }
+                    setFileId(id);
+                } else if (type == HYPERNYM_RECORD) {
+                    int synset = buffer.getInt();
+                    int hypernym = buffer.getInt();
+                    if (synset < 0 || synset >= fileSize || hypernym < NO_HYPERNYM || hypernym >= fileSize) {
+                        logger.warn("Invalid hypernym record at position " + (loaded + valid) + " of the hypernym store " + file);
+                        break;
+                    }
+                    changeHypernym(fileSynsets[synset], (hypernym == NO_HYPERNYM) ? NO_HYPERNYM : fileSynsets[hypernym]);
+                } else {
+                    logger.warn("Unsupported record type " + type + " at position " + (loaded + valid) + " of the hypernym store " + file);
+                    break;
+                }
+                valid = buffer.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // Truncated record
+        }
+        loaded += valid;
+        if (loaded < end) {
+            logger.warn("Discarding " + (end - loaded) + " bytes at the end of the hypernym store " + file);
+            channel.truncate(loaded);
+        }
+    }
+
+    /**
+     * Import the hypernyms saved by previous versions (a serialized map
+     * containing the list of hypernyms of each synset)
+     *
+     * @param fileName The file containing the serialized map
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void importLegacyStore(String fileName) {
+        Map<String, List<String>> map;
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(fileName))) {
+            map = (Map<String, List<String>>) ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            logger.error("Unable to import the hypernyms from " + fileName + ": " + e.getMessage());
+            return;
+        }
+
+        importLegacyMap(map);
+        writePending();
+        logger.info("Imported " + map.size() + " synsets from " + fileName);
+    }
+
+    /**
+     * Import the hypernyms contained in a map read from the legacy store
+     *
+     * @param map The map containing the list of hypernyms of each synset
+     */
+    private void importLegacyMap(Map<String, List<String>> map) {
+
+        // Each list contains the synset followed by its hypernyms
+        for (List<String> list : map.values()) {
+            for (int i = 0; i + 1 < list.size(); i++) {
+                int synset = intern(list.get(i));
+                if (hypernyms[synset] == UNKNOWN) {
+                    setHypernym(synset, intern(list.get(i + 1)));
+                }
+            }
+        }
+        // The last element of each list has no (more) hypernyms
+        for (List<String> list : map.values()) {
+            if (list.isEmpty()) {
+                continue;
+            }
+            int last = intern(list.get(list.size() - 1));
+            if (hypernyms[last] == UNKNOWN) {
+                setHypernym(last, NO_HYPERNYM);
+            }
+        }
+    }
+
+    /**
+     * Add a synset to the arrays
+     *
+     * @param synset The synset
+     * @return the identifier of the synset
+     */
+    private int add(String synset) {
+        if (size == synsets.length) {
+            ensureCapacity(size * 2);
+        }
+        synsets[size] = synset;
+        ids.put(synset, size);
+        return size++;
+    }
+
+    /**
+     * Establish that a synset is the next one saved in the file
+     *
+     * @param id The identifier of the synset
+     */
+    private void setFileId(int id) {
+        if (fileSize == fileSynsets.length) {
+            fileSynsets = Arrays.copyOf(fileSynsets, fileSize * 2);
+        }
+        fileIds[id] = fileSize;
+        fileSynsets[fileSize++] = id;
+    }
+
+    /**
+     * Grow the arrays to hold a number of synsets
+     *
+     * @param capacity The number of synsets
+     */
+    private void ensureCapacity(int capacity) {
+        int previous = synsets.length;
+        synsets = Arrays.copyOf(synsets, capacity);
+        hypernyms = Arrays.copyOf(hypernyms, capacity);
+        Arrays.fill(hypernyms, previous, capacity, UNKNOWN);
+        fileIds = Arrays.copyOf(fileIds, capacity);
+        Arrays.fill(fileIds, previous, capacity, -1);
+        if (chains != null) {
+            chains = Arrays.copyOf(chains, capacity);
+            chainVersions = Arrays.copyOf(chainVersions, capacity);
+        }
+    }
+
+    /**
+     * Change the hypernym of a synset in memory
+     *
+     * @param id The identifier of the synset
+     * @param hypernym The identifier of the hypernym or NO_HYPERNYM
+     * @return the identifier of the hypernym
+     */
+    private int changeHypernym(int id, int hypernym) {
+        if (hypernyms[id] != hypernym) {
+            hypernyms[id] = hypernym;
+            // The lists of hypernyms of the synset and its descendants change
+            changes++;
+        }
+        return hypernym;
+    }
+
+    /**
+     * Returns the identifier of a synset. If the synset is not included in
+     * the store, it is added (and written to the file with the next pending
+     * records)
+     *
+     * @param synset The synset
+     * @return the identifier of the synset
+     */
+    public synchronized int intern(String synset) {
+        Integer id = ids.get(synset);
+        if (id != null) {
+            return id;
+        }
+        int newId = add(synset);
+        if (!persistent) {
+            written = size;
+        } else if (getPendingRecords() >= MAX_PENDING_RECORDS) {
+            writePending();
+        }
+        return newId;
+    }
+
+    /**
+     * Returns the identifier of a synset
+     *
+     * @param synset The synset
+     * @return the identifier of the synset or -1 if it is not included in the
+     * store
+     */
+    public synchronized int getId(String synset) {
+        Integer id = ids.get(synset);
+        return (id != null) ? id : -1;
+    }
+
+    /**
+     * Returns the synset with an identifier
+     *
+     * @param id The identifier
+     * @return the synset
+     */
+    public synchronized String getSynset(int id) {
+        return synsets[id];
+    }
+
+    /**
+     * Returns the direct hypernym of a synset
+     *
+     * @param id The identifier of the synset
+     * @return the identifier of the hypernym, NO_HYPERNYM or UNKNOWN
+     */
+    public synchronized int getHypernym(int id) {
+        return hypernyms[id];
+    }
+
+    /**
+     * Establish the direct hypernym of a synset
+     *
+     * @param id The identifier of the synset
+     * @param hypernym The identifier of the hypernym or NO_HYPERNYM
+     */
+    public synchronized void setHypernym(int id, int hypernym) {
+        if (hypernyms[id] == hypernym) {
+            return;
+        }
+        changeHypernym(id, hypernym);
+        if (persistent) {
+            if (pendingLength == pendingHypernyms.length) {
+                pendingHypernyms = Arrays.copyOf(pendingHypernyms, pendingLength * 2);
+            }
+            pendingHypernyms[pendingLength++] = id;
+            pendingHypernyms[pendingLength++] = hypernym;
+            if (getPendingRecords() >= MAX_PENDING_RECORDS) {
+                writePending();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of records that have not been written to the file
+     *
+     * @return the number of pending records
+     */
+    private int getPendingRecords() {
+        return (size - written) + pendingLength / 2;
+    }
+
+    /**
+     * Returns the number of synsets included in the store
+     *
+     * @return the number of synsets
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Determines whether the hypernyms of a synset are known
+     *
+     * @param synset The synset
+     * @return true if the direct hypernym of the synset and all its ancestors
+     * are known
+     */
+    public synchronized boolean contains(String synset) {
+        Integer id = ids.get(synset);
+        if (id == null) {
+            return false;
+        }
+        for (int current : getAncestors(id)) {
+            if (hypernyms[current] == UNKNOWN) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a synset and its (known) ancestors. The ancestors are followed
+     * until a synset without hypernym (or whose hypernym is unknown) is found
+     * or a cycle is detected
+     *
+     * @param id The identifier of the synset
+     * @return the identifiers of the synset and its ancestors
+     */
+    public synchronized int[] getAncestors(int id) {
+        int[] chain = new int[8];
+        int length = 0;
+        // A chain without cycles cannot be longer than the number of synsets
+        for (int current = id; current >= 0; current = hypernyms[current]) {
+            if (length == size) {
+                return removeCycle(chain, length);
+            }
+            if (length == chain.length) {
+                chain = Arrays.copyOf(chain, length * 2);
+            }
+            chain[length++] = current;
+        }
+        return Arrays.copyOf(chain, length);
+    }
+
+    /**
+     * Cut a chain of ancestors that contains a cycle before the first
+     * repeated synset
+     *
+     * @param chain The chain of ancestors
+     * @param length The length of the chain
+     * @return the chain without the cycle
+     */
+    private int[] removeCycle(int[] chain, int length) {
+        BitSet visited = new BitSet(size);
+        int i = 0;
+        while (i < length && !visited.get(chain[i])) {
+            visited.set(chain[i++]);
+        }
+        return Arrays.copyOf(chain, i);
+    }
+
+    /**
+     * Returns the list containing a synset followed by all its hypernyms
+     * (the same list computed by BabelUtils.getAllHypernyms). The list is
+     * built once and reused until the hierarchy changes
+     *
+     * @param synset The synset
+     * @return the list of hypernyms or null if the synset is not included in
+     * the store
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized List<String> getHypernyms(String synset) {
+        Integer id = ids.get(synset);
+        if (id == null) {
+            return null;
+        }
+        if (chains == null) {
+            chains = new List[synsets.length];
+            chainVersions = new int[synsets.length];
+        }
+
+        List<String> list = chains[id];
+        if (list == null || chainVersions[id] != changes) {
+            int[] chain = getAncestors(id);
+            String[] names = new String[chain.length];
+            for (int i = 0; i < chain.length; i++) {
+                names[i] = synsets[chain[i]];
+            }
+            list = Collections.unmodifiableList(Arrays.asList(names));
+            chains[id] = list;
+            chainVersions[id] = changes;
+        }
+        return list;
+    }
+
+    /**
+     * Retrieve from Babelnet the hypernyms of the synsets (and their
+     * ancestors) that are not known yet. The new hypernyms are appended to
+     * the file. Hypernyms that cannot be retrieved (i.e. Babelnet is not
+     * available) remain unknown
+     *
+     * @param synsetList The synsets
+     */
+    public void resolve(Collection<String> synsetList) {
+        BabelUtils bUtils = BabelUtils.getDefault();
+        for (String synset : synsetList) {
+            int current = intern(synset);
+            BitSet visited = new BitSet();
+            while (current >= 0 && !visited.get(current)) {
+                visited.set(current);
+                int hypernym = getHypernym(current);
+                if (hypernym == UNKNOWN) {
+                    String hypernymSynset = bUtils.getHypernym(getSynset(current));
+                    if (hypernymSynset == null && !bUtils.isHypernymKnown(getSynset(current))) {
+                        // Babelnet cannot be queried, try again later
+                        break;
+                    }
+                    hypernym = (hypernymSynset != null) ? intern(hypernymSynset) : NO_HYPERNYM;
+                    setHypernym(current, hypernym);
+                }
+                current = hypernym;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Write the pending records and force them to be written to the storage
+     * device
+     */
+    public synchronized void flush() {
+        writePending();
+        if (channel != null) {
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                logger.error("Unable to write the hypernym store " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Write the pending records and close the file. Records appended later
+     * reopen it
+     */
+    @Override
+    public synchronized void close() {
+        writePending();
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.error("Unable to close the hypernym store " + file + ": " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Lock the file (opening it if needed)
+     *
+     * @throws IOException If the file cannot be opened or locked
+     */
+    private void lock() throws IOException {
+        if (lock != null) {
+            return;
+        }
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        synchronized (FILE_MONITOR) {
+            while (lock == null) {
+                try {
+                    lock = channel.lock();
+                } catch (OverlappingFileLockException e) {
+                    // Another store of this JVM holds the lock
+                    try {
+                        FILE_MONITOR.wait();
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while locking the file", ie);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Release the lock of the file (if it is held)
+     */
+    private void unlock() {
+        if (lock == null) {
+            return;
+        }
+        synchronized (FILE_MONITOR) {
+            try {
+                lock.release();
+            } catch (IOException e) {
+                logger.error("Unable to unlock the hypernym store " + file + ": " + e.getMessage());
+            }
+            lock = null;
+            FILE_MONITOR.notifyAll();
+        }
+    }
+
+    /**
+     * Stop writing to the file, so the store is only kept in memory
+     *
+     * @param message The reason
+     */
+    private void disable(String message) {
+        if (persistent) {
+            logger.error(message + ". The hypernym store will only be kept in memory");
+            persistent = false;
+        }
+    }
+
+    /**
+     * Append the pending records to the file. The file is locked once for
+     * all of them and the records appended by other processes are read
+     * before, so the synsets already saved by them are not appended again
+     * and the positions of the synsets in the file are known. The pending
+     * hypernyms are applied again after the records read, since they are
+     * appended later
+     */
+    private void writePending() {
+        if (!persistent || getPendingRecords() == 0) {
+            return;
+        }
+        try {
+            lock();
+            try {
+                readTail();
+                for (int i = 0; i < pendingLength; i += 2) {
+                    changeHypernym(pendingHypernyms[i], pendingHypernyms[i + 1]);
+                }
+
+                record.reset();
+                DataOutputStream out = new DataOutputStream(record);
+                if (channel.size() == 0) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                }
+                for (int id = written; id < size; id++) {
+                    if (fileIds[id] < 0) {
+                        byte[] name = synsets[id].getBytes(StandardCharsets.UTF_8);
+                        out.writeByte(SYNSET_RECORD);
+                        out.writeShort(name.length);
+                        out.write(name);
+                        setFileId(id);
+                    }
+                }
+                for (int i = 0; i < pendingLength; i += 2) {
+                    int hypernym = pendingHypernyms[i + 1];
+                    out.writeByte(HYPERNYM_RECORD);
+                    out.writeInt(fileIds[pendingHypernyms[i]]);
+                    out.writeInt((hypernym == NO_HYPERNYM) ? NO_HYPERNYM : fileIds[hypernym]);
+                }
+                out.flush();
+
+                ByteBuffer bytes = ByteBuffer.wrap(record.toByteArray());
+                long position = channel.size();
+                while (bytes.hasRemaining()) {
+                    position += channel.write(bytes, position);
+                }
+                loaded = position;
+            } finally {
+                unlock();
+            }
+        } catch (IOException e) {
+            disable("Unable to write the hypernym store " + file + ": " + e.getMessage());
+        }
+        written = size;
+        pendingLength = 0;
+    }
+}
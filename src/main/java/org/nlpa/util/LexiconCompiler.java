@@ -0,0 +1,225 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonStructure;
+import javax.json.JsonValue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles the JSON lexicons included in the resources into CompiledLexicon
+ * files. It is executed by Maven (process-classes phase) so the compiled
+ * lexicons are packaged together with the classes:
+ * <pre>
+ * LexiconCompiler &lt;resources folder&gt; &lt;output folder&gt; &lt;lexicon folder&gt;...
+ * </pre>
+ * The following JSON structures are supported:
+ * <ul>
+ * <li>Arrays of strings (i.e. stopwords): only entries are stored</li>
+ * <li>Objects whose values are strings or numbers (i.e. slangs): values are
+ * stored in the column CompiledLexicon.VALUE_COLUMN</li>
+ * <li>Objects whose values are arrays (i.e. polarities): the i-th element of
+ * each array is stored in column "i"</li>
+ * <li>Objects whose values are objects (i.e. emojis): each field is stored in
+ * a column with the same name</li>
+ * </ul>
+ *
+ * @author José Ramón Méndez
+ */
+public class LexiconCompiler {
+
+    /**
+     * For logging purposes
+     */
+    private static final Logger logger = LogManager.getLogger(LexiconCompiler.class);
+
+    /**
+     * Private constructor to avoid creating instances of this utility class
+     */
+    private LexiconCompiler() {
+    }
+
+    /**
+     * Compile a JSON lexicon
+     *
+     * @param json The contents of the JSON lexicon
+     * @return the compiled lexicon
+     */
+    public static CompiledLexicon compile(JsonStructure json) {
+        List<String> entries = new ArrayList<>();
+        Map<String, List<Object>> columns = new LinkedHashMap<>();
+
+        if (json instanceof JsonArray) {
+            for (JsonValue v : (JsonArray) json) {
+                entries.add(toText(v));
+            }
+        } else {
+            JsonObject jsonObject = (JsonObject) json;
+            for (String key : jsonObject.keySet()) {
+                int position = entries.size();
+                entries.add(key);
+
+                JsonValue v = jsonObject.get(key);
+                switch (v.getValueType()) {
+                    case OBJECT:
+                        JsonObject fields = (JsonObject) v;
+                        for (String field : fields.keySet()) {
+                            setValue(columns, field, position, toValue(fields.get(field)));
+                        }
+                        break;
+                    case ARRAY:
+                        JsonArray array = (JsonArray) v;
+                        for (int i = 0; i < array.size(); i++) {
+                            setValue(columns, String.valueOf(i), position, toValue(array.get(i)));
+                        }
+                        break;
+                    default:
+                        setValue(columns, CompiledLexicon.VALUE_COLUMN, position, toValue(v));
+                }
+            }
+        }
+
+        return CompiledLexicon.build(entries, columns);
+    }
+
+    /**
+     * Store the value of an entry in a column
+     *
+     * @param columns The columns
+     * @param column The name of the column
+     * @param position The position of the entry in the source file
+     * @param value The value
+     */
+    private static void setValue(Map<String, List<Object>> columns, String column, int position, Object value) {
+        List<Object> values = columns.computeIfAbsent(column, k -> new ArrayList<>());
+        while (values.size() <= position) {
+            values.add(null);
+        }
+        values.set(position, value);
+    }
+
+    /**
+     * Convert a JSON value into a Double or a String
+     *
+     * @param v The JSON value
+     * @return a Double for numbers, null for JSON nulls or a String otherwise
+     */
+    private static Object toValue(JsonValue v) {
+        switch (v.getValueType()) {
+            case NUMBER:
+                return ((JsonNumber) v).doubleValue();
+            case NULL:
+                return null;
+            default:
+                return toText(v);
+        }
+    }
+
+    /**
+     * Convert a JSON value into a String
+     *
+     * @param v The JSON value
+     * @return the string
+     */
+    private static String toText(JsonValue v) {
+        return (v instanceof JsonString) ? ((JsonString) v).getString() : v.toString();
+    }
+
+    /**
+     * Compile all the JSON lexicons found in a folder (and its subfolders)
+     *
+     * @param resources The folder containing the resources
+     * @param folder The folder to compile (relative to resources)
+     * @param output The folder where compiled lexicons are stored
+     * @return the number of lexicons compiled
+     * @throws IOException If an I/O error occurs
+     */
+    private static int compileFolder(Path resources, String folder, Path output) throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(resources.resolve(folder))) {
+            files = paths.filter(p -> p.toString().endsWith(".json")).collect(Collectors.toList());
+        }
+
+        int compiled = 0;
+        for (Path file : files) {
+            String resource = "/" + resources.relativize(file).toString().replace('\\', '/');
+            Path target = output.resolve(CompiledLexicon.getCompiledResourceName(resource).substring(CompiledLexicon.COMPILED_LEXICON_FOLDER.length() + 1));
+
+            try (InputStream is = Files.newInputStream(file);
+                    JsonReader rdr = Json.createReader(is)) {
+                CompiledLexicon lexicon = compile(rdr.read());
+                Files.createDirectories(target.getParent());
+                try (OutputStream os = Files.newOutputStream(target)) {
+                    lexicon.write(os);
+                }
+                compiled++;
+            } catch (RuntimeException e) {
+                logger.error("Exception processing: " + file + " message " + e.getMessage());
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Compile the JSON lexicons
+     *
+     * @param args The folder containing the resources, the folder where
+     * compiled lexicons are stored and the folders (relative to resources)
+     * containing the lexicons to compile
+     * @throws IOException If an I/O error occurs
+     * @throws IllegalArgumentException If the arguments are not valid
+     */
+    public static void main(String[] args) throws IOException {
+        // This method is run inside the Maven JVM, so it should not call
+        // System.exit
+        if (args.length < 3) {
+            throw new IllegalArgumentException("Usage: LexiconCompiler <resources folder> <output folder> <lexicon folder>...");
+        }
+
+        Path resources = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        for (int i = 2; i < args.length; i++) {
+            int compiled = compileFolder(resources, args[i], output);
+            logger.info("Compiled " + compiled + " lexicons from " + args[i]);
+        }
+    }
+}
@@ -0,0 +1,488 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A token-boundary trie that finds (and optionally replaces) all the entries
+ * of a lexicon in a text in a single left-to-right pass, so the cost of
+ * processing a text does not depend on the size of the lexicon. It implements
+ * the boundary rules of the regular expression used by several pipes for each
+ * lexicon entry:
+ * <pre>
+ * (?:\p{Space}|[LEADING]|^)([PREFIXES]*WORD[SUFFIXES]*)[TRAILING]?(?=(?:\p{Space}|$|&gt;))
+ * </pre>
+ * An entry is matched when it is preceded by the start of the text, a space or
+ * a leading delimiter, and followed by the end of the text, a space or '&gt;'
+ * (optionally after one trailing punctuation mark). Optional repeated prefix
+ * and suffix characters (i.e. "¡" and "!" for interjections) are included in
+ * the match. When removing or replacing entries, the longest entry matching
+ * at a position is selected and replacements are not scanned again. When
+ * only finding entries, all of them are reported (even if they overlap).
+ *
+ * Once all entries have been added, the matcher is not modified and can be
+ * safely shared between threads.
+ *
+ * @author José Ramón Méndez
+ */
+public class LexiconMatcher {
+
+    /**
+     * The default characters that can precede a word (besides spaces and the
+     * start of the text)
+     */
+    public static final String DEFAULT_LEADING_DELIMITERS = "\"><¡?¿!;:,.'-";
+
+    /**
+     * The default punctuation marks that can follow a word (before a space,
+     * '&gt;' or the end of the text)
+     */
+    public static final String DEFAULT_TRAILING_PUNCTUATION = ";:?\"!,.'>-";
+
+    /**
+     * The case folding applied when comparing entries with texts
+     */
+    public enum CaseFolding {
+        /**
+         * Case sensitive matching
+         */
+        NONE,
+        /**
+         * Only US-ASCII characters are folded (as Pattern.CASE_INSENSITIVE)
+         */
+        ASCII,
+        /**
+         * All characters are folded (as Pattern.CASE_INSENSITIVE combined with
+         * Pattern.UNICODE_CASE)
+         */
+        UNICODE
+    }
+
+    /**
+     * Receives the matches found in a text
+     */
+    @FunctionalInterface
+    public interface MatchListener {
+
+        /**
+         * Called for each match, in the order of the text
+         *
+         * @param entry The index of the matched entry (see getWord)
+         * @param start The position of the text where the match starts
+         * @param end The position of the text following the match
+         */
+        void matched(int entry, int start, int end);
+    }
+
+    /**
+     * The root of the trie
+     */
+    private final Node root = new Node();
+
+    /**
+     * The words of the lexicon (indexed by entry)
+     */
+    private final List<String> words = new ArrayList<>();
+
+    /**
+     * The replacements for the words of the lexicon (indexed by entry)
+     */
+    private final List<String> replacements = new ArrayList<>();
+
+    /**
+     * The characters that can precede a word
+     */
+    private final String leadingDelimiters;
+
+    /**
+     * The punctuation marks that can follow a word
+     */
+    private final String trailingPunctuation;
+
+    /**
+     * Characters that can be repeated before a word as part of the match
+     */
+    private final String prefixes;
+
+    /**
+     * Characters that can be repeated after a word as part of the match
+     */
+    private final String suffixes;
+
+    /**
+     * The case folding used to compare words
+     */
+    private final CaseFolding caseFolding;
+
+    /**
+     * Build a case sensitive LexiconMatcher using the default boundaries
+     */
+    public LexiconMatcher() {
+        this(DEFAULT_LEADING_DELIMITERS, DEFAULT_TRAILING_PUNCTUATION, CaseFolding.NONE);
+    }
+
+    /**
+     * Build a LexiconMatcher without prefixes and suffixes
+     *
+     * @param leadingDelimiters The characters that can precede a word
+     * @param trailingPunctuation The punctuation marks that can follow a word
+     * @param caseFolding The case folding used to compare words
+     */
+    public LexiconMatcher(String leadingDelimiters, String trailingPunctuation, CaseFolding caseFolding) {
+        this(leadingDelimiters, trailingPunctuation, "", "", caseFolding);
+    }
+
+    /**
+     * Build a LexiconMatcher
+     *
+     * @param leadingDelimiters The characters that can precede a word
+     * @param trailingPunctuation The punctuation marks that can follow a word
+     * @param prefixes Characters that can be repeated before a word as part of
+     * the match
+     * @param suffixes Characters that can be repeated after a word as part of
+     * the match
+     * @param caseFolding The case folding used to compare words
+     */
+    public LexiconMatcher(String leadingDelimiters, String trailingPunctuation, String prefixes, String suffixes, CaseFolding caseFolding) {
+        this.leadingDelimiters = leadingDelimiters;
+        this.trailingPunctuation = trailingPunctuation;
+        this.prefixes = prefixes;
+        this.suffixes = suffixes;
+        this.caseFolding = caseFolding;
+    }
+
+    /**
+     * Add a word to the lexicon. Matches of the word will be removed from texts
+     *
+     * @param word The word to add
+     */
+    public void add(String word) {
+        add(word, "");
+    }
+
+    /**
+     * Add a word to the lexicon together with its replacement. If the word
+     * (after case folding) was already included, its replacement is updated
+     *
+     * @param word The word to add
+     * @param replacement The text that replaces the matches of the word
+     */
+    public void add(String word, String replacement) {
+        if (word == null || word.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        for (int i = 0; i < word.length(); i++) {
+            node = node.getOrAddChild(fold(word.charAt(i)));
+        }
+        if (node.entry < 0) {
+            node.entry = words.size();
+            words.add(word);
+            replacements.add(replacement);
+        } else {
+            replacements.set(node.entry, replacement);
+        }
+    }
+
+    /**
+     * Returns the number of entries of the lexicon
+     *
+     * @return the number of entries of the lexicon
+     */
+    public int size() {
+        return words.size();
+    }
+
+    /**
+     * Returns the word of an entry (as it was added)
+     *
+     * @param entry The index of the entry
+     * @return the word of the entry
+     */
+    public String getWord(int entry) {
+        return words.get(entry);
+    }
+
+    /**
+     * Returns the replacement of an entry
+     *
+     * @param entry The index of the entry
+     * @return the replacement of the entry
+     */
+    public String getReplacement(int entry) {
+        return replacements.get(entry);
+    }
+
+    /**
+     * Find the entry of a word (comparing it after case folding)
+     *
+     * @param word The word to find
+     * @return the index of the entry or -1 if the word is not included in the
+     * lexicon
+     */
+    public int indexOf(CharSequence word) {
+        Node node = root;
+        for (int i = 0; i < word.length() && node != null; i++) {
+            node = node.getChild(fold(word.charAt(i)));
+        }
+        return (node == null) ? -1 : node.entry;
+    }
+
+    /**
+     * Remove all the words of the lexicon found in a text
+     *
+     * @param text The text to process
+     * @return a new buffer containing the text without the words of the
+     * lexicon
+     */
+    public StringBuffer removeAll(CharSequence text) {
+        return scan(text, false);
+    }
+
+    /**
+     * Replace all the words of the lexicon found in a text by their
+     * replacements
+     *
+     * @param text The text to process
+     * @return a new buffer containing the text where the words of the lexicon
+     * have been replaced
+     */
+    public StringBuffer replaceAll(CharSequence text) {
+        return scan(text, true);
+    }
+
+    /**
+     * Find all the words of the lexicon included in a text without modifying
+     * it. Each word is reported at every position where it matches, even if
+     * the match overlaps with other ones
+     *
+     * @param text The text to process
+     * @param listener The listener notified for each match
+     */
+    public void findAll(CharSequence text, MatchListener listener) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (isLeadingBoundary(text, i)) {
+                Node node = root;
+                for (int j = skipPrefixes(text, i); j < length && (node = node.getChild(fold(text.charAt(j)))) != null; j++) {
+                    if (node.entry >= 0) {
+                        int end = findEnd(text, j + 1);
+                        if (end >= 0) {
+                            listener.matched(node.entry, i, end);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Walk a text from left to right building a new buffer where the words of
+     * the lexicon are removed or replaced
+     *
+     * @param text The text to process
+     * @param replace Whether matches are replaced (true) or removed (false)
+     * @return the new buffer
+     */
+    private StringBuffer scan(CharSequence text, boolean replace) {
+        StringBuffer out = new StringBuffer(text.length());
+        int length = text.length();
+        int i = 0;
+        // A match consumes its leading delimiter, so two matches cannot be
+        // adjacent (the original regular expressions behave the same way)
+        boolean afterMatch = false;
+
+        while (i < length) {
+            if (!afterMatch && isLeadingBoundary(text, i)) {
+                long match = matchAt(text, i);
+                if (match >= 0) {
+                    int entry = (int) (match >>> 32);
+                    if (replace) {
+                        out.append(replacements.get(entry));
+                    }
+                    i = (int) match;
+                    afterMatch = true;
+                    continue;
+                }
+            }
+            out.append(text.charAt(i));
+            i++;
+            afterMatch = false;
+        }
+
+        return out;
+    }
+
+    /**
+     * Find the longest match starting at a position of a text
+     *
+     * @param text The text
+     * @param start The position where the match should start
+     * @return the entry (high 32 bits) and the end (low 32 bits) of the match
+     * or -1 if there is no match
+     */
+    private long matchAt(CharSequence text, int start) {
+        int length = text.length();
+        long match = -1;
+        Node node = root;
+        for (int j = skipPrefixes(text, start); j < length && (node = node.getChild(fold(text.charAt(j)))) != null; j++) {
+            if (node.entry >= 0) {
+                int end = findEnd(text, j + 1);
+                if (end >= 0) {
+                    match = ((long) node.entry << 32) | end;
+                }
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Skip the prefixes found at a position of a text
+     *
+     * @param text The text
+     * @param pos The position
+     * @return the first position that does not contain a prefix
+     */
+    private int skipPrefixes(CharSequence text, int pos) {
+        while (pos < text.length() && prefixes.indexOf(text.charAt(pos)) >= 0) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Find the end of a match once the word has been recognized, consuming as
+     * many suffixes as possible while keeping a valid trailing boundary
+     *
+     * @param text The text
+     * @param pos The position following the last character of the word
+     * @return the end of the match or -1 if the word is not followed by a
+     * valid boundary
+     */
+    private int findEnd(CharSequence text, int pos) {
+        int end = pos;
+        while (end < text.length() && suffixes.indexOf(text.charAt(end)) >= 0) {
+            end++;
+        }
+        for (; end >= pos; end--) {
+            if (isTrailingBoundary(text, end)) {
+                return end;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Apply case folding to a character
+     *
+     * @param c The character
+     * @return the folded character
+     */
+    private char fold(char c) {
+        switch (caseFolding) {
+            case ASCII:
+                return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+            case UNICODE:
+                return Character.toLowerCase(Character.toUpperCase(c));
+            default:
+                return c;
+        }
+    }
+
+    /**
+     * Check whether a word can start at a position of a text
+     *
+     * @param text The text
+     * @param pos The position
+     * @return true if the position is preceded by the start of the text, a
+     * space or a leading delimiter
+     */
+    private boolean isLeadingBoundary(CharSequence text, int pos) {
+        if (pos == 0) {
+            return true;
+        }
+        char c = text.charAt(pos - 1);
+        return isSpace(c) || leadingDelimiters.indexOf(c) >= 0;
+    }
+
+    /**
+     * Check whether a word can end at a position of a text
+     *
+     * @param text The text
+     * @param pos The position following the last character of the word
+     * @return true if the position is followed by the end of the text, a space
+     * or '&gt;', optionally after one trailing punctuation mark
+     */
+    private boolean isTrailingBoundary(CharSequence text, int pos) {
+        if (isWordEnd(text, pos)) {
+            return true;
+        }
+        return trailingPunctuation.indexOf(text.charAt(pos)) >= 0 && isWordEnd(text, pos + 1);
+    }
+
+    /**
+     * Check whether a position is the end of the text or contains a space or
+     * '&gt;'
+     *
+     * @param text The text
+     * @param pos The position
+     * @return true if the position is the end of the text or contains a space
+     * or '&gt;'
+     */
+    private static boolean isWordEnd(CharSequence text, int pos) {
+        if (pos >= text.length()) {
+            return true;
+        }
+        char c = text.charAt(pos);
+        return c == '>' || isSpace(c);
+    }
+
+    /**
+     * Check whether a character is a space (as defined by the \p{Space} POSIX
+     * class of regular expressions)
+     *
+     * @param c The character
+     * @return true if the character is a space
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * A node of the trie (keyed by the characters of the words after case
+     * folding)
+     */
+    private static final class Node extends CodepointTrieNode<Node> {
+
+        /**
+         * The entry for the word ending at this node (-1 if no word ends here)
+         */
+        private int entry = -1;
+
+        @Override
+        protected Node newNode() {
+            return new Node();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A registry of lexicons (stopwords, slangs, emojis...) loaded on demand. Each
+ * lexicon is identified by a name and a language and is loaded the first time
+ * it is requested. Loaded lexicons are shared by all the pipes (and threads)
+ * of the JVM, so the time and memory spent loading them only depends on the
+ * languages actually found in the processed texts.
+ *
+ * Languages without a lexicon are also remembered, so the loader is invoked
+ * at most once for each name and language.
+ *
+ * @author José Ramón Méndez
+ */
+public class LexiconRegistry {
+
+    /**
+     * For logging purposes
+     */
+    private static final Logger logger = LogManager.getLogger(LexiconRegistry.class);
+
+    /**
+     * The lexicons requested so far
+     */
+    private static final ConcurrentHashMap<String, Entry> lexicons = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor to avoid creating instances of this utility class
+     */
+    private LexiconRegistry() {
+    }
+
+    /**
+     * Retrieve a lexicon loading it if required
+     *
+     * @param <T> The type of the lexicon
+     * @param name The name of the lexicon (i.e. "stopwords")
+     * @param lang The language of the lexicon
+     * @param loader The function used to load the lexicon for a language. It
+     * should return null if the lexicon is not available for the language
+     * @return the lexicon or null if it is not available for the language
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T getLexicon(String name, String lang, Function<String, T> loader) {
+        if (lang == null) {
+            return null;
+        }
+        Entry entry = lexicons.computeIfAbsent(name + "." + lang, k -> new Entry());
+        return (T) entry.get(name, lang, loader);
+    }
+
+    /**
+     * Returns the number of lexicons requested so far (including those not
+     * available for the requested language)
+     *
+     * @return the number of lexicons requested so far
+     */
+    public static int size() {
+        return lexicons.size();
+    }
+
+    /**
+     * Discard all loaded lexicons. They will be loaded again when requested
+     */
+    public static void clear() {
+        lexicons.clear();
+    }
+
+    /**
+     * A lexicon of the registry. Loading is synchronized on the entry so
+     * lexicons for different languages can be loaded concurrently
+     */
+    private static final class Entry {
+
+        /**
+         * Indicates whether the loader has been already invoked
+         */
+        private volatile boolean loaded = false;
+
+        /**
+         * The lexicon (null if it is not available)
+         */
+        private Object lexicon = null;
+
+        /**
+         * Retrieve the lexicon loading it if required
+         *
+         * @param name The name of the lexicon
+         * @param lang The language of the lexicon
+         * @param loader The function used to load the lexicon
+         * @return the lexicon or null if it is not available
+         */
+        private Object get(String name, String lang, Function<String, ?> loader) {
+            if (!loaded) {
+                synchronized (this) {
+                    if (!loaded) {
+                        try {
+                            lexicon = loader.apply(lang);
+                        } catch (RuntimeException e) {
+                            logger.error("Exception loading " + name + " lexicon for language " + lang + ": " + e.getMessage());
+                        }
+                        if (lexicon == null) {
+                            logger.info("Lexicon " + name + " is not available for language " + lang);
+                        }
+                        loaded = true;
+                    }
+                }
+            }
+            return lexicon;
+        }
+    }
+}
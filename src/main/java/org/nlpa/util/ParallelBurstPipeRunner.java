@@ -0,0 +1,326 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bdp4j.pipe.AbstractPipe;
+import org.bdp4j.pipe.SerialPipes;
+import org.bdp4j.pipe.TeePipe;
+import org.bdp4j.types.Instance;
+import org.bdp4j.util.InstanceListUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * A BurstPipeRunner that uses several cores. The pipes of a serial chain
+ * (nested SerialPipes are flattened) are split in two stages:
+ * <ul>
+ * <li>The pipes placed before the first Tee pipe, which are executed by a
+ * pool of workers (instances of each burst are sharded across them)</li>
+ * <li>The first Tee pipe and all the following ones, which are executed in the
+ * caller thread following the order of the source</li>
+ * </ul>
+ * This way, Tee pipes see instances in a deterministic order and can finalize
+ * their output once (see SourceListener).
+ *
+ * The chain is created by a factory that is called once for each worker, so
+ * each worker pipes its shards through its own instances of the pipes of the
+ * first stage and pipes are never used by several threads at the same time.
+ * The factory should return new pipe instances (with the same structure)
+ * each time it is called. The dependencies of the chain should be checked
+ * (i.e. using SerialPipes.checkDependencies) before creating the runner.
+ *
+ * @author José Ramón Méndez
+ */
+public class ParallelBurstPipeRunner extends BurstPipeRunner implements AutoCloseable {
+
+    /**
+     * For logging purposes
+     */
+    private static final Logger logger = LogManager.getLogger(ParallelBurstPipeRunner.class);
+
+    /**
+     * The number of shards created for each worker when splitting a burst (to
+     * balance the load between workers)
+     */
+    private static final int SHARDS_PER_WORKER = 4;
+
+    /**
+     * The first stage of the chain of each worker. A stage is taken from the
+     * queue to process a shard and returned when the shard has been processed
+     * (the queue is empty if the first pipe is a Tee pipe)
+     */
+    private final BlockingQueue<AbstractPipe> parallelStages = new LinkedBlockingQueue<>();
+
+    /**
+     * The number of workers
+     */
+    private final int workers;
+
+    /**
+     * The pool of workers
+     */
+    private final ExecutorService pool;
+
+    /**
+     * Build a ParallelBurstPipeRunner using one worker for each available
+     * processor and the default burst size
+     *
+     * @param chainFactory The factory used to create the chain of pipes used
+     * to process instances
+     */
+    public ParallelBurstPipeRunner(Supplier<AbstractPipe[]> chainFactory) {
+        this(chainFactory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Build a ParallelBurstPipeRunner using the default burst size
+     *
+     * @param chainFactory The factory used to create the chain of pipes used
+     * to process instances
+     * @param workers The number of workers
+     */
+    public ParallelBurstPipeRunner(Supplier<AbstractPipe[]> chainFactory, int workers) {
+        this(chainFactory, workers, DEFAULT_BURST_SIZE);
+    }
+
+    /**
+     * Build a ParallelBurstPipeRunner
+     *
+     * @param chainFactory The factory used to create the chain of pipes used
+     * to process instances
+     * @param workers The number of workers
+     * @param burstSize The number of instances included in each burst
+     */
+    public ParallelBurstPipeRunner(Supplier<AbstractPipe[]> chainFactory, int workers, int burstSize) {
+        this(chainFactory, flatten(chainFactory.get()), workers, burstSize);
+    }
+
+    /**
+     * Build a ParallelBurstPipeRunner from the first chain created by the
+     * factory
+     *
+     * @param chainFactory The factory used to create the chain of pipes used
+     * to process instances
+     * @param chain The first chain created by the factory (flattened)
+     * @param workers The number of workers
+     * @param burstSize The number of instances included in each burst
+     */
+    private ParallelBurstPipeRunner(Supplier<AbstractPipe[]> chainFactory, AbstractPipe[] chain, int workers, int burstSize) {
+        super(buildStage(chain, findFirstTeePipe(chain), chain.length), burstSize);
+        if (workers < 1) {
+            throw new IllegalArgumentException("The number of workers should be greater than 0 (found " + workers + ")");
+        }
+
+        int firstTeePipe = findFirstTeePipe(chain);
+        if (firstTeePipe > 0) {
+            Set<AbstractPipe> created = Collections.newSetFromMap(new IdentityHashMap<>());
+            created.addAll(Arrays.asList(chain));
+            parallelStages.add(buildStage(chain, 0, firstTeePipe));
+            for (int i = 1; i < workers; i++) {
+                AbstractPipe[] workerChain = flatten(chainFactory.get());
+                checkStructure(chain, workerChain, created);
+                parallelStages.add(buildStage(workerChain, 0, firstTeePipe));
+            }
+        }
+        this.workers = workers;
+        this.pool = Executors.newFixedThreadPool(workers);
+    }
+
+    /**
+     * Expand the nested SerialPipes of a chain of pipes
+     *
+     * @param pipes The chain of pipes
+     * @return the pipes of the chain, where nested SerialPipes have been
+     * replaced by the pipes included in them
+     */
+    private static AbstractPipe[] flatten(AbstractPipe[] pipes) {
+        List<AbstractPipe> flattened = new ArrayList<>();
+        for (AbstractPipe pipe : pipes) {
+            flatten(pipe, flattened);
+        }
+        return flattened.toArray(new AbstractPipe[flattened.size()]);
+    }
+
+    /**
+     * Add the pipes included in a pipe (itself unless it is a SerialPipes) to
+     * a list
+     *
+     * @param pipe The pipe
+     * @param flattened The list where the pipes are added
+     */
+    private static void flatten(AbstractPipe pipe, List<AbstractPipe> flattened) {
+        if (pipe instanceof SerialPipes) {
+            SerialPipes chain = (SerialPipes) pipe;
+            for (int i = 0; i < chain.size(); i++) {
+                flatten((AbstractPipe) chain.getPipe(i), flattened);
+            }
+        } else {
+            flattened.add(pipe);
+        }
+    }
+
+    /**
+     * Check that the chain created for a worker contains new instances of the
+     * same pipes as the first chain
+     *
+     * @param chain The first chain created by the factory
+     * @param workerChain The chain created for the worker
+     * @param created The pipes created so far (the pipes of the worker chain
+     * are added)
+     */
+    private static void checkStructure(AbstractPipe[] chain, AbstractPipe[] workerChain, Set<AbstractPipe> created) {
+        if (workerChain.length != chain.length) {
+            throw new IllegalArgumentException("The chains created by the factory should contain the same pipes (found "
+                    + chain.length + " and " + workerChain.length + " pipes)");
+        }
+        for (int i = 0; i < chain.length; i++) {
+            if (workerChain[i].getClass() != chain[i].getClass()) {
+                throw new IllegalArgumentException("The chains created by the factory should contain the same pipes (found "
+                        + chain[i].getClass().getName() + " and " + workerChain[i].getClass().getName() + " at position " + i + ")");
+            }
+            if (!created.add(workerChain[i])) {
+                throw new IllegalArgumentException("The factory should create new pipe instances for each chain ("
+                        + workerChain[i].getClass().getName() + " is shared)");
+            }
+        }
+    }
+
+    /**
+     * Find the position of the first pipe annotated with TeePipe
+     *
+     * @param pipes The chain of pipes (without nested SerialPipes)
+     * @return the position of the first Tee pipe or the length of the chain if
+     * it does not contain Tee pipes
+     */
+    private static int findFirstTeePipe(AbstractPipe[] pipes) {
+        for (int i = 0; i < pipes.length; i++) {
+            if (pipes[i].getClass().isAnnotationPresent(TeePipe.class)) {
+                return i;
+            }
+        }
+        return pipes.length;
+    }
+
+    /**
+     * Build a serial stage from a range of a chain of pipes
+     *
+     * @param pipes The chain of pipes
+     * @param from The first pipe (inclusive)
+     * @param to The last pipe (exclusive)
+     * @return a SerialPipes containing the range of pipes or null if the range
+     * is empty
+     */
+    private static AbstractPipe buildStage(AbstractPipe[] pipes, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        return new SerialPipes(Arrays.copyOfRange(pipes, from, to));
+    }
+
+    /**
+     * Returns the number of workers used to process instances
+     *
+     * @return the number of workers
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Process a burst of instances. Instances are processed in parallel by the
+     * first stage and then, sequentially, by the Tee stage (if some of them
+     * are still valid)
+     *
+     * @param burst The instances to process
+     */
+    @Override
+    protected void pipeBurst(List<Instance> burst) {
+        if (!parallelStages.isEmpty()) {
+            pipeInParallel(burst);
+            burst = InstanceListUtils.dropInvalid(burst);
+        }
+        if (pipe != null && !burst.isEmpty()) {
+            super.pipeBurst(burst);
+        }
+    }
+
+    /**
+     * Shard a burst across the workers and wait for all of them to finish.
+     * Each shard is processed by a stage that is not used by other workers at
+     * the same time
+     *
+     * @param burst The instances to process
+     */
+    private void pipeInParallel(List<Instance> burst) {
+        int shards = workers * SHARDS_PER_WORKER;
+        int shardSize = Math.max(1, (burst.size() + shards - 1) / shards);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < burst.size(); from += shardSize) {
+            List<Instance> shard = burst.subList(from, Math.min(from + shardSize, burst.size()));
+            tasks.add(() -> {
+                AbstractPipe stage = parallelStages.take();
+                try {
+                    stage.pipeAll(new ArrayList<>(shard));
+                } finally {
+                    parallelStages.put(stage);
+                }
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while processing a burst", e);
+        } catch (ExecutionException e) {
+            logger.error("[PIPE IN PARALLEL] " + e.getCause().getMessage());
+            throw new IllegalStateException("Error processing a burst", e.getCause());
+        }
+    }
+
+    /**
+     * Shutdown the pool of workers
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
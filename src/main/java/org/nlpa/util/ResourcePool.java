@@ -0,0 +1,261 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * A pool of expensive objects that are not thread-safe (i.e. spell checkers).
+ * A thread borrows an object, uses it exclusively and releases it so that it
+ * can be reused (already initialized) by other calls. New objects are only
+ * created when all the existing ones are in use.
+ *
+ * At most maxTotal objects exist at the same time (borrowed or idle). When
+ * all of them are borrowed, borrow waits until one of them is released, so
+ * borrowed objects must always be returned using release.
+ *
+ * The pool keeps at most maxIdle objects that are not in use. Objects that
+ * have not been used during idleTimeout milliseconds are discarded the next
+ * time the pool is accessed (or when evictIdle is invoked), so the memory is
+ * returned when a resource is no longer needed.
+ *
+ * @param <T> The type of the pooled objects
+ * @author José Ramón Méndez
+ */
+public class ResourcePool<T> {
+
+    /**
+     * The default maximum number of idle objects (one for each processor)
+     */
+    public static final int DEFAULT_MAX_IDLE = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The default maximum number of objects (one for each processor)
+     */
+    public static final int DEFAULT_MAX_TOTAL = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The default time (in milliseconds) an idle object is kept (10 minutes)
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT = 10 * 60 * 1000L;
+
+    /**
+     * The function used to create new objects
+     */
+    private final Supplier<T> factory;
+
+    /**
+     * The maximum number of idle objects
+     */
+    private final int maxIdle;
+
+    /**
+     * The time (in milliseconds) an idle object is kept
+     */
+    private final long idleTimeout;
+
+    /**
+     * The idle objects. The most recently released ones are placed first
+     */
+    private final ArrayDeque<IdleResource<T>> idle = new ArrayDeque<>();
+
+    /**
+     * The permits to hold an object. Each borrowed object holds a permit
+     * until it is released
+     */
+    private final Semaphore permits;
+
+    /**
+     * The maximum number of objects (borrowed or idle)
+     */
+    private final int maxTotal;
+
+    /**
+     * Build a ResourcePool using the default limits
+     *
+     * @param factory The function used to create new objects. It can return
+     * null if the object cannot be created
+     */
+    public ResourcePool(Supplier<T> factory) {
+        this(factory, DEFAULT_MAX_IDLE, DEFAULT_MAX_TOTAL, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Build a ResourcePool
+     *
+     * @param factory The function used to create new objects. It can return
+     * null if the object cannot be created
+     * @param maxIdle The maximum number of idle objects
+     * @param maxTotal The maximum number of objects (borrowed or idle)
+     * @param idleTimeout The time (in milliseconds) an idle object is kept
+     */
+    public ResourcePool(Supplier<T> factory, int maxIdle, int maxTotal, long idleTimeout) {
+        if (maxTotal < 1) {
+            throw new IllegalArgumentException("The maximum number of objects should be positive: " + maxTotal);
+        }
+        this.factory = factory;
+        this.maxIdle = Math.min(maxIdle, maxTotal);
+        this.maxTotal = maxTotal;
+        this.permits = new Semaphore(maxTotal, true);
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Take an object from the pool. If there are no idle objects a new one is
+     * created, waiting first until less than maxTotal objects are borrowed.
+     * The object should be returned to the pool using release
+     *
+     * @return the object or null if it cannot be created (or the thread is
+     * interrupted while waiting)
+     */
+    public T borrow() {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        synchronized (this) {
+            evictIdle(System.currentTimeMillis());
+            IdleResource<T> resource = idle.pollFirst();
+            if (resource != null) {
+                return resource.resource;
+            }
+        }
+        // Objects are created outside the lock because it may be slow
+        T resource = null;
+        try {
+            resource = factory.get();
+        } finally {
+            if (resource == null) {
+                permits.release();
+            }
+        }
+        return resource;
+    }
+
+    /**
+     * Return an object to the pool. The object is discarded if the pool
+     * already contains maxIdle idle objects
+     *
+     * @param resource The object (borrowed from this pool)
+     */
+    public void release(T resource) {
+        if (resource == null) {
+            return;
+        }
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            evictIdle(now);
+            if (idle.size() < maxIdle) {
+                idle.addFirst(new IdleResource<>(resource, now));
+            }
+        }
+        permits.release();
+    }
+
+    /**
+     * Discard the objects that have not been used during idleTimeout
+     * milliseconds
+     */
+    public synchronized void evictIdle() {
+        evictIdle(System.currentTimeMillis());
+    }
+
+    /**
+     * Discard the objects that have not been used during idleTimeout
+     * milliseconds
+     *
+     * @param now The current time
+     */
+    private void evictIdle(long now) {
+        while (!idle.isEmpty() && now - idle.peekLast().since > idleTimeout) {
+            idle.pollLast();
+        }
+    }
+
+    /**
+     * Returns the number of idle objects
+     *
+     * @return the number of idle objects
+     */
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Returns the number of borrowed objects
+     *
+     * @return the number of borrowed objects
+     */
+    public int getBorrowedCount() {
+        return maxTotal - permits.availablePermits();
+    }
+
+    /**
+     * Returns the maximum number of objects (borrowed or idle)
+     *
+     * @return the maximum number of objects
+     */
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * Discard all the idle objects
+     */
+    public synchronized void clear() {
+        idle.clear();
+    }
+
+    /**
+     * An idle object together with the time it was released
+     *
+     * @param <T> The type of the object
+     */
+    private static final class IdleResource<T> {
+
+        /**
+         * The object
+         */
+        private final T resource;
+
+        /**
+         * The time the object was released
+         */
+        private final long since;
+
+        /**
+         * Build an IdleResource
+         *
+         * @param resource The object
+         * @param since The time the object was released
+         */
+        private IdleResource(T resource, long since) {
+            this.resource = resource;
+            this.since = since;
+        }
+    }
+}
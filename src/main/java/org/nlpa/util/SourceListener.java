@@ -0,0 +1,47 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+/**
+ * A pipe that should be notified when the instances of a source are
+ * processed in several bursts (see BurstPipeRunner). Between sourceStarted
+ * and sourceFinished, isLast() only marks the end of a burst, so pipes that
+ * create a single output for the whole source (i.e. Tee pipes) should wait
+ * for sourceFinished to complete it. When instances are directly piped
+ * through pipeAll (without a runner) these methods are not called and each
+ * call to pipeAll is a whole source.
+ *
+ * @author José Ramón Méndez
+ */
+public interface SourceListener {
+
+    /**
+     * Called before the first burst of a source is processed
+     */
+    void sourceStarted();
+
+    /**
+     * Called once after the last burst of a source has been processed (even
+     * if it was empty or its processing failed)
+     */
+    void sourceFinished();
+}
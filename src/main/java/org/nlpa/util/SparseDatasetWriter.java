@@ -0,0 +1,522 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nlpa.types.Dictionary;
+import org.nlpa.types.FeatureVector;
+import org.nlpa.types.TokenSequence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes a dataset of FeatureVectors in a sparse format as instances are
+ * received. Each row is appended to a temporary file as soon as it is added
+ * and only contains the non-zero features of the instance, so the dictionary
+ * can grow while the dataset is written without rewriting the previous rows.
+ *
+ * The columns of the dataset are the same ones of the CSV created by
+ * TeeCSVFromFeatureVectorPipe (id, properties, dictionary entries and
+ * target). As the final set of columns (and their types) is only known when
+ * all the instances have been received, the output file is created when the
+ * writer is closed: the header is written once and the rows are rendered
+ * from the temporary file. Two formats are supported:
+ * <ul>
+ * <li>ARFF: a Weka sparse ARFF file where each row is written as
+ * <code>{index value,...}</code>.</li>
+ * <li>TRIPLETS: a text file containing a line <code>row,column,value</code>
+ * for each value of the dataset. The names and types of the columns are
+ * stored in a side file (the output file followed by ".columns").</li>
+ * </ul>
+ *
+ * @author José Ramón Méndez
+ */
+public class SparseDatasetWriter implements AutoCloseable {
+
+    /**
+     * For logging purposes
+     */
+    private static final Logger logger = LogManager.getLogger(SparseDatasetWriter.class);
+
+    /**
+     * The formats supported by the writer
+     */
+    public enum Format {
+        ARFF, TRIPLETS
+    }
+
+    /**
+     * The extension of the side file containing the columns in TRIPLETS
+     * format
+     */
+    public static final String COLUMNS_FILE_EXTENSION = ".columns";
+
+    /**
+     * The extension of the temporary file containing the rows
+     */
+    private static final String ROWS_FILE_EXTENSION = ".rows";
+
+    /**
+     * The output file
+     */
+    private final File output;
+
+    /**
+     * The output format
+     */
+    private final Format format;
+
+    /**
+     * The temporary file containing the rows
+     */
+    private final File rowsFile;
+
+    /**
+     * The stream used to write the rows
+     */
+    private DataOutputStream rows;
+
+    /**
+     * The number of rows written
+     */
+    private int rowCount = 0;
+
+    /**
+     * The names of the properties in the order they were found
+     */
+    private final List<String> properties = new ArrayList<>();
+
+    /**
+     * The position of each property in the list of properties
+     */
+    private final Map<String, Integer> propertyIndexes = new HashMap<>();
+
+    /**
+     * The properties that contain values that are not numbers
+     */
+    private final BitSet stringProperties = new BitSet();
+
+    /**
+     * The values found for the target (in the order they were found)
+     */
+    private final Set<String> targetValues = new LinkedHashSet<>();
+
+    /**
+     * Build a SparseDatasetWriter
+     *
+     * @param output The output file
+     * @param format The output format
+     */
+    public SparseDatasetWriter(String output, Format format) {
+        this.output = new File(output);
+        this.format = format;
+        this.rowsFile = new File(output + ROWS_FILE_EXTENSION);
+    }
+
+    /**
+     * Returns the output file
+     *
+     * @return the output file
+     */
+    public File getOutput() {
+        return output;
+    }
+
+    /**
+     * Returns the number of rows written
+     *
+     * @return the number of rows written
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Append a row to the dataset
+     *
+     * @param id The identifier of the instance
+     * @param properties The properties of the instance
+     * @param features The features of the instance
+     * @param target The target of the instance
+     * @throws IOException If the row cannot be written
+     */
+    public void addRow(String id, Map<String, Object> properties, FeatureVector features, Object target) throws IOException {
+        if (rows == null) {
+            rows = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(rowsFile)));
+        }
+
+        writeString(rows, id);
+
+        rows.writeInt(properties.size());
+        for (Map.Entry<String, Object> entry : properties.entrySet()) {
+            // Empty values are considered missing
+            String value = (entry.getValue() != null && !entry.getValue().toString().trim().isEmpty()) ? entry.getValue().toString() : null;
+            int property = propertyIndexes.computeIfAbsent(entry.getKey(), name -> {
+                this.properties.add(name);
+                return this.properties.size() - 1;
+            });
+            if (!isNumber(value)) {
+                stringProperties.set(property);
+            }
+            rows.writeInt(property);
+            writeString(rows, value);
+        }
+
+        int size = 0;
+        for (int i = 0; i < features.getSize(); i++) {
+            if (features.getValueAt(i) != 0) {
+                size++;
+            }
+        }
+        rows.writeInt(size);
+        for (int i = 0; i < features.getSize(); i++) {
+            if (features.getValueAt(i) != 0) {
+                rows.writeInt(features.getIndexAt(i));
+                rows.writeDouble(features.getValueAt(i));
+            }
+        }
+
+        String targetValue = (target != null) ? target.toString() : null;
+        if (targetValue != null) {
+            targetValues.add(targetValue);
+        }
+        writeString(rows, targetValue);
+
+        rowCount++;
+    }
+
+    /**
+     * Create the output file including the header and all the rows added.
+     * The temporary file is deleted
+     *
+     * @throws IOException If the output file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (rows != null) {
+            rows.close();
+            rows = null;
+        }
+
+        // Columns: id, properties, dictionary entries and target
+        Dictionary dictionary = Dictionary.getDictionary();
+        int[] dictionaryColumns = new int[dictionary.getIdBound()];
+        Arrays.fill(dictionaryColumns, -1);
+        List<String> columnNames = new ArrayList<>();
+        columnNames.add("id");
+        columnNames.addAll(properties);
+        for (int id = 0; id < dictionaryColumns.length; id++) {
+            if (dictionary.isIncluded(id)) {
+                dictionaryColumns[id] = columnNames.size();
+                columnNames.add(TokenSequence.toAttributeName(dictionary.getText(id)));
+            }
+        }
+        int targetColumn = columnNames.size();
+        columnNames.add("target");
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8))) {
+            if (format == Format.ARFF) {
+                writeArffHeader(writer, columnNames, targetColumn);
+            } else {
+                writeColumnsFile(columnNames, targetColumn);
+            }
+
+            if (rowsFile.exists()) {
+                try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(rowsFile)))) {
+                    for (int row = 0; row < rowCount; row++) {
+                        writeRow(input, writer, row, dictionaryColumns, targetColumn);
+                    }
+                }
+            }
+        }
+
+        if (rowsFile.exists() && !rowsFile.delete()) {
+            logger.warn("Unable to delete the temporary file " + rowsFile);
+        }
+        logger.info("Sparse dataset " + output + " created with " + rowCount + " rows and " + columnNames.size() + " columns");
+    }
+
+    /**
+     * Write the header of the ARFF file
+     *
+     * @param writer The writer
+     * @param columnNames The names of the columns
+     * @param targetColumn The index of the target column
+     * @throws IOException If the header cannot be written
+     */
+    private void writeArffHeader(Writer writer, List<String> columnNames, int targetColumn) throws IOException {
+        String relation = output.getName().replaceFirst("\\.[^.]*$", "");
+        writer.write("@relation " + quote(relation) + "\n\n");
+        for (int column = 0; column < columnNames.size(); column++) {
+            writer.write("@attribute " + quote(columnNames.get(column)) + " " + getArffType(column, targetColumn) + "\n");
+        }
+        writer.write("\n@data\n");
+    }
+
+    /**
+     * Returns the ARFF type of a column
+     *
+     * @param column The column
+     * @param targetColumn The index of the target column
+     * @return the ARFF type of the column
+     */
+    private String getArffType(int column, int targetColumn) {
+        if (column == 0) {
+            return "string";
+        } else if (column == targetColumn) {
+            if (targetValues.isEmpty()) {
+                return "string";
+            }
+            StringBuilder type = new StringBuilder("{");
+            for (String value : targetValues) {
+                type.append((type.length() > 1) ? "," : "").append(quote(value));
+            }
+            return type.append("}").toString();
+        } else if (column <= properties.size() && stringProperties.get(column - 1)) {
+            return "string";
+        } else {
+            return "numeric";
+        }
+    }
+
+    /**
+     * Write the side file containing the names and types of the columns
+     * (TRIPLETS format)
+     *
+     * @param columnNames The names of the columns
+     * @param targetColumn The index of the target column
+     * @throws IOException If the file cannot be written
+     */
+    private void writeColumnsFile(List<String> columnNames, int targetColumn) throws IOException {
+        File columnsFile = new File(output.getPath() + COLUMNS_FILE_EXTENSION);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(columnsFile), StandardCharsets.UTF_8))) {
+            for (int column = 0; column < columnNames.size(); column++) {
+                String type = getArffType(column, targetColumn);
+                if (type.startsWith("{")) {
+                    type = "nominal";
+                }
+                writer.write(column + "," + csvQuote(columnNames.get(column)) + "," + type + "\n");
+            }
+        }
+    }
+
+    /**
+     * Read a row from the temporary file and write it to the output file
+     *
+     * @param input The temporary file
+     * @param writer The output file
+     * @param row The index of the row
+     * @param dictionaryColumns The column of each dictionary entry
+     * @param targetColumn The index of the target column
+     * @throws IOException If the row cannot be read or written
+     */
+    private void writeRow(DataInputStream input, Writer writer, int row, int[] dictionaryColumns, int targetColumn) throws IOException {
+        StringBuilder line = new StringBuilder();
+        if (format == Format.ARFF) {
+            line.append('{');
+        }
+
+        appendValue(line, row, 0, readString(input), true);
+
+        // Properties are sorted by column
+        int propertyCount = input.readInt();
+        int[] propertyColumns = new int[propertyCount];
+        String[] propertyValues = new String[properties.size()];
+        for (int i = 0; i < propertyCount; i++) {
+            int property = input.readInt();
+            propertyColumns[i] = property;
+            propertyValues[property] = readString(input);
+        }
+        Arrays.sort(propertyColumns);
+        for (int property : propertyColumns) {
+            String value = propertyValues[property];
+            if (stringProperties.get(property)) {
+                appendValue(line, row, property + 1, value, true);
+            } else if (value == null || Double.parseDouble(value) != 0) {
+                appendValue(line, row, property + 1, value, false);
+            }
+        }
+
+        // Features are sorted by identifier (and so by column)
+        int featureCount = input.readInt();
+        for (int i = 0; i < featureCount; i++) {
+            int id = input.readInt();
+            double value = input.readDouble();
+            if (id < dictionaryColumns.length && dictionaryColumns[id] >= 0) {
+                appendValue(line, row, dictionaryColumns[id], formatNumber(value), false);
+            }
+        }
+
+        appendValue(line, row, targetColumn, readString(input), true);
+
+        if (format == Format.ARFF) {
+            line.append("}\n");
+        }
+        writer.write(line.toString());
+    }
+
+    /**
+     * Append a value of a row to a line
+     *
+     * @param line The line
+     * @param row The index of the row
+     * @param column The column
+     * @param value The value (null for missing values)
+     * @param isString Indicates whether the value is a string (and should be
+     * quoted)
+     */
+    private void appendValue(StringBuilder line, int row, int column, String value, boolean isString) {
+        if (format == Format.ARFF) {
+            if (line.length() > 1) {
+                line.append(',');
+            }
+            line.append(column).append(' ').append((value == null) ? "?" : (isString ? quote(value) : value));
+        } else {
+            line.append(row).append(',').append(column).append(',')
+                    .append((value == null) ? "" : (isString ? csvQuote(value) : value)).append('\n');
+        }
+    }
+
+    /**
+     * Determines whether a value is a number (null values are considered
+     * missing numbers)
+     *
+     * @param value The value
+     * @return true if the value is null or a number
+     */
+    private static boolean isNumber(String value) {
+        if (value == null) {
+            return true;
+        }
+        try {
+            Double.parseDouble(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Format a number omitting the decimal part of integers
+     *
+     * @param value The number
+     * @return the number formatted
+     */
+    private static String formatNumber(double value) {
+        return (value == Math.rint(value) && !Double.isInfinite(value)) ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    /**
+     * Quote a string to be included in an ARFF file
+     *
+     * @param value The string
+     * @return the quoted string
+     */
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('\'');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\'':
+                case '\\':
+                    quoted.append('\\').append(c);
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    quoted.append(c);
+            }
+        }
+        return quoted.append('\'').toString();
+    }
+
+    /**
+     * Quote a string to be included in a CSV file
+     *
+     * @param value The string
+     * @return the quoted string
+     */
+    private static String csvQuote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Write a string (which may be null) to the temporary file
+     *
+     * @param out The stream
+     * @param value The string
+     * @throws IOException If the string cannot be written
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Read a string (which may be null) from the temporary file
+     *
+     * @param in The stream
+     * @return the string
+     * @throws IOException If the string cannot be read
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,223 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * A compact, immutable and sorted table of strings. All the characters are
+ * stored in a single buffer and strings are located through a buffer of
+ * offsets, so the table avoids the overhead of one String (and one hash
+ * entry) per element. Strings are identified by their position in the table,
+ * which can be used to index parallel arrays of values.
+ *
+ * Tables can be written to a binary stream and read back from a ByteBuffer
+ * without copying their contents, so a table can be directly backed by a
+ * memory-mapped file (see CompiledLexicon).
+ *
+ * @author José Ramón Méndez
+ */
+public class StringTable {
+
+    /**
+     * The characters of all the strings (in order)
+     */
+    private final CharBuffer chars;
+
+    /**
+     * The offset of each string in chars (the last element is the total
+     * length)
+     */
+    private final IntBuffer offsets;
+
+    /**
+     * Build a StringTable containing a collection of strings. Duplicates are
+     * removed and strings are sorted using their natural order
+     *
+     * @param strings The strings to include
+     */
+    public StringTable(Collection<String> strings) {
+        TreeSet<String> sorted = new TreeSet<>(strings);
+        int length = 0;
+        for (String s : sorted) {
+            length += s.length();
+        }
+
+        char[] chars = new char[length];
+        int[] offsets = new int[sorted.size() + 1];
+        int i = 0;
+        int pos = 0;
+        for (String s : sorted) {
+            offsets[i++] = pos;
+            s.getChars(0, s.length(), chars, pos);
+            pos += s.length();
+        }
+        offsets[i] = pos;
+
+        this.chars = CharBuffer.wrap(chars);
+        this.offsets = IntBuffer.wrap(offsets);
+    }
+
+    /**
+     * Build a StringTable from its contents
+     *
+     * @param chars The characters of all the strings
+     * @param offsets The offset of each string in chars
+     */
+    private StringTable(CharBuffer chars, IntBuffer offsets) {
+        this.chars = chars;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Read a StringTable previously stored using the write method. The
+     * contents of the table are not copied, so the table is backed by the
+     * buffer. The position of the buffer is moved after the table
+     *
+     * @param buffer The buffer containing the table
+     * @return the table
+     */
+    public static StringTable read(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        IntBuffer offsets = slice(buffer, (size + 1) * Integer.BYTES).asIntBuffer();
+        CharBuffer chars = slice(buffer, offsets.get(size) * Character.BYTES).asCharBuffer();
+        return new StringTable(chars, offsets);
+    }
+
+    /**
+     * Take a number of bytes from the current position of a buffer and move
+     * the position after them
+     *
+     * @param buffer The buffer
+     * @param length The number of bytes
+     * @return a buffer sharing the bytes taken
+     */
+    static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer slice = buffer.slice();
+        ((Buffer) slice).limit(length);
+        ((Buffer) buffer).position(buffer.position() + length);
+        return slice;
+    }
+
+    /**
+     * Write the table to a stream. It can be read back with the read method
+     *
+     * @param out The stream
+     * @throws IOException If an I/O error occurs
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(size());
+        for (int i = 0; i <= size(); i++) {
+            out.writeInt(offsets.get(i));
+        }
+        for (int i = 0; i < offsets.get(size()); i++) {
+            out.writeChar(chars.get(i));
+        }
+    }
+
+    /**
+     * Returns the number of strings included in the table
+     *
+     * @return the number of strings included in the table
+     */
+    public int size() {
+        return offsets.limit() - 1;
+    }
+
+    /**
+     * Returns the string stored at a position
+     *
+     * @param index The position of the string
+     * @return the string stored at the position
+     */
+    public String get(int index) {
+        int start = offsets.get(index);
+        char[] value = new char[offsets.get(index + 1) - start];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = chars.get(start + i);
+        }
+        return new String(value);
+    }
+
+    /**
+     * Find the position of a string in the table
+     *
+     * @param s The string to find
+     * @return the position of the string or -1 if it is not included
+     */
+    public int indexOf(CharSequence s) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, s);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the table includes a string
+     *
+     * @param s The string to find
+     * @return true if the string is included in the table
+     */
+    public boolean contains(CharSequence s) {
+        return indexOf(s) >= 0;
+    }
+
+    /**
+     * Compare the string stored at a position with other one (using the
+     * ordering of String.compareTo)
+     *
+     * @param index The position of the stored string
+     * @param s The other string
+     * @return a negative number, zero or a positive number if the stored
+     * string is less than, equal to or greater than s
+     */
+    private int compare(int index, CharSequence s) {
+        int start = offsets.get(index);
+        int length = offsets.get(index + 1) - start;
+        int limit = Math.min(length, s.length());
+        for (int i = 0; i < limit; i++) {
+            char c1 = chars.get(start + i);
+            char c2 = s.charAt(i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return length - s.length();
+    }
+}
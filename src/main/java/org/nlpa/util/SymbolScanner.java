@@ -0,0 +1,256 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+/**
+ * A codepoint trie that finds symbols (emojis, emoticons...) in a text in a
+ * single left-to-right pass. During the same pass, symbols can be replaced by
+ * their meaning (i.e. a synset ID) or removed, and their polarity is
+ * accumulated. Symbols are not required to be surrounded by word boundaries.
+ * When several symbols start at the same position (i.e. an emoji sequence and
+ * its first emoji), the longest one is selected.
+ *
+ * Once all symbols have been added, the scanner is not modified and can be
+ * safely shared between threads.
+ *
+ * @author José Ramón Méndez
+ */
+public class SymbolScanner {
+
+    /**
+     * The action performed over the symbols found in the text
+     */
+    public enum Action {
+        /**
+         * Symbols are kept in the text
+         */
+        KEEP,
+        /**
+         * Symbols are replaced by their meaning
+         */
+        REPLACE,
+        /**
+         * Symbols are removed from the text
+         */
+        REMOVE
+    }
+
+    /**
+     * The root of the trie
+     */
+    private final Node root = new Node();
+
+    /**
+     * The number of symbols included in the scanner
+     */
+    private int size = 0;
+
+    /**
+     * Add a symbol to the scanner. If the symbol was already included, its
+     * meaning and polarity are updated
+     *
+     * @param symbol The symbol
+     * @param meaning The text that replaces the symbol
+     * @param polarity The polarity of the symbol
+     */
+    public void add(String symbol, String meaning, double polarity) {
+        if (symbol == null || symbol.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        for (int i = 0; i < symbol.length(); i += Character.charCount(symbol.codePointAt(i))) {
+            node = node.getOrAddChild(symbol.codePointAt(i));
+        }
+        if (node.symbol == null) {
+            size++;
+        }
+        node.symbol = symbol;
+        node.meaning = meaning;
+        node.polarity = polarity;
+    }
+
+    /**
+     * Returns the number of symbols included in the scanner
+     *
+     * @return the number of symbols included in the scanner
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find all symbols included in a text
+     *
+     * @param text The text to scan
+     * @param action The action performed over the symbols found
+     * @return the result of the scan
+     */
+    public Result scan(CharSequence text, Action action) {
+        int length = text.length();
+        StringBuffer out = (action == Action.KEEP) ? null : new StringBuffer(length);
+        StringBuilder symbols = new StringBuilder();
+        double score = 0;
+        int count = 0;
+
+        int i = 0;
+        while (i < length) {
+            Node match = null;
+            int end = i;
+            Node node = root;
+            int j = i;
+            while (j < length) {
+                int cp = Character.codePointAt(text, j);
+                node = node.getChild(cp);
+                if (node == null) {
+                    break;
+                }
+                j += Character.charCount(cp);
+                if (node.symbol != null) {
+                    match = node;
+                    end = j;
+                }
+            }
+
+            if (match != null) {
+                symbols.append(match.symbol);
+                score += match.polarity;
+                count++;
+                if (action == Action.REPLACE) {
+                    out.append(match.meaning);
+                }
+                i = end;
+            } else {
+                int next = i + Character.charCount(Character.codePointAt(text, i));
+                if (out != null) {
+                    out.append(text, i, next);
+                }
+                i = next;
+            }
+        }
+
+        return new Result(out, symbols.toString(), score, count);
+    }
+
+    /**
+     * The result of scanning a text
+     */
+    public static final class Result {
+
+        /**
+         * The text after replacing or removing symbols (null if symbols were
+         * kept)
+         */
+        private final StringBuffer text;
+
+        /**
+         * The concatenation of the symbols found
+         */
+        private final String symbols;
+
+        /**
+         * The sum of the polarities of the symbols found
+         */
+        private final double score;
+
+        /**
+         * The number of symbols found
+         */
+        private final int count;
+
+        /**
+         * Build a Result
+         *
+         * @param text The text after replacing or removing symbols
+         * @param symbols The concatenation of the symbols found
+         * @param score The sum of the polarities of the symbols found
+         * @param count The number of symbols found
+         */
+        private Result(StringBuffer text, String symbols, double score, int count) {
+            this.text = text;
+            this.symbols = symbols;
+            this.score = score;
+            this.count = count;
+        }
+
+        /**
+         * Returns the text after replacing or removing symbols
+         *
+         * @return the new text or null if symbols were kept
+         */
+        public StringBuffer getText() {
+            return text;
+        }
+
+        /**
+         * Returns the symbols found (concatenated in order of appearance)
+         *
+         * @return the symbols found
+         */
+        public String getSymbols() {
+            return symbols;
+        }
+
+        /**
+         * Returns the number of symbols found
+         *
+         * @return the number of symbols found
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the arithmetic mean of the polarities of the symbols found
+         *
+         * @return the mean polarity or 0 if no symbols were found
+         */
+        public double getPolarity() {
+            return (count == 0) ? 0.0 : score / count;
+        }
+    }
+
+    /**
+     * A node of the trie
+     */
+    private static final class Node extends CodepointTrieNode<Node> {
+
+        /**
+         * The symbol ending at this node (null if no symbol ends here)
+         */
+        private String symbol = null;
+
+        /**
+         * The meaning of the symbol
+         */
+        private String meaning = null;
+
+        /**
+         * The polarity of the symbol
+         */
+        private double polarity = 0;
+
+        @Override
+        protected Node newNode() {
+            return new Node();
+        }
+    }
+}
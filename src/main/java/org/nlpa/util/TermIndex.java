@@ -0,0 +1,426 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * A persistent index to check whether terms exist in an ontological
+ * dictionary (i.e. BabelNet) without querying it. The index is kept in a
+ * folder containing the following files for each language:
+ * <ul>
+ * <li>&lt;lang&gt;.lex: A snapshot with the terms included in the dictionary
+ * (a CompiledLexicon built from a dump using the main method). It is
+ * memory-mapped</li>
+ * <li>&lt;lang&gt;.bloom: A Bloom filter built from the snapshot so that most
+ * of the terms not included in it are discarded without accessing the
+ * snapshot</li>
+ * <li>&lt;lang&gt;.log: An append-only journal with the terms that have been
+ * resolved by querying the dictionary (both existing and missing terms)</li>
+ * </ul>
+ *
+ * Terms found neither in the journal nor in the snapshot are resolved using
+ * a function (that queries the dictionary) and stored in the journal, so the
+ * index is lazily refreshed. When the function is not available (offline
+ * operation) only the local files are used.
+ *
+ * @author José Ramón Méndez
+ */
+public class TermIndex implements AutoCloseable {
+
+    /**
+     * For logging purposes
+     */
+    private static final Logger logger = LogManager.getLogger(TermIndex.class);
+
+    /**
+     * The extension of the snapshots
+     */
+    public static final String SNAPSHOT_EXTENSION = ".lex";
+
+    /**
+     * The extension of the Bloom filters
+     */
+    public static final String BLOOM_EXTENSION = ".bloom";
+
+    /**
+     * The extension of the journals
+     */
+    public static final String JOURNAL_EXTENSION = ".log";
+
+    /**
+     * The probability of false positives of the Bloom filters
+     */
+    private static final double BLOOM_FPP = 0.01;
+
+    /**
+     * The folder containing the index
+     */
+    private final Path folder;
+
+    /**
+     * The function used to check whether a term (first argument) written in a
+     * language (second argument) exists. It returns null if the term cannot
+     * be checked
+     */
+    private final BiFunction<String, String, Boolean> resolver;
+
+    /**
+     * The indexes for each language
+     */
+    private final ConcurrentHashMap<String, LanguageIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Build a TermIndex
+     *
+     * @param folder The folder containing the index
+     * @param resolver The function used to check whether a term (first
+     * argument) written in a language (second argument) exists. It should
+     * return null if the term cannot be checked. If resolver is null, only the
+     * local files are used
+     */
+    public TermIndex(String folder, BiFunction<String, String, Boolean> resolver) {
+        this.folder = Paths.get(folder);
+        this.resolver = resolver;
+    }
+
+    /**
+     * Determines whether a term exists. Terms are compared ignoring case, so
+     * the resolver receives the term in lower case
+     *
+     * @param term The term to check
+     * @param lang The language in which the term is written
+     * @return true if the term exists
+     */
+    public boolean contains(String term, String lang) {
+        LanguageIndex index = indexes.computeIfAbsent(lang.toLowerCase(Locale.ROOT), LanguageIndex::new);
+        String key = term.toLowerCase(Locale.ROOT);
+
+        Boolean known = index.journal.get(key);
+        if (known != null) {
+            return known;
+        }
+        if (index.snapshot != null && index.bloom.mightContain(key) && index.snapshot.indexOf(key) >= 0) {
+            return true;
+        }
+
+        Boolean resolved = (resolver != null) ? resolver.apply(key, lang) : null;
+        if (resolved == null) {
+            return false;
+        }
+        index.append(key, resolved);
+        return resolved;
+    }
+
+    /**
+     * Close the journals. Terms resolved after closing the index reopen the
+     * journal of their language
+     */
+    @Override
+    public void close() {
+        for (LanguageIndex index : indexes.values()) {
+            index.close();
+        }
+    }
+
+    /**
+     * Returns the number of bytes used to store a string using modified UTF-8
+     * (see DataOutput.writeUTF), excluding its length
+     *
+     * @param s The string
+     * @return the number of bytes
+     */
+    private static int utfLength(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                length++;
+            } else if (c <= 0x07FF) {
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Build the snapshot for a language from a dump and store it (together
+     * with its Bloom filter) in a folder
+     *
+     * @param folder The folder containing the index
+     * @param lang The language of the terms
+     * @param terms The terms included in the dictionary
+     * @throws IOException If an I/O error occurs
+     */
+    public static void buildSnapshot(String folder, String lang, List<String> terms) throws IOException {
+        List<String> keys = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            keys.add(term.toLowerCase(Locale.ROOT));
+        }
+        CompiledLexicon snapshot = CompiledLexicon.build(keys, Collections.emptyMap());
+
+        Path base = Paths.get(folder).resolve(lang.toLowerCase(Locale.ROOT));
+        Files.createDirectories(base.getParent());
+        try (OutputStream os = Files.newOutputStream(Paths.get(base + SNAPSHOT_EXTENSION))) {
+            snapshot.write(os);
+        }
+        writeBloom(Paths.get(base + BLOOM_EXTENSION), buildBloom(snapshot));
+    }
+
+    /**
+     * Build a Bloom filter containing the terms of a snapshot
+     *
+     * @param snapshot The snapshot
+     * @return the Bloom filter
+     */
+    private static BloomFilter<CharSequence> buildBloom(CompiledLexicon snapshot) {
+        BloomFilter<CharSequence> bloom = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), Math.max(snapshot.size(), 1), BLOOM_FPP);
+        for (int i = 0; i < snapshot.size(); i++) {
+            bloom.put(snapshot.getKey(i));
+        }
+        return bloom;
+    }
+
+    /**
+     * Save a Bloom filter to a file
+     *
+     * @param file The file
+     * @param bloom The Bloom filter
+     * @throws IOException If an I/O error occurs
+     */
+    private static void writeBloom(Path file, BloomFilter<CharSequence> bloom) throws IOException {
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(file))) {
+            bloom.writeTo(os);
+        }
+    }
+
+    /**
+     * Build the snapshot of a language from a dump (a UTF-8 text file
+     * containing a term per line)
+     *
+     * @param args The folder containing the index, the language and the dump
+     * @throws IOException If an I/O error occurs
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: TermIndex <index folder> <lang> <dump file>");
+            System.exit(-1);
+        }
+
+        List<String> terms = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[2]), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    terms.add(line.trim());
+                }
+            }
+        }
+        buildSnapshot(args[0], args[1], terms);
+        logger.info("Indexed " + terms.size() + " terms for language " + args[1]);
+    }
+
+    /**
+     * The index of a language
+     */
+    private final class LanguageIndex {
+
+        /**
+         * The terms included in the snapshot (null if there is no snapshot)
+         */
+        private final CompiledLexicon snapshot;
+
+        /**
+         * A Bloom filter containing the terms of the snapshot
+         */
+        private final BloomFilter<CharSequence> bloom;
+
+        /**
+         * The terms resolved by querying the dictionary
+         */
+        private final ConcurrentHashMap<String, Boolean> journal = new ConcurrentHashMap<>();
+
+        /**
+         * The file containing the journal
+         */
+        private final Path journalFile;
+
+        /**
+         * The stream used to append terms to the journal (null until the
+         * first term is appended)
+         */
+        private DataOutputStream journalOutput = null;
+
+        /**
+         * Load the index of a language
+         *
+         * @param lang The language
+         */
+        private LanguageIndex(String lang) {
+            Path snapshotFile = folder.resolve(lang + SNAPSHOT_EXTENSION);
+            Path bloomFile = folder.resolve(lang + BLOOM_EXTENSION);
+            journalFile = folder.resolve(lang + JOURNAL_EXTENSION);
+
+            CompiledLexicon lexicon = null;
+            BloomFilter<CharSequence> filter = null;
+            if (Files.exists(snapshotFile)) {
+                try {
+                    lexicon = CompiledLexicon.read(snapshotFile);
+                    filter = readBloom(snapshotFile, bloomFile, lexicon);
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Unable to read the term snapshot " + snapshotFile + ": " + e.getMessage());
+                    lexicon = null;
+                }
+            }
+            snapshot = lexicon;
+            bloom = filter;
+
+            if (Files.exists(journalFile)) {
+                readJournal();
+            }
+        }
+
+        /**
+         * Read the Bloom filter of the snapshot. If the filter does not exist
+         * or it is older than the snapshot, it is built again
+         *
+         * @param snapshotFile The file containing the snapshot
+         * @param bloomFile The file containing the Bloom filter
+         * @param lexicon The snapshot
+         * @return the Bloom filter
+         * @throws IOException If an I/O error occurs
+         */
+        private BloomFilter<CharSequence> readBloom(Path snapshotFile, Path bloomFile, CompiledLexicon lexicon) throws IOException {
+            if (Files.exists(bloomFile)
+                    && Files.getLastModifiedTime(bloomFile).compareTo(Files.getLastModifiedTime(snapshotFile)) >= 0) {
+                try (InputStream is = new BufferedInputStream(Files.newInputStream(bloomFile))) {
+                    return BloomFilter.readFrom(is, Funnels.stringFunnel(StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    logger.warn("Unable to read the Bloom filter " + bloomFile + " (" + e.getMessage() + "). Building it again");
+                }
+            }
+
+            BloomFilter<CharSequence> filter = buildBloom(lexicon);
+            try {
+                writeBloom(bloomFile, filter);
+            } catch (IOException e) {
+                logger.warn("Unable to save the Bloom filter " + bloomFile + ": " + e.getMessage());
+            }
+            return filter;
+        }
+
+        /**
+         * Load the terms stored in the journal. A truncated last entry (i.e.
+         * the application was killed while writing it) is discarded, so new
+         * entries are appended after the last complete one
+         */
+        private void readJournal() {
+            try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+                long size = channel.size();
+                long valid = 0;
+                try {
+                    while (valid < size) {
+                        String term = input.readUTF();
+                        boolean exists = input.readBoolean();
+                        journal.put(term, exists);
+                        valid += 2 + utfLength(term) + 1;
+                    }
+                } catch (EOFException e) {
+                    // Truncated entry
+                }
+                if (valid < size) {
+                    logger.warn("Discarding " + (size - valid) + " bytes at the end of the term journal " + journalFile);
+                    channel.truncate(valid);
+                }
+            } catch (IOException e) {
+                logger.error("Unable to read the term journal " + journalFile + ": " + e.getMessage());
+            }
+        }
+
+        /**
+         * Append a resolved term to the journal
+         *
+         * @param term The term
+         * @param exists Whether the term exists
+         */
+        private synchronized void append(String term, boolean exists) {
+            if (journal.putIfAbsent(term, exists) != null) {
+                return;
+            }
+            try {
+                if (journalOutput == null) {
+                    Files.createDirectories(folder);
+                    journalOutput = new DataOutputStream(new BufferedOutputStream(
+                            Files.newOutputStream(journalFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+                }
+                journalOutput.writeUTF(term);
+                journalOutput.writeBoolean(exists);
+                journalOutput.flush();
+            } catch (IOException e) {
+                logger.error("Unable to write the term journal " + journalFile + ": " + e.getMessage());
+            }
+        }
+
+        /**
+         * Close the stream used to append terms to the journal
+         */
+        private synchronized void close() {
+            if (journalOutput != null) {
+                try {
+                    journalOutput.close();
+                } catch (IOException e) {
+                    logger.error("Unable to close the term journal " + journalFile + ": " + e.getMessage());
+                }
+                journalOutput = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*-
+ * #%L
+ * NLPA
+ * %%
+ * Copyright (C) 2018 - 2019 SING Group (University of Vigo)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package org.nlpa.util.unmatchedtexthandler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bdp4j.util.Pair;
+
+/**
+ * An UnmatchedTextHandler that memoizes the results of a chain of handlers.
+ * The corrections are indexed by language and text fragment, so the chain is
+ * executed only once for each misspelled (or obfuscated) fragment. Only the
+ * fragments that have been fixed are remembered: handlers report failures
+ * (i.e. a dictionary that cannot be loaded or a remote service that is not
+ * available) in the same way as fragments that cannot be fixed, so the chain
+ * is executed again for them.
+ *
+ * The cache keeps the most recently used corrections (up to a maximum size)
+ * and can be saved to a file and loaded back in later executions.
+ *
+ * @author José Ramón Méndez
+ */
+public class CachingUnmatchedTextHandler extends UnmatchedTextHandler {
+
+    /**
+     * For logging purposes
+     */
+    private static final Logger logger = LogManager.getLogger(CachingUnmatchedTextHandler.class);
+
+    /**
+     * The default maximum number of corrections stored in the cache
+     */
+    public static final int DEFAULT_MAX_SIZE = 100000;
+
+    /**
+     * The handlers used to compute corrections (in order)
+     */
+    private final UnmatchedTextHandler[] handlers;
+
+    /**
+     * The corrections indexed by language and fragment
+     */
+    private final LinkedHashMap<String, String> corrections;
+
+    /**
+     * The number of fragments found in the cache
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * The number of fragments not found in the cache
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The file where the cache is persisted (null if it is not persisted)
+     */
+    private String cacheFile = null;
+
+    /**
+     * Build a CachingUnmatchedTextHandler with the default maximum size
+     *
+     * @param handlers The handlers used to compute corrections (in order)
+     */
+    public CachingUnmatchedTextHandler(UnmatchedTextHandler... handlers) {
+        this(DEFAULT_MAX_SIZE, handlers);
+    }
+
+    /**
+     * Build a CachingUnmatchedTextHandler
+     *
+     * @param maxSize The maximum number of corrections stored in the cache
+     * @param handlers The handlers used to compute corrections (in order)
+     */
+    public CachingUnmatchedTextHandler(int maxSize, UnmatchedTextHandler... handlers) {
+        this.handlers = handlers;
+        this.corrections = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Fix a text fragment using the cache or, if it is not included, the
+     * chain of handlers
+     *
+     * @param text Is a pair with the original text and the word that matches
+     * with the text. If the second one doesn't exists, the value is null
+     * @param lang The language of the original string
+     */
+    @Override
+    public void handle(Pair<String, String> text, String lang) {
+        if (text.getObj2() != null) {
+            return;
+        }
+
+        String key = lang + '\u0000' + text.getObj1();
+        synchronized (corrections) {
+            String correction = corrections.get(key);
+            if (correction != null) {
+                hits.incrementAndGet();
+                text.setObj2(correction);
+                return;
+            }
+        }
+
+        misses.incrementAndGet();
+        for (int i = 0; text.getObj2() == null && i < handlers.length; i++) {
+            handlers[i].handle(text, lang);
+        }
+        if (text.getObj2() != null) {
+            synchronized (corrections) {
+                corrections.put(key, text.getObj2());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of fragments found in the cache
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of fragments not found in the cache (computed by
+     * the chain of handlers)
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of corrections stored in the cache
+     *
+     * @return the number of corrections stored in the cache
+     */
+    public int size() {
+        synchronized (corrections) {
+            return corrections.size();
+        }
+    }
+
+    /**
+     * Returns the file where the cache is persisted
+     *
+     * @return the file or null if the cache is not persisted
+     */
+    public String getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * Establish the file where the cache is persisted. If the file exists,
+     * the corrections stored in it are loaded
+     *
+     * @param cacheFile The file or null to keep the cache only in memory
+     */
+    public void setCacheFile(String cacheFile) {
+        this.cacheFile = cacheFile;
+        if (cacheFile != null && new File(cacheFile).exists()) {
+            readFromDisk(cacheFile);
+        }
+    }
+
+    /**
+     * Save the cache to the file established by setCacheFile (if any)
+     */
+    public void writeToDisk() {
+        if (cacheFile != null) {
+            writeToDisk(cacheFile);
+        }
+    }
+
+    /**
+     * Save the cache to a file. Each text is stored as its length followed by
+     * its UTF-8 bytes (writeUTF is limited to 64KB)
+     *
+     * @param filename File name where the cache is saved
+     */
+    public void writeToDisk(String filename) {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+            synchronized (corrections) {
+                output.writeInt(corrections.size());
+                for (Map.Entry<String, String> entry : corrections.entrySet()) {
+                    writeString(output, entry.getKey());
+                    writeString(output, entry.getValue());
+                }
+            }
+        } catch (Exception ex) {
+            logger.error("[WRITE TO DISK] " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Load the corrections stored in a file
+     *
+     * @param filename File name to retrieve the cache
+     */
+    public void readFromDisk(String filename) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+            long fileLength = new File(filename).length();
+            int size = input.readInt();
+            synchronized (corrections) {
+                for (int i = 0; i < size; i++) {
+                    String key = readString(input, fileLength);
+                    corrections.put(key, readString(input, fileLength));
+                }
+            }
+        } catch (Exception ex) {
+            logger.error("[READ FROM DISK] " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Write a text as its length followed by its UTF-8 bytes
+     *
+     * @param output The stream to write
+     * @param text The text to write
+     * @throws IOException If an I/O error occurs
+     */
+    private static void writeString(DataOutputStream output, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Read a text written by writeString
+     *
+     * @param input The stream to read
+     * @param fileLength The length of the file read (to detect files that
+     * are not valid before allocating the text)
+     * @return the text read
+     * @throws IOException If an I/O error occurs or the length is not valid
+     */
+    private static String readString(DataInputStream input, long fileLength) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > fileLength) {
+            throw new IOException("Invalid text length " + length + " (the file is not a valid cache)");
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
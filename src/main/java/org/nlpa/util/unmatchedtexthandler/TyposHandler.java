@@ -22,11 +22,15 @@
 package org.nlpa.util.unmatchedtexthandler;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.languagetool.JLanguageTool;
@@ -35,6 +39,7 @@ import org.languagetool.Language;
 import org.languagetool.language.*;
 import org.languagetool.rules.RuleMatch;
 import org.nlpa.Main;
+import org.nlpa.util.ResourcePool;
 import org.bdp4j.util.Pair;
 import pt.tumba.spell.SpellChecker;
 
@@ -44,6 +49,8 @@ import pt.tumba.spell.SpellChecker;
  * <li>JLanguageTool: A tool that offers spell and grammar checking.</li>
  * <li>JaSpell: This tool is a Java spelling checking package.</li>
  * </ul>
+ * Both tools are expensive to initialize and are not thread-safe, so warmed
+ * instances are kept in per-language pools and reused between calls.
  *
  * @author María Novo
  */
@@ -87,6 +94,32 @@ public class TyposHandler extends UnmatchedTextHandler {
         LANGUAGE_CLASSES.put("ca", ValencianCatalan.class);
     }
 
+    /**
+     * The pools of JLanguageTool instances for each language
+     */
+    private static final Map<String, ResourcePool<JLanguageTool>> LANGUAGE_TOOL_POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * The pools of JaSpell SpellChecker instances for each language
+     */
+    private static final Map<String, ResourcePool<SpellChecker>> SPELL_CHECKER_POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * The languages without a JaSpell dictionary
+     */
+    private static final Set<String> MISSING_DICTIONARIES = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The time (in milliseconds) between two checks of the idle instances of
+     * all the pools (1 minute)
+     */
+    private static final long EVICTION_INTERVAL = 60 * 1000L;
+
+    /**
+     * The last time the idle instances of all the pools were checked
+     */
+    private static final AtomicLong lastEviction = new AtomicLong(System.currentTimeMillis());
+
     /**
      * This method get instance of the language class corresponding with the
      * lang parameter.
@@ -105,6 +138,57 @@ public class TyposHandler extends UnmatchedTextHandler {
         }
     }
 
+    /**
+     * Create a JLanguageTool instance for a language
+     *
+     * @param lang The language
+     * @return the JLanguageTool instance or null if the language cannot be
+     * instantiated
+     */
+    private static JLanguageTool createLanguageTool(String lang) {
+        Language language = getLanguage(lang);
+        return (language == null) ? null : new JLanguageTool(language);
+    }
+
+    /**
+     * Create a JaSpell SpellChecker for a language loading its dictionary
+     *
+     * @param lang The language
+     * @return the SpellChecker or null if the dictionary cannot be loaded
+     */
+    private static SpellChecker createSpellChecker(String lang) {
+        InputStream is = Main.class.getResourceAsStream("/dict/" + lang + ".txt");
+        if (is == null) {
+            logger.info("ERROR getJaSpellMatch - The lang " + lang.toUpperCase() + " doesn't exist.");
+            MISSING_DICTIONARIES.add(lang);
+            return null;
+        }
+        try (Reader dictionaryReader = new InputStreamReader(is)) {
+            SpellChecker spellCheck = new SpellChecker();
+            spellCheck.initialize(dictionaryReader);
+            return spellCheck;
+        } catch (Exception ex) {
+            logger.error("ERROR " + Main.class.getName() + ". getJaSpellMatch: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Discard the pooled instances that have not been used recently for all
+     * languages. Each pool already discards its own idle instances when it is
+     * used, so the pools of the languages that are no longer used are only
+     * checked once every EVICTION_INTERVAL milliseconds
+     */
+    private static void evictIdle() {
+        long now = System.currentTimeMillis();
+        long last = lastEviction.get();
+        if (now - last < EVICTION_INTERVAL || !lastEviction.compareAndSet(last, now)) {
+            return;
+        }
+        LANGUAGE_TOOL_POOLS.values().forEach(ResourcePool::evictIdle);
+        SPELL_CHECKER_POOLS.values().forEach(ResourcePool::evictIdle);
+    }
+
     /**
      * Check if the lang exists in this api.
      *
@@ -134,6 +218,7 @@ public class TyposHandler extends UnmatchedTextHandler {
 
             String replacementString = text.getObj2();
             lang = lang.toLowerCase();
+            evictIdle();
             try {
                 if (originalString != null && !originalString.equals("") && replacementString == null) {
                     String matchedString = getJLanguageToolMatch(originalString, lang);
@@ -166,7 +251,11 @@ public class TyposHandler extends UnmatchedTextHandler {
     private String getJLanguageToolMatch(String originalString, String lang) {
         try {
             if (hasLanguage(lang)) {
-                JLanguageTool langTool = new JLanguageTool(getLanguage(lang));
+                ResourcePool<JLanguageTool> pool = LANGUAGE_TOOL_POOLS.computeIfAbsent(lang, l -> new ResourcePool<>(() -> createLanguageTool(l)));
+                JLanguageTool langTool = pool.borrow();
+                if (langTool == null) {
+                    return null;
+                }
                 try {
                     List<RuleMatch> matches = langTool.check(originalString, false, JLanguageTool.ParagraphHandling.NORMAL);
                     if (!matches.isEmpty()) {
@@ -180,6 +269,8 @@ public class TyposHandler extends UnmatchedTextHandler {
 
                 } catch (IOException ex) {
                     logger.error(Main.class.getName() + ". " + ex.getMessage());
+                } finally {
+                    pool.release(langTool);
                 }
             }
             return null;
@@ -198,19 +289,22 @@ public class TyposHandler extends UnmatchedTextHandler {
      * @return String who contains , if exists, the match with word. In other
      * case, return null.
      */
-    private String getJaSpellMatch(String originalString, String lang) throws Exception {
-        try (Reader dictionaryReader = new InputStreamReader(Main.class.getResourceAsStream("/dict/" + lang + ".txt"))) {
-            SpellChecker spellCheck = new SpellChecker();
-            spellCheck.initialize(dictionaryReader);
+    private String getJaSpellMatch(String originalString, String lang) {
+        if (MISSING_DICTIONARIES.contains(lang)) {
+            return null;
+        }
+        ResourcePool<SpellChecker> pool = SPELL_CHECKER_POOLS.computeIfAbsent(lang, l -> new ResourcePool<>(() -> createSpellChecker(l)));
+        SpellChecker spellCheck = pool.borrow();
+        if (spellCheck == null) {
+            return null;
+        }
+        try {
             return spellCheck.findMostSimilar(originalString);
-
         } catch (Exception ex) {
-            if (ex.getClass().getName().equals("java.lang.NullPointerException")) {
-                logger.info("ERROR getJaSpellMatch - The lang " + lang.toUpperCase() + " doesn't exist.");
-            } else {
-                logger.error("ERROR " + Main.class.getName() + ". getJaSpellMatch: " + ex.getMessage());
-            }
+            logger.error("ERROR " + Main.class.getName() + ". getJaSpellMatch: " + ex.getMessage());
             return null;
+        } finally {
+            pool.release(spellCheck);
         }
     }
 }
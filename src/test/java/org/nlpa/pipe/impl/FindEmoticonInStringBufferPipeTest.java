@@ -184,6 +184,24 @@ public class FindEmoticonInStringBufferPipeTest {
         assertTrue(result.getProperty("emoticonPolarity").equals(expDataPolarity));
     }
 
+    /**
+     * Test of pipe method of FindEmoticonInStringBufferPipe class when the
+     * text contains emoticons that include other ones (i.e. ":)" and ":c" are
+     * included in ":c)"). Only the longest emoticon found at each position is
+     * replaced and scored, so the polarity is the mean of ">:)" (0.0) and
+     * ":c)" (0.657)
+     */
+    @Test
+    public void testPipeOverlappingEmoticons() {
+        Instance overlapping = new Instance(new StringBuffer("devil >:) clown :c)"), null, name, source);
+        overlapping.setProperty(instance.getLangProp(), SUPPORTED_LANGUAGE);
+
+        Instance result = instance.pipe(overlapping);
+        assertEquals("devil evil clown happy", result.getData().toString());
+        assertEquals(">:):c)", result.getProperty(DEFAULT_EMOTICON_PROP));
+        assertEquals((0.0 + 0.657) / 2, (Double) result.getProperty(DEFAULT_POLARITY_PROP), 1e-9);
+    }
+
     /**
      * Test of pipe method of FindEmoticonInStringBufferPipe class This test
      * checks if emoticons were removed from the text
@@ -102,4 +102,15 @@ public class SlangFromStringBufferPipeTest {
         assertEquals(expResult, result);
     }
 
+    /**
+     * Test of getReplacement4SlangTerm method, of class
+     * SlangFromStringBufferPipe, for slangs that only differ in case.
+     */
+    @Test
+    public void testGetReplacement4SlangTermCase() {
+        assertEquals("Unreal Tournament", SlangFromStringBufferPipe.getReplacement4SlangTerm("UT", "EN"));
+        assertEquals("you there", SlangFromStringBufferPipe.getReplacement4SlangTerm("ut", "EN"));
+        assertNull(SlangFromStringBufferPipe.getReplacement4SlangTerm("Apoc", "EN"));
+    }
+
 }
@@ -99,38 +99,38 @@ public class StringBuffer2TokenSequencePipeTest {
     @Test
     public void testPipe() {
         TokenSequence expectedTokenSequence = new TokenSequence();
-        expectedTokenSequence.add("tk:RGVjZW1iZXI=");
-        expectedTokenSequence.add("tk:aXM=");
-        expectedTokenSequence.add("tk:aHJl");
-        expectedTokenSequence.add("tk:aG8=");
-        expectedTokenSequence.add("tk:aG8=");
-        expectedTokenSequence.add("tk:aG8=");
-        expectedTokenSequence.add("tk:8J+OhQ==");
-        expectedTokenSequence.add("tk:QmVhdA==");
-        expectedTokenSequence.add("tk:dGhl");
-        expectedTokenSequence.add("tk:Q2hyaXN0bWFz");
-        expectedTokenSequence.add("tk:ZGF5cw==");
-        expectedTokenSequence.add("tk:d2l0aA==");
-        expectedTokenSequence.add("tk:dXM=");
-        expectedTokenSequence.add("tk:YW5k");
-        expectedTokenSequence.add("tk:d2U=");
-        expectedTokenSequence.add("tk:bGw=");
-        expectedTokenSequence.add("tk:ZXZlbg==");
-        expectedTokenSequence.add("tk:Z2l2ZQ==");
-        expectedTokenSequence.add("tk:eW91");
-        expectedTokenSequence.add("tk:MTk=");
-        expectedTokenSequence.add("tk:b2Zm");
-        expectedTokenSequence.add("tk:b25saW5l");
-        expectedTokenSequence.add("tk:dW50aWw=");
-        expectedTokenSequence.add("tk:MzE=");
-        expectedTokenSequence.add("tk:RGVj");
-        expectedTokenSequence.add("tk:VmlzaXQ=");
-        expectedTokenSequence.add("tk:dXM=");
-        expectedTokenSequence.add("tk:b24=");
-        expectedTokenSequence.add("tk:aGVyZQ==");
-        expectedTokenSequence.add("tk:eHg=");
-        expectedTokenSequence.add("tk:b3I=");
-        expectedTokenSequence.add("tk:eHg=");
+        expectedTokenSequence.add("tk:December");
+        expectedTokenSequence.add("tk:is");
+        expectedTokenSequence.add("tk:hre");
+        expectedTokenSequence.add("tk:ho");
+        expectedTokenSequence.add("tk:ho");
+        expectedTokenSequence.add("tk:ho");
+        expectedTokenSequence.add("tk:🎅");
+        expectedTokenSequence.add("tk:Beat");
+        expectedTokenSequence.add("tk:the");
+        expectedTokenSequence.add("tk:Christmas");
+        expectedTokenSequence.add("tk:days");
+        expectedTokenSequence.add("tk:with");
+        expectedTokenSequence.add("tk:us");
+        expectedTokenSequence.add("tk:and");
+        expectedTokenSequence.add("tk:we");
+        expectedTokenSequence.add("tk:ll");
+        expectedTokenSequence.add("tk:even");
+        expectedTokenSequence.add("tk:give");
+        expectedTokenSequence.add("tk:you");
+        expectedTokenSequence.add("tk:19");
+        expectedTokenSequence.add("tk:off");
+        expectedTokenSequence.add("tk:online");
+        expectedTokenSequence.add("tk:until");
+        expectedTokenSequence.add("tk:31");
+        expectedTokenSequence.add("tk:Dec");
+        expectedTokenSequence.add("tk:Visit");
+        expectedTokenSequence.add("tk:us");
+        expectedTokenSequence.add("tk:on");
+        expectedTokenSequence.add("tk:here");
+        expectedTokenSequence.add("tk:xx");
+        expectedTokenSequence.add("tk:or");
+        expectedTokenSequence.add("tk:xx");
         Instance expResult = new Instance(expectedTokenSequence, null, name, source);
         expResult.setProperty(instance.getLangProp(), "EN");
         Instance result = instance.pipe(carrier);
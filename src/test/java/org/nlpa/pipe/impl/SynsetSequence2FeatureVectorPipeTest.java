@@ -106,6 +106,10 @@ public class SynsetSequence2FeatureVectorPipeTest {
      */
     @Test
     public void testPipe() {
+        // The pipe adds the synsets to the Dictionary, so the expected vector
+        // is built afterwards
+        Instance result = instance.pipe(carrier);
+
         Map<String, Double> features = new HashMap<>();
         features.put("bn:03100869n", 2.0);
         features.put("bn:00006898n", 3.0);
@@ -118,7 +122,6 @@ public class SynsetSequence2FeatureVectorPipeTest {
         FeatureVector expectedFeatureVector = new FeatureVector(features);
 
         Instance expResult = new Instance(expectedFeatureVector, null, name, source);
-        Instance result = instance.pipe(carrier);
 
         assertEquals(expResult, result);
     }
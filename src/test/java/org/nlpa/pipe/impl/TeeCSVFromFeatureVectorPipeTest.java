@@ -0,0 +1,164 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.pipe.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.bdp4j.pipe.AbstractPipe;
+import org.bdp4j.pipe.SerialPipes;
+import org.bdp4j.types.Instance;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.nlpa.types.Dictionary;
+import org.nlpa.types.FeatureVector;
+import org.nlpa.types.TokenSequence;
+import org.nlpa.util.BurstPipeRunner;
+import org.nlpa.util.SparseDatasetWriter;
+
+/**
+ * Tests of the sparse formats of TeeCSVFromFeatureVectorPipe. The documents
+ * are received in two bursts and the property "lang" is only found in the
+ * last one, so it is added after "length".
+ *
+ * @author José Ramón Méndez
+ */
+public class TeeCSVFromFeatureVectorPipeTest {
+
+    /**
+     * Pipe the documents doc0 (first=1, ham), doc1 (second=2.5, third=1,
+     * spam) and doc2 (first=3, ham, lang=en) in bursts of two documents
+     *
+     * @param pipe The pipe to test
+     * @return The dictionary identifiers of the words first, second and third
+     */
+    private static int[] pipeDocuments(TeeCSVFromFeatureVectorPipe pipe) {
+        Dictionary dictionary = Dictionary.getDictionary();
+        int first = dictionary.add("sparsefirst");
+        int second = dictionary.add("sparsesecond");
+        int third = dictionary.add("sparsethird");
+
+        List<Instance> documents = Arrays.asList(
+                new Instance(new FeatureVector(new int[]{first}, new double[]{1}), "ham", "doc0", "doc0"),
+                new Instance(new FeatureVector(new int[]{second, third}, new double[]{2.5, 1}), "spam", "doc1", "doc1"),
+                new Instance(new FeatureVector(new int[]{first}, new double[]{3}), "ham", "doc2", "doc2"));
+        for (int i = 0; i < documents.size(); i++) {
+            documents.get(i).setProperty("length", 10 + i);
+        }
+        documents.get(2).setProperty("lang", "en");
+
+        BurstPipeRunner runner = new BurstPipeRunner(new SerialPipes(new AbstractPipe[]{pipe}), 2);
+        assertEquals(3, runner.run(documents.iterator()));
+        return new int[]{first, second, third};
+    }
+
+    /**
+     * Compute the column of each dictionary entry (they follow the id and the
+     * properties "length" and "lang")
+     *
+     * @return the column of each dictionary entry (-1 if it is not included)
+     */
+    private static int[] getDictionaryColumns() {
+        Dictionary dictionary = Dictionary.getDictionary();
+        int[] columns = new int[dictionary.getIdBound()];
+        int column = 3;
+        for (int id = 0; id < columns.length; id++) {
+            columns[id] = dictionary.isIncluded(id) ? column++ : -1;
+        }
+        return columns;
+    }
+
+    /**
+     * Test of pipe method, of class TeeCSVFromFeatureVectorPipe, using the
+     * ARFF format.
+     *
+     * @throws IOException If the output file cannot be read
+     */
+    @Test
+    public void testArffFormat() throws IOException {
+        TeeCSVFromFeatureVectorPipe pipe = new TeeCSVFromFeatureVectorPipe("TeeCSVFromFeatureVectorPipeTest.arff");
+        pipe.setFormat("ARFF");
+        assertEquals("arff", pipe.getFormat());
+        File output = new File(pipe.getOutput());
+        try {
+            int[] words = pipeDocuments(pipe);
+            int[] columns = getDictionaryColumns();
+            int target = 3;
+            for (int column : columns) {
+                target += (column >= 0) ? 1 : 0;
+            }
+
+            List<String> expected = new ArrayList<>();
+            expected.add("@relation 'TeeCSVFromFeatureVectorPipeTest'");
+            expected.add("");
+            expected.add("@attribute 'id' string");
+            expected.add("@attribute 'length' numeric");
+            expected.add("@attribute 'lang' string");
+            for (int id = 0; id < columns.length; id++) {
+                if (columns[id] >= 0) {
+                    expected.add("@attribute '" + TokenSequence.toAttributeName(Dictionary.getDictionary().getText(id)) + "' numeric");
+                }
+            }
+            expected.add("@attribute 'target' {'ham','spam'}");
+            expected.add("");
+            expected.add("@data");
+            expected.add("{0 'doc0',1 10," + columns[words[0]] + " 1," + target + " 'ham'}");
+            expected.add("{0 'doc1',1 11," + columns[words[1]] + " 2.5," + columns[words[2]] + " 1," + target + " 'spam'}");
+            expected.add("{0 'doc2',1 12,2 'en'," + columns[words[0]] + " 3," + target + " 'ham'}");
+
+            assertEquals(expected, Files.readAllLines(output.toPath(), StandardCharsets.UTF_8));
+            assertFalse(new File(output.getPath() + ".rows").exists());
+        } finally {
+            output.delete();
+        }
+    }
+
+    /**
+     * Test of pipe method, of class TeeCSVFromFeatureVectorPipe, using the
+     * triplets format.
+     *
+     * @throws IOException If the output files cannot be read
+     */
+    @Test
+    public void testTripletsFormat() throws IOException {
+        TeeCSVFromFeatureVectorPipe pipe = new TeeCSVFromFeatureVectorPipe("TeeCSVFromFeatureVectorPipeTest.triplets");
+        pipe.setFormat("triplets");
+        File output = new File(pipe.getOutput());
+        File columnsFile = new File(pipe.getOutput() + SparseDatasetWriter.COLUMNS_FILE_EXTENSION);
+        try {
+            int[] words = pipeDocuments(pipe);
+            int[] columns = getDictionaryColumns();
+
+            List<String> expectedColumns = new ArrayList<>();
+            expectedColumns.add("0,\"id\",string");
+            expectedColumns.add("1,\"length\",numeric");
+            expectedColumns.add("2,\"lang\",string");
+            for (int id = 0; id < columns.length; id++) {
+                if (columns[id] >= 0) {
+                    String name = TokenSequence.toAttributeName(Dictionary.getDictionary().getText(id));
+                    expectedColumns.add(columns[id] + ",\"" + name + "\",numeric");
+                }
+            }
+            int target = expectedColumns.size();
+            expectedColumns.add(target + ",\"target\",nominal");
+            assertEquals(expectedColumns, Files.readAllLines(columnsFile.toPath(), StandardCharsets.UTF_8));
+
+            List<String> expected = Arrays.asList(
+                    "0,0,\"doc0\"", "0,1,10", "0," + columns[words[0]] + ",1", "0," + target + ",\"ham\"",
+                    "1,0,\"doc1\"", "1,1,11", "1," + columns[words[1]] + ",2.5", "1," + columns[words[2]] + ",1", "1," + target + ",\"spam\"",
+                    "2,0,\"doc2\"", "2,1,12", "2,2,\"en\"", "2," + columns[words[0]] + ",3", "2," + target + ",\"ham\"");
+            assertEquals(expected, Files.readAllLines(output.toPath(), StandardCharsets.UTF_8));
+            assertFalse(new File(output.getPath() + ".rows").exists());
+        } finally {
+            output.delete();
+            columnsFile.delete();
+        }
+    }
+}
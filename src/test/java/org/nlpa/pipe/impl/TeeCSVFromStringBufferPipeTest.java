@@ -0,0 +1,78 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.pipe.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.bdp4j.pipe.AbstractPipe;
+import org.bdp4j.pipe.SerialPipes;
+import org.bdp4j.types.Instance;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.nlpa.util.BurstPipeRunner;
+
+/**
+ *
+ * @author José Ramón Méndez
+ */
+public class TeeCSVFromStringBufferPipeTest {
+
+    private static final int NUM_INSTANCES = 5;
+    private static final int BURST_SIZE = 2;
+
+    private TeeCSVFromStringBufferPipe instance;
+
+    @Before
+    public void setUp() {
+        instance = new TeeCSVFromStringBufferPipe("TeeCSVFromStringBufferPipeTest.csv", true);
+        instance.setStreaming(true);
+    }
+
+    @After
+    public void tearDown() {
+        new File(instance.getOutput()).delete();
+    }
+
+    private static List<Instance> createInstances() {
+        List<Instance> instances = new ArrayList<>();
+        for (int i = 0; i < NUM_INSTANCES; i++) {
+            Instance carrier = new Instance(new StringBuffer("message " + i), (i % 2 == 0) ? "ham" : "spam", "instance" + i, "instance" + i);
+            // The property is only found in the last burst
+            if (i == NUM_INSTANCES - 1) {
+                carrier.setProperty("length", i);
+            }
+            instances.add(carrier);
+        }
+        return instances;
+    }
+
+    /**
+     * Test of pipe method, of class TeeCSVFromStringBufferPipe, in streaming
+     * mode with the instances split in several bursts.
+     *
+     * @throws IOException If the output file cannot be read
+     */
+    @Test
+    public void testPipeInBursts() throws IOException {
+        BurstPipeRunner runner = new BurstPipeRunner(new SerialPipes(new AbstractPipe[]{instance}), BURST_SIZE);
+        assertEquals(NUM_INSTANCES, runner.run(createInstances().iterator()));
+
+        List<String> lines = Files.readAllLines(new File(instance.getOutput()).toPath(), StandardCharsets.UTF_8);
+        assertEquals(NUM_INSTANCES + 1, lines.size());
+        assertTrue(lines.get(0).contains("length"));
+        for (int i = 0; i < NUM_INSTANCES; i++) {
+            assertTrue(lines.get(i + 1).startsWith("instance" + i));
+            assertTrue(lines.get(i + 1).contains("message " + i));
+        }
+        assertFalse(new File(instance.getOutput() + ".rows").exists());
+    }
+}
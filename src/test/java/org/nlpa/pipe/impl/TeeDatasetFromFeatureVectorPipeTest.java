@@ -0,0 +1,107 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.pipe.impl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.bdp4j.pipe.AbstractPipe;
+import org.bdp4j.pipe.SerialPipes;
+import org.bdp4j.transformers.attribute.Enum2IntTransformer;
+import org.bdp4j.types.DatasetStore;
+import org.bdp4j.types.Instance;
+import org.bdp4j.types.Transformer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.nlpa.types.Dictionary;
+import org.nlpa.types.FeatureVector;
+import org.nlpa.types.TokenSequence;
+import org.nlpa.util.BurstPipeRunner;
+import weka.core.Instances;
+
+/**
+ *
+ * @author José Ramón Méndez
+ */
+public class TeeDatasetFromFeatureVectorPipeTest {
+
+    /**
+     * Gets the temporary files used by the pipe to store the rows
+     *
+     * @return The names of the temporary files
+     */
+    private static Set<String> listRowsFiles() {
+        String[] names = new File(System.getProperty("java.io.tmpdir"))
+                .list((dir, name) -> name.startsWith("nlpa-dataset") && name.endsWith(".rows"));
+        return new HashSet<>(Arrays.asList(names == null ? new String[0] : names));
+    }
+
+    /**
+     * Test of pipe method, of class TeeDatasetFromFeatureVectorPipe, when the
+     * instances are received in three bursts and a property is only found in
+     * the last one.
+     */
+    @Test
+    public void testDatasetBuiltAfterLastBurst() {
+        Dictionary dictionary = Dictionary.getDictionary();
+        int shared = dictionary.add("teedatasetshared");
+        List<Instance> instances = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int word = dictionary.add("teedatasetword" + i);
+            FeatureVector features = new FeatureVector(new int[]{shared, word}, new double[]{0.5, i + 1});
+            Instance carrier = new Instance(features, (i % 3 == 0) ? "spam" : "ham", "doc" + i, "doc" + i);
+            carrier.setProperty("length", 10 + i);
+            // A string property without transformer is not included in the dataset
+            carrier.setProperty("lang", "en");
+            instances.add(carrier);
+        }
+        instances.get(4).setProperty("late", 7);
+
+        Map<String, Integer> targetValues = new HashMap<>();
+        targetValues.put("ham", 0);
+        targetValues.put("spam", 1);
+        Map<String, Transformer> transformers = new HashMap<>();
+        transformers.put("target", new Enum2IntTransformer(targetValues));
+        TeeDatasetFromFeatureVectorPipe pipe = new TeeDatasetFromFeatureVectorPipe();
+        pipe.setTransformersList(transformers);
+
+        Set<String> rowsFiles = listRowsFiles();
+        BurstPipeRunner runner = new BurstPipeRunner(new SerialPipes(new AbstractPipe[]{pipe}), 2);
+        assertEquals(5, runner.run(instances.iterator()));
+        assertEquals(rowsFiles, listRowsFiles());
+
+        // id, the numeric properties in the order they were found, the
+        // dictionary entries by id and the target
+        List<String> columns = new ArrayList<>(Arrays.asList("id", "length", "late"));
+        for (int id = 0; id < dictionary.getIdBound(); id++) {
+            if (dictionary.isIncluded(id) && !dictionary.getText(id).equals("target")) {
+                columns.add(TokenSequence.toAttributeName(dictionary.getText(id)));
+            }
+        }
+        columns.add("target");
+        assertEquals(columns, DatasetStore.getDatasetStore().getDataset().getAttributes());
+
+        Instances data = DatasetStore.getDatasetStore().getDataset().getWekaDataset();
+        assertEquals(5, data.numInstances());
+        for (int i = 0; i < 5; i++) {
+            weka.core.Instance row = data.instance(i);
+            assertEquals("doc" + i, row.stringValue(data.attribute("id")));
+            assertEquals(10 + i, row.value(data.attribute("length")), 0);
+            assertEquals((i == 4) ? 7 : 0, row.value(data.attribute("late")), 0);
+            assertEquals(0.5, row.value(data.attribute("teedatasetshared")), 0);
+            for (int j = 0; j < 5; j++) {
+                double expected = (i == j) ? i + 1 : 0;
+                assertEquals(expected, row.value(data.attribute("teedatasetword" + j)), 0);
+            }
+            assertEquals((i % 3 == 0) ? "1" : "0", row.stringValue(data.attribute("target")));
+        }
+    }
+}
@@ -32,38 +32,38 @@ public class TokenSequenceStemIrregularPipeTest {
         instance = new TokenSequenceStemIrregularPipe();
 
         TokenSequence inputTokenSequence = new TokenSequence();
-        inputTokenSequence.add("tk:RGVjZW1iZXI=");
-        inputTokenSequence.add("tk:aXM=");
-        inputTokenSequence.add("tk:aHJl");
-        inputTokenSequence.add("tk:aG8=");
-        inputTokenSequence.add("tk:aG8=");
-        inputTokenSequence.add("tk:aG8=");
-        inputTokenSequence.add("tk:8J+OhQ==");
-        inputTokenSequence.add("tk:QmVhdA==");
-        inputTokenSequence.add("tk:dGhl");
-        inputTokenSequence.add("tk:Q2hyaXN0bWFz");
-        inputTokenSequence.add("tk:ZGF5cw==");
-        inputTokenSequence.add("tk:d2l0aA==");
-        inputTokenSequence.add("tk:dXM=");
-        inputTokenSequence.add("tk:YW5k");
-        inputTokenSequence.add("tk:d2U=");
-        inputTokenSequence.add("tk:bGw=");
-        inputTokenSequence.add("tk:ZXZlbg==");
-        inputTokenSequence.add("tk:Z2l2ZQ==");
-        inputTokenSequence.add("tk:eW91");
-        inputTokenSequence.add("tk:MTk=");
-        inputTokenSequence.add("tk:b2Zm");
-        inputTokenSequence.add("tk:b25saW5l");
-        inputTokenSequence.add("tk:dW50aWw=");
-        inputTokenSequence.add("tk:MzE=");
-        inputTokenSequence.add("tk:RGVj");
-        inputTokenSequence.add("tk:VmlzaXQ=");
-        inputTokenSequence.add("tk:dXM=");
-        inputTokenSequence.add("tk:b24=");
-        inputTokenSequence.add("tk:aGVyZQ==");
-        inputTokenSequence.add("tk:eHg=");
-        inputTokenSequence.add("tk:b3I=");
-        inputTokenSequence.add("tk:eHg=");
+        inputTokenSequence.add("tk:December");
+        inputTokenSequence.add("tk:is");
+        inputTokenSequence.add("tk:hre");
+        inputTokenSequence.add("tk:ho");
+        inputTokenSequence.add("tk:ho");
+        inputTokenSequence.add("tk:ho");
+        inputTokenSequence.add("tk:🎅");
+        inputTokenSequence.add("tk:Beat");
+        inputTokenSequence.add("tk:the");
+        inputTokenSequence.add("tk:Christmas");
+        inputTokenSequence.add("tk:days");
+        inputTokenSequence.add("tk:with");
+        inputTokenSequence.add("tk:us");
+        inputTokenSequence.add("tk:and");
+        inputTokenSequence.add("tk:we");
+        inputTokenSequence.add("tk:ll");
+        inputTokenSequence.add("tk:even");
+        inputTokenSequence.add("tk:give");
+        inputTokenSequence.add("tk:you");
+        inputTokenSequence.add("tk:19");
+        inputTokenSequence.add("tk:off");
+        inputTokenSequence.add("tk:online");
+        inputTokenSequence.add("tk:until");
+        inputTokenSequence.add("tk:31");
+        inputTokenSequence.add("tk:Dec");
+        inputTokenSequence.add("tk:Visit");
+        inputTokenSequence.add("tk:us");
+        inputTokenSequence.add("tk:on");
+        inputTokenSequence.add("tk:here");
+        inputTokenSequence.add("tk:xx");
+        inputTokenSequence.add("tk:or");
+        inputTokenSequence.add("tk:xx");
 
         carrier = new Instance(inputTokenSequence, null, name, source);
         carrier.setProperty("language", "EN");
@@ -95,38 +95,38 @@ public class TokenSequenceStemIrregularPipeTest {
     @Test
     public void testPipe() {
         TokenSequence expectedTokenSequence = new TokenSequence();
-        expectedTokenSequence.add("tk:RGVjZW1iZXI=");
-        expectedTokenSequence.add("tk:YmU=");
-        expectedTokenSequence.add("tk:aHJl");
-        expectedTokenSequence.add("tk:aG8=");
-        expectedTokenSequence.add("tk:aG8=");
-        expectedTokenSequence.add("tk:aG8=");
-        expectedTokenSequence.add("tk:8J+OhQ==");
-        expectedTokenSequence.add("tk:QmVhdA==");
-        expectedTokenSequence.add("tk:dGhl");
-        expectedTokenSequence.add("tk:Q2hyaXN0bWFz");
-        expectedTokenSequence.add("tk:ZGF5cw==");
-        expectedTokenSequence.add("tk:d2l0aA==");
-        expectedTokenSequence.add("tk:dXM=");
-        expectedTokenSequence.add("tk:YW5k");
-        expectedTokenSequence.add("tk:d2U=");
-        expectedTokenSequence.add("tk:bGw=");
-        expectedTokenSequence.add("tk:ZXZlbg==");
-        expectedTokenSequence.add("tk:Z2l2ZQ==");
-        expectedTokenSequence.add("tk:eW91");
-        expectedTokenSequence.add("tk:MTk=");
-        expectedTokenSequence.add("tk:b2Zm");
-        expectedTokenSequence.add("tk:b25saW5l");
-        expectedTokenSequence.add("tk:dW50aWw=");
-        expectedTokenSequence.add("tk:MzE=");
-        expectedTokenSequence.add("tk:RGVj");
-        expectedTokenSequence.add("tk:VmlzaXQ=");
-        expectedTokenSequence.add("tk:dXM=");
-        expectedTokenSequence.add("tk:b24=");
-        expectedTokenSequence.add("tk:aGVyZQ==");
-        expectedTokenSequence.add("tk:eHg=");
-        expectedTokenSequence.add("tk:b3I=");
-        expectedTokenSequence.add("tk:eHg=");
+        expectedTokenSequence.add("tk:December");
+        expectedTokenSequence.add("tk:be");
+        expectedTokenSequence.add("tk:hre");
+        expectedTokenSequence.add("tk:ho");
+        expectedTokenSequence.add("tk:ho");
+        expectedTokenSequence.add("tk:ho");
+        expectedTokenSequence.add("tk:🎅");
+        expectedTokenSequence.add("tk:Beat");
+        expectedTokenSequence.add("tk:the");
+        expectedTokenSequence.add("tk:Christmas");
+        expectedTokenSequence.add("tk:days");
+        expectedTokenSequence.add("tk:with");
+        expectedTokenSequence.add("tk:us");
+        expectedTokenSequence.add("tk:and");
+        expectedTokenSequence.add("tk:we");
+        expectedTokenSequence.add("tk:ll");
+        expectedTokenSequence.add("tk:even");
+        expectedTokenSequence.add("tk:give");
+        expectedTokenSequence.add("tk:you");
+        expectedTokenSequence.add("tk:19");
+        expectedTokenSequence.add("tk:off");
+        expectedTokenSequence.add("tk:online");
+        expectedTokenSequence.add("tk:until");
+        expectedTokenSequence.add("tk:31");
+        expectedTokenSequence.add("tk:Dec");
+        expectedTokenSequence.add("tk:Visit");
+        expectedTokenSequence.add("tk:us");
+        expectedTokenSequence.add("tk:on");
+        expectedTokenSequence.add("tk:here");
+        expectedTokenSequence.add("tk:xx");
+        expectedTokenSequence.add("tk:or");
+        expectedTokenSequence.add("tk:xx");
 
         Instance expResult = new Instance(expectedTokenSequence, null, name, source);
         expResult.setProperty("language", "EN");
@@ -15,8 +15,12 @@ import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import static org.nlpa.matchers.IsEqualToInstance.containsInstancesInOrder;
+import org.nlpa.util.HypernymStore;
 import weka.core.Attribute;
+import weka.core.DenseInstance;
 import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
 
 /**
  *
@@ -343,4 +347,88 @@ public class DatasetFeatureRepresentationTest {
         assertThat(expInstancesDataset.getInstances(), containsInstancesInOrder(result.getInstances()));
     }
 
+    /**
+     * Builds a dataset with an id, two synsets (hyponyms of bn:99999001n) and
+     * the target. The first row has zeros in the id (its first string), in
+     * the second synset and in the target
+     *
+     * @param sparse true to store the rows in sparse instances
+     * @return the dataset
+     */
+    private static Dataset createSynsetsDataset(boolean sparse) {
+        List<String> target_values = new ArrayList<>();
+        target_values.add("0");
+        target_values.add("1");
+
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("id", (List<String>) null));
+        attributes.add(new Attribute("bn:99999002n"));
+        attributes.add(new Attribute("bn:99999003n"));
+        attributes.add(new Attribute("target", target_values));
+        Dataset dataset = new Dataset("Dataset to represent", attributes, 0);
+
+        Instances instances = dataset.getWekaDataset();
+        double[][] rows = {
+            {attributes.get(0).addStringValue("first"), 3d, 0d, 0d},
+            {attributes.get(0).addStringValue("second"), 2d, 5d, 1d}
+        };
+        for (double[] row : rows) {
+            instances.add(sparse ? new SparseInstance(1.0, row) : new DenseInstance(1.0, row));
+        }
+        return dataset;
+    }
+
+    /**
+     * Builds the features dataset containing the id, bn:99999001n and the
+     * target
+     *
+     * @return the features dataset
+     */
+    private static Dataset createFeaturesDataset() {
+        List<String> target_values = new ArrayList<>();
+        target_values.add("0");
+        target_values.add("1");
+
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("id", (List<String>) null));
+        attributes.add(new Attribute("bn:99999001n"));
+        attributes.add(new Attribute("target", target_values));
+        return new Dataset("Features dataset", attributes, 0);
+    }
+
+    /**
+     * Test of transformTemplate method, of class DatasetFeatureRepresentation,
+     * with sparse instances and different operators.
+     */
+    @Test
+    public void testTransformTemplateSparse() {
+        HypernymStore store = HypernymStore.getDefault();
+        int parent = store.intern("bn:99999001n");
+        store.setHypernym(parent, HypernymStore.NO_HYPERNYM);
+        store.setHypernym(store.intern("bn:99999002n"), parent);
+        store.setHypernym(store.intern("bn:99999003n"), parent);
+
+        double[][] expSum = {{3d}, {7d}};
+        // The 0 of the second synset is combined with the 3 of the first one
+        double[][] expMin = {{0d}, {2d}};
+        Dataset.CombineOperator[] operators = {Dataset.COMBINE_SUM, Dataset.COMBINE_MIN};
+        double[][][] expValues = {expSum, expMin};
+
+        for (int o = 0; o < operators.length; o++) {
+            for (boolean sparse : new boolean[]{false, true}) {
+                DatasetFeatureRepresentation representation = new DatasetFeatureRepresentation(createFeaturesDataset(), operators[o]);
+                representation.setSparse(sparse);
+                Instances result = representation.transformTemplate(createSynsetsDataset(sparse)).getWekaDataset();
+
+                assertEquals(2, result.numInstances());
+                for (int i = 0; i < 2; i++) {
+                    assertEquals(expValues[o][i][0], result.instance(i).value(1), 0.0);
+                    assertEquals(Integer.toString(i), result.instance(i).stringValue(2));
+                }
+                assertEquals("first", result.instance(0).stringValue(0));
+                assertEquals("second", result.instance(1).stringValue(0));
+            }
+        }
+    }
+
 }
@@ -5,11 +5,17 @@
  */
 package org.nlpa.transformers.dataset;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.bdp4j.types.Dataset;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import org.junit.Before;
 import org.junit.Test;
 import static org.nlpa.matchers.IsEqualToInstance.containsInstancesInOrder;
@@ -25,6 +31,31 @@ import weka.core.Instance;
  */
 public class eSDRSTest {
 
+    private static final String TREES
+            = "a|i1:s,i2:s\n"
+            + "\tb|i1:s,i3:s\n"
+            + "\tc\n"
+            + "\t\td|i4:s\n"
+            + "\t\te|i5:s,i6:s\n"
+            + "\tf|i7:n\n"
+            + "\n"
+            + "g\n"
+            + "\th|i8:n,i9:n\n"
+            + "\t\ti|i8:n\n"
+            + "\tj|i10:n\n"
+            + "\tk|i11:s\n"
+            + "\n"
+            + "l|i12:s,i13:n\n"
+            + "\tm|i12:s\n"
+            + "\tn|i14:s\n"
+            + "\t\to|i14:s,i15:s\n"
+            + "\n"
+            + "p\n"
+            + "\tq\n"
+            + "\t\tr|i16:n\n"
+            + "\t\ts|i17:n\n"
+            + "\tt|i18:n\n";
+
     private eSDRS esdrs;
 
     public eSDRSTest() {
@@ -92,6 +123,64 @@ public class eSDRSTest {
         esdrs.setCombineOperator(combineOperator);
     }
 
+    private static Set<SynsetNode> buildTrees() {
+        return new HashSet<>(SynsetNodeBuilder.buildTrees(new ByteArrayInputStream(TREES.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static String toStringDeep(SynsetNode node) {
+        String instances = node.getInstances().stream()
+                .map(instance -> instance.getName() + ":" + instance.getTarget())
+                .sorted()
+                .collect(Collectors.joining(","));
+        String children = node.getChildren().stream()
+                .map(eSDRSTest::toStringDeep)
+                .sorted()
+                .collect(Collectors.joining(","));
+        return node.getSynsets() + "|" + instances + "(" + children + ")";
+    }
+
+    private static List<String> toStringDeep(Set<SynsetNode> trees) {
+        return trees.stream()
+                .map(eSDRSTest::toStringDeep)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private List<String> generalize(boolean parallel, boolean compactTrees) {
+        Set<SynsetNode> trees = buildTrees();
+        esdrs.setParallel(parallel);
+        esdrs.setCompactTrees(compactTrees);
+        esdrs.generalize(trees, "s");
+        return toStringDeep(trees);
+    }
+
+    /**
+     * Test of generalize method, of class eSDRS. Generalizing the trees in
+     * parallel gives the same trees as generalizing them sequentially, both
+     * on the SynsetNode trees and on a CompactSynsetTree
+     */
+    @Test
+    public void testGeneralizeInParallel() {
+        List<String> sequential = generalize(false, false);
+        assertNotEquals(toStringDeep(buildTrees()), sequential);
+
+        assertEquals(sequential, generalize(true, false));
+        assertEquals(generalize(false, true), generalize(true, true));
+    }
+
+    /**
+     * Test of generalize method, of class eSDRS. Generalizing the trees on a
+     * CompactSynsetTree gives the same trees as generalizing the SynsetNode
+     * trees
+     */
+    @Test
+    public void testGeneralizeCompactTrees() {
+        List<String> synsetNodes = generalize(false, false);
+        assertNotEquals(toStringDeep(buildTrees()), synsetNodes);
+
+        assertEquals(synsetNodes, generalize(false, true));
+    }
+
     @Test
     public void test() {
         List<SynsetNode> trees = SynsetNodeBuilder.buildTrees(SynsetNodeTest.class.getResourceAsStream("test.tree"));
@@ -0,0 +1,143 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.transformers.dataset.tree;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author José Ramón Méndez
+ */
+public class CompactSynsetTreeTest {
+
+    private static final String TREES
+            = "a,b|i1:s,i2:s,i4:n,i5:n\n"
+            + "\tc\n"
+            + "\td|i1:s,i2:s\n"
+            + "\t\te\n"
+            + "\t\t\tx|i2:s\n"
+            + "\t\tf\n"
+            + "\t\t\tg|i2:s,i3:s\n"
+            + "\th\n"
+            + "\ti|i4:n\n"
+            + "\n"
+            + "j|i6:n\n"
+            + "\tk|i6:n,i7:s\n";
+
+    private List<SynsetNode> trees;
+    private CompactSynsetTree forest;
+
+    @Before
+    public void setUp() {
+        trees = SynsetNodeBuilder.buildTrees(new ByteArrayInputStream(TREES.getBytes(StandardCharsets.UTF_8)));
+        forest = CompactSynsetTree.fromSynsetNodes(trees);
+    }
+
+    private static String toStringDeep(List<SynsetNode> trees) {
+        StringBuilder builder = new StringBuilder();
+        trees.forEach(tree -> builder.append(tree.toStringDeep()));
+        return builder.toString();
+    }
+
+    /**
+     * Test of fromSynsetNodes and toSynsetNodes methods, of class
+     * CompactSynsetTree.
+     */
+    @Test
+    public void testRoundTrip() {
+        assertEquals(toStringDeep(trees), toStringDeep(forest.toSynsetNodes()));
+    }
+
+    /**
+     * Test of getDegree and getDescendantAndSelf methods, of class
+     * CompactSynsetTree.
+     */
+    @Test
+    public void testStructure() {
+        int[] roots = forest.getRoots();
+        assertEquals(2, roots.length);
+        assertEquals(11, forest.size());
+
+        int[] nodes = forest.getDescendantAndSelf(roots[0]);
+        List<SynsetNode> expected = trees.get(0).getDescendantAndSelf();
+        assertEquals(expected.size(), nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            assertEquals(expected.get(i).getSynsets(), forest.getSynsets(nodes[i]));
+            assertEquals(expected.get(i).getDegree(), forest.getDegree(nodes[i]));
+        }
+    }
+
+    /**
+     * Test of getPathToDescendants and visitPathsToDescendants methods, of
+     * class CompactSynsetTree.
+     */
+    @Test
+    public void testPathToDescendants() {
+        SynsetNode tree = trees.get(0);
+        SynsetNode exclusion = tree.getChildren().get(0);
+        int root = forest.getRoots()[0];
+
+        List<SynsetNodePath> expected = tree.getPathToDescendants(2, Collections.singleton(exclusion));
+        List<int[]> result = forest.getPathToDescendants(root, 2, forest.getFirstChild(root));
+        assertEquals(expected.size(), result.size());
+        for (int i = 0; i < result.size(); i++) {
+            List<String> synsets = new ArrayList<>();
+            for (int node : result.get(i)) {
+                synsets.addAll(forest.getSynsets(node));
+            }
+            List<String> expectedSynsets = new ArrayList<>();
+            expected.get(i).getPath().forEach(node -> expectedSynsets.addAll(node.getSynsets()));
+            assertEquals(expectedSynsets, synsets);
+        }
+
+        int[] count = new int[1];
+        forest.visitPathsToDescendants(root, 2, 2, CompactSynsetTree.NONE, new int[3], (path, length) -> {
+            assertEquals(3, length);
+            count[0]++;
+        });
+        assertEquals(2, count[0]);
+    }
+
+    /**
+     * Test of getTargetFrequency and getCombinedTargetFrequency methods, of
+     * class CompactSynsetTree.
+     */
+    @Test
+    public void testFrequencies() {
+        int root = forest.getRoots()[1];
+        int child = forest.getFirstChild(root);
+
+        assertEquals(0d, forest.getTargetFrequency(root, "s"), 0d);
+        assertEquals(0.5d, forest.getTargetFrequency(child, "s"), 0d);
+        assertEquals(0.5d, forest.getCombinedTargetFrequency(root, "s", new int[]{child}, 1), 0d);
+        assertEquals(0d, forest.getTargetFrequency(root, "unknown"), 0d);
+    }
+
+    /**
+     * Test of generalize and prune methods, of class CompactSynsetTree.
+     */
+    @Test
+    public void testGeneralizeAndPrune() {
+        int root = forest.getRoots()[1];
+        int child = forest.getFirstChild(root);
+
+        forest.generalize(root, new int[]{child}, 1);
+        assertEquals(2, forest.countSynsets(root));
+        assertEquals("j", forest.getReferenceSynset(root));
+        assertFalse(forest.hasSynsets(child));
+        assertEquals(0.5d, forest.getTargetFrequency(root, "s"), 0d);
+
+        forest.prune(root);
+        assertEquals(CompactSynsetTree.NONE, forest.getFirstChild(root));
+    }
+}
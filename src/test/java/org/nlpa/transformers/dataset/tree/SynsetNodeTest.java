@@ -318,6 +318,61 @@ public class SynsetNodeTest {
 
     }
 
+    /**
+     * Test of getCombinedTargetFrequency method, of class SynsetNode. A
+     * document wrapped by a node and by its parent in different
+     * SynsetInstances is counted once for each of them
+     */
+    @Test
+    public void testGetCombinedTargetFrequency() {
+        List<String> target_values = new ArrayList<>();
+        target_values.add("0");
+        target_values.add("1");
+
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("id"));
+        attributes.add(new Attribute("new_att"));
+        attributes.add(new Attribute("target", target_values));
+        Dataset dataset = new Dataset("test", attributes, 0);
+
+        Instance spam = dataset.createDenseInstance();
+        spam.setValue(0, 1d);
+        spam.setValue(1, 1d);
+        spam.setValue(2, 1d);
+        Instance ham = dataset.createDenseInstance();
+        ham.setValue(0, 2d);
+        ham.setValue(1, 1d);
+        ham.setValue(2, 0d);
+
+        SynsetNode parent = new SynsetNode("bn:00015258n"); // canid
+        SynsetNode node = new SynsetNode("bn:00015267n", parent); // dog
+        node.addInstance(new WekaSynsetInstance(spam, 0));
+        parent.addInstance(new WekaSynsetInstance(spam, 1));
+        parent.addInstance(new WekaSynsetInstance(ham, 2));
+
+        assertEquals(2d / 3d, node.getCombinedTargetFrequency(1d, parent), 1e-9);
+        assertEquals(1d / 3d, node.getCombinedTargetFrequency(0d, parent), 1e-9);
+
+        // The same SynsetInstance is only counted once
+        SynsetNode sharedParent = new SynsetNode("bn:00015258n"); // canid
+        SynsetNode sharedNode = new SynsetNode("bn:00015267n", sharedParent); // dog
+        SynsetInstance shared = new WekaSynsetInstance(spam, 0);
+        sharedNode.addInstance(shared);
+        sharedParent.addInstance(shared);
+        sharedParent.addInstance(new WekaSynsetInstance(ham, 1));
+
+        assertEquals(0.5d, sharedNode.getCombinedTargetFrequency(1d, sharedParent), 1e-9);
+
+        // Instances without identifier are combined as objects
+        SynsetNode unidentifiedParent = new SynsetNode("bn:00015258n"); // canid
+        SynsetNode unidentifiedNode = new SynsetNode("bn:00015267n", unidentifiedParent); // dog
+        unidentifiedNode.addInstance(new WekaSynsetInstance(spam));
+        unidentifiedParent.addInstance(new WekaSynsetInstance(spam));
+        unidentifiedParent.addInstance(new WekaSynsetInstance(ham, 2));
+
+        assertEquals(2d / 3d, unidentifiedNode.getCombinedTargetFrequency(1d, unidentifiedParent), 1e-9);
+    }
+
     /**
      * // * Test of isAncestorOf method, of class SynsetNode. //
      */
@@ -11,6 +11,8 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -147,6 +149,107 @@ public class DictionaryTest {
         assertEquals(expResult, result);
     }
 
+    /**
+     * Test of getId and getText methods, of class Dictionary.
+     */
+    @Test
+    public void testGetIdAndGetText() {
+        String text = "bn:87654321n";
+        int id = instance.add(text);
+
+        assertEquals(id, instance.add(text));
+        assertEquals(id, instance.getId(text));
+        assertEquals(text, instance.getText(id));
+        assertEquals(Dictionary.NOT_INCLUDED, instance.getId("bn:00000000n"));
+    }
+
+    /**
+     * Test of add method from several threads, of class Dictionary.
+     */
+    @Test
+    public void testConcurrentAdd() throws InterruptedException {
+        instance.clear();
+        Thread threads[] = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    instance.add("token" + j);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(10000, instance.size());
+        int expectedId = 0;
+        for (String text : instance) {
+            assertEquals(expectedId, instance.getId(text));
+            expectedId++;
+        }
+        instance.clear();
+    }
+
+    /**
+     * Test of getText and iterator methods while other threads are adding
+     * entries, of class Dictionary.
+     */
+    @Test
+    public void testConcurrentAddAndRead() throws InterruptedException {
+        instance.clear();
+        AtomicBoolean finished = new AtomicBoolean(false);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        Thread writers[] = new Thread[4];
+        for (int i = 0; i < writers.length; i++) {
+            final int writer = i;
+            writers[i] = new Thread(() -> {
+                for (int j = 0; j < 50000; j++) {
+                    instance.add("writer" + writer + "token" + j);
+                }
+            });
+        }
+        Thread readers[] = new Thread[2];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                try {
+                    // Read the last identifiers published
+                    while (!finished.get()) {
+                        int bound = instance.getIdBound();
+                        for (int id = Math.max(0, bound - 8); id < bound; id++) {
+                            assertNotNull(instance.getText(id));
+                            assertTrue(instance.isIncluded(id));
+                        }
+                    }
+                } catch (Throwable t) {
+                    error.compareAndSet(null, t);
+                }
+            });
+            readers[i].start();
+        }
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        finished.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(error.get());
+        int expectedId = 0;
+        for (String text : instance) {
+            assertEquals(expectedId++, instance.getId(text));
+        }
+        assertEquals(200000, expectedId);
+        assertEquals(200000, instance.size());
+        assertEquals(200000, instance.getIdBound());
+        instance.clear();
+    }
+
     /**
      * Test of clear method, of class Dictionary.
      */
@@ -0,0 +1,44 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.types;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author María Novo
+ */
+public class FeatureVectorTest {
+
+    /**
+     * Test of FeatureVector(Map) constructor: building a vector should not add
+     * its features to the Dictionary
+     */
+    @Test
+    public void testMapConstructorDoesNotGrowDictionary() {
+        Dictionary dictionary = Dictionary.getDictionary();
+        int known = dictionary.intern("featurevectorknown");
+        int idBound = dictionary.getIdBound();
+        int size = dictionary.size();
+
+        Map<String, Double> features = new HashMap<>();
+        features.put("featurevectorknown", 2.0);
+        features.put("featurevectorthrowaway", 1.0);
+        FeatureVector vector = new FeatureVector(features);
+
+        assertEquals(idBound, dictionary.getIdBound());
+        assertEquals(size, dictionary.size());
+        assertEquals(Dictionary.NOT_INCLUDED, dictionary.getId("featurevectorthrowaway"));
+
+        assertEquals(1, vector.getSize());
+        assertEquals(known, vector.getIndexAt(0));
+        assertEquals(2.0, vector.getValue(known), 0);
+        assertEquals(0.0, vector.getValue("featurevectorthrowaway"), 0);
+    }
+}
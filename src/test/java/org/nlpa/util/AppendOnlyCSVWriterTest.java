@@ -0,0 +1,132 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.bdp4j.util.CSVDatasetWriter;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author José Ramón Méndez
+ */
+public class AppendOnlyCSVWriterTest {
+
+    /**
+     * Write the rows row0 (no properties), row1 (length) and row2 (length
+     * and lang) and read the output file
+     *
+     * @param rows The number of rows to write
+     * @return The lines of the output file
+     * @throws IOException If the output file cannot be written or read
+     */
+    private static List<String> writeRows(int rows) throws IOException {
+        File output = File.createTempFile("nlpa-appendonly", ".csv");
+        output.deleteOnExit();
+        try (AppendOnlyCSVWriter writer = new AppendOnlyCSVWriter(output, new CSVDatasetWriter(output.getPath()))) {
+            for (int i = 0; i < rows; i++) {
+                Map<String, Object> properties = new LinkedHashMap<>();
+                if (i >= 1) {
+                    properties.put("length", 10 + i);
+                }
+                if (i >= 2) {
+                    properties.put("lang", "en");
+                }
+                writer.addRow("row" + i, "data" + i, properties, (i % 2 == 0) ? "ham" : "spam");
+            }
+            assertEquals(rows, writer.getRowCount());
+        }
+        List<String> lines = Files.readAllLines(output.toPath(), StandardCharsets.UTF_8);
+        output.delete();
+        return lines;
+    }
+
+    /**
+     * Build a CSV line
+     *
+     * @param fields The fields of the line
+     * @return The line
+     */
+    private static String line(String... fields) {
+        return String.join(new CSVDatasetWriter("").getCSVSep(), fields);
+    }
+
+    /**
+     * Test of addRow and close methods, of class AppendOnlyCSVWriter, when
+     * all the properties are found in the first row.
+     *
+     * @throws IOException If the output file cannot be written or read
+     */
+    @Test
+    public void testAddRow() throws IOException {
+        assertEquals(Arrays.asList(
+                line("id", "data", "target"),
+                line("row0", "data0", "ham")), writeRows(1));
+    }
+
+    /**
+     * Test of addRow and close methods, of class AppendOnlyCSVWriter, when
+     * properties are found after the first rows.
+     *
+     * @throws IOException If the output file cannot be written or read
+     */
+    @Test
+    public void testAddRowWithNewProperties() throws IOException {
+        assertEquals(Arrays.asList(
+                line("id", "data", "length", "lang", "target"),
+                line("row0", "data0", "0", "0", "ham"),
+                line("row1", "data1", "11", "0", "spam"),
+                line("row2", "data2", "12", "en", "ham")), writeRows(3));
+    }
+
+    /**
+     * Test of close method, of class AppendOnlyCSVWriter, with a header and
+     * rows that do not fit in the buffer.
+     *
+     * @throws IOException If the output file cannot be written or read
+     */
+    @Test
+    public void testCloseWithLargeRows() throws IOException {
+        File output = File.createTempFile("nlpa-appendonly", ".csv");
+        output.deleteOnExit();
+        char[] large = new char[AppendOnlyCSVWriter.BUFFER_SIZE + 10];
+        Arrays.fill(large, 'x');
+        String data = new String(large);
+        List<String> expected = new ArrayList<>();
+        expected.add(line("id", "data", data, "target"));
+        try (AppendOnlyCSVWriter writer = new AppendOnlyCSVWriter(output, new CSVDatasetWriter(output.getPath()))) {
+            for (int i = 0; i < 3; i++) {
+                Map<String, Object> properties = new LinkedHashMap<>();
+                if (i == 2) {
+                    properties.put(data, 1);
+                }
+                writer.addRow("row" + i, data, properties, "ham");
+                expected.add(line("row" + i, data, (i == 2) ? "1" : "0", "ham"));
+            }
+        }
+        assertEquals(expected, Files.readAllLines(output.toPath(), StandardCharsets.UTF_8));
+        output.delete();
+    }
+
+    /**
+     * Test of close method, of class AppendOnlyCSVWriter, without rows.
+     *
+     * @throws IOException If the output file cannot be written or read
+     */
+    @Test
+    public void testCloseWithoutRows() throws IOException {
+        assertEquals(Arrays.asList(line("id", "data", "target")), writeRows(0));
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author José Ramón Méndez
+ */
+public class BabelfyClientTest {
+
+    private File cacheFile;
+
+    /**
+     * The number of queries received by the annotator
+     */
+    private final AtomicInteger queries = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        cacheFile = File.createTempFile("nlpa-babelfy", ".cache");
+        cacheFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        cacheFile.delete();
+    }
+
+    /**
+     * An annotator that finds a synset for each word of the text
+     *
+     * @param text The text to annotate
+     * @param lang The language of the text
+     * @return the annotations
+     */
+    private List<BabelfyEntry> annotate(String text, String lang) {
+        queries.incrementAndGet();
+        List<BabelfyEntry> entries = new ArrayList<>();
+        int start = 0;
+        for (String word : text.split(" ")) {
+            entries.add(new BabelfyEntry(start, start + word.length() - 1, 0.5, "bn:" + lang + "-" + word, word));
+            start += word.length() + 1;
+        }
+        return entries;
+    }
+
+    private static String toString(List<BabelfyEntry> entries) {
+        StringBuilder sb = new StringBuilder();
+        for (BabelfyEntry entry : entries) {
+            sb.append(entry.getStartIdx()).append('-').append(entry.getEndIdx()).append(':')
+                    .append(entry.getSynsetId()).append('/').append(entry.getText()).append('/').append(entry.getScore()).append(' ');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Test of annotate method, of class BabelfyClient, for identical queries
+     * in progress at the same time.
+     */
+    @Test
+    public void testAnnotateCoalescesQueries() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        BabelfyClient client = new BabelfyClient((text, lang) -> {
+            started.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return annotate(text, lang);
+        }, new BabelfyResponseCache(cacheFile.getPath()), 4);
+
+        CompletableFuture<List<BabelfyEntry>> first = client.annotate("hello world", "EN");
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<List<BabelfyEntry>> second = client.annotate("hello world", "EN");
+        CompletableFuture<List<BabelfyEntry>> other = client.annotate("hello world", "ES");
+        finish.countDown();
+
+        assertEquals(toString(first.get(10, TimeUnit.SECONDS)), toString(second.get(10, TimeUnit.SECONDS)));
+        assertEquals("0-4:bn:ES-hello/hello/0.5 6-10:bn:ES-world/world/0.5 ", toString(other.get(10, TimeUnit.SECONDS)));
+        assertEquals(2, queries.get());
+        assertEquals(2, client.getQueries());
+    }
+
+    /**
+     * Test of annotate method, of class BabelfyClient, for responses stored in
+     * the cache (even by a previous execution).
+     */
+    @Test
+    public void testAnnotateUsesCache() throws Exception {
+        BabelfyClient client = new BabelfyClient(this::annotate, new BabelfyResponseCache(cacheFile.getPath()), 2);
+        String expected = toString(client.annotate("good morning", "EN").get(10, TimeUnit.SECONDS));
+        assertEquals("0-3:bn:EN-good/good/0.5 5-11:bn:EN-morning/morning/0.5 ", expected);
+        assertEquals(expected, toString(client.annotate("good morning", "EN").get(10, TimeUnit.SECONDS)));
+        assertEquals(1, queries.get());
+
+        BabelfyResponseCache cache = new BabelfyResponseCache(cacheFile.getPath());
+        assertEquals(1, cache.size());
+        assertNull(cache.get("good morning", "ES"));
+        BabelfyClient reopened = new BabelfyClient(this::annotate, cache, 2);
+        assertEquals(expected, toString(reopened.annotate("good morning", "EN").get(10, TimeUnit.SECONDS)));
+        assertEquals(1, queries.get());
+    }
+
+    /**
+     * Test of BabelfyResponseCache class, when the last response is
+     * truncated.
+     */
+    @Test
+    public void testCacheDiscardsTruncatedResponse() throws Exception {
+        BabelfyResponseCache cache = new BabelfyResponseCache(cacheFile.getPath());
+        cache.put("one two", "EN", annotate("one two", "EN"));
+        cache.put("three", "EN", annotate("three", "EN"));
+        long size = cacheFile.length();
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+            file.setLength(size - 3);
+        }
+
+        BabelfyResponseCache reopened = new BabelfyResponseCache(cacheFile.getPath());
+        assertEquals(1, reopened.size());
+        assertEquals(toString(annotate("one two", "EN")), toString(reopened.get("one two", "EN")));
+        assertNull(reopened.get("three", "EN"));
+
+        reopened.put("four", "EN", annotate("four", "EN"));
+        BabelfyResponseCache again = new BabelfyResponseCache(cacheFile.getPath());
+        assertEquals(2, again.size());
+        assertEquals(toString(annotate("four", "EN")), toString(again.get("four", "EN")));
+    }
+
+    /**
+     * Test of annotate method, of class BabelfyClient, when the daily requests
+     * limit is reached.
+     */
+    @Test
+    public void testAnnotatePausesWhenLimitIsReached() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        BabelfyClient client = new BabelfyClient((text, lang) -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new RuntimeException(BabelfyClient.LIMIT_REACHED_MESSAGE);
+            }
+            return annotate(text, lang);
+        }, new BabelfyResponseCache(cacheFile.getPath()), 2);
+
+        CompletableFuture<List<BabelfyEntry>> future = client.annotate("paused text", "EN");
+        for (int i = 0; i < 1000 && !client.isPaused(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(client.isPaused());
+
+        // Other queries wait for the pause too
+        CompletableFuture<List<BabelfyEntry>> other = client.annotate("other text", "EN");
+        Thread.sleep(100);
+        assertFalse(future.isDone());
+        assertFalse(other.isDone());
+        assertEquals(1, attempts.get());
+
+        client.resume();
+        assertEquals("0-5:bn:EN-paused/paused/0.5 7-10:bn:EN-text/text/0.5 ", toString(future.get(10, TimeUnit.SECONDS)));
+        assertEquals(2, other.get(10, TimeUnit.SECONDS).size());
+        assertFalse(client.isPaused());
+        assertEquals(3, attempts.get());
+    }
+
+    /**
+     * Test of annotate method, of class BabelfyClient, when the language is
+     * not allowed or the query fails.
+     */
+    @Test
+    public void testAnnotateErrors() throws Exception {
+        BabelfyClient client = new BabelfyClient((text, lang) -> {
+            throw new RuntimeException(lang.equals("XX") ? BabelfyClient.LANGUAGE_NOT_ALLOWED_MESSAGE : "Connection refused");
+        }, new BabelfyResponseCache(cacheFile.getPath()), 2);
+
+        assertNull(client.annotate("text", "XX").get(10, TimeUnit.SECONDS));
+        assertTrue(client.annotate("text", "EN").get(10, TimeUnit.SECONDS).isEmpty());
+        assertEquals(0, client.getCache().size());
+    }
+}
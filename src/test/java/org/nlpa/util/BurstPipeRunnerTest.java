@@ -0,0 +1,251 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.bdp4j.pipe.AbstractPipe;
+import org.bdp4j.pipe.SerialPipes;
+import org.bdp4j.pipe.TeePipe;
+import org.bdp4j.types.Instance;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.nlpa.pipe.impl.MeasureLengthFromStringBufferPipe;
+import org.nlpa.pipe.impl.StringBufferToLowerCasePipe;
+
+/**
+ *
+ * @author José Ramón Méndez
+ */
+public class BurstPipeRunnerTest {
+
+    private static final int NUM_INSTANCES = 10;
+    private static final int BURST_SIZE = 3;
+
+    /**
+     * A pipe that marks the instances in pipeAll (as pipes that prefetch data
+     * for a whole burst do) and checks the mark when each instance is piped.
+     * It also detects whether it is used by several threads at the same time
+     */
+    private static class PrefetchingPipe extends AbstractPipe {
+
+        AtomicInteger running = new AtomicInteger();
+        volatile boolean usedConcurrently = false;
+
+        public PrefetchingPipe() {
+            super(new Class<?>[0], new Class<?>[0]);
+        }
+
+        @Override
+        public Collection<Instance> pipeAll(Collection<Instance> carriers) {
+            for (Instance carrier : carriers) {
+                carrier.setProperty("prefetched", Boolean.TRUE);
+            }
+            return super.pipeAll(carriers);
+        }
+
+        @Override
+        public Instance pipe(Instance carrier) {
+            if (running.incrementAndGet() > 1) {
+                usedConcurrently = true;
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            carrier.setProperty("usedPrefetch", carrier.getProperty("prefetched") != null);
+            running.decrementAndGet();
+            return carrier;
+        }
+
+        @Override
+        public Class<?> getInputType() {
+            return StringBuffer.class;
+        }
+
+        @Override
+        public Class<?> getOutputType() {
+            return StringBuffer.class;
+        }
+    }
+
+    /**
+     * A Tee pipe that stores the instances received and counts the end of
+     * bursts and the end of the source
+     */
+    @TeePipe()
+    private static class RecorderPipe extends AbstractPipe implements SourceListener {
+
+        List<String> results = new ArrayList<>();
+        Set<Thread> threads = new HashSet<>();
+        int burstEnds = 0;
+        int finalizations = 0;
+        boolean sourceInBursts = false;
+
+        public RecorderPipe() {
+            super(new Class<?>[0], new Class<?>[0]);
+        }
+
+        @Override
+        public Instance pipe(Instance carrier) {
+            results.add(carrier.getName() + "|" + carrier.getData() + "|" + carrier.getProperty("length") + "|" + carrier.getProperty("usedPrefetch"));
+            threads.add(Thread.currentThread());
+            if (isLast()) {
+                burstEnds++;
+                if (!sourceInBursts) {
+                    finalizations++;
+                }
+            }
+            return carrier;
+        }
+
+        @Override
+        public void sourceStarted() {
+            sourceInBursts = true;
+        }
+
+        @Override
+        public void sourceFinished() {
+            sourceInBursts = false;
+            finalizations++;
+        }
+
+        @Override
+        public Class<?> getInputType() {
+            return StringBuffer.class;
+        }
+
+        @Override
+        public Class<?> getOutputType() {
+            return StringBuffer.class;
+        }
+    }
+
+    private static List<Instance> createInstances() {
+        List<Instance> instances = new ArrayList<>();
+        for (int i = 0; i < NUM_INSTANCES; i++) {
+            instances.add(new Instance(new StringBuffer("Message " + i + " WITH Some UPPER case"), "ham", "instance" + i, "instance" + i));
+        }
+        return instances;
+    }
+
+    private static AbstractPipe[] createPipes(RecorderPipe recorder) {
+        return new AbstractPipe[]{
+            new PrefetchingPipe(),
+            new StringBufferToLowerCasePipe(),
+            new MeasureLengthFromStringBufferPipe(),
+            recorder
+        };
+    }
+
+    private static List<String> pipeAllAtOnce() {
+        RecorderPipe recorder = new RecorderPipe();
+        new SerialPipes(createPipes(recorder)).pipeAll(createInstances());
+        assertEquals(1, recorder.finalizations);
+        return recorder.results;
+    }
+
+    /**
+     * Test of run method, of class BurstPipeRunner.
+     */
+    @Test
+    public void testRun() {
+        RecorderPipe recorder = new RecorderPipe();
+        BurstPipeRunner runner = new BurstPipeRunner(new SerialPipes(createPipes(recorder)), BURST_SIZE);
+
+        assertEquals(NUM_INSTANCES, runner.run(createInstances().iterator()));
+        assertEquals(pipeAllAtOnce(), recorder.results);
+        assertEquals((NUM_INSTANCES + BURST_SIZE - 1) / BURST_SIZE, recorder.burstEnds);
+        assertEquals(1, recorder.finalizations);
+        assertFalse(recorder.sourceInBursts);
+    }
+
+    /**
+     * Test of run method, of class BurstPipeRunner, when the last burst only
+     * contains invalid instances.
+     */
+    @Test
+    public void testRunWithInvalidLastBurst() {
+        List<Instance> instances = createInstances();
+        instances.get(NUM_INSTANCES - 1).invalidate();
+
+        RecorderPipe recorder = new RecorderPipe();
+        BurstPipeRunner runner = new BurstPipeRunner(new SerialPipes(createPipes(recorder)), BURST_SIZE);
+        assertEquals(NUM_INSTANCES - 1, runner.run(instances.iterator()));
+        assertEquals(pipeAllAtOnce().subList(0, NUM_INSTANCES - 1), recorder.results);
+        assertEquals((NUM_INSTANCES - 1) / BURST_SIZE, recorder.burstEnds);
+        assertEquals(1, recorder.finalizations);
+    }
+
+    /**
+     * Test of run method, of class ParallelBurstPipeRunner.
+     */
+    @Test
+    public void testRunInParallel() {
+        List<AbstractPipe[]> chains = new ArrayList<>();
+        Supplier<AbstractPipe[]> factory = () -> {
+            chains.add(createPipes(new RecorderPipe()));
+            return chains.get(chains.size() - 1);
+        };
+        try (ParallelBurstPipeRunner runner = new ParallelBurstPipeRunner(factory, 4, BURST_SIZE)) {
+            assertEquals(NUM_INSTANCES, runner.run(createInstances().stream()));
+        }
+
+        // Each worker uses its own chain and the Tee stage of the first one
+        assertEquals(4, chains.size());
+        for (AbstractPipe[] chain : chains) {
+            assertFalse(((PrefetchingPipe) chain[0]).usedConcurrently);
+        }
+        RecorderPipe recorder = (RecorderPipe) chains.get(0)[3];
+        assertEquals(pipeAllAtOnce(), recorder.results);
+        assertEquals(Collections.singleton(Thread.currentThread()), recorder.threads);
+        assertEquals((NUM_INSTANCES + BURST_SIZE - 1) / BURST_SIZE, recorder.burstEnds);
+        assertEquals(1, recorder.finalizations);
+    }
+
+    /**
+     * Test of run method, of class ParallelBurstPipeRunner, when the Tee pipe
+     * is included in a nested SerialPipes.
+     */
+    @Test
+    public void testRunInParallelNestedChain() {
+        List<RecorderPipe> recorders = new ArrayList<>();
+        Supplier<AbstractPipe[]> factory = () -> {
+            AbstractPipe[] pipes = createPipes(new RecorderPipe());
+            recorders.add((RecorderPipe) pipes[3]);
+            return new AbstractPipe[]{
+                new SerialPipes(new AbstractPipe[]{pipes[0], pipes[1]}),
+                new SerialPipes(new AbstractPipe[]{pipes[2], pipes[3]})
+            };
+        };
+        try (ParallelBurstPipeRunner runner = new ParallelBurstPipeRunner(factory, 2, BURST_SIZE)) {
+            assertEquals(NUM_INSTANCES, runner.run(createInstances().stream()));
+        }
+
+        RecorderPipe recorder = recorders.get(0);
+        assertEquals(pipeAllAtOnce(), recorder.results);
+        assertEquals(Collections.singleton(Thread.currentThread()), recorder.threads);
+        assertEquals(1, recorder.finalizations);
+        assertTrue(recorders.get(1).results.isEmpty());
+    }
+
+    /**
+     * Test of the constructor of class ParallelBurstPipeRunner, when the
+     * factory returns the same pipes for all the workers.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSharedPipes() {
+        AbstractPipe[] pipes = createPipes(new RecorderPipe());
+        new ParallelBurstPipeRunner(() -> pipes, 2, BURST_SIZE).close();
+    }
+}
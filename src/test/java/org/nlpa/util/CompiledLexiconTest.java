@@ -0,0 +1,136 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author José Ramón Méndez
+ */
+public class CompiledLexiconTest {
+
+    private CompiledLexicon lexicon;
+
+    @Before
+    public void setUp() {
+        List<String> entries = Arrays.asList("lol", "brb", "afk", "brb", "omg");
+        Map<String, List<Object>> columns = new LinkedHashMap<>();
+        columns.put("meaning", new ArrayList<>(Arrays.asList("laughing out loud", "be right back", "away from keyboard", "be right back", null)));
+        columns.put("score", new ArrayList<>(Arrays.asList(0.5, 0.0, -0.25)));
+        lexicon = CompiledLexicon.build(entries, columns);
+    }
+
+    /**
+     * Check the contents of the lexicon created in setUp
+     *
+     * @param lexicon The lexicon
+     */
+    private static void checkLexicon(CompiledLexicon lexicon) {
+        assertEquals(4, lexicon.size());
+        assertEquals(-1, lexicon.indexOf("wtf"));
+
+        int lol = lexicon.indexOf("lol");
+        int brb = lexicon.indexOf("brb");
+        int afk = lexicon.indexOf("afk");
+        int omg = lexicon.indexOf("omg");
+        assertEquals("lol", lexicon.getKey(lol));
+        assertEquals("omg", lexicon.getKey(omg));
+
+        // Duplicated entries are only counted once in the source order
+        assertEquals(lol, lexicon.entryAt(0));
+        assertEquals(brb, lexicon.entryAt(1));
+        assertEquals(afk, lexicon.entryAt(2));
+        assertEquals(omg, lexicon.entryAt(3));
+
+        assertTrue(lexicon.hasColumn("meaning"));
+        assertTrue(lexicon.hasColumn("score"));
+        assertFalse(lexicon.hasColumn("other"));
+
+        assertEquals("laughing out loud", lexicon.getString("meaning", lol));
+        assertEquals("be right back", lexicon.getString("meaning", brb));
+        assertNull(lexicon.getString("meaning", omg));
+        assertTrue(Double.isNaN(lexicon.getDouble("meaning", lol)));
+
+        assertEquals(0.5, lexicon.getDouble("score", lol), 0.0);
+        assertEquals(-0.25, lexicon.getDouble("score", afk), 0.0);
+        assertTrue(Double.isNaN(lexicon.getDouble("score", omg)));
+        assertEquals("0.5", lexicon.getString("score", lol));
+        assertNull(lexicon.getString("score", omg));
+        assertTrue(Double.isNaN(lexicon.getDouble("other", lol)));
+    }
+
+    /**
+     * Test of build method, of class CompiledLexicon.
+     */
+    @Test
+    public void testBuild() {
+        checkLexicon(lexicon);
+    }
+
+    /**
+     * Test of write and read methods, of class CompiledLexicon.
+     */
+    @Test
+    public void testWriteAndRead() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        lexicon.write(out);
+        checkLexicon(CompiledLexicon.read(ByteBuffer.wrap(out.toByteArray())));
+    }
+
+    /**
+     * Test of read method, of class CompiledLexicon, memory-mapping a file.
+     */
+    @Test
+    public void testReadFile() throws IOException {
+        File file = File.createTempFile("nlpa-lexicon", CompiledLexicon.COMPILED_LEXICON_EXTENSION);
+        file.deleteOnExit();
+        try (OutputStream os = new FileOutputStream(file)) {
+            lexicon.write(os);
+        }
+        checkLexicon(CompiledLexicon.read(file.toPath()));
+    }
+
+    /**
+     * Test of read method, of class CompiledLexicon, for a buffer that does
+     * not contain a lexicon.
+     */
+    @Test(expected = IOException.class)
+    public void testReadInvalidBuffer() throws IOException {
+        CompiledLexicon.read(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+
+    /**
+     * Test of getCompiledResourceName method, of class CompiledLexicon.
+     */
+    @Test
+    public void testGetCompiledResourceName() {
+        assertEquals("/lexicon-bin/stopwords-json/en.lex", CompiledLexicon.getCompiledResourceName("/stopwords-json/en.json"));
+        assertEquals("/lexicon-bin/stopwords-json/en.lex", CompiledLexicon.getCompiledResourceName("stopwords-json/en.json"));
+    }
+
+    /**
+     * Test of main method, of class LexiconCompiler, without the required
+     * arguments.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompilerMainWithoutArguments() throws IOException {
+        LexiconCompiler.main(new String[]{"resources"});
+    }
+}
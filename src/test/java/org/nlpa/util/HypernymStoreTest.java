@@ -0,0 +1,258 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author José Ramón Méndez
+ */
+public class HypernymStoreTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("nlpa-hypernyms", ".hyp");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Create a store containing the chain bn:1 -&gt; bn:2 -&gt; bn:3 and the
+     * synset bn:4 (whose hypernym is unknown)
+     *
+     * @return the store
+     */
+    private HypernymStore createStore() {
+        HypernymStore store = new HypernymStore(file.getPath());
+        store.setHypernym(store.intern("bn:1"), store.intern("bn:2"));
+        store.setHypernym(store.intern("bn:2"), store.intern("bn:3"));
+        store.setHypernym(store.intern("bn:3"), HypernymStore.NO_HYPERNYM);
+        store.intern("bn:4");
+        store.close();
+        return store;
+    }
+
+    /**
+     * Test of getHypernyms and contains methods, of class HypernymStore.
+     */
+    @Test
+    public void testGetHypernyms() {
+        HypernymStore store = createStore();
+        assertEquals(Arrays.asList("bn:1", "bn:2", "bn:3"), store.getHypernyms("bn:1"));
+        assertEquals(Arrays.asList("bn:3"), store.getHypernyms("bn:3"));
+        assertEquals(Arrays.asList("bn:4"), store.getHypernyms("bn:4"));
+        assertNull(store.getHypernyms("bn:5"));
+        assertTrue(store.contains("bn:1"));
+        assertFalse(store.contains("bn:4"));
+        assertFalse(store.contains("bn:5"));
+    }
+
+    /**
+     * Test of getHypernyms method, of class HypernymStore, when the hierarchy
+     * changes after the list of hypernyms was built.
+     */
+    @Test
+    public void testGetHypernymsAfterChange() {
+        HypernymStore store = createStore();
+        List<String> hypernyms = store.getHypernyms("bn:4");
+        assertEquals(Arrays.asList("bn:4"), hypernyms);
+        assertSame(hypernyms, store.getHypernyms("bn:4"));
+
+        store.setHypernym(store.getId("bn:4"), store.getId("bn:2"));
+        assertEquals(Arrays.asList("bn:4", "bn:2", "bn:3"), store.getHypernyms("bn:4"));
+        store.setHypernym(store.getId("bn:3"), store.intern("bn:5"));
+        assertEquals(Arrays.asList("bn:4", "bn:2", "bn:3", "bn:5"), store.getHypernyms("bn:4"));
+        store.close();
+    }
+
+    /**
+     * Test of getAncestors method, of class HypernymStore, for hierarchies
+     * containing cycles.
+     */
+    @Test
+    public void testGetAncestorsWithCycle() {
+        HypernymStore store = createStore();
+        int first = store.getId("bn:1");
+        int third = store.getId("bn:3");
+        store.setHypernym(third, store.getId("bn:2"));
+        assertArrayEquals(new int[]{first, store.getId("bn:2"), third}, store.getAncestors(first));
+
+        store.setHypernym(third, first);
+        assertArrayEquals(new int[]{first, store.getId("bn:2"), third}, store.getAncestors(first));
+        store.close();
+    }
+
+    /**
+     * Test of the constructor of class HypernymStore, loading a store saved
+     * in a file.
+     */
+    @Test
+    public void testLoad() {
+        createStore();
+        HypernymStore store = new HypernymStore(file.getPath());
+        assertEquals(4, store.size());
+        assertEquals(Arrays.asList("bn:1", "bn:2", "bn:3"), store.getHypernyms("bn:1"));
+        assertEquals(HypernymStore.UNKNOWN, store.getHypernym(store.getId("bn:4")));
+
+        store.setHypernym(store.getId("bn:4"), store.intern("bn:1"));
+        store.close();
+        store = new HypernymStore(file.getPath());
+        assertEquals(4, store.size());
+        assertEquals(Arrays.asList("bn:4", "bn:1", "bn:2", "bn:3"), store.getHypernyms("bn:4"));
+    }
+
+    /**
+     * Test of the constructor of class HypernymStore, when the file ends with
+     * a truncated record.
+     */
+    @Test
+    public void testLoadTruncatedRecord() throws IOException {
+        createStore();
+        long size = file.length();
+        HypernymStore store = new HypernymStore(file.getPath());
+        store.setHypernym(store.getId("bn:4"), store.intern("bn:5"));
+        store.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // Keep the synset bn:5 and part of the hypernym record
+            raf.setLength(raf.length() - 3);
+        }
+
+        store = new HypernymStore(file.getPath());
+        assertEquals(5, store.size());
+        assertEquals(HypernymStore.UNKNOWN, store.getHypernym(store.getId("bn:4")));
+        assertEquals(size + 1 + 2 + "bn:5".length(), file.length());
+
+        store.setHypernym(store.getId("bn:4"), store.getId("bn:1"));
+        store.close();
+        store = new HypernymStore(file.getPath());
+        assertEquals(Arrays.asList("bn:4", "bn:1", "bn:2", "bn:3"), store.getHypernyms("bn:4"));
+    }
+
+    /**
+     * Test of the constructor of class HypernymStore, when the file contains
+     * an unknown record.
+     */
+    @Test
+    public void testLoadUnknownRecord() throws IOException {
+        createStore();
+        long size = file.length();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(size);
+            raf.write(new byte[]{'X', 0, 0, 0, 1});
+        }
+
+        HypernymStore store = new HypernymStore(file.getPath());
+        assertEquals(4, store.size());
+        assertEquals(size, file.length());
+
+        store.setHypernym(store.getId("bn:4"), HypernymStore.NO_HYPERNYM);
+        store.close();
+        store = new HypernymStore(file.getPath());
+        assertTrue(store.contains("bn:4"));
+        assertEquals(Arrays.asList("bn:1", "bn:2", "bn:3"), store.getHypernyms("bn:1"));
+    }
+
+    /**
+     * Test of flush method, of class HypernymStore: the records are kept in
+     * memory until the store is flushed.
+     */
+    @Test
+    public void testFlush() {
+        HypernymStore store = new HypernymStore(file.getPath());
+        store.setHypernym(store.intern("bn:1"), store.intern("bn:2"));
+        store.setHypernym(store.intern("bn:2"), HypernymStore.NO_HYPERNYM);
+        assertFalse(file.exists() && file.length() > 0);
+        assertEquals(Arrays.asList("bn:1", "bn:2"), store.getHypernyms("bn:1"));
+
+        store.flush();
+        // Header, two synsets and two hypernyms
+        assertEquals(8 + 2 * (1 + 2 + "bn:1".length()) + 2 * (1 + 4 + 4), file.length());
+        store.close();
+        store = new HypernymStore(file.getPath());
+        assertEquals(Arrays.asList("bn:1", "bn:2"), store.getHypernyms("bn:1"));
+        assertTrue(store.contains("bn:1"));
+        store.close();
+    }
+
+    /**
+     * Test of intern and setHypernym methods, of class HypernymStore, when
+     * several stores append records to the same file.
+     */
+    @Test
+    public void testSharedFile() {
+        HypernymStore first = new HypernymStore(file.getPath());
+        HypernymStore second = new HypernymStore(file.getPath());
+        first.intern("bn:1");
+        first.flush();
+        second.intern("bn:2");
+        second.intern("bn:3");
+        second.setHypernym(second.getId("bn:2"), second.intern("bn:3"));
+        second.setHypernym(second.getId("bn:3"), HypernymStore.NO_HYPERNYM);
+        // The synset bn:2 is pending in both stores
+        first.setHypernym(first.getId("bn:1"), first.intern("bn:2"));
+        second.flush();
+        first.flush();
+        assertEquals(Arrays.asList("bn:1", "bn:2", "bn:3"), first.getHypernyms("bn:1"));
+        second.intern("bn:4");
+        second.flush();
+        assertEquals(Arrays.asList("bn:2", "bn:3"), second.getHypernyms("bn:2"));
+        first.close();
+        second.close();
+
+        HypernymStore store = new HypernymStore(file.getPath());
+        assertEquals(4, store.size());
+        assertEquals(Arrays.asList("bn:1", "bn:2", "bn:3"), store.getHypernyms("bn:1"));
+        assertTrue(store.contains("bn:1"));
+        assertEquals(HypernymStore.UNKNOWN, store.getHypernym(store.getId("bn:4")));
+        store.close();
+    }
+
+    /**
+     * Test of importLegacyStore method, of class HypernymStore.
+     */
+    @Test
+    public void testImportLegacyStore() throws IOException {
+        File legacy = File.createTempFile("nlpa-hypernyms", ".map");
+        legacy.deleteOnExit();
+        HashMap<String, List<String>> map = new HashMap<>();
+        map.put("bn:1", Arrays.asList("bn:1", "bn:2", "bn:3"));
+        map.put("bn:2", Arrays.asList("bn:2", "bn:3"));
+        map.put("bn:4", Arrays.asList("bn:4", "bn:3"));
+        map.put("bn:5", Arrays.asList("bn:5"));
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(legacy))) {
+            oos.writeObject(map);
+        }
+
+        HypernymStore store = new HypernymStore(file.getPath());
+        store.importLegacyStore(legacy.getPath());
+        store.close();
+
+        store = new HypernymStore(file.getPath());
+        assertEquals(5, store.size());
+        for (List<String> hypernyms : map.values()) {
+            assertEquals(hypernyms, store.getHypernyms(hypernyms.get(0)));
+            assertTrue(store.contains(hypernyms.get(0)));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.nlpa.util.LexiconMatcher.CaseFolding;
+
+/**
+ *
+ * @author José Ramón Méndez
+ */
+public class LexiconMatcherTest {
+
+    private static LexiconMatcher createMatcher(CaseFolding caseFolding) {
+        LexiconMatcher matcher = new LexiconMatcher(LexiconMatcher.DEFAULT_LEADING_DELIMITERS,
+                LexiconMatcher.DEFAULT_TRAILING_PUNCTUATION, caseFolding);
+        matcher.add("new", "NEW");
+        matcher.add("new york", "NYC");
+        matcher.add("york", "YORK");
+        return matcher;
+    }
+
+    /**
+     * Test of add and indexOf methods, of class LexiconMatcher.
+     */
+    @Test
+    public void testIndexOf() {
+        LexiconMatcher matcher = createMatcher(CaseFolding.NONE);
+        assertEquals(3, matcher.size());
+        assertEquals(1, matcher.indexOf("new york"));
+        assertEquals(-1, matcher.indexOf("New york"));
+        assertEquals(-1, matcher.indexOf("ne"));
+        assertEquals("new york", matcher.getWord(1));
+        assertEquals("NYC", matcher.getReplacement(1));
+
+        matcher.add("new york", "NY");
+        assertEquals(3, matcher.size());
+        assertEquals("NY", matcher.getReplacement(1));
+    }
+
+    /**
+     * Test of replaceAll method, of class LexiconMatcher, selecting the longest
+     * entry found at each position.
+     */
+    @Test
+    public void testReplaceAllLongestMatch() {
+        LexiconMatcher matcher = createMatcher(CaseFolding.NONE);
+        assertEquals("I love NYC, NEW things and YORK.", matcher.replaceAll("I love new york, new things and york.").toString());
+    }
+
+    /**
+     * Test of replaceAll method, of class LexiconMatcher, for words that are
+     * not surrounded by word boundaries.
+     */
+    @Test
+    public void testReplaceAllWordBoundaries() {
+        LexiconMatcher matcher = createMatcher(CaseFolding.NONE);
+        assertEquals("renew yorkshire newyork", matcher.replaceAll("renew yorkshire newyork").toString());
+        assertEquals("\"NEW <YORK>", matcher.replaceAll("\"new <york>").toString());
+        assertEquals("NEW! x", matcher.replaceAll("new! x").toString());
+        assertEquals("new!! x", matcher.replaceAll("new!! x").toString());
+    }
+
+    /**
+     * Test of replaceAll method, of class LexiconMatcher, using case folding.
+     */
+    @Test
+    public void testReplaceAllCaseFolding() {
+        assertEquals("New York", createMatcher(CaseFolding.NONE).replaceAll("New York").toString());
+        assertEquals("NYC", createMatcher(CaseFolding.ASCII).replaceAll("New York").toString());
+
+        LexiconMatcher matcher = new LexiconMatcher(LexiconMatcher.DEFAULT_LEADING_DELIMITERS,
+                LexiconMatcher.DEFAULT_TRAILING_PUNCTUATION, CaseFolding.UNICODE);
+        matcher.add("ñandú", "bird");
+        assertEquals("a bird", matcher.replaceAll("a ÑANDÚ").toString());
+    }
+
+    /**
+     * Test of removeAll method, of class LexiconMatcher, using prefixes and
+     * suffixes.
+     */
+    @Test
+    public void testRemoveAllPrefixesAndSuffixes() {
+        LexiconMatcher matcher = new LexiconMatcher(LexiconMatcher.DEFAULT_LEADING_DELIMITERS,
+                LexiconMatcher.DEFAULT_TRAILING_PUNCTUATION, "¡", "!", CaseFolding.NONE);
+        matcher.add("hola");
+        assertEquals(" amigo", matcher.removeAll("¡¡hola!!! amigo").toString());
+        assertEquals("holas amigo", matcher.removeAll("holas amigo").toString());
+    }
+
+    /**
+     * Test of findAll method, of class LexiconMatcher.
+     */
+    @Test
+    public void testFindAll() {
+        LexiconMatcher matcher = createMatcher(CaseFolding.NONE);
+        List<String> found = new ArrayList<>();
+        matcher.findAll("new york", (entry, start, end) -> found.add(matcher.getWord(entry) + "@" + start + "-" + end));
+        assertEquals(3, found.size());
+        assertEquals("new@0-3", found.get(0));
+        assertEquals("new york@0-8", found.get(1));
+        assertEquals("york@4-8", found.get(2));
+    }
+}
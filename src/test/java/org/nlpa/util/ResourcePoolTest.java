@@ -0,0 +1,103 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author José Ramón Méndez
+ */
+public class ResourcePoolTest {
+
+    /**
+     * Test of borrow and release methods, of class ResourcePool.
+     */
+    @Test
+    public void testBorrowAndRelease() {
+        AtomicInteger created = new AtomicInteger();
+        ResourcePool<Integer> pool = new ResourcePool<>(created::incrementAndGet, 1, 2, ResourcePool.DEFAULT_IDLE_TIMEOUT);
+
+        Integer first = pool.borrow();
+        Integer second = pool.borrow();
+        assertEquals(2, pool.getBorrowedCount());
+        pool.release(first);
+        pool.release(second);
+        assertEquals(0, pool.getBorrowedCount());
+        assertEquals(1, pool.getIdleCount());
+
+        assertEquals(first, pool.borrow());
+        assertEquals(2, created.get());
+    }
+
+    /**
+     * Test of borrow method, of class ResourcePool, waiting when all the
+     * objects are borrowed.
+     */
+    @Test
+    public void testBorrowWaitsForMaxTotal() throws InterruptedException {
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger inUse = new AtomicInteger();
+        AtomicInteger maxInUse = new AtomicInteger();
+        ResourcePool<Integer> pool = new ResourcePool<>(created::incrementAndGet, 0, 2, ResourcePool.DEFAULT_IDLE_TIMEOUT);
+
+        int threads = 8;
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                for (int j = 0; j < 50; j++) {
+                    Integer resource = pool.borrow();
+                    maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+                    Thread.yield();
+                    inUse.decrementAndGet();
+                    pool.release(resource);
+                }
+                done.countDown();
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertTrue(maxInUse.get() <= 2);
+        assertEquals(0, pool.getBorrowedCount());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    /**
+     * Test of borrow method, of class ResourcePool, when the object cannot be
+     * created.
+     */
+    @Test
+    public void testBorrowNull() {
+        ResourcePool<Integer> pool = new ResourcePool<>(() -> null, 1, 1, ResourcePool.DEFAULT_IDLE_TIMEOUT);
+        assertNull(pool.borrow());
+        assertNull(pool.borrow());
+        assertEquals(0, pool.getBorrowedCount());
+    }
+
+    /**
+     * Test of evictIdle method, of class ResourcePool.
+     */
+    @Test
+    public void testEvictIdle() throws InterruptedException {
+        AtomicInteger created = new AtomicInteger();
+        ResourcePool<Integer> pool = new ResourcePool<>(created::incrementAndGet, 2, 2, 10);
+        pool.release(pool.borrow());
+        assertEquals(1, pool.getIdleCount());
+        Thread.sleep(50);
+        pool.evictIdle();
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(Integer.valueOf(2), pool.borrow());
+    }
+}
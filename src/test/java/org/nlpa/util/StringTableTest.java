@@ -0,0 +1,76 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author José Ramón Méndez
+ */
+public class StringTableTest {
+
+    /**
+     * Test of indexOf and get methods, of class StringTable.
+     */
+    @Test
+    public void testIndexOf() {
+        StringTable table = new StringTable(Arrays.asList("pear", "apple", "", "ñu", "pear", "apples"));
+        assertEquals(5, table.size());
+        assertEquals("", table.get(0));
+        assertEquals("apple", table.get(1));
+        assertEquals("apples", table.get(2));
+        assertEquals("pear", table.get(3));
+        assertEquals("ñu", table.get(4));
+        for (int i = 0; i < table.size(); i++) {
+            assertEquals(i, table.indexOf(table.get(i)));
+        }
+        assertEquals(2, table.indexOf(new StringBuilder("apples")));
+        assertEquals(-1, table.indexOf("appl"));
+        assertEquals(-1, table.indexOf("zebra"));
+        assertTrue(table.contains("pear"));
+        assertFalse(table.contains("Pear"));
+    }
+
+    /**
+     * Test of write and read methods, of class StringTable.
+     */
+    @Test
+    public void testWriteAndRead() throws IOException {
+        StringTable table = new StringTable(Arrays.asList("pear", "apple", "ñu"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            table.write(out);
+            out.writeInt(42);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        StringTable read = StringTable.read(buffer);
+        assertEquals(42, buffer.getInt());
+        assertEquals(table.size(), read.size());
+        for (int i = 0; i < table.size(); i++) {
+            assertEquals(table.get(i), read.get(i));
+        }
+        assertEquals(2, read.indexOf("ñu"));
+        assertEquals(-1, read.indexOf("banana"));
+    }
+
+    /**
+     * Test of StringTable class, for an empty table.
+     */
+    @Test
+    public void testEmptyTable() {
+        StringTable table = new StringTable(Arrays.asList());
+        assertEquals(0, table.size());
+        assertEquals(-1, table.indexOf("a"));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author José Ramón Méndez
+ */
+public class SymbolScannerTest {
+
+    private SymbolScanner scanner;
+
+    @Before
+    public void setUp() {
+        scanner = new SymbolScanner();
+        scanner.add(":)", "bn:happy", 1.0);
+        scanner.add(":-)", "bn:smile", 0.5);
+        scanner.add(":(", "bn:sad", -1.0);
+        // A flag (two codepoints outside the BMP) and its first codepoint
+        scanner.add("🇪🇸", "bn:spain", 0.0);
+        scanner.add("🇪", "bn:letter", 0.25);
+    }
+
+    /**
+     * Test of add method, of class SymbolScanner.
+     */
+    @Test
+    public void testAdd() {
+        assertEquals(5, scanner.size());
+        scanner.add(":)", "bn:joy", 0.75);
+        scanner.add("", "bn:empty", 0.0);
+        scanner.add(null, "bn:null", 0.0);
+        assertEquals(5, scanner.size());
+        assertEquals("bn:joy", scanner.scan("ok :)", SymbolScanner.Action.REPLACE).getText().toString().substring(3));
+    }
+
+    /**
+     * Test of scan method, of class SymbolScanner, selecting the longest
+     * symbol found at each position.
+     */
+    @Test
+    public void testScanLongestMatch() {
+        SymbolScanner.Result result = scanner.scan("hi :-) 🇪🇸 and 🇪!", SymbolScanner.Action.REPLACE);
+        assertEquals("hi bn:smile bn:spain and bn:letter!", result.getText().toString());
+        assertEquals(":-)🇪🇸🇪", result.getSymbols());
+        assertEquals(3, result.getCount());
+    }
+
+    /**
+     * Test of scan method, of class SymbolScanner, for symbols that are not
+     * surrounded by word boundaries.
+     */
+    @Test
+    public void testScanWithoutBoundaries() {
+        SymbolScanner.Result result = scanner.scan("great:):(end", SymbolScanner.Action.REMOVE);
+        assertEquals("greatend", result.getText().toString());
+        assertEquals(":):(", result.getSymbols());
+        assertEquals(2, result.getCount());
+    }
+
+    /**
+     * Test of scan method, of class SymbolScanner, keeping the symbols.
+     */
+    @Test
+    public void testScanKeep() {
+        SymbolScanner.Result result = scanner.scan("no symbols here :", SymbolScanner.Action.KEEP);
+        assertNull(result.getText());
+        assertEquals("", result.getSymbols());
+        assertEquals(0, result.getCount());
+        assertEquals(0.0, result.getPolarity(), 0.0);
+    }
+
+    /**
+     * Test of getPolarity method, of class SymbolScanner.Result, when symbols
+     * overlap. Only the longest symbol found at each position is scored and
+     * symbols starting inside it are not found.
+     */
+    @Test
+    public void testGetPolarityWithOverlappingSymbols() {
+        scanner.add("-)", "bn:nose", -0.5);
+        SymbolScanner.Result result = scanner.scan("🇪🇸 :-)", SymbolScanner.Action.KEEP);
+        assertEquals("🇪🇸:-)", result.getSymbols());
+        assertEquals(2, result.getCount());
+        assertEquals((0.0 + 0.5) / 2, result.getPolarity(), 1e-9);
+    }
+
+    /**
+     * Test of getPolarity method, of class SymbolScanner.Result.
+     */
+    @Test
+    public void testGetPolarity() {
+        SymbolScanner.Result result = scanner.scan(":) :) :( :-)", SymbolScanner.Action.KEEP);
+        assertEquals(4, result.getCount());
+        assertEquals((1.0 + 1.0 - 1.0 + 0.5) / 4, result.getPolarity(), 1e-9);
+    }
+}
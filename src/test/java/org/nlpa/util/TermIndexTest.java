@@ -0,0 +1,153 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiFunction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author José Ramón Méndez
+ */
+public class TermIndexTest {
+
+    private Path folder;
+
+    /**
+     * The terms queried to the resolver
+     */
+    private final List<String> queries = new ArrayList<>();
+
+    /**
+     * A resolver that considers that the terms starting with "yes" (ignoring
+     * case) exist and cannot check the terms starting with "unknown"
+     */
+    private final BiFunction<String, String, Boolean> resolver = (term, lang) -> {
+        queries.add(term);
+        return term.startsWith("unknown") ? null : term.toLowerCase().startsWith("yes");
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("nlpa-terms");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (Path file : Files.newDirectoryStream(folder)) {
+            Files.delete(file);
+        }
+        Files.delete(folder);
+    }
+
+    /**
+     * Test of contains method, of class TermIndex.
+     */
+    @Test
+    public void testContains() {
+        try (TermIndex index = new TermIndex(folder.toString(), resolver)) {
+            assertTrue(index.contains("Yes1", "EN"));
+            assertFalse(index.contains("no1", "EN"));
+            assertFalse(index.contains("unknown1", "EN"));
+            assertTrue(index.contains("yes1", "en"));
+            assertFalse(index.contains("NO1", "EN"));
+            assertFalse(index.contains("unknown1", "EN"));
+        }
+        assertEquals(4, queries.size());
+
+        // The resolved terms are read from the journal
+        queries.clear();
+        try (TermIndex index = new TermIndex(folder.toString(), null)) {
+            assertTrue(index.contains("yes1", "EN"));
+            assertFalse(index.contains("no1", "EN"));
+        }
+    }
+
+    /**
+     * Test of contains method, of class TermIndex, when the journal ends with
+     * a truncated entry.
+     */
+    @Test
+    public void testTruncatedJournal() throws IOException {
+        try (TermIndex index = new TermIndex(folder.toString(), resolver)) {
+            assertTrue(index.contains("yes1", "EN"));
+            assertFalse(index.contains("no1", "EN"));
+        }
+        Path journal = folder.resolve("en" + TermIndex.JOURNAL_EXTENSION);
+        long size = Files.size(journal);
+        // The length and the first bytes of a term, without its value
+        Files.write(journal, new byte[]{0, 4, 'y', 'e'}, StandardOpenOption.APPEND);
+
+        try (TermIndex index = new TermIndex(folder.toString(), resolver)) {
+            assertTrue(index.contains("yes1", "EN"));
+            assertEquals(size, Files.size(journal));
+            assertTrue(index.contains("yes2", "EN"));
+            assertFalse(index.contains("no2", "EN"));
+        }
+
+        queries.clear();
+        try (TermIndex index = new TermIndex(folder.toString(), null)) {
+            assertTrue(index.contains("yes1", "EN"));
+            assertFalse(index.contains("no1", "EN"));
+            assertTrue(index.contains("yes2", "EN"));
+            assertFalse(index.contains("no2", "EN"));
+            assertFalse(index.contains("yes3", "EN"));
+        }
+        assertTrue(queries.isEmpty());
+    }
+
+    /**
+     * Test of contains method, of class TermIndex, for terms that are not
+     * encoded as ASCII.
+     */
+    @Test
+    public void testNonAsciiTerms() {
+        try (TermIndex index = new TermIndex(folder.toString(), resolver)) {
+            assertTrue(index.contains("yes-ñandú-\u0000-😀", "ES"));
+            assertFalse(index.contains("no-año", "ES"));
+        }
+        try (TermIndex index = new TermIndex(folder.toString(), resolver)) {
+            assertTrue(index.contains("yes-ñandú-\u0000-😀", "ES"));
+            assertFalse(index.contains("no-año", "ES"));
+            assertTrue(index.contains("yes-más", "ES"));
+        }
+        try (TermIndex index = new TermIndex(folder.toString(), null)) {
+            assertTrue(index.contains("yes-más", "ES"));
+        }
+        assertEquals(3, queries.size());
+    }
+
+    /**
+     * Test of contains method, of class TermIndex, for terms written with
+     * different case.
+     */
+    @Test
+    public void testContainsIgnoresCase() {
+        // Only terms written in lower case exist for this resolver
+        BiFunction<String, String, Boolean> lowerCaseResolver = (term, lang) -> {
+            queries.add(term);
+            return term.equals(term.toLowerCase(Locale.ROOT));
+        };
+        try (TermIndex index = new TermIndex(folder.toString(), lowerCaseResolver)) {
+            assertTrue(index.contains("Casa", "ES"));
+            assertTrue(index.contains("casa", "ES"));
+            assertTrue(index.contains("perro", "ES"));
+            assertTrue(index.contains("PERRO", "ES"));
+        }
+        assertEquals(Arrays.asList("casa", "perro"), queries);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.nlpa.util.unmatchedtexthandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.bdp4j.util.Pair;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author José Ramón Méndez
+ */
+public class CachingUnmatchedTextHandlerTest {
+
+    /**
+     * A handler that upper-cases the texts starting with "fix" and records
+     * the texts received. While it is not available, it fails to fix any text
+     */
+    private static class RecordingHandler extends UnmatchedTextHandler {
+
+        List<String> received = new ArrayList<>();
+
+        boolean available = true;
+
+        @Override
+        public void handle(Pair<String, String> text, String lang) {
+            received.add(lang + ":" + text.getObj1());
+            if (available && text.getObj1().startsWith("fix")) {
+                text.setObj2(text.getObj1().toUpperCase());
+            }
+        }
+    }
+
+    private static String handle(UnmatchedTextHandler handler, String text, String lang) {
+        Pair<String, String> pair = new Pair<>(text, null);
+        handler.handle(pair, lang);
+        return pair.getObj2();
+    }
+
+    /**
+     * Test of handle method, of class CachingUnmatchedTextHandler.
+     */
+    @Test
+    public void testHandle() {
+        RecordingHandler handler = new RecordingHandler();
+        CachingUnmatchedTextHandler cache = new CachingUnmatchedTextHandler(handler);
+
+        assertEquals("FIXME", handle(cache, "fixme", "EN"));
+        assertEquals("FIXME", handle(cache, "fixme", "EN"));
+        assertNull(handle(cache, "broken", "EN"));
+        assertNull(handle(cache, "broken", "EN"));
+        assertEquals("FIXME", handle(cache, "fixme", "ES"));
+
+        // Fragments that cannot be fixed are not stored
+        assertEquals(4, handler.received.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertEquals(2, cache.size());
+
+        Pair<String, String> matched = new Pair<>("fixed", "matched");
+        cache.handle(matched, "EN");
+        assertEquals("matched", matched.getObj2());
+        assertEquals(4, handler.received.size());
+    }
+
+    /**
+     * Test of handle method, of class CachingUnmatchedTextHandler, when the
+     * handler fails and is available again later.
+     */
+    @Test
+    public void testHandleRetriesFailures() {
+        RecordingHandler handler = new RecordingHandler();
+        CachingUnmatchedTextHandler cache = new CachingUnmatchedTextHandler(handler);
+
+        handler.available = false;
+        assertNull(handle(cache, "fixme", "EN"));
+        assertEquals(0, cache.size());
+
+        handler.available = true;
+        assertEquals("FIXME", handle(cache, "fixme", "EN"));
+        assertEquals("FIXME", handle(cache, "fixme", "EN"));
+        assertEquals(2, handler.received.size());
+    }
+
+    /**
+     * Test of handle method, of class CachingUnmatchedTextHandler, evicting
+     * the least recently used corrections.
+     */
+    @Test
+    public void testHandleEvictsLeastRecentlyUsed() {
+        RecordingHandler handler = new RecordingHandler();
+        CachingUnmatchedTextHandler cache = new CachingUnmatchedTextHandler(2, handler);
+
+        handle(cache, "fix1", "EN");
+        handle(cache, "fix2", "EN");
+        handle(cache, "fix1", "EN");
+        handle(cache, "fix3", "EN");
+        assertEquals(2, cache.size());
+
+        handler.received.clear();
+        handle(cache, "fix1", "EN");
+        handle(cache, "fix3", "EN");
+        assertTrue(handler.received.isEmpty());
+        handle(cache, "fix2", "EN");
+        assertEquals(1, handler.received.size());
+    }
+
+    /**
+     * Test of writeToDisk and setCacheFile methods, of class
+     * CachingUnmatchedTextHandler.
+     */
+    @Test
+    public void testPersistence() throws IOException {
+        File file = File.createTempFile("nlpa-corrections", ".bin");
+        file.deleteOnExit();
+        file.delete();
+
+        RecordingHandler handler = new RecordingHandler();
+        CachingUnmatchedTextHandler cache = new CachingUnmatchedTextHandler(2, handler);
+        cache.setCacheFile(file.getPath());
+        handle(cache, "fix1", "EN");
+        handle(cache, "broken", "EN");
+        handle(cache, "fix1", "EN");
+        handle(cache, "fix2", "EN");
+        cache.writeToDisk();
+
+        RecordingHandler otherHandler = new RecordingHandler();
+        CachingUnmatchedTextHandler loaded = new CachingUnmatchedTextHandler(2, otherHandler);
+        loaded.setCacheFile(file.getPath());
+        assertEquals(file.getPath(), loaded.getCacheFile());
+        assertEquals(2, loaded.size());
+        assertEquals("FIX1", handle(loaded, "fix1", "EN"));
+        assertEquals("FIX2", handle(loaded, "fix2", "EN"));
+        assertTrue(otherHandler.received.isEmpty());
+
+        // The fragment that could not be fixed was not saved
+        assertNull(handle(loaded, "broken", "EN"));
+        assertEquals(1, otherHandler.received.size());
+    }
+
+    /**
+     * Test of writeToDisk and readFromDisk methods, of class
+     * CachingUnmatchedTextHandler, with texts longer than 64KB.
+     */
+    @Test
+    public void testPersistenceOfLongTexts() throws IOException {
+        File file = File.createTempFile("nlpa-corrections", ".bin");
+        file.deleteOnExit();
+
+        StringBuilder longText = new StringBuilder("fix");
+        while (longText.length() < 70000) {
+            longText.append("\u00f1");
+        }
+        RecordingHandler handler = new RecordingHandler();
+        CachingUnmatchedTextHandler cache = new CachingUnmatchedTextHandler(handler);
+        handle(cache, longText.toString(), "EN");
+        cache.writeToDisk(file.getPath());
+
+        RecordingHandler otherHandler = new RecordingHandler();
+        CachingUnmatchedTextHandler loaded = new CachingUnmatchedTextHandler(otherHandler);
+        loaded.readFromDisk(file.getPath());
+        assertEquals(1, loaded.size());
+        assertEquals(longText.toString().toUpperCase(), handle(loaded, longText.toString(), "EN"));
+        assertTrue(otherHandler.received.isEmpty());
+        file.delete();
+    }
+}